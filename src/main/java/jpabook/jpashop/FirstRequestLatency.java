@@ -0,0 +1,42 @@
+package jpabook.jpashop;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 요청 매핑별 첫 요청 처리 시간(핸들러 + 뷰 렌더링, 마이크로초)
+ * - 쿼리 플랜 캐시 워밍업(QueryWarmUp) 전후로 첫 요청이 얼마나 느린지 비교할 때 사용한다.
+ */
+@Component
+public class FirstRequestLatency implements HandlerInterceptor {
+
+    private static final String START = FirstRequestLatency.class.getName() + ".START";
+
+    private final Map<String, Long> firstRequestMicros = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        request.setAttribute(START, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object start = request.getAttribute(START);
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (start != null && pattern != null) {
+            firstRequestMicros.putIfAbsent(request.getMethod() + " " + pattern, (System.nanoTime() - (Long) start) / 1000);
+        }
+    }
+
+    public Map<String, Long> firstRequestMicros() {
+        return new TreeMap<>(firstRequestMicros);
+    }
+}
@@ -2,29 +2,70 @@ package jpabook.jpashop;
 
 import jpabook.jpashop.domain.*;
 import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.ChangeVersions;
+import jpabook.jpashop.service.ChangeVersions.Aggregate;
+import jpabook.jpashop.service.MemberNameFilter;
+import jpabook.jpashop.service.OrderSearchCache;
+import jpabook.jpashop.service.SalesService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 
+/**
+ * 샘플 데이터
+ * - 기본은 시작할 때(@PostConstruct) 넣는다.
+ * - jpashop.init-db.async=true (fast-start 프로파일) 이면 요청을 받기 시작한 뒤 별도 스레드에서 넣는다. 시작 시간에서 빠진다.
+ * - 서비스를 거치지 않고 넣으므로, 서비스처럼 변경 버전(ETag)을 올리고 주문 검색 캐시를 비우고 회원 이름 필터를 채운다.
+ *   비동기로 넣을 때 그 사이에 캐시된 응답, 검색 결과가 남지 않게 한다.
+ */
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class InitDb {
 
     private final InitService initService;
 
+    @Value("${jpashop.init-db.async:false}")
+    private boolean async;
+
     @PostConstruct
     public void init() {
-        initService.dbInit1();
-        initService.dbInit2();
+        if (!async) {
+            initService.dbInit1();
+            initService.dbInit2();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initAfterStartup() {
+        if (!async) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            long start = System.currentTimeMillis();
+            initService.dbInit1();
+            initService.dbInit2();
+            log.info("sample data inserted in background - {}ms", System.currentTimeMillis() - start);
+        }, "init-db");
+        thread.setDaemon(true);
+        thread.start();
     }
     @Component
     @Transactional
     @RequiredArgsConstructor
     static class InitService {
         private final EntityManager em;
+        private final SalesService salesService;
+        private final ChangeVersions changeVersions;
+        private final OrderSearchCache orderSearchCache;
+        private final MemberNameFilter memberNameFilter;
         public void dbInit1() {
             Member member = createMember("userA", "서울", "1", "1111");
             em.persist(member);
@@ -37,6 +78,9 @@ public class InitDb {
             Order order = Order.createOrder(member, createDelivery(member),
                     orderItem1, orderItem2);
             em.persist(order);
+            em.persist(OrderSummary.createOrderSummary(order));
+            salesService.record(order);
+            published(member);
         }
         public void dbInit2() {
             Member member = createMember("userB", "진주", "2", "2222");
@@ -51,6 +95,17 @@ public class InitDb {
             Order order = Order.createOrder(member, delivery, orderItem1,
                     orderItem2);
             em.persist(order);
+            em.persist(OrderSummary.createOrderSummary(order));
+            salesService.record(order);
+            published(member);
+        }
+        /**
+         * 커밋 후 MemberService.join , OrderService.order 와 같은 캐시 처리
+         */
+        private void published(Member member) {
+            memberNameFilter.put(member.getName());
+            orderSearchCache.orderPlaced(member.getName());
+            changeVersions.bump(Aggregate.MEMBER, Aggregate.ITEM, Aggregate.ORDER);
         }
         private Member createMember(String name, String city, String street,
                                     String zipcode) {
@@ -3,13 +3,18 @@ package jpabook.jpashop;
 import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
 
 @SpringBootApplication
 public class JpashopApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(JpashopApplication.class, args);
+		ConfigurableApplicationContext context = SpringApplication.run(JpashopApplication.class, args);
+		// AppCDS 아카이브를 만들 때(./gradlew cdsArchive) 시작하면서 로딩한 클래스만 기록하고 종료한다.
+		if (context.getEnvironment().getProperty("jpashop.exit-after-startup", Boolean.class, false)) {
+			System.exit(SpringApplication.exit(context));
+		}
 	}
 
 
@@ -0,0 +1,43 @@
+package jpabook.jpashop;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.LazyInitializationException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * open-in-view 를 끈 상태에서 fetch 계약 밖의 지연 로딩을 찾아낸다.
+ * - 컨트롤러나 JSON 직렬화 중에 LazyInitializationException 이 나면 어느 핸들러였는지 남기고 센다.
+ * - 응답은 바꾸지 않는다. (null 을 반환해서 다음 ExceptionResolver 가 처리한다.)
+ * - 테스트에서 모든 조회 API를 호출한 뒤 violations() 가 비어있는지 확인한다.
+ */
+@Slf4j
+@Component
+public class LazyLoadingGuard implements HandlerExceptionResolver {
+
+    private final Map<String, AtomicLong> violations = new ConcurrentHashMap<>();
+
+    @Override
+    public ModelAndView resolveException(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof LazyInitializationException) {
+                String key = request.getMethod() + " " + request.getRequestURI() + " -> " + handler;
+                violations.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+                log.error("lazy loading outside of fetch contract: {}", key, cause);
+                break;
+            }
+        }
+        return null;
+    }
+
+    public Map<String, AtomicLong> violations() {
+        return violations;
+    }
+}
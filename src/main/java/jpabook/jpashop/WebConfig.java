@@ -0,0 +1,43 @@
+package jpabook.jpashop;
+
+import jpabook.jpashop.api.OrderColumnarHttpMessageConverter;
+import jpabook.jpashop.datasource.ReadYourWrites;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final LazyLoadingGuard lazyLoadingGuard;
+    private final FirstRequestLatency firstRequestLatency;
+    private final ReadYourWrites readYourWrites;
+
+    /**
+     * 주문 목록 바이너리 응답 , 기본 컨버터(Jackson) 뒤에 추가해서 Accept 로 요청할 때만 사용되도록 한다.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new OrderColumnarHttpMessageConverter());
+    }
+
+    /**
+     * 지연 로딩 예외를 가장 먼저 보고 기록만 한다. 응답은 기본 ExceptionResolver 가 만든다.
+     */
+    @Override
+    public void extendHandlerExceptionResolvers(List<HandlerExceptionResolver> resolvers) {
+        resolvers.add(0, lazyLoadingGuard);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(firstRequestLatency);
+        registry.addInterceptor(readYourWrites); // 쓰기 직후의 읽기를 기본 DB 로 보낸다. (쿠키)
+    }
+}
@@ -0,0 +1,69 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.service.OrderSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 주문 분석 API
+ * - 주문 컬럼 스냅샷(OrderSnapshot , 힙 밖)을 훑어서 집계한다. 주문/주문상품 엔티티를 읽지 않는다.
+ * - 스냅샷이 아직 없으면(jpashop.analytics.enabled X , rebuild 전) 빈 목록을 내려준다.
+ */
+@RestController
+@RequiredArgsConstructor
+public class AnalyticsApiController {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final OrderSnapshot orderSnapshot;
+
+    /**
+     * 상태별 매출, 수량, 주문 수 , 주문일 [from, to]
+     */
+    @GetMapping("/api/analytics/revenue-by-status")
+    public List<OrderSnapshot.StatusTotal> revenueByStatus(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return orderSnapshot.revenueByStatus(from, to);
+    }
+
+    /**
+     * 매출 상위 상품 , status 가 없으면 모든 상태
+     */
+    @GetMapping("/api/analytics/top-items")
+    public List<OrderSnapshot.ItemTotal> topItems(
+            @RequestParam(value = "status", required = false) OrderStatus status,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return orderSnapshot.topItems(status, from, to, Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+
+    @GetMapping("/api/analytics/snapshot")
+    public OrderSnapshot.SnapshotStats snapshot() {
+        return orderSnapshot.stats();
+    }
+
+    /**
+     * 스냅샷을 지금 다시 만든다. (주문 id 범위 병렬 스캔)
+     * - 만드는 중이거나 마지막으로 만든 지 jpashop.analytics.manual-rebuild-min-interval-ms 가 지나지 않았으면 429 와 지금 스냅샷 상태를 내려준다.
+     */
+    @PostMapping("/api/analytics/snapshot")
+    public ResponseEntity<OrderSnapshot.SnapshotStats> rebuild() {
+        OrderSnapshot.SnapshotStats stats = orderSnapshot.requestRebuild();
+        if (stats == null) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(orderSnapshot.stats());
+        }
+        return ResponseEntity.ok(stats);
+    }
+}
@@ -0,0 +1,56 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.datasource.ConnectionHoldMonitor;
+import jpabook.jpashop.datasource.ConnectionPoolAdvisor;
+import jpabook.jpashop.datasource.ReplicaHeartbeat;
+import jpabook.jpashop.datasource.ReplicaRoutingDataSource;
+import jpabook.jpashop.repository.SingleFlight;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class DataSourceApiController {
+
+    private final ConnectionPoolAdvisor connectionPoolAdvisor;
+    private final ConnectionHoldMonitor connectionHoldMonitor;
+    private final ReplicaHeartbeat replicaHeartbeat;
+    private final SingleFlight singleFlight;
+
+    /**
+     * 커넥션 풀 현황 (active, idle, 대기 수, 획득 지연, 요청별 점유 시간) + 풀 크기 / 타임아웃 권장값
+     */
+    @GetMapping("/api/datasource/pool")
+    public ConnectionPoolAdvisor.PoolReport pool() {
+        return connectionPoolAdvisor.report();
+    }
+
+    /**
+     * 측정값을 비운다. 부하를 주기 전에 호출한다.
+     */
+    @PostMapping("/api/datasource/pool/reset")
+    public void reset() {
+        connectionHoldMonitor.reset();
+        singleFlight.reset();
+    }
+
+    /**
+     * 복제 DB 라우팅 현황 (복제 지연, 복제 DB 별 읽기 수, 기본 DB 로 보낸 읽기 수) , 라우팅을 하지 않으면 빈 응답
+     */
+    @GetMapping("/api/datasource/replicas")
+    public ReplicaRoutingDataSource.RoutingStats replicas() {
+        return replicaHeartbeat.stats();
+    }
+
+    /**
+     * 동시에 들어온 같은 조회를 묶은 현황 (조회별 호출 수, 실제 실행 수, 결과를 나눠 받은 수, 줄인 실행 시간)
+     */
+    @GetMapping("/api/datasource/single-flight")
+    public List<SingleFlight.FlightStats> singleFlight() {
+        return singleFlight.stats();
+    }
+}
@@ -0,0 +1,87 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.repository.ItemPatch;
+import jpabook.jpashop.repository.item.ItemSummaryDto;
+import jpabook.jpashop.service.ItemImportProgress;
+import jpabook.jpashop.service.ItemImportReader;
+import jpabook.jpashop.service.ItemImporter;
+import jpabook.jpashop.service.ItemService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class ItemApiController {
+
+    private final ItemService itemService;
+    private final ItemImporter itemImporter;
+
+    /**
+     * 상품 목록 , type(B, A, M 혹은 Book, Album, Movie) 을 주면 그 종류만 , 공통 컬럼만 내려준다.
+     */
+    @GetMapping("/api/v2/items")
+    public Result<List<ItemSummaryDto>> itemsV2(@RequestParam(value = "type", required = false) String type) {
+        return new Result<>(itemService.findItemSummaries(ItemService.itemType(type)));
+    }
+
+    /**
+     * 상품 부분 수정 , 요청에 들어온 필드만 바꾼다. (없는 필드는 그대로)
+     * - 조회 없이 바뀐 컬럼만 update 한다. 수정 후 상품을 다시 조회해서 내려주지 않는다. (커맨드, 쿼리 분리)
+     */
+    @PatchMapping("/api/v2/items/{id}")
+    public PatchItemResponse patchItemV2(@PathVariable("id") Long id, @RequestBody PatchItemRequest request) {
+        ItemPatch patch = new ItemPatch();
+        patch.setName(request.getName());
+        patch.setPrice(request.getPrice());
+        patch.setStockQuantity(request.getStockQuantity());
+        patch.setAuthor(request.getAuthor());
+        patch.setIsbn(request.getIsbn());
+        itemService.patch(id, patch);
+        return new PatchItemResponse(id);
+    }
+
+    /**
+     * 상품 일괄 등록 / 수정 , 요청 본문(CSV 혹은 NDJSON)을 읽으면서 바로 저장한다. (ItemImporter)
+     * - id 가 없는 줄은 등록, 있는 줄은 값이 있는 필드만 수정한다.
+     * - 끝나면 결과(등록, 수정, 실패 건수와 실패 사유)를 내려준다. 진행 중에는 GET /api/v2/items/imports 로 볼 수 있다.
+     */
+    @PostMapping(value = "/api/v2/items/imports", consumes = {"text/csv", "application/x-ndjson"})
+    public ItemImportProgress importItemsV2(@RequestHeader("Content-Type") String contentType, InputStream body) throws IOException {
+        try (ItemImportReader reader = contentType.startsWith("text/csv") ? ItemImportReader.csv(body) : ItemImportReader.ndjson(body)) {
+            return itemImporter.importItems(reader);
+        }
+    }
+
+    @GetMapping("/api/v2/items/imports")
+    public Result<List<ItemImportProgress>> importsV2() {
+        return new Result<>(itemImporter.recentJobs());
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class Result<T> {
+        private T data;
+    }
+
+    @Data
+    static class PatchItemRequest {
+        private String name;
+        private Integer price;
+        private Integer stockQuantity;
+        private String author;
+        private String isbn;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class PatchItemResponse {
+        private Long id;
+    }
+}
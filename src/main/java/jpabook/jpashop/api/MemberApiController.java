@@ -2,12 +2,17 @@ package jpabook.jpashop.api;
 
 
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.KeysetSlice;
+import jpabook.jpashop.repository.member.MemberNameDto;
+import jpabook.jpashop.service.ChangeVersions;
+import jpabook.jpashop.service.ChangeVersions.Aggregate;
 import jpabook.jpashop.service.MemberService;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
 import java.util.List;
@@ -16,7 +21,11 @@ import java.util.stream.Collectors;
 @RestController
 @RequiredArgsConstructor
 public class MemberApiController {
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final MemberService memberService;
+    private final ChangeVersions changeVersions;
 
     /**
      * 등록 V1: 요청 값으로 Member 엔티티를 직접 받는다.
@@ -127,15 +136,22 @@ public class MemberApiController {
     /**
      *  조회 V2: 응답 값으로 엔티티가 아닌 별도의 DTO를 반환한다.
      *
+     *  - 회원 변경 버전으로 ETag를 내려준다. If-None-Match 가 같으면 조회하지 않고 304로 응답한다.
+     *  - 엔티티를 읽지 않고 이름만 DTO로 바로 조회한다. (생성자 프로젝션)
+     *  - 키셋 페이징 , 응답의 next 를 다음 요청의 afterId 로 넘긴다. 마지막 페이지면 next 는 null
      */
     @GetMapping("/api/v2/members")
-    public Result membersV2() {
-        List<Member> findMembers = memberService.findMembers();
-        //엔티티 -> DTO 변환
-        List<MemberDto> collect = findMembers.stream()
+    public SliceResult<List<MemberDto>> membersV2(@RequestParam(value = "afterId", defaultValue = "0") Long afterId,
+                                                  @RequestParam(value = "size", defaultValue = "1000") int size,
+                                                  WebRequest webRequest) {
+        if (webRequest.checkNotModified(changeVersions.etag(Aggregate.MEMBER))) {
+            return null;
+        }
+        KeysetSlice<MemberNameDto> slice = memberService.findMemberNames(afterId, Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+        List<MemberDto> collect = slice.getContent().stream()
                 .map(m -> new MemberDto(m.getName()))
                 .collect(Collectors.toList());
-        return new Result(collect);
+        return new SliceResult<>(collect, slice.getNext());
     }
 
     /**
@@ -151,6 +167,12 @@ public class MemberApiController {
     }
     @Data
     @AllArgsConstructor
+    static class SliceResult<T> {
+        private T data;
+        private Long next;
+    }
+    @Data
+    @AllArgsConstructor
     static class MemberDto {
         private String name;
     }
@@ -4,18 +4,30 @@ import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderItem;
 import jpabook.jpashop.domain.OrderStatus;
-import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.SingleFlight;
 import jpabook.jpashop.repository.order.query.OrderFlatDto;
 import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
 import jpabook.jpashop.repository.order.query.OrderQueryDto;
 import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.service.ChangeVersions;
+import jpabook.jpashop.service.ChangeVersions.Aggregate;
+import jpabook.jpashop.service.OrderHistoryService;
+import jpabook.jpashop.service.OrderQueryService;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.OrderService.BulkCancelResult;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.validation.Valid;
+import javax.validation.constraints.AssertTrue;
+
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -39,14 +51,22 @@ import static java.util.stream.Collectors.*;
  * - 페이징 가능
  * V6. JPA에서 DTO로 바로 조회, 플랫 데이터(1Query) (1 Query)
  * - 페이징 불가능...
+ * V7. 기간 조회 , 기간이 보관된 주문까지 내려가면 보관 테이블(OrderArchiver)도 같이 조회한다. (V5 와 같은 1 + 1 Query)
  *
+ * /stream : 같은 응답을 databind 대신 OrderJsonWriter(JsonGenerator)로 바로 쓴다. 응답이 큰 API에서 사용
+ * V4, V5, V6 는 Accept: application/x-jpashop-orders 로 요청하면 바이너리(OrderColumnarCodec)로 응답한다. 내부 서비스용
  */
 @RestController
 @RequiredArgsConstructor
 public class OrderApiController {
 
-    private final OrderRepository orderRepository;
     private final OrderQueryRepository orderQueryRepository;
+    private final OrderJsonWriter orderJsonWriter;
+    private final OrderQueryService orderQueryService; // open-in-view X , 엔티티는 초기화가 끝난 상태로 받는다.
+    private final OrderService orderService;
+    private final OrderHistoryService orderHistoryService;
+    private final SingleFlight singleFlight;
+    private final ChangeVersions changeVersions;
 
     /**
      * V1. 엔티티 직접 노출
@@ -57,16 +77,10 @@ public class OrderApiController {
      */
     @GetMapping("/api/v1/orders")
     public List<Order> ordersV1() {
-        List<Order> all = orderRepository.findAllByString(new OrderSearch());
-        for (Order order : all) {
-            order.getMember().getName(); //Lazy 강제 초기화 -> 초기화 한 이유는 프록시 객체가 들어갈 순 없기 때문에
-            order.getDelivery().getAddress(); //Lazy 강제 초기화
-
-            List<OrderItem> orderItems = order.getOrderItems();
-            orderItems.stream().forEach(o -> o.getItem().getName()); //Lazy 강제초기화 collect(Collectors.toList())하지 않아도
-                                                                    // 해당 변경값이 orderItems에 알아서 담기게 된다.
-        }
-        return all;
+        // Lazy 강제 초기화(member, delivery, orderItems.item) -> 초기화 한 이유는 프록시 객체가 들어갈 순 없기 때문에
+        // open-in-view 를 끈 뒤로는 트랜잭션 안(OrderQueryService)에서 초기화한다.
+        // V1 은 엔티티 노출 예시라서 엔티티를 그대로 받는다. (초기화된 범위만 직렬화된다.)
+        return orderQueryService.findOrdersWithItems(new OrderSearch(), o -> o);
     }
 
 
@@ -86,11 +100,7 @@ public class OrderApiController {
      */
     @GetMapping("/api/v2/orders")
     public List<OrderDto> ordersV2() {
-        List<Order> orders = orderRepository.findAllByString(new OrderSearch());
-        List<OrderDto> result = orders.stream()
-                .map(o -> new OrderDto(o))
-                .collect(toList());
-        return result;
+        return orderQueryService.findOrdersWithItems(new OrderSearch(), o -> new OrderDto(o)); // 지연 로딩과 DTO 변환은 트랜잭션 안에서 일어난다.
     }
 
 
@@ -141,11 +151,13 @@ public class OrderApiController {
      */
     @GetMapping("/api/v3/orders")
     public List<OrderDto> ordersV3() {
-        List<Order> orders = orderRepository.findAllWithItem(); // orders 에서도 2건이 나와야 하지만 4건이 나오고 있다.
-        List<OrderDto> result = orders.stream()
-                .map(o -> new OrderDto(o))
-                .collect(toList());
-        return result;
+        return orderQueryService.findOrdersWithItems(o -> new OrderDto(o)); // orders 에서도 2건이 나와야 하지만 4건이 나오고 있다. , DTO 변환은 트랜잭션 안에서 한다.
+    }
+
+    @GetMapping("/api/v3/orders/stream")
+    public ResponseEntity<StreamingResponseBody> ordersV3Stream() {
+        List<OrderDto> result = orderQueryService.findOrdersWithItems(o -> new OrderDto(o)); // 응답을 쓸 때는 DTO만 사용한다.
+        return orderJsonWriter.response(out -> orderJsonWriter.writeOrderDtos(result, out));
     }
 
 
@@ -162,12 +174,7 @@ public class OrderApiController {
         // 페이징에 영향을 주지 않기 때문에 -> 대신 orderItems에 대해서는 N +1 문제점이 발생한다.
         // List<Order> orders = orderRepository.findAllWithMemberDelivery();
 
-        List<Order> orders = orderRepository.findAllWithMemberDelivery(offset, limit);
-
-        List<OrderDto> result = orders.stream()
-                .map(o -> new OrderDto(o))
-                .collect(toList());
-        return result;
+        return orderQueryService.findOrdersWithItems(offset, limit, o -> new OrderDto(o)); // orderItems는 batch size로 트랜잭션 안에서 초기화 , DTO 변환도 트랜잭션 안에서 한다.
     }
 
 
@@ -177,12 +184,26 @@ public class OrderApiController {
         return orderQueryRepository.findOrderQueryDtos();
     }
 
+    /**
+     * 같은 조회가 동시에 여러 번 들어오면 한 번만 실행한다. (SingleFlight , 주문/회원/상품 변경 버전이 같을 때만 묶는다.)
+     */
     @GetMapping("/api/v5/orders")
     public List<OrderQueryDto> ordersV5() {
-        return orderQueryRepository.findAllByDto_optimization();
+        return findAllByDto_optimization();
+    }
+
+    @GetMapping("/api/v5/orders/stream")
+    public ResponseEntity<StreamingResponseBody> ordersV5Stream() {
+        List<OrderQueryDto> result = findAllByDto_optimization();
+        return orderJsonWriter.response(out -> orderJsonWriter.writeOrderQueryDtos(result, out));
     }
 
 
+    private List<OrderQueryDto> findAllByDto_optimization() {
+        return singleFlight.execute("OrderQueryRepository.findAllByDto_optimization",
+                changeVersions.etag(Aggregate.ORDER, Aggregate.MEMBER, Aggregate.ITEM), orderQueryRepository::findAllByDto_optimization);
+    }
+
     /**
      * 쿼리가 한방으로 나간다.
      * 하지만 컬렉션에 대해서 fetch join을 했기 때문에 -> 데이터 뻥튀기 현상 발생
@@ -190,8 +211,53 @@ public class OrderApiController {
      */
     @GetMapping("/api/v6/orders")
     public List<OrderQueryDto> ordersV6() {
-        List<OrderFlatDto> flats = orderQueryRepository.findAllByDto_flat();
+        return groupByOrder(orderQueryRepository.findAllByDto_flat());
+    }
+
+    @GetMapping("/api/v6/orders/stream")
+    public ResponseEntity<StreamingResponseBody> ordersV6Stream() {
+        List<OrderQueryDto> result = groupByOrder(orderQueryRepository.findAllByDto_flat());
+        return orderJsonWriter.response(out -> orderJsonWriter.writeOrderQueryDtos(result, out));
+    }
+
+    /**
+     * 주문일 [from, to] 의 주문 , 보관된 주문도 같이 조회한다. from, to 가 없으면 그 쪽은 끝까지 (예: ?from=2021-01-01&to=2021-12-31)
+     */
+    @GetMapping("/api/v7/orders")
+    public List<OrderQueryDto> ordersV7(@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                        @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return orderHistoryService.findOrders(from, to);
+    }
+
+    /**
+     * 주문 일괄 취소 , orderIds 를 주면 그 주문들을, 없으면 이름이 memberName 과 같은 회원의 주문(최대 1000건)을 취소한다.
+     * - 둘 다 없으면 400 , 대상을 정하지 않은 요청으로 아무 주문이나 취소하지 않는다.
+     * - 배송완료, 이미 취소, 없는 주문은 건너뛰고 결과에 id 를 남긴다.
+     */
+    @PostMapping("/api/v2/orders/cancel")
+    public BulkCancelResult cancelOrdersV2(@RequestBody @Valid CancelOrdersRequest request) {
+        if (request.getOrderIds() != null && !request.getOrderIds().isEmpty()) {
+            return orderService.cancelOrders(request.getOrderIds());
+        }
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName(request.getMemberName());
+        orderSearch.setOrderStatus(OrderStatus.ORDER);
+        return orderService.cancelOrders(orderSearch);
+    }
+
+    @Data
+    static class CancelOrdersRequest {
+        private List<Long> orderIds;
+        private String memberName;
+
+        @AssertTrue(message = "orderIds 또는 memberName 이 필요합니다.")
+        public boolean isTargeted() {
+            return (orderIds != null && !orderIds.isEmpty()) || StringUtils.hasText(memberName);
+        }
+    }
 
+    // 플랫 데이터를 주문 단위로 묶는다.
+    private List<OrderQueryDto> groupByOrder(List<OrderFlatDto> flats) {
         return flats.stream()
                 .collect(groupingBy(o -> new OrderQueryDto(o.getOrderId(), o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress()),
                         mapping(o -> new OrderItemQueryDto(o.getOrderId(), o.getItemName(), o.getOrderPrice(), o.getCount()), toList())
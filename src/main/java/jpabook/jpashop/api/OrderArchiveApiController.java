@@ -0,0 +1,38 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.service.OrderArchiver;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequiredArgsConstructor
+public class OrderArchiveApiController {
+
+    private final OrderArchiver orderArchiver;
+
+    /**
+     * 주문 보관 현황
+     */
+    @GetMapping("/api/orders/archive")
+    public OrderArchiver.ArchiveStats stats() {
+        return orderArchiver.stats();
+    }
+
+    /**
+     * 스케줄을 기다리지 않고 지금 보관한다. 옮긴 주문 수를 반환한다.
+     */
+    @PostMapping("/api/orders/archive")
+    public ArchiveResult archive() {
+        return new ArchiveResult(orderArchiver.archive());
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class ArchiveResult {
+        private int archived;
+    }
+}
@@ -0,0 +1,306 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import org.springframework.http.MediaType;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 주문 목록(OrderQueryDto) 전용 바이너리 형식
+ * - JSON은 주문상품마다 필드 이름을 반복하고 숫자를 문자로 쓴다. 내부 서비스가 큰 목록을 받을 때는 낭비가 크다.
+ * - 컬럼 형식 : 주문 n건의 orderId를 모두 쓰고, 그 다음 name을 모두 쓰는 식으로 같은 필드끼리 모아서 쓴다.
+ * - 문자열(회원 이름, 상품 이름, 주소)은 사전(dictionary)에 한번만 쓰고 컬럼에는 사전 번호만 쓴다. (0 = null)
+ * - 숫자는 varint(zigzag)로 쓴다. orderId, 주문시각은 이전 값과의 차이(delta)만 쓴다.
+ *
+ * 형식 (version 1)
+ * magic 'J' 'O' , version
+ * dictionary : size , (byteLength, UTF-8)*
+ * orders : count
+ *   orderId(delta) | name(ref) | orderDate(delta epochSecond, 0 = null) | orderDate nano | orderStatus(ordinal+1)
+ *   | address 유무 | city(ref) | street(ref) | zipcode(ref) | itemCount(+1, 0 = null)
+ * items : itemName(ref) | orderPrice | count   (모든 주문의 주문상품을 순서대로 펼친다.)
+ */
+public class OrderColumnarCodec {
+
+    public static final MediaType MEDIA_TYPE = new MediaType("application", "x-jpashop-orders");
+
+    private static final int MAGIC_1 = 'J';
+    private static final int MAGIC_2 = 'O';
+    private static final int VERSION = 1;
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private OrderColumnarCodec() {
+    }
+
+    public static void encode(List<OrderQueryDto> orders, OutputStream out) throws IOException {
+        // 1. 사전
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> words = new ArrayList<>();
+        for (OrderQueryDto order : orders) {
+            register(order.getName(), dictionary, words);
+            Address address = order.getAddress();
+            if (address != null) {
+                register(address.getCity(), dictionary, words);
+                register(address.getStreet(), dictionary, words);
+                register(address.getZipcode(), dictionary, words);
+            }
+            if (order.getOrderItems() != null) {
+                for (OrderItemQueryDto item : order.getOrderItems()) {
+                    register(item.getItemName(), dictionary, words);
+                }
+            }
+        }
+        out.write(MAGIC_1);
+        out.write(MAGIC_2);
+        out.write(VERSION);
+        writeVarint(out, words.size());
+        for (String word : words) {
+            byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, bytes.length);
+            out.write(bytes);
+        }
+
+        // 2. 주문 컬럼
+        writeVarint(out, orders.size());
+        long previousId = 0;
+        for (OrderQueryDto order : orders) {
+            writeSigned(out, order.getOrderId() - previousId);
+            previousId = order.getOrderId();
+        }
+        for (OrderQueryDto order : orders) {
+            writeRef(out, order.getName(), dictionary);
+        }
+        long previousSecond = 0;
+        for (OrderQueryDto order : orders) {
+            if (order.getOrderDate() == null) {
+                writeVarint(out, 0);
+                continue;
+            }
+            long second = order.getOrderDate().toEpochSecond(ZoneOffset.UTC);
+            writeVarint(out, zigzag(second - previousSecond) + 1);
+            previousSecond = second;
+        }
+        for (OrderQueryDto order : orders) {
+            if (order.getOrderDate() != null) {
+                writeVarint(out, order.getOrderDate().getNano());
+            }
+        }
+        for (OrderQueryDto order : orders) {
+            out.write(order.getOrderStatus() == null ? 0 : order.getOrderStatus().ordinal() + 1);
+        }
+        for (OrderQueryDto order : orders) {
+            out.write(order.getAddress() == null ? 0 : 1);
+        }
+        for (OrderQueryDto order : orders) {
+            writeRef(out, order.getAddress() == null ? null : order.getAddress().getCity(), dictionary);
+        }
+        for (OrderQueryDto order : orders) {
+            writeRef(out, order.getAddress() == null ? null : order.getAddress().getStreet(), dictionary);
+        }
+        for (OrderQueryDto order : orders) {
+            writeRef(out, order.getAddress() == null ? null : order.getAddress().getZipcode(), dictionary);
+        }
+        for (OrderQueryDto order : orders) {
+            writeVarint(out, order.getOrderItems() == null ? 0 : order.getOrderItems().size() + 1);
+        }
+
+        // 3. 주문상품 컬럼
+        for (OrderQueryDto order : orders) {
+            if (order.getOrderItems() != null) {
+                for (OrderItemQueryDto item : order.getOrderItems()) {
+                    writeRef(out, item.getItemName(), dictionary);
+                }
+            }
+        }
+        for (OrderQueryDto order : orders) {
+            if (order.getOrderItems() != null) {
+                for (OrderItemQueryDto item : order.getOrderItems()) {
+                    writeSigned(out, item.getOrderPrice());
+                }
+            }
+        }
+        for (OrderQueryDto order : orders) {
+            if (order.getOrderItems() != null) {
+                for (OrderItemQueryDto item : order.getOrderItems()) {
+                    writeSigned(out, item.getCount());
+                }
+            }
+        }
+        out.flush();
+    }
+
+    public static List<OrderQueryDto> decode(InputStream in) throws IOException {
+        if (readByte(in) != MAGIC_1 || readByte(in) != MAGIC_2) {
+            throw new IOException("주문 바이너리 형식이 아닙니다.");
+        }
+        int version = readByte(in);
+        if (version != VERSION) {
+            throw new IOException("지원하지 않는 버전입니다. version=" + version);
+        }
+        String[] words = new String[(int) readVarint(in)];
+        for (int i = 0; i < words.length; i++) {
+            byte[] bytes = new byte[(int) readVarint(in)];
+            readFully(in, bytes);
+            words[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int size = (int) readVarint(in);
+        long[] orderIds = new long[size];
+        long previousId = 0;
+        for (int i = 0; i < size; i++) {
+            previousId += readSigned(in);
+            orderIds[i] = previousId;
+        }
+        String[] names = readRefs(in, size, words);
+        long[] seconds = new long[size];
+        boolean[] hasDate = new boolean[size];
+        long previousSecond = 0;
+        for (int i = 0; i < size; i++) {
+            long value = readVarint(in);
+            if (value != 0) {
+                previousSecond += unzigzag(value - 1);
+                seconds[i] = previousSecond;
+                hasDate[i] = true;
+            }
+        }
+        LocalDateTime[] orderDates = new LocalDateTime[size];
+        for (int i = 0; i < size; i++) {
+            if (hasDate[i]) {
+                orderDates[i] = LocalDateTime.ofEpochSecond(seconds[i], (int) readVarint(in), ZoneOffset.UTC);
+            }
+        }
+        OrderStatus[] statuses = new OrderStatus[size];
+        for (int i = 0; i < size; i++) {
+            int status = readByte(in);
+            statuses[i] = status == 0 ? null : STATUSES[status - 1];
+        }
+        boolean[] hasAddress = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            hasAddress[i] = readByte(in) == 1;
+        }
+        String[] cities = readRefs(in, size, words);
+        String[] streets = readRefs(in, size, words);
+        String[] zipcodes = readRefs(in, size, words);
+        int[] itemCounts = new int[size];
+        int totalItems = 0;
+        for (int i = 0; i < size; i++) {
+            itemCounts[i] = (int) readVarint(in);
+            totalItems += Math.max(0, itemCounts[i] - 1);
+        }
+
+        String[] itemNames = readRefs(in, totalItems, words);
+        int[] orderPrices = new int[totalItems];
+        for (int i = 0; i < totalItems; i++) {
+            orderPrices[i] = (int) readSigned(in);
+        }
+        int[] counts = new int[totalItems];
+        for (int i = 0; i < totalItems; i++) {
+            counts[i] = (int) readSigned(in);
+        }
+
+        List<OrderQueryDto> orders = new ArrayList<>(size);
+        int itemIndex = 0;
+        for (int i = 0; i < size; i++) {
+            Address address = hasAddress[i] ? new Address(cities[i], streets[i], zipcodes[i]) : null;
+            List<OrderItemQueryDto> items = null;
+            if (itemCounts[i] > 0) {
+                items = new ArrayList<>(itemCounts[i] - 1);
+                for (int j = 0; j < itemCounts[i] - 1; j++, itemIndex++) {
+                    items.add(new OrderItemQueryDto(orderIds[i], itemNames[itemIndex], orderPrices[itemIndex], counts[itemIndex]));
+                }
+            }
+            orders.add(new OrderQueryDto(orderIds[i], names[i], orderDates[i], statuses[i], address, items));
+        }
+        return orders;
+    }
+
+    private static void register(String word, Map<String, Integer> dictionary, List<String> words) {
+        if (word != null && !dictionary.containsKey(word)) {
+            dictionary.put(word, words.size());
+            words.add(word);
+        }
+    }
+
+    private static void writeRef(OutputStream out, String word, Map<String, Integer> dictionary) throws IOException {
+        writeVarint(out, word == null ? 0 : dictionary.get(word) + 1);
+    }
+
+    private static String[] readRefs(InputStream in, int size, String[] words) throws IOException {
+        String[] result = new String[size];
+        for (int i = 0; i < size; i++) {
+            int ref = (int) readVarint(in);
+            result[i] = ref == 0 ? null : words[ref - 1];
+        }
+        return result;
+    }
+
+    private static void writeSigned(OutputStream out, long value) throws IOException {
+        writeVarint(out, zigzag(value));
+    }
+
+    private static long readSigned(InputStream in) throws IOException {
+        return unzigzag(readVarint(in));
+    }
+
+    // 음수도 작은 값이 되도록 , 0 -1 1 -2 2 ... -> 0 1 2 3 4 ...
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // 7bit 씩 , 상위 bit가 1이면 다음 byte가 이어진다.
+    private static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(in);
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("잘못된 varint 입니다.");
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    private static void readFully(InputStream in, byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            int read = in.read(bytes, offset, bytes.length - offset);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            offset += read;
+        }
+    }
+}
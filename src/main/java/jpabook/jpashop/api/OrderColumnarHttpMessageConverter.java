@@ -0,0 +1,80 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * List&lt;OrderQueryDto&gt; 를 반환하는 API(/api/v4, v5, v6/orders)에
+ * Accept: application/x-jpashop-orders 로 요청하면 OrderColumnarCodec 형식으로 응답한다.
+ * - Jackson 컨버터 뒤에 등록한다. (WebConfig) Accept 가 없거나 JSON 이면 지금처럼 JSON 으로 응답한다.
+ */
+public class OrderColumnarHttpMessageConverter extends AbstractGenericHttpMessageConverter<List<OrderQueryDto>> {
+
+    private static final ResolvableType ORDER_LIST = ResolvableType.forClassWithGenerics(List.class, OrderQueryDto.class);
+
+    public OrderColumnarHttpMessageConverter() {
+        super(OrderColumnarCodec.MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return List.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return isOrderList(type) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return isOrderList(type) && canWrite(mediaType);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false; // 제네릭 타입을 알 수 있을 때만 처리한다.
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public List<MediaType> getSupportedMediaTypes(Class<?> clazz) {
+        return supports(clazz) ? getSupportedMediaTypes() : Collections.emptyList(); // 응답 가능한 형식 목록에 포함되도록
+    }
+
+    private boolean isOrderList(Type type) {
+        return type != null && ORDER_LIST.isAssignableFrom(ResolvableType.forType(type));
+    }
+
+    @Override
+    protected void writeInternal(List<OrderQueryDto> orders, Type type, HttpOutputMessage outputMessage) throws IOException {
+        OutputStream out = new BufferedOutputStream(outputMessage.getBody(), 8192);
+        OrderColumnarCodec.encode(orders, out);
+    }
+
+    @Override
+    public List<OrderQueryDto> read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        return OrderColumnarCodec.decode(new BufferedInputStream(inputMessage.getBody()));
+    }
+
+    @Override
+    protected List<OrderQueryDto> readInternal(Class<? extends List<OrderQueryDto>> clazz, HttpInputMessage inputMessage) throws IOException {
+        return OrderColumnarCodec.decode(new BufferedInputStream(inputMessage.getBody()));
+    }
+}
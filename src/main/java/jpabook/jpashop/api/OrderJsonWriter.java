@@ -0,0 +1,191 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.api.OrderApiController.OrderDto;
+import jpabook.jpashop.api.OrderApiController.OrderItemDto;
+import jpabook.jpashop.api.OrderSimpleApiController.SimpleOrderDto;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * 주문 DTO 전용 JSON 직렬화
+ * - databind(ObjectMapper)는 객체마다 getter를 리플렉션으로 찾고, Hibernate5Module이 프록시인지 검사한다.
+ *   응답이 크면 이 비용이 CPU를 대부분 차지한다.
+ * - 여기서는 JsonGenerator로 필드를 하나씩 출력 스트림에 바로 쓴다. 중간 트리(JsonNode)를 만들지 않는다.
+ * - 필드 이름은 미리 인코딩(SerializedString)해 둔다.
+ * - 결과는 databind와 같은 JSON 이다. (필드 순서 제외) 같은 ObjectMapper의 JsonFactory를 사용한다.
+ * - 컨트롤러에서 필요한 API에만 골라서 사용한다. (/stream)
+ */
+@Component
+public class OrderJsonWriter {
+
+    private static final SerializableString ORDER_ID = new SerializedString("orderId");
+    private static final SerializableString NAME = new SerializedString("name");
+    private static final SerializableString ORDER_DATE = new SerializedString("orderDate");
+    private static final SerializableString ORDER_STATUS = new SerializedString("orderStatus");
+    private static final SerializableString ADDRESS = new SerializedString("address");
+    private static final SerializableString CITY = new SerializedString("city");
+    private static final SerializableString STREET = new SerializedString("street");
+    private static final SerializableString ZIPCODE = new SerializedString("zipcode");
+    private static final SerializableString ORDER_ITEMS = new SerializedString("orderItems");
+    private static final SerializableString ITEM_NAME = new SerializedString("itemName");
+    private static final SerializableString ORDER_PRICE = new SerializedString("orderPrice");
+    private static final SerializableString COUNT = new SerializedString("count");
+
+    private final JsonFactory jsonFactory;
+
+    public OrderJsonWriter(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * 컨트롤러 반환용 , 응답을 쓸 때 바로 직렬화한다.
+     */
+    public ResponseEntity<StreamingResponseBody> response(StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    public void writeOrderQueryDtos(List<OrderQueryDto> orders, OutputStream out) throws IOException {
+        try (JsonGenerator gen = createGenerator(out)) {
+            gen.writeStartArray();
+            for (OrderQueryDto order : orders) {
+                gen.writeStartObject();
+                writeHeader(gen, order.getOrderId(), order.getName(), order.getOrderDate(), order.getOrderStatus(), order.getAddress());
+                gen.writeFieldName(ORDER_ITEMS);
+                if (order.getOrderItems() == null) {
+                    gen.writeNull();
+                } else {
+                    gen.writeStartArray();
+                    for (OrderItemQueryDto item : order.getOrderItems()) { // orderId는 @JsonIgnore
+                        writeItem(gen, item.getItemName(), item.getOrderPrice(), item.getCount());
+                    }
+                    gen.writeEndArray();
+                }
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+    }
+
+    public void writeSimpleQueryDtos(List<OrderSimpleQueryDto> orders, OutputStream out) throws IOException {
+        try (JsonGenerator gen = createGenerator(out)) {
+            gen.writeStartArray();
+            for (OrderSimpleQueryDto order : orders) {
+                gen.writeStartObject();
+                writeHeader(gen, order.getOrderId(), order.getName(), order.getOrderDate(), order.getOrderStatus(), order.getAddress());
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+    }
+
+    void writeOrderDtos(List<OrderDto> orders, OutputStream out) throws IOException {
+        try (JsonGenerator gen = createGenerator(out)) {
+            gen.writeStartArray();
+            for (OrderDto order : orders) {
+                gen.writeStartObject();
+                writeHeader(gen, order.getOrderId(), order.getName(), order.getOrderDate(), order.getOrderStatus(), order.getAddress());
+                gen.writeFieldName(ORDER_ITEMS);
+                if (order.getOrderItems() == null) {
+                    gen.writeNull();
+                } else {
+                    gen.writeStartArray();
+                    for (OrderItemDto item : order.getOrderItems()) {
+                        writeItem(gen, item.getItemName(), item.getOrderPrice(), item.getCount());
+                    }
+                    gen.writeEndArray();
+                }
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+    }
+
+    void writeSimpleOrderDtos(List<SimpleOrderDto> orders, OutputStream out) throws IOException {
+        try (JsonGenerator gen = createGenerator(out)) {
+            gen.writeStartArray();
+            for (SimpleOrderDto order : orders) {
+                gen.writeStartObject();
+                writeHeader(gen, order.getOrderId(), order.getName(), order.getOrderDate(), order.getOrderStatus(), order.getAddress());
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+    }
+
+    // 응답 스트림은 서블릿 컨테이너가 닫는다. 여기서는 flush 까지만 한다.
+    private JsonGenerator createGenerator(OutputStream out) throws IOException {
+        JsonGenerator gen = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+        gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return gen;
+    }
+
+    // 주문 공통 필드 (orderId, name, orderDate, orderStatus, address)
+    private void writeHeader(JsonGenerator gen, Long orderId, String name, LocalDateTime orderDate,
+                             OrderStatus orderStatus, Address address) throws IOException {
+        gen.writeFieldName(ORDER_ID);
+        if (orderId == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(orderId);
+        }
+        gen.writeFieldName(NAME);
+        gen.writeString(name);
+        gen.writeFieldName(ORDER_DATE);
+        if (orderDate == null) {
+            gen.writeNull();
+        } else {
+            gen.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(orderDate)); // JavaTimeModule 기본 형식과 같다.
+        }
+        gen.writeFieldName(ORDER_STATUS);
+        if (orderStatus == null) {
+            gen.writeNull();
+        } else {
+            gen.writeString(orderStatus.name());
+        }
+        gen.writeFieldName(ADDRESS);
+        if (address == null) {
+            gen.writeNull();
+        } else {
+            gen.writeStartObject();
+            gen.writeFieldName(CITY);
+            gen.writeString(address.getCity());
+            gen.writeFieldName(STREET);
+            gen.writeString(address.getStreet());
+            gen.writeFieldName(ZIPCODE);
+            gen.writeString(address.getZipcode());
+            gen.writeEndObject();
+        }
+    }
+
+    private void writeItem(JsonGenerator gen, String itemName, int orderPrice, int count) throws IOException {
+        gen.writeStartObject();
+        gen.writeFieldName(ITEM_NAME);
+        gen.writeString(itemName);
+        gen.writeFieldName(ORDER_PRICE);
+        gen.writeNumber(orderPrice);
+        gen.writeFieldName(COUNT);
+        gen.writeNumber(count);
+        gen.writeEndObject();
+    }
+}
@@ -3,14 +3,22 @@ package jpabook.jpashop.api;
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderStatus;
-import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.domain.OrderSummary;
 import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.SingleFlight;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
+import jpabook.jpashop.service.ChangeVersions;
+import jpabook.jpashop.service.ChangeVersions.Aggregate;
+import jpabook.jpashop.service.OrderQueryService;
+import jpabook.jpashop.service.OrderService;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -29,10 +37,19 @@ import static java.util.stream.Collectors.toList;
 @RestController
 @RequiredArgsConstructor
 public class OrderSimpleApiController {
-    private final OrderRepository orderRepository;
 
     private final OrderSimpleQueryRepository orderSimpleQueryRepository;
 
+    private final OrderService orderService;
+
+    private final OrderJsonWriter orderJsonWriter;
+
+    private final ChangeVersions changeVersions;
+
+    private final OrderQueryService orderQueryService; // open-in-view X , 엔티티는 초기화가 끝난 상태로 받는다.
+
+    private final SingleFlight singleFlight;
+
     /**
      * 주문 조회 api
      * V1. 엔티티 직접 노출 하면 많은 문제점 발생 (필요 없는 데이터가 노출)
@@ -43,12 +60,9 @@ public class OrderSimpleApiController {
      */
     @GetMapping("/api/v1/simple-orders")
     public List<Order> ordersV1() {
-        List<Order> all = orderRepository.findAllByString(new OrderSearch()); // 조건이 없어서 전체 조회
-            for (Order order : all) {
-                order.getMember().getName(); //Lazy 강제 초기화
-                order.getDelivery().getAddress(); //Lazy 강제 초기환
-            }
-        return all;
+        // 조건이 없어서 전체 조회 , member, delivery Lazy 강제 초기화는 트랜잭션 안(OrderQueryService)에서 한다.
+        // V1 은 엔티티 노출 예시라서 엔티티를 그대로 받는다. (초기화된 범위만 직렬화된다.)
+        return orderQueryService.findOrdersWithMemberDelivery(new OrderSearch(), o -> o);
     }
 
 
@@ -71,11 +85,7 @@ public class OrderSimpleApiController {
      */
     @GetMapping("/api/v2/simple-orders")
     public List<SimpleOrderDto> ordersV2() {
-        List<Order> orders = orderRepository.findAllByString(new OrderSearch());
-        List<SimpleOrderDto> result = orders.stream()
-                .map(o -> new SimpleOrderDto(o)) // 객체를 생성자로 바로 넘긴다.
-                .collect(toList());
-        return result;
+        return orderQueryService.findOrdersWithMemberDelivery(new OrderSearch(), o -> new SimpleOrderDto(o)); // 객체를 생성자로 바로 넘긴다. 변환은 트랜잭션 안에서 한다.
     }
     @Data
     static class SimpleOrderDto {
@@ -100,11 +110,16 @@ public class OrderSimpleApiController {
      */
     @GetMapping("/api/v3/simple-orders")
     public List<SimpleOrderDto> ordersV3() {
-        List<Order> orders = orderRepository.findAllWithMemberDelivery();
-        List<SimpleOrderDto> result = orders.stream()
-                .map(o -> new SimpleOrderDto(o))
-                .collect(toList());
-        return result;
+        return orderQueryService.findOrdersWithMemberDelivery(o -> new SimpleOrderDto(o)); // DTO 변환은 트랜잭션 안에서 한다.
+    }
+
+    /**
+     * V3 , databind 대신 OrderJsonWriter로 응답을 바로 쓴다.
+     */
+    @GetMapping("/api/v3/simple-orders/stream")
+    public ResponseEntity<StreamingResponseBody> ordersV3Stream() {
+        List<SimpleOrderDto> result = orderQueryService.findOrdersWithMemberDelivery(o -> new SimpleOrderDto(o)); // 응답을 쓸 때는 DTO만 사용한다.
+        return orderJsonWriter.response(out -> orderJsonWriter.writeSimpleOrderDtos(result, out));
     }
 
     /**
@@ -136,9 +151,59 @@ public class OrderSimpleApiController {
      * 사용한다
      */
     @GetMapping("/api/v4/simple-orders")
+    public List<OrderSimpleQueryDto> ordersV4(WebRequest webRequest) {
+        // 주문 목록에 회원 이름이 들어가므로 회원 버전도 같이 본다. 같으면 조회 없이 304
+        if (webRequest.checkNotModified(changeVersions.etag(Aggregate.ORDER, Aggregate.MEMBER))) {
+            return null;
+        }
+        return findOrderDtos();
+    }
+
+    @GetMapping("/api/v4/simple-orders/stream")
+    public ResponseEntity<StreamingResponseBody> ordersV4Stream() {
+        List<OrderSimpleQueryDto> result = findOrderDtos();
+        return orderJsonWriter.response(out -> orderJsonWriter.writeSimpleQueryDtos(result, out));
+    }
 
-    public List<OrderSimpleQueryDto> ordersV4() {
-        return orderSimpleQueryRepository.findOrderDtos();
+    /**
+     * 같은 조회가 동시에 여러 번 들어오면 한 번만 실행한다. (SingleFlight , 주문/회원 변경 버전이 같을 때만 묶는다.)
+     */
+    private List<OrderSimpleQueryDto> findOrderDtos() {
+        return singleFlight.execute("OrderSimpleQueryRepository.findOrderDtos",
+                changeVersions.etag(Aggregate.ORDER, Aggregate.MEMBER), orderSimpleQueryRepository::findOrderDtos);
+    }
+
+    /**
+     * V5. 읽기 모델(order_summary) 조회
+     * - 주문/취소 시점에 한줄로 펼쳐서 저장해둔 테이블 하나만 조회한다. join X
+     * - V4에 없던 총 주문 가격, 주문상품 종류 수도 OrderItem을 로딩하지 않고 바로 내려준다.
+     * - 주문 검색 조건(memberName, orderStatus)도 그대로 사용 가능
+     */
+    @GetMapping("/api/v5/simple-orders")
+    public List<OrderSummaryDto> ordersV5(OrderSearch orderSearch) {
+        return orderService.findOrderSummaries(orderSearch).stream()
+                .map(s -> new OrderSummaryDto(s))
+                .collect(toList());
+    }
+
+    @Data
+    static class OrderSummaryDto {
+        private Long orderId;
+        private String name;
+        private LocalDateTime orderDate; //주문시간
+        private OrderStatus orderStatus;
+        private int itemCount;
+        private int totalPrice;
+        private String city;
+        public OrderSummaryDto(OrderSummary summary) {
+            orderId = summary.getOrderId();
+            name = summary.getMemberName();
+            orderDate = summary.getOrderDate();
+            orderStatus = summary.getStatus();
+            itemCount = summary.getItemCount();
+            totalPrice = summary.getTotalPrice();
+            city = summary.getCity();
+        }
     }
 
 
@@ -0,0 +1,21 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.service.OutboxProjector;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequiredArgsConstructor
+public class OutboxApiController {
+
+    private final OutboxProjector outboxProjector;
+
+    /**
+     * 아웃박스 처리 현황 (대기 이벤트 수, 처리 지연)
+     */
+    @GetMapping("/api/outbox/stats")
+    public OutboxProjector.OutboxStats stats() {
+        return outboxProjector.stats();
+    }
+}
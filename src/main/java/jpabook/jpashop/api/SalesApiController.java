@@ -0,0 +1,65 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.sales.SalesTotal;
+import jpabook.jpashop.service.SalesService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+
+/**
+ * 매출 리포트 API
+ * - 미리 누적해둔 합계 테이블에서 PK로 한 줄만 조회한다. OrderItem을 스캔하지 않는다.
+ * - 집계된 적 없는 상품/회원/일자는 0으로 내려준다.
+ */
+@RestController
+@RequiredArgsConstructor
+public class SalesApiController {
+
+    private final SalesService salesService;
+
+    @GetMapping("/api/sales/items/{itemId}")
+    public SalesDto itemSales(@PathVariable("itemId") Long itemId) {
+        return new SalesDto(salesService.findItemSales(itemId));
+    }
+
+    @GetMapping("/api/sales/members/{memberId}")
+    public SalesDto memberSales(@PathVariable("memberId") Long memberId) {
+        return new SalesDto(salesService.findMemberSales(memberId));
+    }
+
+    @GetMapping("/api/sales/daily/{date}")
+    public SalesDto dailySales(@PathVariable("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return new SalesDto(salesService.findDailySales(date));
+    }
+
+    /**
+     * 주문 테이블에서 전체 합계를 다시 계산한다. (주문 id 범위 병렬 스캔)
+     */
+    @PostMapping("/api/sales/rebuild")
+    public SalesService.RebuildResult rebuild() {
+        return salesService.rebuild();
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class SalesDto {
+        private long revenue; // 매출
+        private long units; // 판매 수량
+        private long orderCount; // 주문 건수
+
+        public SalesDto(SalesTotal salesTotal) {
+            if (salesTotal != null) {
+                revenue = salesTotal.getRevenue();
+                units = salesTotal.getUnits();
+                orderCount = salesTotal.getOrderCount();
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.FirstRequestLatency;
+import jpabook.jpashop.repository.QueryWarmUp;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequiredArgsConstructor
+public class WarmUpApiController {
+
+    private final QueryWarmUp queryWarmUp;
+    private final FirstRequestLatency firstRequestLatency;
+
+    /**
+     * 시작 시간, 쿼리 워밍업 시간, 요청 매핑별 첫 요청 처리 시간
+     */
+    @GetMapping("/api/warm-up/stats")
+    public WarmUpDto stats() {
+        return new WarmUpDto(queryWarmUp.stats(), firstRequestLatency.firstRequestMicros());
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class WarmUpDto {
+        private QueryWarmUp.WarmUpStats warmUp;
+        private Map<String, Long> firstRequestMicros;
+    }
+}
@@ -1,7 +1,9 @@
 package jpabook.jpashop.controller;
 
 import jpabook.jpashop.domain.item.Book;
-import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.ItemPatch;
+import jpabook.jpashop.service.ChangeVersions;
+import jpabook.jpashop.service.ChangeVersions.Aggregate;
 import jpabook.jpashop.service.ItemService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
@@ -10,14 +12,21 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Controller
 @RequiredArgsConstructor
 public class ItemController {
 
     private final ItemService itemService;
+    private final ChangeVersions changeVersions;
+    private final RowRenderer rowRenderer;
 
 
     @GetMapping(value = "/items/new")
@@ -46,11 +55,19 @@ public class ItemController {
 
     /**
      * 상품 목록
+     * - 상품 변경 버전이 브라우저가 가진 ETag와 같으면 조회, 렌더링 없이 304로 응답한다.
+     * - type(B, A, M) 을 주면 그 종류만 보여준다. 화면에 필요한 공통 컬럼만 읽는다.
      */
     @GetMapping(value = "/items")
-    public String list(Model model) {
-        List<Item> items = itemService.findItems();
-        model.addAttribute("items", items);
+    public String list(@RequestParam(value = "type", required = false) String type, Model model, WebRequest webRequest,
+                       HttpServletRequest request, HttpServletResponse response) {
+        if (webRequest.checkNotModified(changeVersions.etag(Aggregate.ITEM))) {
+            return null;
+        }
+        List<ItemRow> items = itemService.findItemSummaries(ItemService.itemType(type)).stream()
+                .map(i -> new ItemRow(i))
+                .collect(Collectors.toList());
+        model.addAttribute("rows", rowRenderer.render("items/itemRow", items, request, response)); // 화면에는 엔티티를 넘기지 않는다.
         return "items/itemList";
     }
 
@@ -105,7 +122,12 @@ public class ItemController {
         itemService.saveItem(book); // em.merge 가 호출이 된다, 왜냐하면 save하는 시점에 id값이 존재하고 있기 때문에, 사실 실문에서는 merge를 잘 사용하지 않는다.
 */
 
-        itemService.updateItem(itemId, form.getName() , form.getPrice() , form.getStockQuantity());
+        // 바꿀 값을 폼으로 다 받았으므로 조회 없이 update 한 번으로 끝낸다. (ItemService.patch)
+        ItemPatch patch = new ItemPatch();
+        patch.setName(form.getName());
+        patch.setPrice(form.getPrice());
+        patch.setStockQuantity(form.getStockQuantity());
+        itemService.patch(itemId, patch);
 
         return "redirect:/items";
     }
@@ -0,0 +1,30 @@
+package jpabook.jpashop.controller;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.item.ItemSummaryDto;
+import lombok.Data;
+
+/**
+ * 상품 목록 화면 한 줄 , 엔티티 대신 값만 넘긴다.
+ */
+@Data
+public class ItemRow {
+    private Long id;
+    private String name;
+    private int price;
+    private int stockQuantity;
+
+    public ItemRow(Item item) {
+        id = item.getId();
+        name = item.getName();
+        price = item.getPrice();
+        stockQuantity = item.getStockQuantity();
+    }
+
+    public ItemRow(ItemSummaryDto item) {
+        id = item.getId();
+        name = item.getName();
+        price = item.getPrice();
+        stockQuantity = item.getStockQuantity();
+    }
+}
@@ -2,6 +2,8 @@ package jpabook.jpashop.controller;
 
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.KeysetSlice;
+import jpabook.jpashop.repository.member.MemberSummary;
 import jpabook.jpashop.service.MemberService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
@@ -9,15 +11,22 @@ import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Controller
 @RequiredArgsConstructor
 public class MemberController {
 
+    private static final int PAGE_SIZE = 1000;
+
     private final MemberService memberService;
+    private final RowRenderer rowRenderer;
 
     @GetMapping(value = "/members/new")
     public String createForm(Model model) { // controller에서 view로 넘어갈때 데이터를 실어서 넘기는 역할을 한다.
@@ -48,9 +57,14 @@ public class MemberController {
     }
 
     @GetMapping(value = "/members")
-    public String list(Model model) { // 원래는 정말 화면에 필요한 form을 직접 만들어서 생성 후 반환하는것이 좋다. API를 만드는 경우 , 절대 Entity를 밖으로 내보내면 안된다.
-        List<Member> members = memberService.findMembers();
-        model.addAttribute("members", members);
+    public String list(@RequestParam(value = "after", defaultValue = "0") Long after, Model model,
+                       HttpServletRequest request, HttpServletResponse response) { // 원래는 정말 화면에 필요한 form을 직접 만들어서 생성 후 반환하는것이 좋다. API를 만드는 경우 , 절대 Entity를 밖으로 내보내면 안된다.
+        KeysetSlice<MemberSummary> slice = memberService.findMemberSummaries(after, PAGE_SIZE); // 엔티티 대신 화면에 필요한 컬럼만 읽는다.
+        List<MemberRow> members = slice.getContent().stream()
+                .map(MemberRow::new)
+                .collect(Collectors.toList());
+        model.addAttribute("rows", rowRenderer.render("members/memberRow", members, request, response)); // 화면에는 엔티티를 넘기지 않는다.
+        model.addAttribute("next", slice.getNext());
         return "members/memberList";
     }
 
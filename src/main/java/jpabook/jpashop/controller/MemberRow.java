@@ -0,0 +1,37 @@
+package jpabook.jpashop.controller;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.member.MemberSummary;
+import lombok.Data;
+
+/**
+ * 회원 목록 화면 한 줄 , 엔티티 대신 값만 넘긴다. (주소가 없는 회원도 있다.)
+ */
+@Data
+public class MemberRow {
+    private Long id;
+    private String name;
+    private String city;
+    private String street;
+    private String zipcode;
+
+    public MemberRow(Member member) {
+        id = member.getId();
+        name = member.getName();
+        Address address = member.getAddress();
+        if (address != null) {
+            city = address.getCity();
+            street = address.getStreet();
+            zipcode = address.getZipcode();
+        }
+    }
+
+    public MemberRow(MemberSummary summary) {
+        id = summary.getId();
+        name = summary.getName();
+        city = summary.getCity();
+        street = summary.getStreet();
+        zipcode = summary.getZipcode();
+    }
+}
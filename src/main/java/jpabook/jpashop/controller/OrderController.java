@@ -1,17 +1,21 @@
 package jpabook.jpashop.controller;
 
 import jpabook.jpashop.domain.Member;
-import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.item.ItemSummaryDto;
 import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.order.query.OrderRowDto;
 import jpabook.jpashop.service.ItemService;
 import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderGroupCommitter;
 import jpabook.jpashop.service.OrderService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.util.List;
 
 @Controller
@@ -21,11 +25,13 @@ public class OrderController {
     private final OrderService orderService;
     private final MemberService memberService;
     private final ItemService itemService;
+    private final OrderGroupCommitter orderGroupCommitter;
+    private final RowRenderer rowRenderer;
 
     @GetMapping(value = "/order")
     public String createForm(Model model) {
         List<Member> members = memberService.findMembers();
-        List<Item> items = itemService.findItems();
+        List<ItemSummaryDto> items = itemService.findItemSummaries(Item.class); // 주문 폼에는 id, 이름만 필요하다.
         model.addAttribute("members", members);
         model.addAttribute("items", items);
         return "order/orderForm";
@@ -34,7 +40,7 @@ public class OrderController {
     @PostMapping(value = "/order")
     public String order(@RequestParam("memberId") Long memberId,
                         @RequestParam("itemId") Long itemId, @RequestParam("count") int count) {
-        orderService.order(memberId, itemId, count);
+        orderGroupCommitter.order(memberId, itemId, count); // 그룹 커밋이 켜져 있으면 다른 주문 요청과 묶어서 한번에 커밋한다.
         return "redirect:/orders";
     }
 
@@ -43,9 +49,11 @@ public class OrderController {
      * 주문내역 조회
      */
     @GetMapping(value = "/orders") // 상품을 검색하기 위한 조건들이 모두 OrderSearch에 담겨서 올것이다. 그 조건에 대한 결과값을 Web에 반환하기 위해서 Model를 사용해야 한다.
-    public String orderList(@ModelAttribute("orderSearch") OrderSearch orderSearch, Model model) {
-        List<Order> orders = orderService.findOrders(orderSearch);
-        model.addAttribute("orders", orders);
+    public String orderList(@ModelAttribute("orderSearch") OrderSearch orderSearch, Model model,
+                            HttpServletRequest request, HttpServletResponse response) {
+        // 엔티티 대신 값만 담은 DTO를 넘긴다. 화면에서 회원, 대표상품을 지연 로딩하지 않는다. (쿼리 2번)
+        List<OrderRowDto> orders = orderService.findOrderRows(orderSearch);
+        model.addAttribute("rows", rowRenderer.render("order/orderRow", orders, request, response));
         return "order/orderList";
     }
 
@@ -0,0 +1,73 @@
+package jpabook.jpashop.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.support.RequestContextUtils;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 목록 화면의 한 줄(<tr>)을 미리 렌더링해서 캐시한다.
+ * - 줄 템플릿(items/itemRow 등)에는 DTO(row)만 넘긴다. 렌더링 중에 지연 로딩이 일어날 수 없다.
+ * - 줄은 요청의 WebContext 로 렌더링한다. @{...} 링크에 컨텍스트 경로가 붙고, 요청의 Locale(LocaleResolver)을 따른다.
+ * - 캐시 key는 (템플릿, 컨텍스트 경로, Locale, DTO 값) 이다. 엔티티가 바뀌면 DTO 값이 바뀌므로 따로 지울 필요가 없다.
+ * - 목록 화면은 렌더링된 줄을 th:utext 로 이어붙이기만 한다. (값은 줄 템플릿에서 th:text 로 escape 된다.)
+ * - 오래 안 쓴 줄부터 버린다. (LRU, jpashop.view.row-cache-size , 0 이면 캐시 안함)
+ */
+@Component
+public class RowRenderer {
+
+    private final ITemplateEngine templateEngine;
+    private final int cacheSize;
+    private final Map<List<Object>, String> cache;
+
+    public RowRenderer(ITemplateEngine templateEngine,
+                       @Value("${jpashop.view.row-cache-size:10000}") int cacheSize) {
+        this.templateEngine = templateEngine;
+        this.cacheSize = cacheSize;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<List<Object>, String>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, String> eldest) {
+                return size() > RowRenderer.this.cacheSize;
+            }
+        });
+    }
+
+    public List<String> render(String template, List<?> rows, HttpServletRequest request, HttpServletResponse response) {
+        Locale locale = RequestContextUtils.getLocale(request);
+        List<String> result = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            result.add(render(template, row, locale, request, response));
+        }
+        return result;
+    }
+
+    private String render(String template, Object row, Locale locale, HttpServletRequest request, HttpServletResponse response) {
+        if (cacheSize <= 0) {
+            return process(template, row, locale, request, response);
+        }
+        List<Object> key = Arrays.asList(template, request.getContextPath(), locale, row);
+        String html = cache.get(key);
+        if (html == null) {
+            html = process(template, row, locale, request, response);
+            cache.put(key, html);
+        }
+        return html;
+    }
+
+    private String process(String template, Object row, Locale locale, HttpServletRequest request, HttpServletResponse response) {
+        WebContext context = new WebContext(request, response, request.getServletContext(), locale);
+        context.setVariable("row", row);
+        return templateEngine.process(template, context);
+    }
+}
@@ -0,0 +1,209 @@
+package jpabook.jpashop.datasource;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 커넥션 점유 시간 측정
+ * - DataSource 빈을 감싸서 getConnection() 부터 close()(풀에 반납) 까지의 시간을 잰다.
+ * - open-in-view 가 켜져 있으면 요청이 끝날 때까지(뷰 렌더링, JSON 직렬화 포함) 반납하지 않기 때문에 이 시간이 길어진다.
+ * - getConnection() 에서 기다린 시간(획득 지연)과 동시에 기다린/점유한 커넥션 수의 최대값도 남긴다. (ConnectionPoolAdvisor)
+ * - 점유 시간은 요청 매핑(예: GET /api/v3.1/orders) 별로도 모은다. 요청 밖(스케줄러 등)은 "-" 로 모은다.
+ */
+@Component
+public class ConnectionHoldMonitor implements BeanPostProcessor {
+
+    private static final String NO_REQUEST = "-";
+
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong released = new AtomicLong();
+    private final AtomicLong totalHoldNanos = new AtomicLong();
+    private final AtomicLong maxHoldNanos = new AtomicLong();
+    private final AtomicLong totalAcquireNanos = new AtomicLong();
+    private final AtomicLong maxAcquireNanos = new AtomicLong();
+    private final AtomicLong inUse = new AtomicLong();
+    private final AtomicLong peakInUse = new AtomicLong();
+    private final AtomicLong waiting = new AtomicLong();
+    private final AtomicLong peakWaiting = new AtomicLong();
+    private final Map<String, EndpointHold> endpoints = new ConcurrentHashMap<>();
+    private volatile long startedNanos = System.nanoTime();
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (bean instanceof DataSource && !(bean instanceof MonitoredDataSource)) {
+            return new MonitoredDataSource((DataSource) bean);
+        }
+        return bean;
+    }
+
+    public HoldStats stats() {
+        long count = released.get();
+        return new HoldStats(acquired.get(), count, acquired.get() - count,
+                totalHoldNanos.get() / 1000, count == 0 ? 0 : totalHoldNanos.get() / count / 1000, maxHoldNanos.get() / 1000);
+    }
+
+    public AcquireStats acquireStats() {
+        long count = acquired.get();
+        return new AcquireStats(count, count == 0 ? 0 : totalAcquireNanos.get() / count / 1000, maxAcquireNanos.get() / 1000,
+                peakInUse.get(), peakWaiting.get(), (System.nanoTime() - startedNanos) / 1000);
+    }
+
+    /**
+     * 요청 매핑별 점유 시간 , 정렬해서 반환한다.
+     */
+    public Map<String, HoldStats> endpointStats() {
+        Map<String, HoldStats> result = new TreeMap<>();
+        endpoints.forEach((endpoint, hold) -> result.put(endpoint, hold.stats()));
+        return result;
+    }
+
+    /**
+     * 누적값만 비운다. 지금 점유 중인 커넥션 수(inUse)는 그대로 두고, 최대값은 지금 값부터 다시 잰다.
+     */
+    public void reset() {
+        acquired.set(0);
+        released.set(0);
+        totalHoldNanos.set(0);
+        maxHoldNanos.set(0);
+        totalAcquireNanos.set(0);
+        maxAcquireNanos.set(0);
+        peakInUse.set(inUse.get());
+        peakWaiting.set(waiting.get());
+        endpoints.clear();
+        startedNanos = System.nanoTime();
+    }
+
+    private void record(String endpoint, long holdNanos) {
+        inUse.decrementAndGet();
+        released.incrementAndGet();
+        totalHoldNanos.addAndGet(holdNanos);
+        maxHoldNanos.accumulateAndGet(holdNanos, Math::max);
+        endpoints.computeIfAbsent(endpoint, e -> new EndpointHold()).record(holdNanos);
+    }
+
+    /**
+     * 지금 처리 중인 요청의 매핑 패턴 , 핸들러가 정해지기 전이거나 요청 밖이면 URI 또는 "-"
+     */
+    private static String currentEndpoint() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            return NO_REQUEST;
+        }
+        HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+    }
+
+    private class MonitoredDataSource extends DelegatingDataSource {
+
+        MonitoredDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            long start = beforeAcquire();
+            try {
+                return monitor(super.getConnection(), start);
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            long start = beforeAcquire();
+            try {
+                return monitor(super.getConnection(username, password), start);
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+
+        private long beforeAcquire() {
+            peakWaiting.accumulateAndGet(waiting.incrementAndGet(), Math::max);
+            return System.nanoTime();
+        }
+
+        private Connection monitor(Connection target, long acquireStart) {
+            long start = System.nanoTime();
+            long acquireNanos = start - acquireStart;
+            acquired.incrementAndGet();
+            totalAcquireNanos.addAndGet(acquireNanos);
+            maxAcquireNanos.accumulateAndGet(acquireNanos, Math::max);
+            peakInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+            String endpoint = currentEndpoint();
+            AtomicBoolean closed = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("close") && closed.compareAndSet(false, true)) {
+                            record(endpoint, System.nanoTime() - start);
+                        }
+                        try {
+                            return method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+    }
+
+    private static class EndpointHold {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long holdNanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(holdNanos);
+            maxNanos.accumulateAndGet(holdNanos, Math::max);
+        }
+
+        HoldStats stats() {
+            long n = count.get();
+            return new HoldStats(n, n, 0, totalNanos.get() / 1000, n == 0 ? 0 : totalNanos.get() / n / 1000, maxNanos.get() / 1000);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class HoldStats {
+        private long acquired;
+        private long released;
+        private long inUse; // 지금 점유 중인 커넥션 수
+        private long totalHoldMicros;
+        private long avgHoldMicros;
+        private long maxHoldMicros;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class AcquireStats {
+        private long acquired;
+        private long avgAcquireMicros; // getConnection() 에서 기다린 시간
+        private long maxAcquireMicros;
+        private long peakInUse; // 동시에 점유한 커넥션 수의 최대값
+        private long peakWaiting; // 동시에 getConnection() 에서 기다린 스레드 수의 최대값
+        private long elapsedMicros; // 측정 시작(reset) 후 지난 시간
+    }
+}
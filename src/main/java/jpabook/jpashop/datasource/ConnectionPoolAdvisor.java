@@ -0,0 +1,106 @@
+package jpabook.jpashop.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jpabook.jpashop.datasource.ConnectionHoldMonitor.AcquireStats;
+import jpabook.jpashop.datasource.ConnectionHoldMonitor.HoldStats;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 커넥션 풀(HikariCP) 현황과 풀 크기 / 타임아웃 권장값
+ * - 현황: 풀의 active, idle, 대기 스레드 수 + ConnectionHoldMonitor 가 잰 획득 지연, 점유 시간
+ * - 풀 크기: 리틀의 법칙(동시에 필요한 커넥션 수 = 초당 획득 수 x 평균 점유 시간)과 실제로 관측된 최대 동시 요청 수 중 큰 값
+ *   단, (코어 수 x 2 + 1) 을 넘기지 않는다. 더 늘려도 DB 가 동시에 처리하지 못하고 경합만 늘어난다. 넘는 요청은 풀에서 기다리게 한다.
+ * - 타임아웃: 풀이 가득 찼을 때 기다리는 시간은 대략 가장 긴 점유 시간만큼이므로 그 2배 이상으로 잡는다. (HikariCP 최소 250ms)
+ * - 측정값은 ConnectionHoldMonitor.reset() 이후의 값이다. 부하를 준 뒤에 조회해야 의미가 있다.
+ */
+@Component
+@RequiredArgsConstructor
+public class ConnectionPoolAdvisor {
+
+    private static final long MIN_CONNECTION_TIMEOUT_MS = 250;
+
+    private final DataSource dataSource;
+    private final ConnectionHoldMonitor connectionHoldMonitor;
+
+    public PoolReport report() {
+        HikariDataSource hikari = hikari();
+        HikariPoolMXBean pool = hikari != null ? hikari.getHikariPoolMXBean() : null;
+        HoldStats hold = connectionHoldMonitor.stats();
+        AcquireStats acquire = connectionHoldMonitor.acquireStats();
+
+        int maximumPoolSize = hikari != null ? hikari.getMaximumPoolSize() : -1;
+        long connectionTimeoutMs = hikari != null ? hikari.getConnectionTimeout() : -1;
+        int cpuLimit = Runtime.getRuntime().availableProcessors() * 2 + 1;
+
+        List<String> reasons = new ArrayList<>();
+
+        // 풀의 커넥션을 모두 점유한 순간이 있었다면 그때 getConnection() 에 있던 스레드는 기다렸다.
+        boolean saturated = pool != null && (pool.getThreadsAwaitingConnection() > 0 || acquire.getPeakInUse() >= maximumPoolSize);
+        if (saturated) {
+            reasons.add("풀의 커넥션을 모두 점유한 순간이 있었다. (커넥션을 기다린 요청이 있다.)");
+        }
+
+        // 리틀의 법칙 , 평균적으로 동시에 점유 중인 커넥션 수
+        double concurrency = acquire.getElapsedMicros() == 0 ? 0
+                : (double) hold.getTotalHoldMicros() / acquire.getElapsedMicros();
+        long demand = Math.max((long) Math.ceil(concurrency * 1.5), acquire.getPeakInUse() + (saturated ? acquire.getPeakWaiting() : 0));
+        int recommendedPoolSize = (int) Math.max(2, Math.min(demand, cpuLimit));
+        reasons.add(String.format("평균 동시 점유 %.2f개 , 최대 동시 점유 %d개 , 최대 동시 대기 %d개",
+                concurrency, acquire.getPeakInUse(), acquire.getPeakWaiting()));
+        if (demand > cpuLimit) {
+            reasons.add("관측된 동시 요청(" + demand + ")이 코어 기준 상한(" + cpuLimit + ")보다 많다. 풀을 늘리기보다 점유 시간을 줄여야 한다.");
+        }
+
+        long recommendedTimeoutMs = Math.max(MIN_CONNECTION_TIMEOUT_MS,
+                Math.max(hold.getMaxHoldMicros(), acquire.getMaxAcquireMicros()) * 2 / 1000);
+        reasons.add("가장 긴 점유 " + hold.getMaxHoldMicros() / 1000 + "ms , 가장 긴 획득 대기 " + acquire.getMaxAcquireMicros() / 1000 + "ms");
+
+        return new PoolReport(
+                pool != null ? pool.getActiveConnections() : -1,
+                pool != null ? pool.getIdleConnections() : -1,
+                pool != null ? pool.getThreadsAwaitingConnection() : -1,
+                pool != null ? pool.getTotalConnections() : -1,
+                maximumPoolSize, connectionTimeoutMs, saturated,
+                acquire, hold, connectionHoldMonitor.endpointStats(),
+                recommendedPoolSize, recommendedTimeoutMs, reasons);
+    }
+
+    /**
+     * p6spy, ConnectionHoldMonitor 가 감싸고 있으므로 unwrap 해서 찾는다.
+     */
+    private HikariDataSource hikari() {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class PoolReport {
+        private int active;
+        private int idle;
+        private int pending; // 지금 커넥션을 기다리는 스레드 수
+        private int total;
+        private int maximumPoolSize;
+        private long connectionTimeoutMs;
+        private boolean saturated;
+        private AcquireStats acquire;
+        private HoldStats hold;
+        private Map<String, HoldStats> endpoints;
+        private int recommendedPoolSize;
+        private long recommendedConnectionTimeoutMs;
+        private List<String> reasons;
+    }
+}
@@ -0,0 +1,82 @@
+package jpabook.jpashop.datasource;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 쓰기 후 읽기 일관성(read-your-writes)
+ * - 쓰기 트랜잭션이 커밋되면 sticky 시간 동안 같은 세션의 읽기 전용 트랜잭션도 기본 DB 로 보낸다. (복제 지연 동안 방금 쓴 값이 안 보이는 문제)
+ * - 세션은 요청 스레드다. HTTP 요청 사이에는 쿠키(언제까지 기본 DB 를 읽을지, epoch ms)로 이어준다. 애플리케이션 인스턴스가 여러 개여도 된다.
+ * - 쿠키를 조작해도 기본 DB 를 더 오래 읽을 뿐이다.
+ */
+@Component
+public class ReadYourWrites implements HandlerInterceptor {
+
+    static final String COOKIE = "jpashop-primary-until";
+
+    private static final ThreadLocal<Long> primaryUntil = new ThreadLocal<>();
+
+    /**
+     * 지금 세션의 읽기를 기본 DB 로 보내야 하는지
+     */
+    public static boolean isSticky() {
+        Long until = primaryUntil.get();
+        return until != null && System.currentTimeMillis() < until;
+    }
+
+    /**
+     * 쓰기 트랜잭션 커밋 후 호출된다. 요청 안이라면 응답에 쿠키도 남긴다.
+     */
+    static void wrote(long stickyMillis) {
+        long until = System.currentTimeMillis() + stickyMillis;
+        primaryUntil.set(until);
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes) {
+            HttpServletResponse response = ((ServletRequestAttributes) attributes).getResponse();
+            if (response != null && !response.isCommitted()) {
+                Cookie cookie = new Cookie(COOKIE, String.valueOf(until));
+                cookie.setPath("/");
+                cookie.setHttpOnly(true);
+                cookie.setMaxAge((int) Math.max(1, stickyMillis / 1000));
+                response.addCookie(cookie);
+            }
+        }
+    }
+
+    /**
+     * 세션을 끝낸다. (스레드를 다른 세션에서 다시 사용할 때)
+     */
+    public static void clear() {
+        primaryUntil.remove();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        clear();
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE.equals(cookie.getName())) {
+                    try {
+                        primaryUntil.set(Long.parseLong(cookie.getValue()));
+                    } catch (NumberFormatException e) {
+                        // 잘못된 쿠키는 무시한다.
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        clear();
+    }
+}
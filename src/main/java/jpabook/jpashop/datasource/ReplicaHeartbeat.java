@@ -0,0 +1,138 @@
+package jpabook.jpashop.datasource;
+
+import jpabook.jpashop.datasource.ReplicaRoutingDataSource.Replica;
+import jpabook.jpashop.datasource.ReplicaRoutingDataSource.RoutingStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 복제 지연 측정 (heartbeat)
+ * - 기본 DB 의 replica_heartbeat 한 줄에 지금 시각을 쓰고, 복제 DB 에서 그 줄을 읽어서 지연을 잰다.
+ * - 복제 DB 가 마지막으로 쓴 시각을 이미 받았으면 지연 0 , 아니면 (지금 - 복제 DB 에 있는 시각) 이다.
+ *   그래서 측정 주기(heartbeatMs)보다 작은 지연은 구분하지 못한다. maxLagMs 는 heartbeatMs 보다 크게 잡는다.
+ * - 복제 DB 에 연결할 수 없거나 줄이 없으면 -1 (읽기를 보내지 않는다.)
+ * - 전용 스레드(replica-heartbeat) 하나에서 heartbeatMs 마다 실행한다. 라우팅을 하지 않으면 아무것도 하지 않는다.
+ */
+@Slf4j
+@Component
+public class ReplicaHeartbeat {
+
+    private final ReplicaRoutingDataSource routing;
+
+    @Value("${jpashop.datasource.heartbeat-ms:500}")
+    private long heartbeatMillis;
+
+    private ScheduledExecutorService executor;
+    private volatile boolean tableCreated;
+    private volatile Timestamp lastBeat;
+
+    public ReplicaHeartbeat(DataSource dataSource) throws SQLException {
+        this.routing = dataSource.isWrapperFor(ReplicaRoutingDataSource.class) ? dataSource.unwrap(ReplicaRoutingDataSource.class) : null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (routing == null || heartbeatMillis <= 0 || executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::refreshQuietly, 0, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("replica heartbeat failed", e); // 스케줄러가 멈추지 않도록 예외를 삼킨다.
+        }
+    }
+
+    /**
+     * 복제 DB 의 지연을 재고, 기본 DB 에 다음 heartbeat 를 쓴다.
+     */
+    public synchronized void refresh() throws SQLException {
+        if (routing == null) {
+            return;
+        }
+        for (Replica replica : routing.getReplicas()) {
+            replica.setLagMillis(measure(replica));
+        }
+        beat();
+    }
+
+    /**
+     * 라우팅 현황 , 라우팅을 하지 않으면 null
+     */
+    public RoutingStats stats() {
+        return routing != null ? routing.stats() : null;
+    }
+
+    private void beat() throws SQLException {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        try (Connection connection = routing.getPrimary().getConnection()) {
+            if (!tableCreated) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("create table if not exists replica_heartbeat (id int primary key, beat_at timestamp)");
+                }
+                tableCreated = true;
+            }
+            try (PreparedStatement update = connection.prepareStatement("update replica_heartbeat set beat_at = ? where id = 1")) {
+                update.setTimestamp(1, now);
+                if (update.executeUpdate() == 0) {
+                    try (PreparedStatement insert = connection.prepareStatement("insert into replica_heartbeat (id, beat_at) values (1, ?)")) {
+                        insert.setTimestamp(1, now);
+                        insert.executeUpdate();
+                    }
+                }
+            }
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        }
+        lastBeat = now;
+    }
+
+    private long measure(Replica replica) {
+        try (Connection connection = replica.getDataSource().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("select beat_at from replica_heartbeat where id = 1")) {
+            if (!rs.next()) {
+                return -1;
+            }
+            Timestamp replicaBeat = rs.getTimestamp(1);
+            if (lastBeat != null && !replicaBeat.before(lastBeat)) {
+                return 0;
+            }
+            return Math.max(0, System.currentTimeMillis() - replicaBeat.getTime());
+        } catch (SQLException e) {
+            log.warn("replica heartbeat - {} : {}", replica.getName(), e.getMessage());
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package jpabook.jpashop.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * jpashop.datasource.* , 읽기 전용 복제 DB 설정 (ReplicaRoutingConfigurer)
+ */
+@Getter
+@Setter
+public class ReplicaProperties {
+
+    private List<Replica> replicas = new ArrayList<>(); // 비어 있으면 라우팅하지 않는다.
+    private Balance balance = Balance.ROUND_ROBIN;
+    private long maxLagMs = 2000; // 복제 지연이 이보다 크면 그 복제 DB 로 보내지 않는다.
+    private long stickyMs = 3000; // 쓰기 트랜잭션이 커밋된 뒤 이 시간 동안 같은 세션의 읽기는 기본 DB 로 보낸다.
+    private long heartbeatMs = 500; // 복제 지연 측정 주기 , 0 이면 ReplicaHeartbeat.refresh() 를 직접 호출한다.
+
+    public enum Balance {
+        ROUND_ROBIN, // 차례대로
+        LEAST_BUSY // 지금 빌려준 커넥션이 가장 적은 복제 DB
+    }
+
+    @Getter
+    @Setter
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
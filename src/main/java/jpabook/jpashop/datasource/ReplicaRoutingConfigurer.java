@@ -0,0 +1,72 @@
+package jpabook.jpashop.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jpabook.jpashop.datasource.ReplicaRoutingDataSource.Replica;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * jpashop.datasource.replicas 가 있으면 DataSource 빈(기본 DB)을 ReplicaRoutingDataSource 로 감싼다. 없으면 그대로 둔다.
+ * - 복제 DB 마다 읽기 전용 HikariCP 풀을 만든다.
+ * - p6spy 가 감싼 뒤에 감싼다. p6spy 는 커넥션을 얻자마자 getMetaData() 를 호출하기 때문에 LazyConnectionDataSourceProxy 안쪽에 있어야 한다.
+ *   (바깥에 있으면 트랜잭션 시작(readOnly 가 정해지기 전)에 커넥션을 얻는다.) 기본 DB 쿼리만 p6spy 로 남는다.
+ * - ConnectionHoldMonitor 는 순서가 없는 BeanPostProcessor 라서 이보다 나중에 가장 바깥을 감싼다.
+ * - BeanPostProcessor 는 @ConfigurationProperties 바인딩보다 먼저 만들어지므로 설정은 Binder 로 직접 읽는다.
+ */
+@Component
+public class ReplicaRoutingConfigurer implements BeanPostProcessor, EnvironmentAware, Ordered, DisposableBean {
+
+    private ReplicaProperties properties;
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        properties = Binder.get(environment).bind("jpashop.datasource", ReplicaProperties.class)
+                .orElseGet(ReplicaProperties::new);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (!(bean instanceof DataSource) || bean instanceof ReplicaRoutingDataSource || bean instanceof LazyConnectionDataSourceProxy
+                || properties.getReplicas().isEmpty()) {
+            return bean;
+        }
+        List<Replica> replicas = new ArrayList<>();
+        for (int i = 0; i < properties.getReplicas().size(); i++) {
+            ReplicaProperties.Replica config = properties.getReplicas().get(i);
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName("jpashop-replica-" + i);
+            pool.setJdbcUrl(config.getUrl());
+            pool.setUsername(config.getUsername());
+            pool.setPassword(config.getPassword());
+            pool.setMaximumPoolSize(config.getMaximumPoolSize());
+            pool.setReadOnly(true);
+            pools.add(pool);
+            replicas.add(new Replica(pool.getPoolName(), pool));
+        }
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource((DataSource) bean, replicas,
+                properties.getBalance(), properties.getMaxLagMs(), properties.getStickyMs());
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE; // p6spy(LOWEST_PRECEDENCE - 10) 다음
+    }
+
+    @Override
+    public void destroy() {
+        pools.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,224 @@
+package jpabook.jpashop.datasource;
+
+import jpabook.jpashop.datasource.ReplicaProperties.Balance;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 읽기 전용 트랜잭션(@Transactional(readOnly = true))은 복제 DB 로, 나머지는 기본 DB 로 보낸다.
+ * - 트랜잭션의 readOnly 는 커넥션을 얻은 뒤에 정해지므로 LazyConnectionDataSourceProxy 로 감싸서 첫 쿼리 때 커넥션을 얻는다. (ReplicaRoutingConfigurer)
+ * - 복제 DB 는 balance(차례대로 / 빌려준 커넥션이 가장 적은 것)로 고른다. 복제 지연이 maxLag 를 넘었거나 아직 재지 않은 복제 DB 는 건너뛴다. (ReplicaHeartbeat)
+ * - 쓸 수 있는 복제 DB 가 없거나 쓰기 직후의 세션(ReadYourWrites)이면 기본 DB 로 보낸다.
+ * - 트랜잭션 밖(스키마 생성, JdbcTemplate 등)은 항상 기본 DB 다.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Balance balance;
+    private final long maxLagMillis;
+    private final long stickyMillis;
+
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicLong stickyReads = new AtomicLong();
+    private final AtomicLong fallbackReads = new AtomicLong();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<Replica> replicas, Balance balance, long maxLagMillis, long stickyMillis) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.balance = balance;
+        this.maxLagMillis = maxLagMillis;
+        this.stickyMillis = stickyMillis;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Replica replica = route();
+        if (replica == null) {
+            return primary.getConnection();
+        }
+        return replica.borrow();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Replica replica = route();
+        if (replica == null) {
+            return primary.getConnection(username, password);
+        }
+        return replica.borrow();
+    }
+
+    /**
+     * 이번 커넥션을 보낼 복제 DB , 기본 DB 면 null
+     */
+    private Replica route() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return null;
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            // 커밋된 뒤부터 같은 세션의 읽기는 기본 DB 를 읽는다.
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        ReadYourWrites.wrote(stickyMillis);
+                    }
+                });
+            }
+            return null;
+        }
+        if (ReadYourWrites.isSticky()) {
+            stickyReads.incrementAndGet();
+            return null;
+        }
+        Replica replica = choose();
+        if (replica == null) {
+            fallbackReads.incrementAndGet();
+            return null;
+        }
+        return replica;
+    }
+
+    private Replica choose() {
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        Replica chosen = null;
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (!replica.isHealthy(maxLagMillis)) {
+                continue;
+            }
+            if (balance == Balance.ROUND_ROBIN) {
+                return replica;
+            }
+            if (chosen == null || replica.inUse.get() < chosen.inUse.get()) {
+                chosen = replica;
+            }
+        }
+        return chosen;
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    public RoutingStats stats() {
+        List<ReplicaStats> replicaStats = new ArrayList<>();
+        for (Replica replica : replicas) {
+            replicaStats.add(new ReplicaStats(replica.name, replica.lagMillis, replica.isHealthy(maxLagMillis),
+                    replica.inUse.get(), replica.reads.get()));
+        }
+        return new RoutingStats(balance, maxLagMillis, stickyMillis, stickyReads.get() + fallbackReads.get(),
+                stickyReads.get(), fallbackReads.get(), replicaStats);
+    }
+
+    /**
+     * ConnectionPoolAdvisor 가 HikariDataSource 를 찾을 수 있도록 기본 DB 로 넘긴다.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        return primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+
+    /**
+     * 복제 DB 하나 , 커넥션 풀과 마지막으로 잰 복제 지연
+     */
+    public static class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private final AtomicInteger inUse = new AtomicInteger();
+        private final AtomicLong reads = new AtomicLong();
+        private volatile long lagMillis = -1; // 아직 재지 않았으면 -1
+
+        public Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public DataSource getDataSource() {
+            return dataSource;
+        }
+
+        void setLagMillis(long lagMillis) {
+            this.lagMillis = lagMillis;
+        }
+
+        boolean isHealthy(long maxLagMillis) {
+            return lagMillis >= 0 && lagMillis <= maxLagMillis;
+        }
+
+        /**
+         * 반납(close)할 때까지 빌려준 커넥션 수를 센다. (LEAST_BUSY)
+         */
+        private Connection borrow() throws SQLException {
+            Connection target = dataSource.getConnection();
+            reads.incrementAndGet();
+            inUse.incrementAndGet();
+            AtomicBoolean closed = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("close") && closed.compareAndSet(false, true)) {
+                            inUse.decrementAndGet();
+                        }
+                        try {
+                            return method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class RoutingStats {
+        private Balance balance;
+        private long maxLagMs;
+        private long stickyMs;
+        private long primaryReads; // 기본 DB 로 보낸 읽기 전용 트랜잭션 수 (sticky + fallback)
+        private long stickyReads; // 쓰기 직후라서 기본 DB 로 보낸 수
+        private long fallbackReads; // 쓸 수 있는 복제 DB 가 없어서 기본 DB 로 보낸 수
+        private List<ReplicaStats> replicas;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class ReplicaStats {
+        private String name;
+        private long lagMs; // -1 이면 아직 재지 않았거나 연결할 수 없다.
+        private boolean healthy;
+        private int inUse;
+        private long reads;
+    }
+}
@@ -10,6 +10,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_member_name", columnNames = "name")) // 중복 가입 여부의 기준 , 동시에 가입해도 하나만 성공한다.
 @Getter
 @Setter
 public class Member {
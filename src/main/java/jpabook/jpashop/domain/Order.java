@@ -10,8 +10,38 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * 주문 조회 JPQL 은 Named Query 로 둔다. 애플리케이션 로딩 시점에 파싱, SQL 변환까지 끝내서 쿼리 플랜 캐시에 올려둔다. (문법 오류도 로딩 시점에 발견)
+ * - new 오퍼레이션(DTO 생성자) 쿼리는 파싱 비용이 커서, 처음 요청이 이 비용을 내지 않도록 한다. (QueryWarmUp)
+ */
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_order_date", columnList = "order_date") // 기간 조회, 보관 대상 조회 (OrderArchiver)
+})
+@NamedQueries({
+        @NamedQuery(name = "Order.findAllWithMemberDelivery", query = "select o from Order o" +
+                " join fetch o.member m" +
+                " join fetch o.delivery d"),
+        @NamedQuery(name = "Order.findAllWithItem", query = "select distinct o from Order o" +
+                " join fetch o.member m" +
+                " join fetch o.delivery d" +
+                " join fetch o.orderItems oi" +
+                " join fetch oi.item i"),
+        @NamedQuery(name = "Order.findOrderQueryDtos", query = "select new jpabook.jpashop.repository.order.query.OrderQueryDto(o.id, m.name, o.orderDate, o.status, d.address)" +
+                " from Order o" +
+                " join o.member m" +
+                " join o.delivery d"),
+        @NamedQuery(name = "Order.findOrderFlatDtos", query = "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
+                " from Order o" +
+                " join o.member m" +
+                " join o.delivery d" +
+                " join o.orderItems oi" +
+                " join oi.item i"),
+        @NamedQuery(name = "Order.findOrderSimpleQueryDtos", query = "select new jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto(o.id, m.name, o.orderDate, o.status, d.address)" +
+                " from Order o" +
+                " join o.member m" +
+                " join o.delivery d")
+})
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
@@ -36,6 +66,7 @@ public class Order {
     private Delivery delivery;
 
     // JPA에서 column 명을 따로 명시하지 않으면 모든 대문자는 소문자가 되고, 캐멀케이스 같은 경우는 order_date로 변동된다. 기본전략
+    @Column(name = "order_date") // 인덱스(idx_orders_order_date)에서 컬럼 이름으로 참조한다.
     private LocalDateTime orderDate; // 주문시간
 
     @Enumerated(EnumType.STRING)
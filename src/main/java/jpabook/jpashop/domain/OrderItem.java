@@ -9,6 +9,21 @@ import lombok.Setter;
 import javax.persistence.*;
 
 @Entity
+@NamedQueries({
+        @NamedQuery(name = "OrderItem.findOrderItemQueryDtos", query = "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+                " from OrderItem oi" +
+                " join oi.item i" +
+                " where oi.order.id = :orderId"),
+        @NamedQuery(name = "OrderItem.findOrderItemQueryDtosIn", query = "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+                " from OrderItem oi" +
+                " join oi.item i" +
+                " where oi.order.id in :orderIds"),
+        @NamedQuery(name = "OrderItem.findRowItemsIn", query = "select oi.order.id, i.name, oi.orderPrice, oi.count" +
+                " from OrderItem oi" +
+                " join oi.item i" +
+                " where oi.order.id in :orderIds" +
+                " order by oi.id")
+})
 @Getter@Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class OrderItem {
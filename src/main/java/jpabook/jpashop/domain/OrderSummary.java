@@ -0,0 +1,72 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 주문 목록 조회 전용 읽기 모델 (CQRS)
+ * - 주문 목록에서 총 가격을 보여주려면 OrderItem을 모두 로딩해야 하고, member, delivery도 매번 join 해야 한다.
+ * - 주문/취소 시점에 같은 트랜잭션 안에서 한 줄로 펼쳐서 저장해두고, 목록/검색은 이 좁은 테이블 하나로만 처리한다.
+ * - Order와 연관관계를 맺지 않는다. 식별자 값(order_id, member_id)만 보관한다.
+ */
+@Entity
+@Table(name = "order_summary", indexes = {
+        @Index(name = "idx_order_summary_status", columnList = "status, order_id"),
+        @Index(name = "idx_order_summary_member_name", columnList = "member_name, status"),
+        @Index(name = "idx_order_summary_member_id", columnList = "member_id"),
+        @Index(name = "idx_order_summary_order_date", columnList = "order_date")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OrderSummary {
+
+    @Id
+    @Column(name = "order_id") // Order의 id를 그대로 사용한다. @GeneratedValue X
+    private Long orderId;
+
+    @Column(name = "member_id")
+    private Long memberId;
+
+    @Column(name = "member_name")
+    private String memberName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private OrderStatus status; // 주문상태 [ ORDER, CANCEL]
+
+    @Column(name = "order_date")
+    private LocalDateTime orderDate; // 주문시간
+
+    private int itemCount; // 주문상품 종류 수
+
+    private int totalPrice; // 전체 주문 가격
+
+    private String city; // 배송지 도시
+
+    //--생성 메서드-- 영속화(persist)된 Order를 받아서 한줄로 펼친다.
+    public static OrderSummary createOrderSummary(Order order) {
+        OrderSummary summary = new OrderSummary();
+        summary.orderId = order.getId();
+        summary.memberId = order.getMember().getId();
+        summary.memberName = order.getMember().getName();
+        summary.status = order.getStatus();
+        summary.orderDate = order.getOrderDate();
+        summary.itemCount = order.getOrderItems().size();
+        summary.totalPrice = order.getTotalPrice();
+        Address address = order.getDelivery().getAddress();
+        summary.city = address != null ? address.getCity() : null; // 주소 없이 가입한 회원도 있다.
+        return summary;
+    }
+
+    //-- 비지니스 로직--
+    /**
+     * 주문 취소 반영
+     */
+    public void cancel() {
+        this.status = OrderStatus.CANCEL;
+    }
+}
@@ -0,0 +1,48 @@
+package jpabook.jpashop.domain.archive;
+
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 보관(archive)된 주문
+ * - 오래된 주문은 OrderArchiver 가 orders, delivery 에서 이 테이블로 옮긴다. (insert ... select 후 delete)
+ * - 배송 정보는 한 줄로 펼쳐서 같이 보관한다. 회원, 상품은 옮기지 않으므로 식별자 값만 보관한다.
+ * - id 는 원래 주문의 id 를 그대로 사용한다. @GeneratedValue X
+ * - 보관 테이블은 주문일 범위로만 조회한다. (order_date 인덱스 , DB 가 지원하면 order_date 로 범위 파티션을 나눈다.)
+ */
+@Entity
+@Table(name = "orders_archive", indexes = {
+        @Index(name = "idx_orders_archive_order_date", columnList = "order_date")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ArchivedOrder {
+
+    @Id
+    @Column(name = "order_id")
+    private Long id;
+
+    @Column(name = "member_id")
+    private Long memberId;
+
+    @Column(name = "order_date")
+    private LocalDateTime orderDate;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    @Enumerated(EnumType.STRING)
+    private DeliveryStatus deliveryStatus;
+
+    private String city;
+    private String street;
+    private String zipcode;
+
+    private LocalDateTime archivedAt; // 보관 테이블로 옮긴 시각
+}
@@ -0,0 +1,33 @@
+package jpabook.jpashop.domain.archive;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+/**
+ * 보관(archive)된 주문상품 , 주문과 같은 batch 에서 order_item 에서 옮긴다.
+ */
+@Entity
+@Table(name = "order_item_archive", indexes = {
+        @Index(name = "idx_order_item_archive_order_id", columnList = "order_id")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ArchivedOrderItem {
+
+    @Id
+    @Column(name = "order_item_id")
+    private Long id;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(name = "item_id")
+    private Long itemId;
+
+    private int orderPrice; // 주문 가격
+    @Column(name = "count")
+    private int quantity; // 주문 수량 , HQL insert 의 컬럼 목록에서 count 는 함수로 해석되므로 필드 이름만 바꾼다.
+}
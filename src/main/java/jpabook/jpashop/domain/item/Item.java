@@ -10,6 +10,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Table(indexes = @Index(name = "idx_item_dtype_name", columnList = "dtype, name")) // 종류별 목록(ItemRepository.findSummaries) , 종류로 거르고 이름순 정렬 없이 읽는다.
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "dtype")
 @Getter
@@ -0,0 +1,80 @@
+package jpabook.jpashop.domain.outbox;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 트랜잭션 아웃박스
+ * - 주문/취소와 같은 트랜잭션 안에서 이벤트를 row로 저장만 한다. 커밋되면 이벤트도 같이 커밋되고, 롤백되면 같이 사라진다.
+ * - 실제 후속 처리(캐시, 읽기 모델 갱신 등)는 OutboxProjector가 별도 스레드에서 꺼내서 처리한다.
+ */
+@Entity
+@Table(name = "outbox_event", indexes = {
+        @Index(name = "idx_outbox_event_pending", columnList = "status, outbox_event_id")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OutboxEvent {
+
+    @Id @GeneratedValue
+    @Column(name = "outbox_event_id")
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private OutboxEventType eventType;
+
+    private Long aggregateId; // ORDER_* 는 주문 id , STOCK_CHANGED 는 상품 id
+
+    @Column(length = 1000)
+    private String payload; // json
+
+    private LocalDateTime createdAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private OutboxEventStatus status; // [PENDING, PROCESSED, FAILED]
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt; // 처리(혹은 포기)한 시각
+
+    private int attempts; // 처리 실패 횟수
+
+    //--생성 메서드--
+    public static OutboxEvent createEvent(OutboxEventType eventType, Long aggregateId, String payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.eventType = eventType;
+        event.aggregateId = aggregateId;
+        event.payload = payload;
+        event.createdAt = LocalDateTime.now();
+        event.status = OutboxEventStatus.PENDING;
+        return event;
+    }
+
+    //-- 비지니스 로직--
+    /**
+     * 처리 완료
+     */
+    public void markProcessed(LocalDateTime processedAt) {
+        this.status = OutboxEventStatus.PROCESSED;
+        this.processedAt = processedAt;
+    }
+
+    /**
+     * 처리 실패 , 실패 횟수를 반환한다.
+     */
+    public int recordFailure() {
+        return ++attempts;
+    }
+
+    /**
+     * 더이상 처리하지 않는다. 처리된 이벤트와 구분된다. (status = FAILED)
+     */
+    public void markFailed(LocalDateTime failedAt) {
+        this.status = OutboxEventStatus.FAILED;
+        this.processedAt = failedAt;
+    }
+}
@@ -0,0 +1,5 @@
+package jpabook.jpashop.domain.outbox;
+
+public enum OutboxEventStatus {
+    PENDING, PROCESSED, FAILED // FAILED: max-attempts 만큼 실패해서 더이상 처리하지 않는 이벤트
+}
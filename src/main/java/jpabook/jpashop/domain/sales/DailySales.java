@@ -0,0 +1,24 @@
+package jpabook.jpashop.domain.sales;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.time.LocalDate;
+
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class DailySales extends SalesTotal {
+
+    @Id
+    @Column(name = "sales_date") // 주문일자 (주문시간의 날짜 부분)
+    private LocalDate salesDate;
+
+    public DailySales(LocalDate salesDate) {
+        this.salesDate = salesDate;
+    }
+}
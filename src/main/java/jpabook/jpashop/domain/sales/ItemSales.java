@@ -0,0 +1,23 @@
+package jpabook.jpashop.domain.sales;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ItemSales extends SalesTotal {
+
+    @Id
+    @Column(name = "item_id") // Item의 id를 그대로 사용한다.
+    private Long itemId;
+
+    public ItemSales(Long itemId) {
+        this.itemId = itemId;
+    }
+}
@@ -0,0 +1,23 @@
+package jpabook.jpashop.domain.sales;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class MemberSales extends SalesTotal {
+
+    @Id
+    @Column(name = "member_id") // Member의 id를 그대로 사용한다.
+    private Long memberId;
+
+    public MemberSales(Long memberId) {
+        this.memberId = memberId;
+    }
+}
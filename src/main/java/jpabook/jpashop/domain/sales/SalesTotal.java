@@ -0,0 +1,36 @@
+package jpabook.jpashop.domain.sales;
+
+import lombok.Getter;
+
+import javax.persistence.MappedSuperclass;
+
+/**
+ * 매출 누적 합계 (상품별, 회원별, 일자별 공통)
+ * - 주문/취소 시점에 증분으로만 갱신한다. 조회할 때는 합계를 다시 계산하지 않고 한 줄만 읽는다.
+ */
+@MappedSuperclass
+@Getter
+public abstract class SalesTotal {
+
+    private long revenue; // 매출 (주문가격 * 수량)
+    private long units; // 판매 수량
+    private long orderCount; // 주문 건수
+
+    // -- 비지니스 로직 --
+
+    /**
+     * 주문 반영
+     */
+    public void add(long revenue, long units, long orderCount) {
+        this.revenue += revenue;
+        this.units += units;
+        this.orderCount += orderCount;
+    }
+
+    /**
+     * 주문 취소 반영
+     */
+    public void subtract(long revenue, long units, long orderCount) {
+        add(-revenue, -units, -orderCount);
+    }
+}
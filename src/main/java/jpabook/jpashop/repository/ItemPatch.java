@@ -0,0 +1,44 @@
+package jpabook.jpashop.repository;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 상품 부분 수정 , null 인 필드는 바꾸지 않는다.
+ * - author, isbn 은 Book 에만 있는 컬럼이다.
+ */
+@Getter @Setter
+public class ItemPatch {
+
+    private String name;
+    private Integer price;
+    private Integer stockQuantity;
+    private String author; // Book
+    private String isbn; // Book
+
+    /**
+     * 바꿀 필드 -> 값 , 순서를 고정해서 같은 필드 조합은 항상 같은 JPQL 이 되도록 한다. (쿼리 플랜 캐시)
+     */
+    public Map<String, Object> changes() {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        putIfPresent(changes, "name", name);
+        putIfPresent(changes, "price", price);
+        putIfPresent(changes, "stockQuantity", stockQuantity);
+        putIfPresent(changes, "author", author);
+        putIfPresent(changes, "isbn", isbn);
+        return changes;
+    }
+
+    public boolean isBookOnly() {
+        return author != null || isbn != null;
+    }
+
+    private static void putIfPresent(Map<String, Object> changes, String field, Object value) {
+        if (value != null) {
+            changes.put(field, value);
+        }
+    }
+}
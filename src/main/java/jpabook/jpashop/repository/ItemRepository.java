@@ -1,11 +1,17 @@
 package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.item.ItemSummaryDto;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
+import javax.persistence.Query;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Repository
 @RequiredArgsConstructor // final로 설정된 값으로만 구성된 생성자를 만들어주고, 생성자가 1개 이기 때문에 자동 Autowired가 이루어진다.
@@ -30,5 +36,95 @@ public class ItemRepository {
         return em.createQuery("select i from Item i", Item.class).getResultList();
     }
 
+    /**
+     * 종류별 조회 , 하위 엔티티(Book, Album, Movie)로 조회하면 dtype 조건이 붙는다. (idx_item_dtype_name)
+     */
+    public <T extends Item> List<T> findAllByType(Class<T> type){
+        return em.createQuery("select i from " + entityName(type) + " i", type).getResultList();
+    }
+
+    /**
+     * 목록 화면용 , 공통 컬럼(id, name, price, stockQuantity)만 이름순으로 읽는다.
+     * - 단일 테이블 전략이라 엔티티로 읽으면 다른 종류의 컬럼(author, isbn, artist, etc, director, actor)까지 모두 읽는다.
+     * - type 이 Item 이면 전체, Book/Album/Movie 면 그 종류만 (idx_item_dtype_name)
+     */
+    public List<ItemSummaryDto> findSummaries(Class<? extends Item> type){
+        return em.createQuery(
+                        "select new jpabook.jpashop.repository.item.ItemSummaryDto(i.id, i.name, i.price, i.stockQuantity)" +
+                                " from " + entityName(type) + " i" +
+                                " order by i.name", ItemSummaryDto.class)
+                .getResultList();
+    }
+
+    private String entityName(Class<? extends Item> type) {
+        return em.getMetamodel().entity(type).getName();
+    }
+
+    /**
+     * 재고 증감 , 읽지 않고 DB 에서 바로 더한다. (일괄 취소의 재고 복구)
+     */
+    public int addStock(Long itemId, long delta){
+        return em.createQuery("update Item i set i.stockQuantity = i.stockQuantity + :delta where i.id = :id")
+                .setParameter("delta", (int) delta)
+                .setParameter("id", itemId)
+                .executeUpdate();
+    }
+
+    /**
+     * 현재 재고 [itemId, stockQuantity] , 영속성 컨텍스트가 아니라 DB 값을 읽는다. (벌크 연산 이후)
+     */
+    public List<Object[]> findStockQuantities(List<Long> ids){
+        return em.createQuery("select i.id, i.stockQuantity from Item i where i.id in :ids", Object[].class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    public List<Item> findAllById(List<Long> ids){
+        return em.createQuery("select i from Item i where i.id in :ids", Item.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * 부분 수정 , 바뀐 컬럼만 update 한다. (select 없이 update 한 번)
+     * - merge 는 select 후 모든 필드를 복사하고, 변경 감지도 select 후 모든 컬럼을 update 한다. (dynamic-update 를 켜지 않았다.)
+     * - 벌크 연산은 영속성 컨텍스트를 거치지 않으므로, 그 전에 쌓인 변경은 flush 하고 끝나면 그 상품만 refresh 해서 이전 값을 들고 있지 않게 한다.
+     *   영속성 컨텍스트 전체를 clear 하지 않는다. (호출한 쪽이 들고 있는 다른 엔티티는 그대로 영속 상태)
+     * - author, isbn 을 바꾸면 Book 으로 update 한다. (dtype = 'B' 조건이 붙는다.)
+     * @return 수정된 행 수 , 없는 상품이거나 Book 이 아닌 상품의 author, isbn 을 바꾸면 0
+     */
+    public int patch(Long id, ItemPatch patch) {
+        Map<String, Object> changes = patch.changes();
+        if (changes.isEmpty()) {
+            return 0;
+        }
+        em.flush();
+        Query query = em.createQuery(patchJpql(patch)).setParameter("id", id);
+        changes.forEach(query::setParameter);
+        int updated = query.executeUpdate();
+        if (updated > 0) {
+            refreshIfManaged(id);
+        }
+        return updated;
+    }
+
+    /**
+     * 영속성 컨텍스트에 이미 있는 상품만 DB 값으로 다시 읽는다. 없으면 아무것도 하지 않는다. (select 없음)
+     */
+    private void refreshIfManaged(Long id) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(Item.class);
+        Object managed = session.getPersistenceContext().getEntity(session.generateEntityKey(id, persister));
+        if (managed != null) {
+            em.refresh(managed);
+        }
+    }
+
+    static String patchJpql(ItemPatch patch) {
+        return "update " + (patch.isBookOnly() ? "Book" : "Item") + " i set "
+                + patch.changes().keySet().stream().map(f -> "i." + f + " = :" + f).collect(Collectors.joining(", "))
+                + " where i.id = :id";
+    }
+
 
 }
@@ -0,0 +1,36 @@
+package jpabook.jpashop.repository;
+
+import lombok.Getter;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 키셋(커서) 페이징 결과 , offset 대신 "마지막으로 본 id 다음부터" 읽는다.
+ * - where id > :afterId order by id 로 PK 인덱스를 바로 타기 때문에 뒤쪽 페이지도 앞쪽 페이지만큼 빠르다.
+ * - size + 1 건을 읽어서 다음 페이지가 있는지 확인한다. 없으면 next 는 null
+ */
+@Getter
+public class KeysetSlice<T> {
+
+    private final List<T> content;
+    private final Long next; // 다음 페이지 요청의 afterId
+
+    private KeysetSlice(List<T> content, Long next) {
+        this.content = content;
+        this.next = next;
+    }
+
+    public static <T> KeysetSlice<T> of(List<T> rows, int size, Function<T, Long> id) {
+        if (rows.size() <= size) {
+            return new KeysetSlice<>(rows, null);
+        }
+        List<T> content = rows.subList(0, size);
+        return new KeysetSlice<>(content, id.apply(content.get(size - 1)));
+    }
+
+    public <R> KeysetSlice<R> map(Function<T, R> mapper) {
+        return new KeysetSlice<>(content.stream().map(mapper).collect(Collectors.toList()), next);
+    }
+}
@@ -1,10 +1,13 @@
 package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.member.MemberNameDto;
+import jpabook.jpashop.repository.member.MemberSummary;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
 import java.util.List;
 
 @Repository // component 대상이 된다.
@@ -23,6 +26,23 @@ public class MemberRepository {
         return member.getId();
     }
 
+    /**
+     * 가입시 유니크 제약조건(uk_member_name) 위반을 바로 확인하기 위해서 insert 까지 한다.
+     * - 제약조건 위반은 @Repository 예외 변환에 의해서 DataIntegrityViolationException 으로 던져진다.
+     */
+    public Long saveAndFlush(Member member){
+        em.persist(member);
+        em.flush();
+        return member.getId();
+    }
+
+    /**
+     * 이름 변경도 유니크 제약조건 위반을 바로 확인하기 위해서 update 까지 한다. (saveAndFlush 와 같다.)
+     */
+    public void flush(){
+        em.flush();
+    }
+
     public Member findOne(Long id){ // 던건 조회
         return em.find(Member.class, id); // 첫번쨰 Type, 두번째 PK
     }
@@ -38,4 +58,83 @@ public class MemberRepository {
                 .getResultList();
     }
 
+    /**
+     * 중복 확인용 , 엔티티를 읽지 않고 id 하나만 가져온다.
+     */
+    public boolean existsByName(String name){
+        return !em.createQuery("select m.id from Member m where m.name = :name", Long.class)
+                .setParameter("name", name)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+    }
+
+    /**
+     * 목록 조회는 엔티티 대신 필요한 컬럼만 읽는다. (프로젝션)
+     * - 엔티티로 읽으면 회원마다 Member, Address, orders 컬렉션 래퍼를 만들고 영속성 컨텍스트에 스냅샷까지 보관한다.
+     * - 프로젝션은 영속성 컨텍스트에 올라가지 않는다. (변경 감지 X)
+     * - 모두 키셋 페이징이다. (KeysetSlice)
+     */
+
+    /**
+     * 생성자 프로젝션 , 회원 id, 이름
+     */
+    public KeysetSlice<MemberNameDto> findNames(Long afterId, int size) {
+        List<MemberNameDto> rows = em.createQuery(
+                        "select new jpabook.jpashop.repository.member.MemberNameDto(m.id, m.name)" +
+                                " from Member m" +
+                                " where m.id > :afterId" +
+                                " order by m.id", MemberNameDto.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(size + 1)
+                .getResultList();
+        return KeysetSlice.of(rows, size, MemberNameDto::getId);
+    }
+
+    /**
+     * Tuple 프로젝션 , 별칭(id, name, city, street, zipcode)으로 꺼낸다.
+     */
+    public KeysetSlice<Tuple> findTuples(Long afterId, int size) {
+        List<Tuple> rows = em.createQuery(
+                        "select m.id as id, m.name as name, m.address.city as city, m.address.street as street, m.address.zipcode as zipcode" +
+                                " from Member m" +
+                                " where m.id > :afterId" +
+                                " order by m.id", Tuple.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(size + 1)
+                .getResultList();
+        return KeysetSlice.of(rows, size, t -> t.get("id", Long.class));
+    }
+
+    /**
+     * 인터페이스 프로젝션 , Tuple 한 줄을 MemberSummary 로 감싼다.
+     * - ProjectionFactory(스프링 데이터) 로 만들면 줄마다 프록시 + Map 을 만들어서 엔티티보다 무겁다. (100만 건 기준 5배)
+     *   그래서 Tuple 을 그대로 들고 있는 구현체로 감싼다.
+     */
+    public KeysetSlice<MemberSummary> findSummaries(Long afterId, int size) {
+        return findTuples(afterId, size).map(TupleMemberSummary::new);
+    }
+
+    private static class TupleMemberSummary implements MemberSummary {
+        private final Tuple tuple;
+
+        TupleMemberSummary(Tuple tuple) {
+            this.tuple = tuple;
+        }
+
+        @Override public Long getId() { return tuple.get("id", Long.class); }
+        @Override public String getName() { return tuple.get("name", String.class); }
+        @Override public String getCity() { return tuple.get("city", String.class); }
+        @Override public String getStreet() { return tuple.get("street", String.class); }
+        @Override public String getZipcode() { return tuple.get("zipcode", String.class); }
+    }
+
+    /**
+     * 이름 필터(MemberNameFilter) 초기화용
+     */
+    public List<String> findAllNames(){
+        return em.createQuery("select m.name from Member m", String.class)
+                .getResultList();
+    }
+
 }
@@ -0,0 +1,145 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.TypedQuery;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 주문 보관(archive)
+ * - 옮기는 쪽: 주문 id 목록 단위로 insert ... select 후 원래 테이블에서 delete 한다. (벌크 연산 , 엔티티를 로딩하지 않는다.)
+ * - 조회하는 쪽: 보관 테이블은 주문일 범위로만 조회한다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderArchiveRepository {
+
+    private static final int IN_CHUNK = 1000;
+
+    private final EntityManager em;
+
+    /**
+     * cutoff 이전에 주문된 주문 id , id 순서로 최대 limit 건
+     * - 같은 주문을 동시에 취소하지 못하도록 row 락(select ... for update)을 건다.
+     */
+    public List<Long> findTargets(LocalDateTime cutoff, int limit) {
+        return em.createQuery("select o.id from Order o where o.orderDate < :cutoff order by o.id", Long.class)
+                .setParameter("cutoff", cutoff)
+                .setMaxResults(limit)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    /**
+     * 주문, 주문상품, 배송을 보관 테이블로 옮기고 원래 테이블(주문 목록 읽기 모델 포함)에서 지운다. 옮긴 주문 수를 반환한다.
+     * - 배송은 left join 한다. 배송이 없는 주문도 보관 테이블에 들어가야 지울 수 있다. (옮긴 주문과 지우는 주문이 같아야 한다.)
+     * - 영속성 컨텍스트를 거치지 않으므로 앞뒤로 flush, clear 한다.
+     */
+    public int moveToArchive(List<Long> orderIds, LocalDateTime archivedAt) {
+        em.flush();
+        List<Long> deliveryIds = em.createQuery("select o.delivery.id from Order o where o.id in :ids", Long.class)
+                .setParameter("ids", orderIds)
+                .getResultList();
+
+        int moved = em.createQuery("insert into ArchivedOrder (id, memberId, orderDate, status, deliveryStatus, city, street, zipcode, archivedAt)" +
+                        " select o.id, o.member.id, o.orderDate, o.status, d.status, d.address.city, d.address.street, d.address.zipcode, :archivedAt" +
+                        " from Order o left join o.delivery d" +
+                        " where o.id in :ids")
+                .setParameter("archivedAt", archivedAt)
+                .setParameter("ids", orderIds)
+                .executeUpdate();
+        em.createQuery("insert into ArchivedOrderItem (id, orderId, itemId, orderPrice, quantity)" +
+                        " select oi.id, oi.order.id, oi.item.id, oi.orderPrice, oi.count" +
+                        " from OrderItem oi" +
+                        " where oi.order.id in :ids")
+                .setParameter("ids", orderIds)
+                .executeUpdate();
+
+        // 외래키 순서대로 지운다. order_item -> orders -> delivery
+        em.createQuery("delete from OrderItem oi where oi.order.id in :ids")
+                .setParameter("ids", orderIds)
+                .executeUpdate();
+        em.createQuery("delete from OrderSummary s where s.orderId in :ids")
+                .setParameter("ids", orderIds)
+                .executeUpdate();
+        em.createQuery("delete from Order o where o.id in :ids")
+                .setParameter("ids", orderIds)
+                .executeUpdate();
+        if (!deliveryIds.isEmpty()) {
+            em.createQuery("delete from Delivery d where d.id in :ids")
+                    .setParameter("ids", deliveryIds)
+                    .executeUpdate();
+        }
+        em.clear();
+        return moved;
+    }
+
+    /**
+     * 보관된 주문 중 가장 최근 주문일 , 보관된 주문이 없으면 null
+     * - 조회 기간이 이 값보다 뒤라면 보관 테이블을 조회하지 않는다. (order_date 인덱스의 끝 한 건만 읽는다.)
+     */
+    public LocalDateTime findLatestOrderDate() {
+        return em.createQuery("select max(a.orderDate) from ArchivedOrder a", LocalDateTime.class)
+                .getSingleResult();
+    }
+
+    /**
+     * 주문일 [from, to) 의 보관된 주문 , 주문상품까지 채워서 반환한다. from 이 null 이면 처음부터, to 가 null 이면 끝까지
+     * Query: 주문 1번, 주문상품은 주문 IN_CHUNK 건마다 1번 (OrderQueryRepository.findAllByDto_optimization 과 같은 모양)
+     * - 기간이 길면 주문이 많으므로 in 절 크기를 나눈다. (DB 의 in 절/바인드 변수 개수 제한 , 쿼리 플랜 캐시)
+     */
+    public List<OrderQueryDto> findOrderQueryDtos(LocalDateTime from, LocalDateTime to) {
+        String jpql = "select a.id, m.name, a.orderDate, a.status, a.city, a.street, a.zipcode" +
+                " from ArchivedOrder a" +
+                " join Member m on m.id = a.memberId" +
+                " where 1 = 1";
+        if (from != null) {
+            jpql += " and a.orderDate >= :from";
+        }
+        if (to != null) {
+            jpql += " and a.orderDate < :to";
+        }
+        TypedQuery<Object[]> query = em.createQuery(jpql + " order by a.id", Object[].class);
+        if (from != null) {
+            query.setParameter("from", from);
+        }
+        if (to != null) {
+            query.setParameter("to", to);
+        }
+        List<OrderQueryDto> result = new ArrayList<>();
+        for (Object[] row : query.getResultList()) {
+            result.add(new OrderQueryDto((Long) row[0], (String) row[1], (LocalDateTime) row[2], (OrderStatus) row[3],
+                    new Address((String) row[4], (String) row[5], (String) row[6])));
+        }
+        if (result.isEmpty()) {
+            return result;
+        }
+
+        List<Long> orderIds = result.stream().map(OrderQueryDto::getOrderId).collect(Collectors.toList());
+        Map<Long, List<OrderItemQueryDto>> orderItemMap = new HashMap<>();
+        for (int offset = 0; offset < orderIds.size(); offset += IN_CHUNK) {
+            em.createQuery(
+                            "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(ai.orderId, i.name, ai.orderPrice, ai.quantity)" +
+                                    " from ArchivedOrderItem ai" +
+                                    " join Item i on i.id = ai.itemId" +
+                                    " where ai.orderId in :orderIds", OrderItemQueryDto.class)
+                    .setParameter("orderIds", orderIds.subList(offset, Math.min(orderIds.size(), offset + IN_CHUNK)))
+                    .getResultList()
+                    .forEach(item -> orderItemMap.computeIfAbsent(item.getOrderId(), id -> new ArrayList<>()).add(item));
+        }
+        result.forEach(o -> o.setOrderItems(orderItemMap.get(o.getOrderId())));
+        return result;
+    }
+}
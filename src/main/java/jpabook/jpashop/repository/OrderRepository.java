@@ -2,12 +2,14 @@ package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
 import java.util.ArrayList;
@@ -29,8 +31,31 @@ public class OrderRepository {
 
 
     public List<Order> findAllByString(OrderSearch orderSearch) {
+        TypedQuery<Order> query = em.createQuery(searchJpql(orderSearch), Order.class)
+                .setMaxResults(1000); //최대 1000건
+        if (orderSearch.getOrderStatus() != null) {
+            query = query.setParameter("status", orderSearch.getOrderStatus());
+        }
+        if (StringUtils.hasText(orderSearch.getMemberName())) {
+            query = query.setParameter("name", orderSearch.getMemberName());
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * 검색 조건이 있는지에 따라 JPQL 이 4가지로 나온다. (QueryWarmUp 이 4가지 모두 미리 컴파일한다.)
+     */
+    static String searchJpql(OrderSearch orderSearch) {
+        return searchJpql("o", orderSearch, false);
+    }
+
+    /**
+     * @param select select 절 (예: o , o.id)
+     * @param exactName true 이면 회원 이름이 같은 주문만 찾는다. (like 패턴으로 쓰지 않는다.)
+     */
+    private static String searchJpql(String select, OrderSearch orderSearch, boolean exactName) {
         //language=JPAQL
-        String jpql = "select o From Order o join o.member m";
+        String jpql = "select " + select + " From Order o join o.member m";
         boolean isFirstCondition = true;
         //주문 상태 검색
         if (orderSearch.getOrderStatus() != null) {
@@ -50,17 +75,9 @@ public class OrderRepository {
             } else {
                 jpql += " and";
             }
-            jpql += " m.name like :name";
-        }
-        TypedQuery<Order> query = em.createQuery(jpql, Order.class)
-                .setMaxResults(1000); //최대 1000건
-        if (orderSearch.getOrderStatus() != null) {
-            query = query.setParameter("status", orderSearch.getOrderStatus());
-        }
-        if (StringUtils.hasText(orderSearch.getMemberName())) {
-            query = query.setParameter("name", orderSearch.getMemberName());
+            jpql += exactName ? " m.name = :name" : " m.name like :name";
         }
-        return query.getResultList();
+        return jpql;
     }
 
 
@@ -102,10 +119,8 @@ public class OrderRepository {
      * - 패치 조인으로 order -> member , order -> delivery 를 한방에 가져온다. 그래서 지연로딩 사용하지 X
      */
     public List<Order> findAllWithMemberDelivery() {
-        return em.createQuery(
-                        "select o from Order o" +
-                                " join fetch o.member m" +
-                                " join fetch o.delivery d", Order.class)
+        // select o from Order o join fetch o.member m join fetch o.delivery d
+        return em.createNamedQuery("Order.findAllWithMemberDelivery", Order.class)
                 .getResultList();
     }
 
@@ -157,12 +172,8 @@ public class OrderRepository {
      *  - XToMany 같은 경우는 그냥 지연로딩을 사용하고 batch size를 이용하자.
      */
     public List<Order> findAllWithItem() {
-        return em.createQuery(
-                        "select distinct o from Order o" +
-                                " join fetch o.member m" +
-                                " join fetch o.delivery d" +
-                                " join fetch o.orderItems oi" +
-                                " join fetch oi.item i", Order.class)
+        // select distinct o from Order o join fetch o.member m join fetch o.delivery d join fetch o.orderItems oi join fetch oi.item i
+        return em.createNamedQuery("Order.findAllWithItem", Order.class)
                 .getResultList();
     }
 
@@ -207,12 +218,69 @@ public class OrderRepository {
      * - 쿼리 수를 줄이고 해결하고, 나머지는 XToMany에 대한 컬렉션 조회는 hibernate.default_batch_fetch_size 로 최적화 하자
      */
     public List<Order> findAllWithMemberDelivery(int offset, int limit) {
-        return em.createQuery(
-                        "select o from Order o" +
-                                " join fetch o.member m" +
-                                " join fetch o.delivery d", Order.class)
+        return em.createNamedQuery("Order.findAllWithMemberDelivery", Order.class)
                 .setFirstResult(offset)
                 .setMaxResults(limit)
                 .getResultList();
     }
+
+    // -- 일괄 취소 (OrderService.cancelOrders) --
+
+    /**
+     * 취소 대상 확인 [orderId, memberId, 주문상태, 배송상태] , 쿼리 한 번
+     * - 같은 주문을 동시에 취소하지 못하도록 주문 row에 락(select ... for update)을 건다.
+     */
+    public List<Object[]> findCancelTargets(List<Long> orderIds) {
+        return em.createQuery(
+                        "select o.id, o.member.id, o.status, d.status" +
+                                " from Order o" +
+                                " join o.delivery d" +
+                                " where o.id in :ids" +
+                                " order by o.id", Object[].class)
+                .setParameter("ids", orderIds)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    /**
+     * 검색 조건에 맞는 주문 id , 최대 1000건
+     * - 회원 이름은 정확히 같은 이름만 찾는다. (일괄 취소 대상이 like 패턴으로 넓어지지 않도록)
+     */
+    public List<Long> findIds(OrderSearch orderSearch) {
+        String jpql = searchJpql("o.id", orderSearch, true) + " order by o.id";
+        TypedQuery<Long> query = em.createQuery(jpql, Long.class)
+                .setMaxResults(1000);
+        if (orderSearch.getOrderStatus() != null) {
+            query = query.setParameter("status", orderSearch.getOrderStatus());
+        }
+        if (StringUtils.hasText(orderSearch.getMemberName())) {
+            query = query.setParameter("name", orderSearch.getMemberName());
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * 주문 상태를 한 번에 CANCEL 로 바꾼다. (벌크 연산)
+     */
+    public int cancelAll(List<Long> orderIds) {
+        return em.createQuery("update Order o set o.status = :cancel where o.id in :ids and o.status = :order")
+                .setParameter("cancel", OrderStatus.CANCEL)
+                .setParameter("order", OrderStatus.ORDER)
+                .setParameter("ids", orderIds)
+                .executeUpdate();
+    }
+
+    /**
+     * 주문들의 상품별 주문 수량 합계 [itemId, count] , 상품 id 순 (재고 복구 순서를 고정해서 데드락을 피한다.)
+     */
+    public List<Object[]> sumCountByItem(List<Long> orderIds) {
+        return em.createQuery(
+                        "select oi.item.id, sum(oi.count)" +
+                                " from OrderItem oi" +
+                                " where oi.order.id in :ids" +
+                                " group by oi.item.id" +
+                                " order by oi.item.id", Object[].class)
+                .setParameter("ids", orderIds)
+                .getResultList();
+    }
 }
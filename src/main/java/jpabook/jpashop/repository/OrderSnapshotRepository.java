@@ -0,0 +1,64 @@
+package jpabook.jpashop.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 주문 컬럼 스냅샷(OrderSnapshot)을 채울 주문상품 단위 row
+ * - [orderId, memberId, orderDate, status, itemId, orderPrice, count] , 주문 id, 주문상품 id 순서
+ * - 엔티티를 만들지 않고 값만 읽는다. (findAllWithItem 처럼 주문 - 주문상품 - 상품 그래프를 만들지 않는다.)
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderSnapshotRepository {
+
+    private static final String ROWS = "select o.id, o.member.id, o.orderDate, o.status, oi.item.id, oi.orderPrice, oi.count" +
+            " from OrderItem oi" +
+            " join oi.order o";
+
+    private final EntityManager em;
+
+    /**
+     * 주문 id 범위 하나 , 범위를 나눠서 병렬로 읽는다.
+     */
+    public List<Object[]> findRows(Long fromOrderId, Long toOrderId) {
+        return em.createQuery(ROWS + " where o.id between :from and :to order by o.id, oi.id", Object[].class)
+                .setParameter("from", fromOrderId)
+                .setParameter("to", toOrderId)
+                .getResultList();
+    }
+
+    /**
+     * 주문 하나 (주문 이벤트 반영)
+     */
+    public List<Object[]> findRows(Long orderId) {
+        return em.createQuery(ROWS + " where o.id = :orderId order by oi.id", Object[].class)
+                .setParameter("orderId", orderId)
+                .getResultList();
+    }
+
+    /**
+     * 보관된 주문 (OrderArchiver) , 같은 모양
+     */
+    public List<Object[]> findArchivedRows() {
+        return em.createQuery(
+                        "select a.id, a.memberId, a.orderDate, a.status, ai.itemId, ai.orderPrice, ai.quantity" +
+                                " from ArchivedOrder a" +
+                                " join ArchivedOrderItem ai on ai.orderId = a.id" +
+                                " order by a.id, ai.id", Object[].class)
+                .getResultList();
+    }
+
+    /**
+     * 상품 이름 [itemId, name]
+     */
+    public List<Object[]> findItemNames(Collection<Long> itemIds) {
+        return em.createQuery("select i.id, i.name from Item i where i.id in :ids", Object[].class)
+                .setParameter("ids", itemIds)
+                .getResultList();
+    }
+}
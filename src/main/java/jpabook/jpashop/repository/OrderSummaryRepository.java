@@ -0,0 +1,81 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.OrderSummary;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class OrderSummaryRepository {
+
+    private final EntityManager em;
+
+    public void save(OrderSummary orderSummary) {
+        em.persist(orderSummary);
+    }
+
+    public OrderSummary findOne(Long orderId) {
+        return em.find(OrderSummary.class, orderId);
+    }
+
+    /**
+     * OrderRepository.findAllByString과 같은 검색 조건이지만 join이 하나도 없다.
+     * - status, member_name 인덱스를 타고 order_summary 테이블 하나만 읽는다.
+     */
+    public List<OrderSummary> findAllByString(OrderSearch orderSearch) {
+        TypedQuery<OrderSummary> query = em.createQuery(searchJpql(orderSearch), OrderSummary.class)
+                .setMaxResults(1000); //최대 1000건
+        if (orderSearch.getOrderStatus() != null) {
+            query = query.setParameter("status", orderSearch.getOrderStatus());
+        }
+        if (StringUtils.hasText(orderSearch.getMemberName())) {
+            query = query.setParameter("name", orderSearch.getMemberName());
+        }
+        return query.getResultList();
+    }
+
+    static String searchJpql(OrderSearch orderSearch) {
+        //language=JPAQL
+        String jpql = "select s from OrderSummary s";
+        boolean isFirstCondition = true;
+        //주문 상태 검색
+        if (orderSearch.getOrderStatus() != null) {
+            jpql += " where";
+            isFirstCondition = false;
+            jpql += " s.status = :status";
+        }
+        //회원 이름 검색
+        if (StringUtils.hasText(orderSearch.getMemberName())) {
+            jpql += isFirstCondition ? " where" : " and";
+            jpql += " s.memberName like :name";
+        }
+        jpql += " order by s.orderId desc";
+        return jpql;
+    }
+
+    /**
+     * 회원 이름이 바뀌면 읽기 모델에 펼쳐둔 이름도 같이 바꿔준다. (벌크 연산)
+     */
+    public int updateMemberName(Long memberId, String memberName) {
+        return em.createQuery("update OrderSummary s set s.memberName = :name where s.memberId = :memberId")
+                .setParameter("name", memberName)
+                .setParameter("memberId", memberId)
+                .executeUpdate();
+    }
+
+    /**
+     * 일괄 취소 , 읽기 모델의 상태도 한 번에 바꾼다. (벌크 연산)
+     */
+    public int cancelAll(List<Long> orderIds) {
+        return em.createQuery("update OrderSummary s set s.status = :cancel where s.orderId in :ids")
+                .setParameter("cancel", OrderStatus.CANCEL)
+                .setParameter("ids", orderIds)
+                .executeUpdate();
+    }
+}
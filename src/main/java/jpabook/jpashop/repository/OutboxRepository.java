@@ -0,0 +1,75 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.outbox.OutboxEvent;
+import jpabook.jpashop.domain.outbox.OutboxEventStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class OutboxRepository {
+
+    private final EntityManager em;
+
+    public void save(OutboxEvent event) {
+        em.persist(event);
+    }
+
+    public OutboxEvent findOne(Long id) {
+        return em.find(OutboxEvent.class, id);
+    }
+
+    /**
+     * 이벤트 row 에 락(select ... for update)을 걸고 조회 , 같은 이벤트를 동시에 처리하지 않도록 (OutboxProjector)
+     */
+    public OutboxEvent findOneForUpdate(Long id) {
+        return em.find(OutboxEvent.class, id, LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    /**
+     * 처리되지 않은 이벤트를 저장된 순서대로 batchSize 만큼 조회
+     */
+    public List<OutboxEvent> findPending(int batchSize) {
+        return em.createQuery(
+                        "select e from OutboxEvent e" +
+                                " where e.status = :status" +
+                                " order by e.id", OutboxEvent.class)
+                .setParameter("status", OutboxEventStatus.PENDING)
+                .setMaxResults(batchSize)
+                .getResultList();
+    }
+
+    /**
+     * 처리되지 않은 이벤트 id , 이벤트마다 트랜잭션을 따로 열어서 처리한다. (OutboxProjector)
+     */
+    public List<Long> findPendingIds(int batchSize) {
+        return em.createQuery(
+                        "select e.id from OutboxEvent e" +
+                                " where e.status = :status" +
+                                " order by e.id", Long.class)
+                .setParameter("status", OutboxEventStatus.PENDING)
+                .setMaxResults(batchSize)
+                .getResultList();
+    }
+
+    public long countPending() {
+        return count(OutboxEventStatus.PENDING);
+    }
+
+    /**
+     * 처리를 포기한 이벤트 수
+     */
+    public long countFailed() {
+        return count(OutboxEventStatus.FAILED);
+    }
+
+    private long count(OutboxEventStatus status) {
+        return em.createQuery("select count(e) from OutboxEvent e where e.status = :status", Long.class)
+                .setParameter("status", status)
+                .getSingleResult();
+    }
+}
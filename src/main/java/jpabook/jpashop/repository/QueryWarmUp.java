@@ -0,0 +1,135 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.query.spi.HQLQueryPlan;
+import org.hibernate.engine.query.spi.QueryPlanCache;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.NamedQuery;
+import javax.persistence.metamodel.EntityType;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * JPQL 파싱/컴파일 워밍업 (쿼리 플랜 캐시)
+ * - Named Query 는 하이버네이트가 로딩 시점에 컴파일해서 쿼리 플랜 캐시에 올린다.
+ * - 검색 조건에 따라 문자열이 달라지는 동적 JPQL 은 조건 조합(상태 O/X , 이름 O/X)마다 여기서 미리 컴파일한다.
+ * - 범위는 Named Query(주문 조회)와 주문 검색 동적 JPQL 뿐이다. 그 외 리포지토리의 JPQL 은 처음 실행될 때 컴파일된다.
+ * - JDBC 쪽(커넥션, 드라이버의 SQL 파싱)은 데우지 않는다. 각 커넥션의 첫 실행은 여전히 SQL 을 prepare 한다.
+ * - 웹 서버가 요청을 받기 전(모든 싱글톤 빈 생성 직후)에 실행한다. ApplicationReadyEvent 는 이미 요청을 받고 있는 시점이다.
+ * - jpashop.query.warm-up-in-background=true (fast-start 프로파일) 이면 시작을 기다리게 하지 않고 별도 스레드에서 실행한다.
+ */
+@Slf4j
+@Component
+public class QueryWarmUp implements SmartInitializingSingleton {
+
+    private final EntityManagerFactory emf;
+    private final boolean enabled;
+    private final boolean background;
+
+    private volatile WarmUpStats stats = new WarmUpStats(0, 0, 0, 0, Collections.emptyMap());
+
+    public QueryWarmUp(EntityManagerFactory emf,
+                       @Value("${jpashop.query.warm-up:true}") boolean enabled,
+                       @Value("${jpashop.query.warm-up-in-background:false}") boolean background) {
+        this.emf = emf;
+        this.enabled = enabled;
+        this.background = background;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        if (!background) {
+            warmUp();
+            return;
+        }
+        Thread thread = new Thread(this::warmUp, "query-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 시작 시간(JVM 시작부터 요청을 받을 준비가 될 때까지)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recordStartup() {
+        stats = new WarmUpStats(ManagementFactory.getRuntimeMXBean().getUptime(), stats.getWarmUpMillis(),
+                stats.getQueries(), stats.getStatements(), stats.getQueryMicros());
+    }
+
+    public void warmUp() {
+        long start = System.nanoTime();
+        QueryPlanCache queryPlanCache = emf.unwrap(SessionFactoryImplementor.class).getQueryPlanCache();
+        Map<String, Long> queryMicros = new LinkedHashMap<>();
+        int sqls = 0;
+
+        for (Map.Entry<String, String> query : queries().entrySet()) {
+            long t = System.nanoTime();
+            HQLQueryPlan plan = queryPlanCache.getHQLQueryPlan(query.getValue(), false, Collections.emptyMap());
+            sqls += plan.getSqlStrings().length;
+            queryMicros.put(query.getKey(), (System.nanoTime() - t) / 1000);
+        }
+
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        stats = new WarmUpStats(stats.getStartupMillis(), millis, queryMicros.size(), sqls, queryMicros);
+        log.info("JPQL warm-up: {} queries compiled to {} SQL statements in {}ms", queryMicros.size(), sqls, millis);
+    }
+
+    /**
+     * 워밍업할 JPQL , 이름(Named Query 이름 또는 메소드[조건]) -> JPQL
+     */
+    private Map<String, String> queries() {
+        Map<String, String> queries = new LinkedHashMap<>();
+        for (EntityType<?> entity : emf.getMetamodel().getEntities()) {
+            for (NamedQuery namedQuery : entity.getJavaType().getAnnotationsByType(NamedQuery.class)) {
+                queries.put(namedQuery.name(), namedQuery.query());
+            }
+        }
+        addSearchVariants(queries, "OrderRepository.findAllByString", OrderRepository::searchJpql);
+        addSearchVariants(queries, "OrderSummaryRepository.findAllByString", OrderSummaryRepository::searchJpql);
+        addSearchVariants(queries, "OrderQueryRepository.findOrderRows", OrderQueryRepository::rowsJpql);
+        return queries;
+    }
+
+    private void addSearchVariants(Map<String, String> queries, String label, Function<OrderSearch, String> jpql) {
+        for (OrderStatus status : new OrderStatus[]{null, OrderStatus.ORDER}) {
+            for (String memberName : new String[]{null, "warm-up"}) {
+                OrderSearch orderSearch = new OrderSearch();
+                orderSearch.setOrderStatus(status);
+                orderSearch.setMemberName(memberName);
+                queries.put(label + "[" + (status != null ? "status" : "") + (memberName != null ? ",name" : "") + "]",
+                        jpql.apply(orderSearch));
+            }
+        }
+    }
+
+    public WarmUpStats stats() {
+        return stats;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class WarmUpStats {
+        private long startupMillis; // JVM 시작부터 ApplicationReadyEvent 까지
+        private long warmUpMillis;
+        private int queries; // 컴파일한 JPQL 수
+        private int statements; // 컴파일 결과 SQL 수 (JDBC 로 prepare 하지는 않는다.)
+        private Map<String, Long> queryMicros; // JPQL 별 컴파일(또는 캐시 조회) 시간 , Named Query 는 이미 캐시에 있다.
+    }
+}
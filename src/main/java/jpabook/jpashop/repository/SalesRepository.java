@@ -0,0 +1,223 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.sales.DailySales;
+import jpabook.jpashop.domain.sales.ItemSales;
+import jpabook.jpashop.domain.sales.MemberSales;
+import jpabook.jpashop.domain.sales.SalesTotal;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class SalesRepository {
+
+    private final EntityManager em;
+
+    public void save(SalesTotal salesTotal) {
+        em.persist(salesTotal);
+    }
+
+    public ItemSales findItemSales(Long itemId) {
+        return em.find(ItemSales.class, itemId);
+    }
+
+    public MemberSales findMemberSales(Long memberId) {
+        return em.find(MemberSales.class, memberId);
+    }
+
+    public DailySales findDailySales(LocalDate salesDate) {
+        return em.find(DailySales.class, salesDate);
+    }
+
+    /**
+     * 같은 트랜잭션에서 addTo 로 바꾼 합계를 다시 읽는다. (addTo 는 영속성 컨텍스트를 거치지 않는다.)
+     */
+    public void refresh(SalesTotal salesTotal) {
+        em.refresh(salesTotal);
+    }
+
+    /**
+     * 합계에 증분을 더한다. (update ... set revenue = revenue + ?) , row 가 없으면 만든다.
+     * - 엔티티로 읽어서 락을 걸지 않는다. 더하기는 DB 가 하므로 동시에 갱신해도 lost update 가 없다.
+     * - 처음 생기는 row 는 insert 한다. 다른 트랜잭션이 동시에 먼저 만들었으면(PK 제약조건 위반) savepoint 까지 insert 만 되돌리고 다시 update 한다.
+     *   예외가 JPA 를 거치지 않기 때문에 주문 트랜잭션이 rollback-only 가 되지 않는다.
+     * - 영속성 컨텍스트를 거치지 않는다. 이미 읽어둔 합계 엔티티는 refresh 해야 한다.
+     */
+    public void addTo(Class<? extends SalesTotal> type, Object id, long revenue, long units, long orderCount) {
+        String table = tableOf(type);
+        String key = keyOf(type);
+        String update = "update " + table + " set revenue = revenue + ?, units = units + ?, order_count = order_count + ? where " + key + " = ?";
+        String insert = "insert into " + table + " (" + key + ", revenue, units, order_count) values (?, ?, ?, ?)";
+        em.unwrap(Session.class).doWork(connection -> {
+            if (execute(connection, update, revenue, units, orderCount, id) > 0) {
+                return;
+            }
+            Savepoint savepoint = connection.setSavepoint();
+            try {
+                execute(connection, insert, id, revenue, units, orderCount);
+                connection.releaseSavepoint(savepoint);
+            } catch (SQLException e) {
+                if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) { // 23xxx: 무결성 제약조건 위반
+                    throw e;
+                }
+                connection.rollback(savepoint);
+                execute(connection, update, revenue, units, orderCount, id); // 먼저 만든 트랜잭션이 끝날 때까지 기다린다.
+            }
+        });
+    }
+
+    private static int execute(Connection connection, String sql, Object... params) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                statement.setObject(i + 1, params[i]);
+            }
+            return statement.executeUpdate();
+        }
+    }
+
+    private static String tableOf(Class<? extends SalesTotal> type) {
+        if (type == ItemSales.class) {
+            return "item_sales";
+        }
+        if (type == MemberSales.class) {
+            return "member_sales";
+        }
+        if (type == DailySales.class) {
+            return "daily_sales";
+        }
+        throw new IllegalArgumentException("매출 합계 종류가 아닙니다. " + type);
+    }
+
+    private static String keyOf(Class<? extends SalesTotal> type) {
+        return type == ItemSales.class ? "item_id" : type == MemberSales.class ? "member_id" : "sales_date";
+    }
+
+    /**
+     * 트랜잭션의 커넥션을 지금 얻는다. (LazyConnectionDataSourceProxy 는 첫 쿼리 때 커넥션을 얻는다.)
+     */
+    public void connect() {
+        em.createNativeQuery("select 1").getSingleResult();
+    }
+
+    /**
+     * 재집계 대상 주문 id 범위 [min, max] , 주문이 없으면 null
+     */
+    public Long[] findOrderIdRange() {
+        Object[] row = em.createQuery("select min(o.id), max(o.id) from Order o", Object[].class)
+                .getSingleResult();
+        if (row[0] == null) {
+            return null;
+        }
+        return new Long[]{(Long) row[0], (Long) row[1]};
+    }
+
+    /**
+     * 주문 id 범위 하나에 대한 상품별 합계 [itemId, revenue, units, orderCount]
+     * - 범위를 나눠서 병렬로 스캔하기 위해서 order_id between 조건을 건다.
+     */
+    public List<Object[]> sumByItem(Long fromOrderId, Long toOrderId) {
+        return em.createQuery(
+                        "select oi.item.id, sum(oi.orderPrice * oi.count), sum(oi.count), count(distinct o.id)" +
+                                " from OrderItem oi" +
+                                " join oi.order o" +
+                                " where o.status = :status" +
+                                " and o.id between :from and :to" +
+                                " group by oi.item.id", Object[].class)
+                .setParameter("status", OrderStatus.ORDER)
+                .setParameter("from", fromOrderId)
+                .setParameter("to", toOrderId)
+                .getResultList();
+    }
+
+    /**
+     * 주문 id 범위 하나에 대한 주문별 합계 [memberId, orderDate, revenue, units]
+     * - 회원별, 일자별 합계는 주문 단위로 가져와서 애플리케이션에서 묶는다.
+     */
+    public List<Object[]> sumByOrder(Long fromOrderId, Long toOrderId) {
+        return em.createQuery(
+                        "select o.member.id, o.orderDate, sum(oi.orderPrice * oi.count), sum(oi.count)" +
+                                " from Order o" +
+                                " join o.orderItems oi" +
+                                " where o.status = :status" +
+                                " and o.id between :from and :to" +
+                                " group by o.id, o.member.id, o.orderDate", Object[].class)
+                .setParameter("status", OrderStatus.ORDER)
+                .setParameter("from", fromOrderId)
+                .setParameter("to", toOrderId)
+                .getResultList();
+    }
+
+    /**
+     * 보관된 주문 전체의 상품별 합계 [itemId, revenue, units, orderCount] , 재집계용 (OrderArchiver)
+     */
+    public List<Object[]> sumArchivedByItem() {
+        return em.createQuery(
+                        "select ai.itemId, sum(ai.orderPrice * ai.quantity), sum(ai.quantity), count(distinct a.id)" +
+                                " from ArchivedOrderItem ai" +
+                                " join ArchivedOrder a on a.id = ai.orderId" +
+                                " where a.status = :status" +
+                                " group by ai.itemId", Object[].class)
+                .setParameter("status", OrderStatus.ORDER)
+                .getResultList();
+    }
+
+    /**
+     * 보관된 주문 전체의 주문별 합계 [memberId, orderDate, revenue, units] , 재집계용
+     */
+    public List<Object[]> sumArchivedByOrder() {
+        return em.createQuery(
+                        "select a.memberId, a.orderDate, sum(ai.orderPrice * ai.quantity), sum(ai.quantity)" +
+                                " from ArchivedOrder a" +
+                                " join ArchivedOrderItem ai on ai.orderId = a.id" +
+                                " where a.status = :status" +
+                                " group by a.id, a.memberId, a.orderDate", Object[].class)
+                .setParameter("status", OrderStatus.ORDER)
+                .getResultList();
+    }
+
+    /**
+     * 주문들의 상품별 합계 [itemId, revenue, units, orderCount] , 일괄 취소에서 차감할 값 (주문 상태와 상관없이)
+     */
+    public List<Object[]> sumByItemOf(List<Long> orderIds) {
+        return em.createQuery(
+                        "select oi.item.id, sum(oi.orderPrice * oi.count), sum(oi.count), count(distinct oi.order.id)" +
+                                " from OrderItem oi" +
+                                " where oi.order.id in :ids" +
+                                " group by oi.item.id", Object[].class)
+                .setParameter("ids", orderIds)
+                .getResultList();
+    }
+
+    /**
+     * 주문들의 주문별 합계 [memberId, orderDate, revenue, units] , 일괄 취소에서 차감할 값 (주문 상태와 상관없이)
+     */
+    public List<Object[]> sumByOrderOf(List<Long> orderIds) {
+        return em.createQuery(
+                        "select o.member.id, o.orderDate, sum(oi.orderPrice * oi.count), sum(oi.count)" +
+                                " from Order o" +
+                                " join o.orderItems oi" +
+                                " where o.id in :ids" +
+                                " group by o.id, o.member.id, o.orderDate", Object[].class)
+                .setParameter("ids", orderIds)
+                .getResultList();
+    }
+
+    /**
+     * 재집계 전에 기존 합계를 모두 지운다. (벌크 연산)
+     */
+    public void deleteAll() {
+        em.createQuery("delete from ItemSales").executeUpdate();
+        em.createQuery("delete from MemberSales").executeUpdate();
+        em.createQuery("delete from DailySales").executeUpdate();
+    }
+}
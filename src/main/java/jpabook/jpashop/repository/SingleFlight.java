@@ -0,0 +1,129 @@
+package jpabook.jpashop.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 같은 조회가 동시에 여러 번 들어오면 한 번만 실행하고 결과를 나눠준다. (single-flight)
+ * - 먼저 온 요청(leader)이 실행하고, 실행 중에 들어온 같은 (name, version) 요청은 기다렸다가 같은 결과(같은 객체)를 받는다.
+ *   기다리는 요청은 커넥션을 잡지 않는다. 예외도 같이 받는다.
+ * - 실행이 끝나면 바로 잊는다. (캐시가 아니다.) 끝난 뒤에 온 요청은 다시 실행한다.
+ * - version 에는 데이터 변경 버전(ChangeVersions)을 넘긴다. 커밋 후에 온 요청이 커밋 전에 시작한 실행에 끼지 않는다.
+ * - 결과를 여러 요청이 같이 쓰므로 받은 쪽에서 고치면 안 된다. (JSON 으로 내려주기만 한다.)
+ * - 쓰기 트랜잭션 안에서는 묶지 않는다. 자기 변경이 보여야 한다.
+ * - 트랜잭션 밖에서 호출한다. (@Transactional 메소드 안에서 기다리면 커넥션을 잡고 기다린다.)
+ */
+@Component
+public class SingleFlight {
+
+    private final Map<List<Object>, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String name, Object version, Supplier<T> query) {
+        if (TransactionSynchronizationManager.isActualTransactionActive() && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return query.get();
+        }
+        Counter counter = counters.computeIfAbsent(name, n -> new Counter());
+        counter.calls.incrementAndGet();
+
+        List<Object> key = Arrays.asList(name, version);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = flights.putIfAbsent(key, flight);
+        if (inFlight != null) {
+            counter.shared.incrementAndGet();
+            return (T) await(inFlight, counter);
+        }
+
+        long start = System.nanoTime();
+        try {
+            T result = query.get();
+            finish(key, flight, counter, start);
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            finish(key, flight, counter, start);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 기다리는 요청에 결과를 넘기기 전에 실행 시간을 남기고 잊는다. 이후에 온 요청은 새로 실행한다.
+     */
+    private void finish(List<Object> key, CompletableFuture<Object> flight, Counter counter, long start) {
+        long elapsed = System.nanoTime() - start;
+        counter.executions.incrementAndGet();
+        counter.executionNanos.addAndGet(elapsed);
+        counter.lastExecutionNanos = elapsed;
+        flights.remove(key, flight);
+    }
+
+    private static Object await(CompletableFuture<Object> flight, Counter counter) {
+        try {
+            Object result = flight.join();
+            counter.savedNanos.addAndGet(counter.lastExecutionNanos); // 대신 실행하지 않은 시간 (대략)
+            return result;
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 조회(name)별 현황
+     */
+    public List<FlightStats> stats() {
+        return counters.entrySet().stream()
+                .map(e -> e.getValue().toStats(e.getKey()))
+                .sorted((a, b) -> a.getName().compareTo(b.getName()))
+                .collect(Collectors.toList());
+    }
+
+    public void reset() {
+        counters.clear();
+    }
+
+    private static class Counter {
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong executions = new AtomicLong();
+        private final AtomicLong shared = new AtomicLong();
+        private final AtomicLong executionNanos = new AtomicLong();
+        private final AtomicLong savedNanos = new AtomicLong();
+        private volatile long lastExecutionNanos;
+
+        FlightStats toStats(String name) {
+            return new FlightStats(name, calls.get(), executions.get(), shared.get(),
+                    executionNanos.get() / 1_000_000, savedNanos.get() / 1_000_000);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class FlightStats {
+        private String name;
+        private long calls;
+        private long executions; // 실제로 실행한 수
+        private long shared; // 다른 요청의 실행 결과를 받은 수 (줄인 중복 실행)
+        private long executionMillis;
+        private long savedMillis; // 줄인 실행 시간 (대략, 받은 수 x 실행 시간)
+    }
+}
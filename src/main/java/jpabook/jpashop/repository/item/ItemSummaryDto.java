@@ -0,0 +1,21 @@
+package jpabook.jpashop.repository.item;
+
+import lombok.Data;
+
+/**
+ * 목록 화면(상품 목록, 주문 폼)용 상품 , Book/Album/Movie 에만 있는 컬럼은 읽지 않는다.
+ */
+@Data
+public class ItemSummaryDto {
+    private Long id;
+    private String name;
+    private int price;
+    private int stockQuantity;
+
+    public ItemSummaryDto(Long id, String name, int price, int stockQuantity) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.stockQuantity = stockQuantity;
+    }
+}
@@ -0,0 +1,17 @@
+package jpabook.jpashop.repository.member;
+
+import lombok.Data;
+
+/**
+ * 생성자 프로젝션 (select new) , 회원 목록 API
+ */
+@Data
+public class MemberNameDto {
+    private Long id;
+    private String name;
+
+    public MemberNameDto(Long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+}
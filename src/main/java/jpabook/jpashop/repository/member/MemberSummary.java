@@ -0,0 +1,18 @@
+package jpabook.jpashop.repository.member;
+
+/**
+ * 인터페이스 프로젝션 , 회원 목록 화면
+ * - Tuple 로 필요한 컬럼만 읽고 그 Tuple 을 감싼 구현체를 돌려준다. 엔티티, 영속성 컨텍스트를 거치지 않는다.
+ */
+public interface MemberSummary {
+
+    Long getId();
+
+    String getName();
+
+    String getCity();
+
+    String getStreet();
+
+    String getZipcode();
+}
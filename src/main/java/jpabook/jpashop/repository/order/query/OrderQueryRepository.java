@@ -1,11 +1,18 @@
 package jpabook.jpashop.repository.order.query;
 
+import jpabook.jpashop.repository.OrderSearch;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Repository
@@ -55,11 +62,8 @@ public class OrderQueryRepository {
     private List<OrderQueryDto> findOrders() {
         // jpql로 new operation을 사용하더라도 일반 SQL문과 같다. 리스트에 대해서 new operation을 사용할 순 없다. 데이터를 flat하게 한줄
         //로만 넣을 수 있다. orderItems 같은 경우는 일대다 이기 때문에 바로 flat하게 넣지 못한다. 컬렉션을 제외하고 쿼리를 날리고 끝을 낸다.
-        return em.createQuery(
-                        "select new jpabook.jpashop.repository.order.query.OrderQueryDto(o.id, m.name, o.orderDate, o.status, d.address)" +
-                        " from Order o" +
-                                " join o.member m" +
-                                " join o.delivery d", OrderQueryDto.class)
+        // select new OrderQueryDto(o.id, m.name, o.orderDate, o.status, d.address) from Order o join o.member m join o.delivery d
+        return em.createNamedQuery("Order.findOrderQueryDtos", OrderQueryDto.class)
                 .getResultList();
     }
 
@@ -67,12 +71,8 @@ public class OrderQueryRepository {
      * 1:N 관계인 orderItems 조회
      */
     private List<OrderItemQueryDto> findOrderItems(Long orderId) {
-        return em.createQuery(
-                        "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
-                        " from OrderItem oi" +
-                                " join oi.item i" +
-                                " where oi.order.id = : orderId", // 특정한 OrderItem의 orderId마다 데이터를 가져오기 위해서 사용한다.
-                        OrderItemQueryDto.class)
+        // where oi.order.id = :orderId -> 특정한 OrderItem의 orderId마다 데이터를 가져오기 위해서 사용한다.
+        return em.createNamedQuery("OrderItem.findOrderItemQueryDtos", OrderItemQueryDto.class)
                 .setParameter("orderId", orderId)
                 .getResultList(); // list로 반환한다.
     }
@@ -99,6 +99,39 @@ public class OrderQueryRepository {
         return result;
     }
 
+    /**
+     * 주문일 [from, to) 의 주문 , from / to 가 null 이면 그 쪽은 제한하지 않는다. (idx_orders_order_date)
+     * Query: 루트 1번, 컬렉션 1번 (findAllByDto_optimization 과 같다.)
+     */
+    public List<OrderQueryDto> findAllByDto_optimization(LocalDateTime from, LocalDateTime to) {
+        String jpql = "select new jpabook.jpashop.repository.order.query.OrderQueryDto(o.id, m.name, o.orderDate, o.status, d.address)" +
+                " from Order o" +
+                " join o.member m" +
+                " join o.delivery d" +
+                " where 1 = 1";
+        if (from != null) {
+            jpql += " and o.orderDate >= :from";
+        }
+        if (to != null) {
+            jpql += " and o.orderDate < :to";
+        }
+        TypedQuery<OrderQueryDto> query = em.createQuery(jpql + " order by o.id", OrderQueryDto.class);
+        if (from != null) {
+            query.setParameter("from", from);
+        }
+        if (to != null) {
+            query.setParameter("to", to);
+        }
+        List<OrderQueryDto> result = query.getResultList();
+        if (result.isEmpty()) {
+            return result;
+        }
+
+        Map<Long, List<OrderItemQueryDto>> orderItemMap = findOrderItemMap(toOrderIds(result));
+        result.forEach(o -> o.setOrderItems(orderItemMap.get(o.getOrderId())));
+        return result;
+    }
+
     private List<Long> toOrderIds(List<OrderQueryDto> result) {
         // 반환 값으로 Member가 주문한 Order의 고유 id 값이 들어간다.
         return result.stream()
@@ -108,11 +141,8 @@ public class OrderQueryRepository {
 
     private Map<Long, List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
 
-        List<OrderItemQueryDto> orderItems = em.createQuery(
-                        "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
-                        " from OrderItem oi" +
-                                " join oi.item i" +
-                                " where oi.order.id in :orderIds", OrderItemQueryDto.class) // v4와 다른점은 jpql에서 orerItems가 가지고 있는 id를 in절로 한방 쿼리를 통해 가져오려고 한다. 마치 batch size를 우리가 custom 하는 느낌
+        // v4와 다른점은 jpql에서 orerItems가 가지고 있는 id를 in절(where oi.order.id in :orderIds)로 한방 쿼리를 통해 가져오려고 한다. 마치 batch size를 우리가 custom 하는 느낌
+        List<OrderItemQueryDto> orderItems = em.createNamedQuery("OrderItem.findOrderItemQueryDtosIn", OrderItemQueryDto.class)
                 .setParameter("orderIds", orderIds)
                 .getResultList();
 
@@ -129,14 +159,86 @@ public class OrderQueryRepository {
      * @return
      */
     public List<OrderFlatDto> findAllByDto_flat() {
-        return em.createQuery(
-                        "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
-                        " from Order o" +
+        // Order - Member - Delivery - OrderItem - Item 을 모두 join 해서 한 줄(OrderFlatDto)로 가져온다.
+        return em.createNamedQuery("Order.findOrderFlatDtos", OrderFlatDto.class)
+                .getResultList();
+    }
+
+
+    /**
+     * 주문 목록 화면용 , 검색 조건은 OrderRepository.findAllByString 과 같다. (최대 1000건)
+     * Query: 주문 1번, 대표상품 1번
+     * - 대표상품은 주문상품 중 id가 가장 작은 것이다. (엔티티 화면의 orderItems[0])
+     */
+    public List<OrderRowDto> findOrderRows(OrderSearch orderSearch) {
+        TypedQuery<OrderRowDto> query = em.createQuery(rowsJpql(orderSearch), OrderRowDto.class)
+                .setMaxResults(1000); //최대 1000건
+        if (orderSearch.getOrderStatus() != null) {
+            query.setParameter("status", orderSearch.getOrderStatus());
+        }
+        if (StringUtils.hasText(orderSearch.getMemberName())) {
+            query.setParameter("name", orderSearch.getMemberName());
+        }
+        return fillRowItems(query.getResultList());
+    }
+
+    /**
+     * 주문 목록 화면용 , 주문 id 목록(OrderSearchCache)으로 다시 읽는다. id 순서대로 , 없어진 주문은 빠진다.
+     * Query: 주문 1번, 대표상품 1번
+     */
+    public List<OrderRowDto> findOrderRows(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, OrderRowDto> byId = em.createQuery(
+                        "select new jpabook.jpashop.repository.order.query.OrderRowDto(o.id, m.name, o.status, o.orderDate)" +
+                                " from Order o" +
                                 " join o.member m" +
-                                " join o.delivery d" +
-                                " join o.orderItems oi" +
-                                " join oi.item i", OrderFlatDto.class)
+                                " where o.id in :orderIds", OrderRowDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList().stream()
+                .collect(Collectors.toMap(OrderRowDto::getOrderId, row -> row));
+        return fillRowItems(orderIds.stream().map(byId::get).filter(Objects::nonNull).collect(Collectors.toList()));
+    }
+
+    private List<OrderRowDto> fillRowItems(List<OrderRowDto> rows) {
+        if (rows.isEmpty()) {
+            return rows;
+        }
+
+        List<Object[]> items = em.createNamedQuery("OrderItem.findRowItemsIn", Object[].class)
+                .setParameter("orderIds", rows.stream().map(OrderRowDto::getOrderId).collect(Collectors.toList()))
                 .getResultList();
+        Map<Long, Object[]> firstItems = new HashMap<>();
+        for (Object[] item : items) {
+            firstItems.putIfAbsent((Long) item[0], item);
+        }
+        for (OrderRowDto row : rows) {
+            Object[] item = firstItems.get(row.getOrderId());
+            if (item != null) {
+                row.setItemName((String) item[1]);
+                row.setOrderPrice((Integer) item[2]);
+                row.setCount((Integer) item[3]);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * 검색 조건이 있는지에 따라 JPQL 이 4가지로 나온다. (QueryWarmUp 이 4가지 모두 미리 컴파일한다.)
+     */
+    public static String rowsJpql(OrderSearch orderSearch) {
+        String jpql = "select new jpabook.jpashop.repository.order.query.OrderRowDto(o.id, m.name, o.status, o.orderDate)" +
+                " from Order o" +
+                " join o.member m" +
+                " where 1 = 1";
+        if (orderSearch.getOrderStatus() != null) {
+            jpql += " and o.status = :status";
+        }
+        if (StringUtils.hasText(orderSearch.getMemberName())) {
+            jpql += " and m.name like :name";
+        }
+        return jpql;
     }
 
 
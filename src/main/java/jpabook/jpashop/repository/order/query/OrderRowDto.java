@@ -0,0 +1,29 @@
+package jpabook.jpashop.repository.order.query;
+
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 주문 목록 화면(orderList.html) 한 줄 , 대표상품(첫번째 주문상품)만 담는다.
+ * - 화면에서 지연 로딩(order.member.name, order.orderItems[0].item.name)이 일어나지 않도록 값만 담아서 넘긴다.
+ * - 값이 같으면 같은 줄이다. (렌더링 결과 캐시의 key)
+ */
+@Data
+public class OrderRowDto {
+    private Long orderId;
+    private String memberName;
+    private String itemName; //대표상품 이름
+    private Integer orderPrice; //대표상품 주문가격
+    private Integer count; //대표상품 주문수량
+    private OrderStatus orderStatus;
+    private LocalDateTime orderDate;
+
+    public OrderRowDto(Long orderId, String memberName, OrderStatus orderStatus, LocalDateTime orderDate) {
+        this.orderId = orderId;
+        this.memberName = memberName;
+        this.orderStatus = orderStatus;
+        this.orderDate = orderDate;
+    }
+}
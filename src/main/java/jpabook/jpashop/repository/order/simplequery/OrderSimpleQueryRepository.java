@@ -30,11 +30,8 @@ public class OrderSimpleQueryRepository {
      * @return Entity가 반환하는게 아니라, OrderSimpleQueryDto를 반환한다.
      */
     public List<OrderSimpleQueryDto> findOrderDtos() {
-        return em.createQuery(
-                        "select new jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto(o.id, m.name, o.orderDate, o.status, d.address)" +
-                                " from Order o" +
-                                " join o.member m" +
-                                " join o.delivery d", OrderSimpleQueryDto.class)
+        // select new OrderSimpleQueryDto(o.id, m.name, o.orderDate, o.status, d.address) from Order o join o.member m join o.delivery d
+        return em.createNamedQuery("Order.findOrderSimpleQueryDtos", OrderSimpleQueryDto.class)
                 .getResultList();
     }
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+package jpabook.jpashop.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 집계(회원, 상품, 주문)별 변경 버전
+ * - 변경하는 서비스 메소드(MemberService, ItemService, OrderService)가 bump 한다.
+ * - 조회 API는 버전으로 ETag를 만들고, If-None-Match 가 같으면 DB 조회 없이 304로 응답한다.
+ * - 버전은 커밋이 끝난 뒤에 올린다. 커밋 전에 올리면, 그 사이에 읽은 이전 데이터가 새 ETag로 캐시될 수 있다.
+ * - 애플리케이션 인스턴스 메모리에만 있다. 재시작하면 시작 시각부터 다시 시작하므로 이전 ETag와 겹치지 않는다.
+ */
+@Component
+public class ChangeVersions {
+
+    public enum Aggregate {
+        MEMBER, ITEM, ORDER
+    }
+
+    private final Map<Aggregate, AtomicLong> versions = new EnumMap<>(Aggregate.class);
+
+    public ChangeVersions() {
+        long start = System.currentTimeMillis();
+        for (Aggregate aggregate : Aggregate.values()) {
+            versions.put(aggregate, new AtomicLong(start));
+        }
+    }
+
+    /**
+     * 트랜잭션 안이면 커밋 후에, 아니면 바로 버전을 올린다. 롤백되면 올리지 않는다.
+     */
+    public void bump(Aggregate... aggregates) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            increment(aggregates);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                increment(aggregates);
+            }
+        });
+    }
+
+    private void increment(Aggregate... aggregates) {
+        for (Aggregate aggregate : aggregates) {
+            versions.get(aggregate).incrementAndGet();
+        }
+    }
+
+    public long version(Aggregate aggregate) {
+        return versions.get(aggregate).get();
+    }
+
+    /**
+     * 응답에 쓰인 집계들의 버전을 이어붙인 ETag 값 , 예) "member:1652...-order:1652..."
+     */
+    public String etag(Aggregate... aggregates) {
+        StringBuilder etag = new StringBuilder("\"");
+        for (int i = 0; i < aggregates.length; i++) {
+            if (i > 0) {
+                etag.append('-');
+            }
+            etag.append(aggregates[i].name().toLowerCase()).append(':').append(version(aggregates[i]));
+        }
+        return etag.append('"').toString();
+    }
+}
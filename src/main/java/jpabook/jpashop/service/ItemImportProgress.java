@@ -0,0 +1,93 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 상품 일괄 등록 진행 상황 , 등록하는 동안 GET /api/v2/items/imports 로 볼 수 있다.
+ * - 실패한 줄은 처음 MAX_ERRORS 개만 사유와 함께 남긴다.
+ */
+public class ItemImportProgress {
+
+    private static final int MAX_ERRORS = 100;
+
+    @Getter private final long jobId;
+    @Getter private final LocalDateTime startedAt = LocalDateTime.now();
+    private final long startedNanos = System.nanoTime();
+    private final AtomicLong read = new AtomicLong();
+    private final AtomicLong inserted = new AtomicLong();
+    private final AtomicLong updated = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+    private volatile long finishedNanos;
+
+    ItemImportProgress(long jobId) {
+        this.jobId = jobId;
+    }
+
+    void read() {
+        read.incrementAndGet();
+    }
+
+    void inserted() {
+        inserted.incrementAndGet();
+    }
+
+    void updated() {
+        updated.incrementAndGet();
+    }
+
+    void failed(ItemImportRow row, String reason) {
+        failed.incrementAndGet();
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(row.getLine() + "번째 줄: " + reason);
+        }
+    }
+
+    void finish() {
+        finishedNanos = System.nanoTime();
+    }
+
+    public long getRead() {
+        return read.get();
+    }
+
+    public long getInserted() {
+        return inserted.get();
+    }
+
+    public long getUpdated() {
+        return updated.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public List<String> getErrors() {
+        synchronized (errors) {
+            return new ArrayList<>(errors);
+        }
+    }
+
+    public boolean isFinished() {
+        return finishedNanos != 0;
+    }
+
+    public long getElapsedMillis() {
+        return ((isFinished() ? finishedNanos : System.nanoTime()) - startedNanos) / 1_000_000;
+    }
+
+    /**
+     * 저장(등록 + 수정)한 줄 기준
+     */
+    public long getRowsPerSecond() {
+        long millis = getElapsedMillis();
+        return millis == 0 ? 0 : (getInserted() + getUpdated()) * 1000 / millis;
+    }
+}
@@ -0,0 +1,151 @@
+package jpabook.jpashop.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 상품 일괄 등록 파일을 한 줄씩 읽는다. 파일 전체를 메모리에 올리지 않는다.
+ * - CSV: 첫 줄은 헤더(type,id,name,price,stockQuantity,author,isbn,artist,etc,director,actor 중 필요한 것만) , 값에 쉼표가 있으면 "" 로 감싼다.
+ * - NDJSON: 한 줄에 JSON 객체 하나 , 키는 CSV 헤더와 같다.
+ * - 잘못된 줄은 예외 대신 error 가 채워진 ItemImportRow 를 돌려준다. (나머지 줄은 계속 읽는다.)
+ */
+public class ItemImportReader implements Closeable {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final BufferedReader reader;
+    private final boolean csv;
+    private List<String> header;
+    private long line;
+
+    private ItemImportReader(InputStream in, boolean csv) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.csv = csv;
+    }
+
+    public static ItemImportReader csv(InputStream in) {
+        return new ItemImportReader(in, true);
+    }
+
+    public static ItemImportReader ndjson(InputStream in) {
+        return new ItemImportReader(in, false);
+    }
+
+    /**
+     * @return 다음 줄 , 파일 끝이면 null
+     */
+    public ItemImportRow next() throws IOException {
+        String text;
+        while ((text = reader.readLine()) != null) {
+            if (text.trim().isEmpty()) {
+                continue;
+            }
+            if (csv && header == null) {
+                header = split(text);
+                continue;
+            }
+            line++;
+            ItemImportRow row = new ItemImportRow();
+            try {
+                if (csv) {
+                    readCsv(text, row);
+                } else {
+                    readJson(text, row);
+                }
+            } catch (IOException | RuntimeException e) {
+                row.setError("읽을 수 없는 줄입니다. (" + e.getMessage() + ")");
+            }
+            row.setLine(line);
+            row.validate();
+            return row;
+        }
+        return null;
+    }
+
+    private void readCsv(String text, ItemImportRow row) {
+        List<String> values = split(text);
+        if (values.size() > header.size()) {
+            throw new IllegalArgumentException("헤더보다 값이 많습니다.");
+        }
+        for (int i = 0; i < values.size(); i++) {
+            set(row, header.get(i), values.get(i));
+        }
+    }
+
+    private void readJson(String text, ItemImportRow row) throws IOException {
+        JsonNode node = objectMapper.readTree(text);
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("JSON 객체가 아닙니다.");
+        }
+        node.fields().forEachRemaining(field -> set(row, field.getKey(), field.getValue().isNull() ? null : field.getValue().asText()));
+    }
+
+    private static void set(ItemImportRow row, String field, String value) {
+        if (value == null || value.isEmpty()) {
+            return; // 값이 없으면 바꾸지 않는다.
+        }
+        switch (field) {
+            case "type": row.setType(type(value)); break;
+            case "id": row.setId(Long.valueOf(value)); break;
+            case "name": row.setName(value); break;
+            case "price": row.setPrice(Integer.valueOf(value)); break;
+            case "stockQuantity": row.setStockQuantity(Integer.valueOf(value)); break;
+            case "author": row.setAuthor(value); break;
+            case "isbn": row.setIsbn(value); break;
+            case "artist": row.setArtist(value); break;
+            case "etc": row.setEtc(value); break;
+            case "director": row.setDirector(value); break;
+            case "actor": row.setActor(value); break;
+            default: throw new IllegalArgumentException("알 수 없는 필드 " + field);
+        }
+    }
+
+    /**
+     * B, A, M 혹은 Book, Album, Movie
+     */
+    private static Character type(String value) {
+        return value.length() == 1 || value.equalsIgnoreCase("Book") || value.equalsIgnoreCase("Album") || value.equalsIgnoreCase("Movie")
+                ? Character.toUpperCase(value.charAt(0)) : '?';
+    }
+
+    /**
+     * CSV 한 줄을 값으로 나눈다. "" 로 감싼 값 안의 쉼표, "" (따옴표) 를 처리한다.
+     */
+    static List<String> split(String text) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString().trim());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString().trim());
+        return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
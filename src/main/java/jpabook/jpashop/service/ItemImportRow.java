@@ -0,0 +1,82 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.item.Album;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.Movie;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 상품 일괄 등록 파일의 한 줄
+ * - id 가 없으면 신규 상품(type, name, price 필수), 있으면 해당 상품 수정이다.
+ * - 값이 없는 필드는 바꾸지 않는다. 가격 파일이라면 id, price 만 있으면 된다.
+ * - type 은 dtype 값(B, A, M) 혹은 Book, Album, Movie
+ */
+@Getter @Setter
+public class ItemImportRow {
+
+    private long line; // 파일의 줄 번호 (헤더 제외)
+    private String error; // 파싱 실패 사유 , 있으면 저장하지 않는다.
+
+    private Character type;
+    private Long id;
+    private String name;
+    private Integer price;
+    private Integer stockQuantity;
+    private String author; // Book
+    private String isbn;
+    private String artist; // Album
+    private String etc;
+    private String director; // Movie
+    private String actor;
+
+    /**
+     * 파싱 후 검사 , 문제가 있으면 error 를 채운다.
+     */
+    void validate() {
+        if (error != null) {
+            return;
+        }
+        if (type != null && type != 'B' && type != 'A' && type != 'M') {
+            error = "알 수 없는 상품 종류입니다. (B, A, M)";
+        } else if (id == null && (type == null || name == null || price == null)) {
+            error = "신규 상품은 type, name, price 가 필요합니다.";
+        }
+    }
+
+    public Item newItem() {
+        Item item = type == 'B' ? new Book() : type == 'A' ? new Album() : new Movie();
+        applyTo(item);
+        return item;
+    }
+
+    /**
+     * 파일에 있는 값만 엔티티에 반영한다. (변경 감지)
+     */
+    public void applyTo(Item item) {
+        if (name != null) item.setName(name);
+        if (price != null) item.setPrice(price);
+        if (stockQuantity != null) item.setStockQuantity(stockQuantity);
+        if (item instanceof Book) {
+            Book book = (Book) item;
+            if (author != null) book.setAuthor(author);
+            if (isbn != null) book.setIsbn(isbn);
+        } else if (item instanceof Album) {
+            Album album = (Album) item;
+            if (artist != null) album.setArtist(artist);
+            if (etc != null) album.setEtc(etc);
+        } else if (item instanceof Movie) {
+            Movie movie = (Movie) item;
+            if (director != null) movie.setDirector(director);
+            if (actor != null) movie.setActor(actor);
+        }
+    }
+
+    public boolean matches(Item item) {
+        return type == null
+                || (type == 'B' && item instanceof Book)
+                || (type == 'A' && item instanceof Album)
+                || (type == 'M' && item instanceof Movie);
+    }
+}
@@ -0,0 +1,175 @@
+package jpabook.jpashop.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 상품 일괄 등록 / 수정 (상품 파일, 가격 파일)
+ * - 파일을 한 줄씩 읽어서 상품 id 로 파티션을 나누고, 파티션마다 스레드 하나가 batchSize 줄씩 한 트랜잭션으로 저장한다. (ItemService.importAll)
+ *   같은 상품은 항상 같은 파티션으로 가므로 스레드끼리 같은 행을 두고 경합하지 않고, 파일 순서대로 반영된다. 신규 상품(id 없음)은 줄 번호로 나눈다.
+ * - 파티션 큐는 batchSize 크기로 제한한다. 저장이 느리면 파일 읽기가 기다리므로 파일 크기와 상관없이 메모리 사용량이 일정하다.
+ *   기다리는 동안 그 파티션 스레드가 죽었는지 확인한다. 죽었으면 큐가 비워지지 않으므로 더 기다리지 않고 그 오류로 실패한다.
+ * - 묶음 트랜잭션이 실패하면 그 묶음을 한 줄씩 다시 저장해서 문제가 있는 줄만 실패로 남긴다. (OrderGroupCommitter 와 같은 방식)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ItemImporter {
+
+    private static final int RECENT_JOBS = 20;
+    private static final long LOG_EVERY = 10_000;
+    private static final ItemImportRow END = new ItemImportRow(); // 파일 끝 표시
+    private static final long OFFER_TIMEOUT_MILLIS = 500; // 큐가 가득 찼을 때 파티션 스레드를 확인하는 주기
+
+    private final ItemService itemService;
+
+    @Value("${jpashop.item-import.partitions:4}")
+    private int partitions; // 동시에 저장하는 스레드 수 (커넥션 풀 크기보다 작게)
+    @Value("${jpashop.item-import.batch-size:1000}")
+    private int batchSize; // 한 트랜잭션에 저장할 줄 수 , 이만큼 저장하면 영속성 컨텍스트를 비운다.
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, ItemImportProgress> jobs = Collections.synchronizedMap(new LinkedHashMap<Long, ItemImportProgress>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, ItemImportProgress> eldest) {
+            return size() > RECENT_JOBS;
+        }
+    });
+
+    /**
+     * 파일 끝까지 저장하고 결과를 돌려준다.
+     */
+    public ItemImportProgress importItems(ItemImportReader reader) throws IOException {
+        ItemImportProgress progress = new ItemImportProgress(sequence.incrementAndGet());
+        jobs.put(progress.getJobId(), progress);
+
+        List<BlockingQueue<ItemImportRow>> queues = new ArrayList<>(partitions);
+        List<Future<?>> workers = new ArrayList<>(partitions);
+        ExecutorService executor = Executors.newFixedThreadPool(partitions, r -> {
+            Thread thread = new Thread(r, "item-import-" + progress.getJobId());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (int i = 0; i < partitions; i++) {
+                BlockingQueue<ItemImportRow> queue = new ArrayBlockingQueue<>(batchSize);
+                queues.add(queue);
+                workers.add(executor.submit(() -> {
+                    drain(queue, progress);
+                    return null;
+                }));
+            }
+            ItemImportRow row;
+            while ((row = reader.next()) != null) {
+                progress.read();
+                if (row.getError() != null) {
+                    progress.failed(row, row.getError());
+                } else {
+                    int partition = partition(row);
+                    put(queues.get(partition), workers.get(partition), row);
+                }
+                if (progress.getRead() % LOG_EVERY == 0) {
+                    log.info("item import #{} read={} inserted={} updated={} failed={}", progress.getJobId(),
+                            progress.getRead(), progress.getInserted(), progress.getUpdated(), progress.getFailed());
+                }
+            }
+            for (int i = 0; i < partitions; i++) {
+                put(queues.get(i), workers.get(i), END);
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("상품 등록이 중단되었습니다.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("상품 등록 중 오류가 발생했습니다.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            progress.finish();
+        }
+        log.info("item import #{} finished in {}ms read={} inserted={} updated={} failed={}", progress.getJobId(), progress.getElapsedMillis(),
+                progress.getRead(), progress.getInserted(), progress.getUpdated(), progress.getFailed());
+        return progress;
+    }
+
+    /**
+     * 최근 등록 작업 , 진행 중인 작업도 포함한다.
+     */
+    public List<ItemImportProgress> recentJobs() {
+        synchronized (jobs) {
+            return new ArrayList<>(jobs.values());
+        }
+    }
+
+    /**
+     * 큐에 자리가 날 때까지 기다린다. 그 사이에 파티션 스레드가 끝났으면(예외) 그 예외를 ExecutionException 으로 던진다.
+     */
+    private static void put(BlockingQueue<ItemImportRow> queue, Future<?> worker, ItemImportRow row) throws InterruptedException, ExecutionException {
+        while (!queue.offer(row, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (worker.isDone()) {
+                worker.get(); // 예외로 끝났으면 여기서 던진다.
+                throw new IllegalStateException("상품 등록 파티션 스레드가 먼저 종료되었습니다.");
+            }
+        }
+    }
+
+    private int partition(ItemImportRow row) {
+        long key = row.getId() != null ? row.getId() : row.getLine();
+        return (int) Math.floorMod(key, (long) partitions);
+    }
+
+    private void drain(BlockingQueue<ItemImportRow> queue, ItemImportProgress progress) throws InterruptedException {
+        List<ItemImportRow> batch = new ArrayList<>(batchSize);
+        while (true) {
+            ItemImportRow row = queue.take();
+            if (row == END) {
+                save(batch, progress);
+                return;
+            }
+            batch.add(row);
+            if (batch.size() == batchSize) {
+                save(batch, progress);
+                batch.clear();
+            }
+        }
+    }
+
+    private void save(List<ItemImportRow> batch, ItemImportProgress progress) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            record(batch, itemService.importAll(batch), progress); // 여기서 return 되면 커밋까지 끝난 것이다.
+        } catch (RuntimeException e) {
+            log.warn("item import #{} batch of {} rows failed, retry one by one", progress.getJobId(), batch.size(), e);
+            for (ItemImportRow row : batch) {
+                try {
+                    record(Collections.singletonList(row), itemService.importAll(Collections.singletonList(row)), progress);
+                } catch (RuntimeException rowFailure) {
+                    progress.failed(row, String.valueOf(rowFailure.getMessage()));
+                }
+            }
+        }
+    }
+
+    private static void record(List<ItemImportRow> rows, List<String> failures, ItemImportProgress progress) {
+        for (int i = 0; i < rows.size(); i++) {
+            ItemImportRow row = rows.get(i);
+            if (failures.get(i) != null) {
+                progress.failed(row, failures.get(i));
+            } else if (row.getId() == null) {
+                progress.inserted();
+            } else {
+                progress.updated();
+            }
+        }
+    }
+}
@@ -1,14 +1,24 @@
 package jpabook.jpashop.service;
 
+import jpabook.jpashop.domain.item.Album;
 import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.Movie;
+import jpabook.jpashop.repository.ItemPatch;
 import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.item.ItemSummaryDto;
+import jpabook.jpashop.service.ChangeVersions.Aggregate;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
@@ -17,11 +27,13 @@ public class ItemService {
 
     private final ItemRepository itemRepository;
     private final EntityManager em;
+    private final ChangeVersions changeVersions;
 
 
     @Transactional
     public void saveItem(Item item){
         itemRepository.save(item);
+        changeVersions.bump(Aggregate.ITEM);
     }
 
     @Transactional // 해당 방법은 dirty check이라고 변경 감지 기능을 이용해서 수정하기
@@ -31,6 +43,7 @@ public class ItemService {
         findItem.setName(name);
         findItem.setPrice(price);
         findItem.setStockQuantity(stockQuantitiy);
+        changeVersions.bump(Aggregate.ITEM);
 
         // 현재 영속성 컨텍스트가 관리하고 있기 때문에 dirty check가 가능하다.
         // itemRepository.save(findItem);를 할 이유가 없다.
@@ -44,15 +57,97 @@ public class ItemService {
     @Transactional
     public Item  update(Item itemParam) { //itemParam: 파리미터로 넘어온 준영속 상태의 엔티티
         Item mergeItem = em.merge(itemParam); // 파라미터로 들어간 값은 준영속 상태이다.
+        changeVersions.bump(Aggregate.ITEM);
         return mergeItem; // 반환된 값은 영속성 상태이지만
     }
 
+    /**
+     * 부분 수정 , 조회 없이 바뀐 컬럼만 update 한다. (ItemRepository.patch)
+     * - 화면, API 처럼 바꿀 값을 이미 다 알고 있는 수정은 이 방법을 쓴다. 엔티티 로직(removeStock 등)이 필요하면 변경 감지를 쓴다.
+     * - 도서가 아닌 상품의 author, isbn 을 바꾸면 IllegalArgumentException , 없는 상품이면 IllegalStateException
+     */
+    @Transactional
+    public void patch(Long itemId, ItemPatch patch) {
+        if (patch.changes().isEmpty()) {
+            return;
+        }
+        if (itemRepository.patch(itemId, patch) == 0) {
+            if (patch.isBookOnly() && itemRepository.findOne(itemId) != null) {
+                throw new IllegalArgumentException("도서가 아닌 상품은 저자, ISBN 을 바꿀 수 없습니다.");
+            }
+            throw new IllegalStateException("존재하지 않는 상품입니다.");
+        }
+        changeVersions.bump(Aggregate.ITEM);
+    }
+
+
+    /**
+     * 상품 일괄 등록 / 수정 한 묶음 (ItemImporter)
+     * - 수정할 상품은 in 절 한 번으로 조회하고, 등록/수정 SQL 은 jdbc batch 로 묶인다. (hibernate.jdbc.batch_size)
+     * - 끝나면 flush 후 영속성 컨텍스트를 비운다. 묶음마다 메모리를 다시 쓴다.
+     * @return 줄마다 실패 사유 , 성공이면 null
+     */
+    @Transactional
+    public List<String> importAll(List<ItemImportRow> rows) {
+        List<Long> ids = rows.stream().map(ItemImportRow::getId).filter(id -> id != null).distinct().collect(Collectors.toList());
+        Map<Long, Item> items = ids.isEmpty() ? Collections.<Long, Item>emptyMap()
+                : itemRepository.findAllById(ids).stream().collect(Collectors.toMap(Item::getId, Function.identity()));
+
+        List<String> failures = new ArrayList<>(rows.size());
+        for (ItemImportRow row : rows) {
+            if (row.getId() == null) {
+                itemRepository.save(row.newItem());
+                failures.add(null);
+                continue;
+            }
+            Item item = items.get(row.getId());
+            if (item == null) {
+                failures.add("존재하지 않는 상품입니다.");
+            } else if (!row.matches(item)) {
+                failures.add("상품 종류가 다릅니다.");
+            } else {
+                row.applyTo(item);
+                failures.add(null);
+            }
+        }
+        em.flush();
+        em.clear();
+        if (failures.contains(null)) { // 하나라도 저장했으면
+            changeVersions.bump(Aggregate.ITEM);
+        }
+        return failures;
+    }
+
 
     //현재 Transactional이 없지만 기본적으로 클래스에 선언한 @Transactional(readOnly = true) 때문에 readOnly만 가능하다.
     public List<Item> findItems() {
         return itemRepository.findAll();
     }
 
+    public <T extends Item> List<T> findItems(Class<T> type) {
+        return itemRepository.findAllByType(type);
+    }
+
+    //목록 화면용 , 엔티티 대신 공통 컬럼만 읽는다.
+    public List<ItemSummaryDto> findItemSummaries(Class<? extends Item> type) {
+        return itemRepository.findSummaries(type);
+    }
+
+    /**
+     * 화면, API 의 상품 종류 파라미터 , dtype 값(B, A, M) 혹은 Book, Album, Movie . 없으면 전체(Item)
+     */
+    public static Class<? extends Item> itemType(String type) {
+        if (type == null || type.isEmpty()) {
+            return Item.class;
+        }
+        switch (type.toUpperCase()) {
+            case "B": case "BOOK": return Book.class;
+            case "A": case "ALBUM": return Album.class;
+            case "M": case "MOVIE": return Movie.class;
+            default: throw new IllegalArgumentException("알 수 없는 상품 종류입니다. " + type);
+        }
+    }
+
     public Item findOne(Long itemId){
         return itemRepository.findOne(itemId);
     }
@@ -0,0 +1,108 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.repository.MemberRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+
+/**
+ * 가입된 회원 이름 Bloom filter
+ * - mightContain 이 false 면 "확실히 처음 보는 이름" 이다. 중복 확인 쿼리를 생략할 수 있다.
+ * - true 면 있을 수도 있는 이름이다. (오탐 가능) 이때만 DB에 확인한다.
+ * - 중복 여부의 기준은 어디까지나 member.name 유니크 인덱스다. 다른 서버에서 가입한 이름처럼 필터가 모르는 이름은
+ *   유니크 제약조건 위반으로 걸러진다.
+ * - 애플리케이션이 뜬 뒤 기존 회원 이름으로 한번 채운다. 채우기 전에는 항상 true(모름)를 반환한다.
+ */
+@Slf4j
+@Component
+public class MemberNameFilter {
+
+    private final MemberRepository memberRepository;
+    private final BitSet bits;
+    private final int bitSize;
+    private final int hashCount;
+    private volatile boolean warmed;
+
+    public MemberNameFilter(MemberRepository memberRepository,
+                            @Value("${jpashop.member.name-filter.expected-names:1000000}") int expectedNames,
+                            @Value("${jpashop.member.name-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.memberRepository = memberRepository;
+        // m = -n ln(p) / (ln2)^2 , k = m/n ln2
+        this.bitSize = (int) Math.max(64, -expectedNames * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.hashCount = Math.max(1, (int) Math.round((double) bitSize / expectedNames * Math.log(2)));
+        this.bits = new BitSet(bitSize);
+    }
+
+    /**
+     * 기존 회원 이름으로 필터를 채운다. (InitDb 이후)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        int count = 0;
+        for (String name : memberRepository.findAllNames()) {
+            put(name);
+            count++;
+        }
+        warmed = true;
+        log.info("member name filter warmed - names={}, bits={}, hashes={}, {}ms",
+                count, bitSize, hashCount, System.currentTimeMillis() - start);
+    }
+
+    public boolean mightContain(String name) {
+        if (!warmed || name == null) {
+            return true;
+        }
+        long hash = hash(name);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        synchronized (bits) {
+            for (int i = 1; i <= hashCount; i++) {
+                if (!bits.get(index(h1, h2, i))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 가입, 이름 변경시 호출한다. 트랜잭션이 롤백되어도 지우지 않는다. (오탐이 하나 늘 뿐이다.)
+     */
+    public void put(String name) {
+        if (name == null) {
+            return;
+        }
+        long hash = hash(name);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        synchronized (bits) {
+            for (int i = 1; i <= hashCount; i++) {
+                bits.set(index(h1, h2, i));
+            }
+        }
+    }
+
+    // double hashing , g_i(x) = h1(x) + i * h2(x)
+    private int index(int h1, int h2, int i) {
+        int combined = h1 + i * h2;
+        return (combined & Integer.MAX_VALUE) % bitSize;
+    }
+
+    // FNV-1a 64bit
+    private static long hash(String name) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -1,12 +1,20 @@
 package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.KeysetSlice;
 import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.OrderSummaryRepository;
+import jpabook.jpashop.repository.member.MemberNameDto;
+import jpabook.jpashop.repository.member.MemberSummary;
+import jpabook.jpashop.service.ChangeVersions.Aggregate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
 import java.util.List;
+import java.util.Objects;
 
 @Service
 @Transactional(readOnly = true) // JPA의 모든 데이터 변경이나 어떤 로직들은 가급적이면 Transactional 안에서 다 실행되어야 한다. LazyLoading이 가능하다.
@@ -14,10 +22,19 @@ import java.util.List;
 public class MemberService {
 
     private final MemberRepository memberRepository; //변경될 일이 없기 때문에 final 넣는걸 추천한다.
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final MemberNameFilter memberNameFilter;
+    private final ChangeVersions changeVersions;
+    private final OrderSearchCache orderSearchCache;
 
     @Autowired // Spring이 떠서 Class 생성 시점에 injection해준다.
-    public MemberService(MemberRepository memberRepository){
+    public MemberService(MemberRepository memberRepository, OrderSummaryRepository orderSummaryRepository,
+                         MemberNameFilter memberNameFilter, ChangeVersions changeVersions, OrderSearchCache orderSearchCache){
         this.memberRepository = memberRepository;
+        this.orderSummaryRepository = orderSummaryRepository;
+        this.memberNameFilter = memberNameFilter;
+        this.changeVersions = changeVersions;
+        this.orderSearchCache = orderSearchCache;
     }
 
     //회원 가입
@@ -25,14 +42,27 @@ public class MemberService {
     public Long join(Member member){
 
         validateDuplicateMember(member);//중복 회원 가입방지 메소드 , 현재 프로젝트에서는 단순히 중복된 이름으로 가입을 방지하려고 한다.
-        memberRepository.save(member);
+        try {
+            memberRepository.saveAndFlush(member); // 검사와 저장 사이에 같은 이름이 먼저 가입하면 유니크 제약조건에 걸린다.
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalStateException("이미 존재하는 회원입니다.", e);
+        }
+        memberNameFilter.put(member.getName());
+        changeVersions.bump(Aggregate.MEMBER);
         return member.getId(); // 영속성 컨텍스트에 의해서 값이 들어가있다는것을 알 수 있다.
     }
 
     //중복 회원 가입방지 메소드
+    // 필터가 처음 보는 이름이라고 하면 쿼리 없이 통과시킨다. 최종 판단은 유니크 제약조건이 한다.
     public void validateDuplicateMember(Member member){
-        List<Member> findMembers = memberRepository.findByName(member.getName());
-        if(!findMembers.isEmpty()){
+        validateDuplicateName(member.getName());
+    }
+
+    private void validateDuplicateName(String name){
+        if(!memberNameFilter.mightContain(name)){
+            return;
+        }
+        if(memberRepository.existsByName(name)){
             throw new IllegalStateException("이미 존재하는 회원입니다.");
         }
     }
@@ -42,6 +72,15 @@ public class MemberService {
         return memberRepository.findAll();
     }
 
+    //회원 목록 조회 , 엔티티 없이 필요한 컬럼만 afterId 다음부터 size 건
+    public KeysetSlice<MemberNameDto> findMemberNames(Long afterId, int size){
+        return memberRepository.findNames(afterId, size);
+    }
+
+    public KeysetSlice<MemberSummary> findMemberSummaries(Long afterId, int size){
+        return memberRepository.findSummaries(afterId, size);
+    }
+
     //회원 단건 조회
     public Member findOne(Long memberId){
         return memberRepository.findOne(memberId);
@@ -52,11 +91,29 @@ public class MemberService {
      * 회원 수정
      *
      * 변경 감지를 최대한 활용
+     * - 이름이 비어 있으면 IllegalArgumentException
+     * - 다른 이름으로 바꾸는 경우 가입과 같은 중복 검사를 한다. 검사와 변경 사이의 경합은 유니크 제약조건이 막는다.
      */
     @Transactional
     public void update(Long id, String name) {
+        if (!StringUtils.hasText(name)) {
+            throw new IllegalArgumentException("회원 이름은 필수 입니다"); // Member.name 의 @NotEmpty 와 같은 메시지
+        }
         Member member = memberRepository.findOne(id);
+        if (!Objects.equals(name, member.getName())) {
+            validateDuplicateName(name);
+        }
+        String oldName = member.getName();
         member.setName(name);
+        try {
+            memberRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalStateException("이미 존재하는 회원입니다.", e);
+        }
+        orderSearchCache.memberRenamed(oldName, name);
+        memberNameFilter.put(name);
+        orderSummaryRepository.updateMemberName(id, name); // 주문 목록 읽기 모델에 펼쳐둔 회원 이름도 같이 변경
+        changeVersions.bump(Aggregate.MEMBER);
     }
 
 
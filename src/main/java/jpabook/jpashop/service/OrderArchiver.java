@@ -0,0 +1,141 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.repository.OrderArchiveRepository;
+import jpabook.jpashop.service.ChangeVersions.Aggregate;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 오래된 주문 보관(archive)
+ * - orders, order_item 은 계속 늘어나기만 하고, 조건 없는 주문 조회는 모든 이력을 스캔한다.
+ *   주문일이 ageDays 보다 오래된 주문은 보관 테이블(orders_archive, order_item_archive)로 옮긴다.
+ * - 전용 스레드(order-archiver) 하나에서 interval 마다 실행한다. 한 번 실행하면 옮길 주문이 없을 때까지 batchSize 씩 옮긴다.
+ * - 한 batch가 하나의 트랜잭션이다. 트랜잭션과 row 락을 짧게 유지해서 주문/취소 요청을 오래 막지 않는다.
+ * - 주문 조회(v1 ~ v6, 주문 목록)는 최근 주문 테이블만 조회한다. 보관된 주문은 기간 조회(OrderHistoryService)에서 같이 조회된다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderArchiver {
+
+    private final OrderArchiveRepository orderArchiveRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ChangeVersions changeVersions;
+    private final OrderSearchCache orderSearchCache;
+
+    @Value("${jpashop.archive.enabled:true}")
+    private boolean enabled;
+    @Value("${jpashop.archive.age-days:365}")
+    private int ageDays;
+    @Value("${jpashop.archive.batch-size:500}")
+    private int batchSize;
+    @Value("${jpashop.archive.interval-ms:3600000}")
+    private long intervalMillis;
+
+    private ScheduledExecutorService executor;
+
+    private final AtomicLong archivedCount = new AtomicLong();
+    private final AtomicLong lastRunMillis = new AtomicLong();
+    private volatile LocalDateTime lastRunAt;
+
+    /**
+     * InitDb 등 초기화가 모두 끝난 뒤에 시작한다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "order-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::archiveQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private void archiveQuietly() {
+        try {
+            archive();
+        } catch (Exception e) {
+            log.error("order archive failed", e); // 스케줄러가 멈추지 않도록 예외를 삼킨다.
+        }
+    }
+
+    /**
+     * 지금 기준으로 ageDays 보다 오래된 주문을 모두 옮긴다.
+     */
+    public int archive() {
+        return archive(LocalDateTime.now().minusDays(ageDays));
+    }
+
+    /**
+     * cutoff 이전에 주문된 주문을 모두 옮긴다. 옮긴 주문 수를 반환한다.
+     */
+    public synchronized int archive(LocalDateTime cutoff) {
+        long start = System.currentTimeMillis();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        LocalDateTime archivedAt = LocalDateTime.now();
+        int total = 0;
+        while (true) {
+            int moved = tx.execute(status -> {
+                List<Long> orderIds = orderArchiveRepository.findTargets(cutoff, batchSize);
+                if (orderIds.isEmpty()) {
+                    return 0;
+                }
+                changeVersions.bump(Aggregate.ORDER);
+                orderSearchCache.clear();
+                return orderArchiveRepository.moveToArchive(orderIds, archivedAt);
+            });
+            total += moved;
+            if (moved < batchSize) {
+                break;
+            }
+        }
+        archivedCount.addAndGet(total);
+        lastRunMillis.set(System.currentTimeMillis() - start);
+        lastRunAt = archivedAt;
+        if (total > 0) {
+            log.info("order archive - cutoff={}, orders={}, {}ms", cutoff, total, lastRunMillis.get());
+        }
+        return total;
+    }
+
+    public ArchiveStats stats() {
+        return new ArchiveStats(enabled, ageDays, batchSize, archivedCount.get(), lastRunAt, lastRunMillis.get());
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class ArchiveStats {
+        private boolean enabled;
+        private int ageDays;
+        private int batchSize;
+        private long archivedCount; // 애플리케이션 시작 후 옮긴 주문 수
+        private LocalDateTime lastRunAt;
+        private long lastRunMillis;
+    }
+}
@@ -0,0 +1,397 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.OrderStatus;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 주문상품 단위 컬럼 저장소 (OrderSnapshot)
+ * - 한 줄 = 주문상품 하나 , 주문 값(회원, 주문일, 상태)은 주문상품 줄마다 펼쳐서 같이 둔다. 한 주문의 줄은 연속해 있다.
+ * - 컬럼마다 direct buffer 하나 (힙 밖) , 줄마다 객체를 만들지 않으므로 줄 수가 많아도 GC 가 훑을 객체가 늘지 않는다.
+ * - 상품은 dictionary 로 바꿔서 int 코드만 저장한다. (상품 id, 이름은 코드 순서의 리스트 , 상품 수만큼만 힙에 있다.)
+ * - 주문 id -> 첫 줄 색인도 힙 밖의 open addressing 해시다. 주문 id 0 은 빈 칸으로 쓴다. (시퀀스는 1부터)
+ * - 꽉 차면 두 배로 새로 할당해서 옮긴다. 이전 buffer 는 GC 가 buffer 객체를 치울 때 반환된다.
+ * - 쓰기(append, setStatus)는 한 스레드에서 , 조회는 여러 스레드에서 read lock 으로 동시에 한다.
+ * - 조회는 BATCH 줄씩 조건에 맞는 줄 번호(selection vector)를 컬럼 하나씩 걸러서 만든 다음 모은다.
+ */
+class OrderColumns {
+
+    static final int BATCH = 1024;
+
+    private static final int ROW_BYTES = 8 + 8 + 4 + 1 + 1 + 4 + 4 + 4;
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int capacity;
+    private int rows;
+    private LongBuffer orderIds;
+    private LongBuffer memberIds;
+    private IntBuffer days; // 주문일 (epoch day)
+    private ByteBuffer statuses; // OrderStatus.ordinal()
+    private ByteBuffer firsts; // 주문의 첫 줄이면 1 , 더하면 주문 수
+    private IntBuffer items; // 상품 코드
+    private IntBuffer prices;
+    private IntBuffer counts;
+
+    private final OrderIndex index = new OrderIndex(1024);
+
+    private final Map<Long, Integer> itemCodes = new HashMap<>();
+    private final List<Long> itemIds = new ArrayList<>();
+    private final List<String> itemNames = new ArrayList<>();
+
+    OrderColumns(int capacity) {
+        allocate(Math.max(16, capacity));
+    }
+
+    /**
+     * 주문 하나의 줄들을 붙인다. 이미 있는 주문이면 붙이지 않는다.
+     */
+    boolean append(OrderRows order) {
+        lock.writeLock().lock();
+        try {
+            if (order.size() == 0 || index.get(order.orderId) >= 0) {
+                return false;
+            }
+            ensureCapacity(rows + order.size());
+            index.put(order.orderId, rows);
+            for (int i = 0; i < order.size(); i++) {
+                orderIds.put(rows, order.orderId);
+                memberIds.put(rows, order.memberId);
+                days.put(rows, order.day);
+                statuses.put(rows, (byte) order.status.ordinal());
+                firsts.put(rows, (byte) (i == 0 ? 1 : 0));
+                items.put(rows, itemCode(order.itemIds[i]));
+                prices.put(rows, order.prices[i]);
+                counts.put(rows, order.counts[i]);
+                rows++;
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 주문의 상태를 바꾼다. 주문이 없으면 false
+     */
+    boolean setStatus(long orderId, OrderStatus status) {
+        lock.writeLock().lock();
+        try {
+            int row = index.get(orderId);
+            if (row < 0) {
+                return false;
+            }
+            for (; row < rows && orderIds.get(row) == orderId; row++) {
+                statuses.put(row, (byte) status.ordinal());
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    boolean contains(long orderId) {
+        lock.readLock().lock();
+        try {
+            return index.get(orderId) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 이름을 아직 모르는 상품 id
+     */
+    List<Long> unnamedItems() {
+        lock.readLock().lock();
+        try {
+            List<Long> unnamed = new ArrayList<>();
+            for (int code = 0; code < itemIds.size(); code++) {
+                if (itemNames.get(code) == null) {
+                    unnamed.add(itemIds.get(code));
+                }
+            }
+            return unnamed;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void nameItem(long itemId, String name) {
+        lock.writeLock().lock();
+        try {
+            Integer code = itemCodes.get(itemId);
+            if (code != null) {
+                itemNames.set(code, name);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 상태별 합계 [상태 ordinal][revenue, units, orderCount] , 주문일 [fromDay, toDay]
+     */
+    long[][] sumByStatus(int fromDay, int toDay) {
+        long[][] sums = new long[STATUSES.length][3];
+        lock.readLock().lock();
+        try {
+            int[] sel = new int[BATCH];
+            for (int base = 0; base < rows; base += BATCH) {
+                int n = select(base, Math.min(rows, base + BATCH), -1, fromDay, toDay, sel);
+                for (int i = 0; i < n; i++) {
+                    int row = sel[i];
+                    long[] sum = sums[statuses.get(row)];
+                    sum[0] += (long) prices.get(row) * counts.get(row);
+                    sum[1] += counts.get(row);
+                    sum[2] += firsts.get(row);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return sums;
+    }
+
+    /**
+     * 상품별 합계 중 매출 상위 limit 개 [itemId, revenue, units] , status 가 null 이면 모든 상태
+     */
+    List<long[]> topItems(OrderStatus status, int fromDay, int toDay, int limit) {
+        lock.readLock().lock();
+        try {
+            long[] revenue = new long[itemIds.size()];
+            long[] units = new long[itemIds.size()];
+            int[] sel = new int[BATCH];
+            for (int base = 0; base < rows; base += BATCH) {
+                int n = select(base, Math.min(rows, base + BATCH), status != null ? status.ordinal() : -1, fromDay, toDay, sel);
+                for (int i = 0; i < n; i++) {
+                    int row = sel[i];
+                    int code = items.get(row);
+                    revenue[code] += (long) prices.get(row) * counts.get(row);
+                    units[code] += counts.get(row);
+                }
+            }
+            List<long[]> top = new ArrayList<>();
+            for (int code = 0; code < revenue.length; code++) {
+                if (units[code] > 0) {
+                    top.add(new long[]{itemIds.get(code), revenue[code], units[code]});
+                }
+            }
+            top.sort((a, b) -> Long.compare(b[1], a[1]));
+            return new ArrayList<>(top.subList(0, Math.min(limit, top.size())));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    String itemName(long itemId) {
+        lock.readLock().lock();
+        try {
+            Integer code = itemCodes.get(itemId);
+            return code != null ? itemNames.get(code) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * [base, end) 줄 중 조건에 맞는 줄 번호를 sel 에 채우고 개수를 반환한다. 조건마다 한 컬럼씩 훑는다.
+     */
+    private int select(int base, int end, int status, int fromDay, int toDay, int[] sel) {
+        int n = 0;
+        for (int row = base; row < end; row++) {
+            sel[n++] = row;
+        }
+        if (status >= 0) {
+            int m = 0;
+            for (int i = 0; i < n; i++) {
+                if (statuses.get(sel[i]) == status) {
+                    sel[m++] = sel[i];
+                }
+            }
+            n = m;
+        }
+        if (fromDay != Integer.MIN_VALUE || toDay != Integer.MAX_VALUE) {
+            int m = 0;
+            for (int i = 0; i < n; i++) {
+                int day = days.get(sel[i]);
+                if (day >= fromDay && day <= toDay) {
+                    sel[m++] = sel[i];
+                }
+            }
+            n = m;
+        }
+        return n;
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    int orders() {
+        return index.size;
+    }
+
+    int items() {
+        return itemIds.size();
+    }
+
+    long offHeapBytes() {
+        return (long) capacity * ROW_BYTES + index.bytes();
+    }
+
+    private int itemCode(long itemId) {
+        Integer code = itemCodes.get(itemId);
+        if (code == null) {
+            code = itemIds.size();
+            itemCodes.put(itemId, code);
+            itemIds.add(itemId);
+            itemNames.add(null);
+        }
+        return code;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= capacity) {
+            return;
+        }
+        LongBuffer oldOrderIds = orderIds;
+        LongBuffer oldMemberIds = memberIds;
+        IntBuffer oldDays = days;
+        ByteBuffer oldStatuses = statuses;
+        ByteBuffer oldFirsts = firsts;
+        IntBuffer oldItems = items;
+        IntBuffer oldPrices = prices;
+        IntBuffer oldCounts = counts;
+        allocate(Math.max(required, capacity * 2));
+        orderIds.put(oldOrderIds.duplicate().position(0).limit(rows));
+        memberIds.put(oldMemberIds.duplicate().position(0).limit(rows));
+        days.put(oldDays.duplicate().position(0).limit(rows));
+        statuses.put(oldStatuses.duplicate().position(0).limit(rows));
+        firsts.put(oldFirsts.duplicate().position(0).limit(rows));
+        items.put(oldItems.duplicate().position(0).limit(rows));
+        prices.put(oldPrices.duplicate().position(0).limit(rows));
+        counts.put(oldCounts.duplicate().position(0).limit(rows));
+    }
+
+    private void allocate(int capacity) {
+        this.capacity = capacity;
+        orderIds = ByteBuffer.allocateDirect(capacity * 8).asLongBuffer();
+        memberIds = ByteBuffer.allocateDirect(capacity * 8).asLongBuffer();
+        days = ByteBuffer.allocateDirect(capacity * 4).asIntBuffer();
+        statuses = ByteBuffer.allocateDirect(capacity);
+        firsts = ByteBuffer.allocateDirect(capacity);
+        items = ByteBuffer.allocateDirect(capacity * 4).asIntBuffer();
+        prices = ByteBuffer.allocateDirect(capacity * 4).asIntBuffer();
+        counts = ByteBuffer.allocateDirect(capacity * 4).asIntBuffer();
+    }
+
+    /**
+     * 주문 하나의 줄들 (DB 에서 읽은 값)
+     */
+    static class OrderRows {
+        private final long orderId;
+        private final long memberId;
+        private final int day;
+        private final OrderStatus status;
+        private final long[] itemIds;
+        private final int[] prices;
+        private final int[] counts;
+
+        OrderRows(long orderId, long memberId, int day, OrderStatus status, long[] itemIds, int[] prices, int[] counts) {
+            this.orderId = orderId;
+            this.memberId = memberId;
+            this.day = day;
+            this.status = status;
+            this.itemIds = itemIds;
+            this.prices = prices;
+            this.counts = counts;
+        }
+
+        long orderId() {
+            return orderId;
+        }
+
+        OrderStatus status() {
+            return status;
+        }
+
+        int size() {
+            return itemIds.length;
+        }
+    }
+
+    /**
+     * 주문 id -> 첫 줄 번호 , 힙 밖의 open addressing (linear probing) 해시. 절반이 차면 두 배로 늘린다.
+     */
+    private static class OrderIndex {
+        private LongBuffer keys;
+        private IntBuffer values;
+        private int size;
+
+        OrderIndex(int slots) {
+            allocate(slots);
+        }
+
+        int get(long key) {
+            int mask = keys.capacity() - 1;
+            for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+                long found = keys.get(slot);
+                if (found == 0) {
+                    return -1;
+                }
+                if (found == key) {
+                    return values.get(slot);
+                }
+            }
+        }
+
+        void put(long key, int value) {
+            if ((size + 1) * 2 > keys.capacity()) {
+                LongBuffer oldKeys = keys;
+                IntBuffer oldValues = values;
+                allocate(keys.capacity() * 2);
+                for (int slot = 0; slot < oldKeys.capacity(); slot++) {
+                    if (oldKeys.get(slot) != 0) {
+                        insert(oldKeys.get(slot), oldValues.get(slot));
+                    }
+                }
+            }
+            insert(key, value);
+            size++;
+        }
+
+        private void insert(long key, int value) {
+            int mask = keys.capacity() - 1;
+            int slot = hash(key) & mask;
+            while (keys.get(slot) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys.put(slot, key);
+            values.put(slot, value);
+        }
+
+        private void allocate(int slots) {
+            keys = ByteBuffer.allocateDirect(slots * 8).asLongBuffer(); // 0 으로 채워져 있다.
+            values = ByteBuffer.allocateDirect(slots * 4).asIntBuffer();
+        }
+
+        long bytes() {
+            return (long) keys.capacity() * 12;
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package jpabook.jpashop.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 주문 요청 하나 (회원, 상품, 수량)
+ */
+@Getter
+@AllArgsConstructor
+public class OrderCommand {
+
+    private Long memberId;
+    private Long itemId;
+    private int count;
+}
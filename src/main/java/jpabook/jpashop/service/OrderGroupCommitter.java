@@ -0,0 +1,162 @@
+package jpabook.jpashop.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * 주문 그룹 커밋
+ * - 요청마다 트랜잭션을 열고 커밋(fsync)하지 않고, windowMillis 동안 들어온 주문 요청을 모아서 하나의 트랜잭션으로 처리한다.
+ * - 요청 스레드는 자기 주문의 결과(orderId 혹은 예외)가 나올때까지 기다린다. 결과는 커밋이 끝난 뒤에 알려준다.
+ * - 재고 부족은 해당 주문만 실패한다. 그 외의 이유로 묶음 트랜잭션 전체가 실패하면 주문을 하나씩 다시 처리한다.
+ * - jpashop.order.group-commit.enabled=false(기본값) 이면 지금까지처럼 주문마다 OrderService.order를 호출한다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderGroupCommitter {
+
+    private final OrderService orderService;
+
+    @Value("${jpashop.order.group-commit.enabled:false}")
+    private boolean enabled;
+    @Value("${jpashop.order.group-commit.window-ms:5}")
+    private long windowMillis; // 첫 요청 이후 다른 요청을 기다리는 시간
+    @Value("${jpashop.order.group-commit.max-batch:64}")
+    private int maxBatch; // 한 트랜잭션에 담을 최대 주문 수
+
+    private final BlockingQueue<PendingOrder> queue = new LinkedBlockingQueue<>();
+    private Thread worker;
+    private volatile boolean running;
+
+    /**
+     * 주문 , 그룹 커밋이 꺼져 있으면 바로 OrderService.order 를 호출한다.
+     */
+    public Long order(Long memberId, Long itemId, int count) {
+        if (!enabled) {
+            return orderService.order(memberId, itemId, count);
+        }
+        try {
+            return submit(memberId, itemId, count).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("주문 처리 대기 중 중단되었습니다.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause(); // NotEnoughStockException 등은 그대로 던진다.
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * 주문 요청을 큐에 넣는다. 묶음 트랜잭션이 커밋된 뒤에 결과가 채워진다.
+     */
+    public CompletableFuture<Long> submit(Long memberId, Long itemId, int count) {
+        ensureStarted();
+        PendingOrder pending = new PendingOrder(new OrderCommand(memberId, itemId, count));
+        queue.add(pending);
+        return pending.result;
+    }
+
+    private synchronized void ensureStarted() {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::run, "order-group-commit");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+        PendingOrder pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result.completeExceptionally(new IllegalStateException("애플리케이션이 종료되어 주문을 처리하지 못했습니다."));
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                List<PendingOrder> batch = nextBatch();
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 첫 요청이 올때까지 기다리고, 이후 windowMillis 동안 혹은 maxBatch 가 찰때까지 모은다.
+     */
+    private List<PendingOrder> nextBatch() throws InterruptedException {
+        List<PendingOrder> batch = new ArrayList<>();
+        batch.add(queue.take());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        while (batch.size() < maxBatch) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                queue.drainTo(batch, maxBatch - batch.size()); // 이미 와있는 요청은 마저 담는다.
+                break;
+            }
+            PendingOrder next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    private void commit(List<PendingOrder> batch) {
+        List<OrderCommand> commands = new ArrayList<>(batch.size());
+        batch.forEach(p -> commands.add(p.command));
+        List<OrderOutcome> outcomes;
+        try {
+            outcomes = orderService.orderAll(commands); // 여기서 return 되면 커밋까지 끝난 것이다.
+        } catch (RuntimeException e) {
+            log.warn("group commit of {} orders failed, retry one by one", batch.size(), e);
+            batch.forEach(this::commitAlone);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            OrderOutcome outcome = outcomes.get(i);
+            if (outcome.isSuccess()) {
+                batch.get(i).result.complete(outcome.getOrderId());
+            } else {
+                batch.get(i).result.completeExceptionally(outcome.getFailure());
+            }
+        }
+    }
+
+    private void commitAlone(PendingOrder pending) {
+        OrderCommand command = pending.command;
+        try {
+            pending.result.complete(orderService.order(command.getMemberId(), command.getItemId(), command.getCount()));
+        } catch (RuntimeException e) {
+            pending.result.completeExceptionally(e);
+        }
+    }
+
+    private static class PendingOrder {
+        private final OrderCommand command;
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+
+        private PendingOrder(OrderCommand command) {
+            this.command = command;
+        }
+    }
+}
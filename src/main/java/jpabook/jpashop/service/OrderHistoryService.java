@@ -0,0 +1,58 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.repository.OrderArchiveRepository;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 기간 주문 조회 , 최근 주문 테이블과 보관 테이블(OrderArchiver)을 합쳐서 보여준다.
+ * - 최근 주문 테이블은 항상 조회한다. (보관 주기 사이에는 오래된 주문이 아직 남아 있을 수 있다.)
+ * - 보관 테이블은 조회 기간이 보관된 가장 최근 주문일까지 닿을 때만 조회한다. (시작일이 없으면 처음부터라서 항상 닿는다.)
+ * - 최근 주문 테이블을 먼저 읽고 보관 테이블을 나중에 읽는다. 두 조회 사이에 보관된 주문은 보관 테이블 쪽에서 읽힌다.
+ *   (반대 순서면 그 사이에 옮겨진 주문이 어느 쪽에서도 읽히지 않는다.)
+ * - 두 조회 사이에 옮겨진 주문은 양쪽에서 읽힐 수 있으므로 주문 id 로 중복을 없앤다. 보관 테이블 것을 남긴다.
+ * - 보관된 주문, 최근 주문 순서로 이어붙인다.
+ */
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class OrderHistoryService {
+
+    private final OrderQueryRepository orderQueryRepository;
+    private final OrderArchiveRepository orderArchiveRepository;
+
+    /**
+     * 주문일 [from, to] 의 주문 , from 이 null 이면 처음부터, to 가 null 이면 끝까지
+     */
+    public List<OrderQueryDto> findOrders(LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("조회 시작일이 종료일보다 늦습니다.");
+        }
+        LocalDateTime start = from != null ? from.atStartOfDay() : null;
+        LocalDateTime end = to != null ? to.plusDays(1).atStartOfDay() : null;
+
+        List<OrderQueryDto> live = orderQueryRepository.findAllByDto_optimization(start, end);
+        if (!reachesArchive(start)) {
+            return live;
+        }
+        List<OrderQueryDto> result = new ArrayList<>(orderArchiveRepository.findOrderQueryDtos(start, end));
+        Set<Long> archivedIds = result.stream().map(OrderQueryDto::getOrderId).collect(Collectors.toSet());
+        live.stream().filter(o -> !archivedIds.contains(o.getOrderId())).forEach(result::add);
+        return result;
+    }
+
+    private boolean reachesArchive(LocalDateTime start) {
+        LocalDateTime latest = orderArchiveRepository.findLatestOrderDate();
+        return latest != null && (start == null || !start.isAfter(latest));
+    }
+}
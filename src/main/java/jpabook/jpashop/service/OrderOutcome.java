@@ -0,0 +1,29 @@
+package jpabook.jpashop.service;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 여러 주문을 하나의 트랜잭션으로 처리할 때 주문 하나하나의 결과
+ * - 성공하면 orderId , 재고 부족처럼 해당 주문만 실패하면 failure 가 채워진다.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class OrderOutcome {
+
+    private final Long orderId;
+    private final RuntimeException failure;
+
+    public static OrderOutcome success(Long orderId) {
+        return new OrderOutcome(orderId, null);
+    }
+
+    public static OrderOutcome failure(RuntimeException failure) {
+        return new OrderOutcome(null, failure);
+    }
+
+    public boolean isSuccess() {
+        return failure == null;
+    }
+}
@@ -0,0 +1,91 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * 주문 조회 fetch 계약
+ * - open-in-view 를 끈 뒤로는 트랜잭션이 끝나면 지연 로딩을 할 수 없다. (LazyInitializationException)
+ * - 엔티티를 밖으로 반환하지 않는다. 컨트롤러가 넘긴 mapper 로 트랜잭션 안에서 DTO 로 변환해서 반환한다.
+ *   메소드 이름은 mapper 가 탐색해도 되는 범위(어디까지 초기화되는지)를 약속한다.
+ * - 초기화 방식(지연 로딩, fetch join, batch size)은 각 API 버전이 보여주려는 방식 그대로 두고, 트랜잭션 안으로만 옮겼다.
+ */
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class OrderQueryService {
+
+    private final OrderRepository orderRepository;
+
+    /**
+     * 주문 + 회원 + 배송 (V1, V2 simple-orders)
+     */
+    public <T> List<T> findOrdersWithMemberDelivery(OrderSearch orderSearch, Function<Order, T> mapper) {
+        return map(ordersWithMemberDelivery(orderSearch), mapper);
+    }
+
+    /**
+     * 주문 + 회원 + 배송 , fetch join 쿼리 한 번 (V3 simple-orders)
+     */
+    public <T> List<T> findOrdersWithMemberDelivery(Function<Order, T> mapper) {
+        return map(orderRepository.findAllWithMemberDelivery(), mapper);
+    }
+
+    /**
+     * 주문 + 회원 + 배송 + 주문상품 + 상품 (V1, V2 orders)
+     */
+    public <T> List<T> findOrdersWithItems(OrderSearch orderSearch, Function<Order, T> mapper) {
+        List<Order> orders = ordersWithMemberDelivery(orderSearch);
+        orders.forEach(this::initializeItems);
+        return map(orders, mapper);
+    }
+
+    /**
+     * 주문 + 회원 + 배송 + 주문상품 + 상품 , fetch join 쿼리 한 번 (V3 orders)
+     */
+    public <T> List<T> findOrdersWithItems(Function<Order, T> mapper) {
+        return map(orderRepository.findAllWithItem(), mapper);
+    }
+
+    /**
+     * 주문 + 회원 + 배송은 fetch join 으로 페이징, 주문상품 + 상품은 지연 로딩(batch size) (V3.1 orders)
+     */
+    public <T> List<T> findOrdersWithItems(int offset, int limit, Function<Order, T> mapper) {
+        List<Order> orders = orderRepository.findAllWithMemberDelivery(offset, limit);
+        orders.forEach(this::initializeItems);
+        return map(orders, mapper);
+    }
+
+    private List<Order> ordersWithMemberDelivery(OrderSearch orderSearch) {
+        List<Order> orders = orderRepository.findAllByString(orderSearch);
+        for (Order order : orders) {
+            Hibernate.initialize(order.getMember()); // 지연 로딩 (N + 1)
+            Hibernate.initialize(order.getDelivery());
+        }
+        return orders;
+    }
+
+    // 변환은 트랜잭션 안에서 끝낸다. 밖으로는 mapper 가 만든 값만 나간다.
+    private <T> List<T> map(List<Order> orders, Function<Order, T> mapper) {
+        return orders.stream()
+                .map(mapper)
+                .collect(toList());
+    }
+
+    private void initializeItems(Order order) {
+        for (OrderItem orderItem : order.getOrderItems()) {
+            Hibernate.initialize(orderItem.getItem());
+        }
+    }
+}
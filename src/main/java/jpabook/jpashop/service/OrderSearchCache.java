@@ -0,0 +1,191 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.OrderSearch;
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * 주문 검색 결과 캐시 (주문 목록 화면) , 검색 조건(상태, 회원 이름)별로 결과 주문 id 목록만 저장한다.
+ * - 줄의 값(상태, 회원 이름, 대표상품)은 캐시하지 않고 id 로 다시 읽는다. 그래서 검색 결과에 어떤 주문이 들어가는지가 바뀔 때만 지운다.
+ *   주문: 상태 조건이 없거나 ORDER 이고 회원 이름이 맞는 검색 , 취소: 상태 조건이 ORDER, CANCEL 이고 회원 이름이 맞는 검색
+ *   회원 이름 변경: 이전/새 이름이 맞는 검색 , 주문 보관(삭제): 전부
+ * - 지우는 것은 커밋이 끝난 뒤에 한다. (ChangeVersions 와 같은 이유)
+ * - 검색하는 동안 지워졌으면 그 결과는 넣지 않는다. (generation) 커밋 전 데이터를 읽은 결과가 지운 뒤에 들어가는 것을 막는다.
+ * - 쓰기 트랜잭션 안의 검색은 캐시를 쓰지 않는다. 아직 커밋하지 않은 자기 변경이 보여야 한다.
+ * - ttl 이 지나면 다시 검색한다. 다른 인스턴스의 변경, 직접 고친 데이터는 ttl 만큼 늦게 보인다.
+ * - 오래 안 쓴 검색부터 버린다. (LRU, jpashop.order.search-cache.size , 0 이면 캐시 안함)
+ */
+@Component
+public class OrderSearchCache {
+
+    private final int size;
+    private final long ttlMillis;
+    private final Map<SearchKey, Entry> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    public OrderSearchCache(@Value("${jpashop.order.search-cache.size:256}") int size,
+                            @Value("${jpashop.order.search-cache.ttl-ms:5000}") long ttlMillis) {
+        this.size = size;
+        this.ttlMillis = ttlMillis;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<SearchKey, Entry>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SearchKey, Entry> eldest) {
+                return size() > OrderSearchCache.this.size;
+            }
+        });
+    }
+
+    /**
+     * 캐시된 주문 id 목록 , 없거나 ttl 이 지났으면 null
+     */
+    public List<Long> get(OrderSearch orderSearch) {
+        if (size <= 0 || inWriteTransaction()) {
+            return null;
+        }
+        Entry entry = cache.get(SearchKey.of(orderSearch));
+        if (entry == null || entry.expiresAt < System.currentTimeMillis()) {
+            return null;
+        }
+        return entry.orderIds;
+    }
+
+    /**
+     * 검색 전에 읽어둔다. put 할 때 넘긴다.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * 검색 결과를 넣는다. 검색하는 동안(generation 이후) 지워진 것이 있으면 넣지 않는다.
+     */
+    public void put(OrderSearch orderSearch, long generation, List<Long> orderIds) {
+        if (size <= 0 || inWriteTransaction()) {
+            return;
+        }
+        Entry entry = new Entry(Collections.unmodifiableList(orderIds), System.currentTimeMillis() + ttlMillis);
+        synchronized (cache) {
+            if (this.generation.get() == generation) {
+                cache.put(SearchKey.of(orderSearch), entry);
+            }
+        }
+    }
+
+    /**
+     * 회원의 새 주문 (상태 ORDER)
+     */
+    public void orderPlaced(String memberName) {
+        afterCommit(key -> (key.status == null || key.status == OrderStatus.ORDER) && key.matches(memberName));
+    }
+
+    /**
+     * 주문 취소 (ORDER -> CANCEL) , memberNames 가 null 이면 모든 회원
+     */
+    public void orderCancelled(Collection<String> memberNames) {
+        afterCommit(key -> key.status != null && (memberNames == null || memberNames.stream().anyMatch(key::matches)));
+    }
+
+    public void memberRenamed(String oldName, String newName) {
+        afterCommit(key -> key.name != null && (key.matches(oldName) || key.matches(newName)));
+    }
+
+    /**
+     * 주문이 지워졌을 때 (보관)
+     */
+    public void clear() {
+        afterCommit(key -> true);
+    }
+
+    private static boolean inWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive() && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private void afterCommit(Predicate<SearchKey> affected) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(affected);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(affected);
+            }
+        });
+    }
+
+    private void evict(Predicate<SearchKey> affected) {
+        synchronized (cache) {
+            generation.incrementAndGet();
+            cache.keySet().removeIf(affected);
+        }
+    }
+
+    private static class Entry {
+        private final List<Long> orderIds;
+        private final long expiresAt;
+
+        Entry(List<Long> orderIds, long expiresAt) {
+            this.orderIds = orderIds;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * 검색 조건 , 빈 이름은 이름 조건 없음과 같다.
+     */
+    @EqualsAndHashCode(of = {"status", "name"})
+    private static class SearchKey {
+        private final OrderStatus status;
+        private final String name;
+        private final Pattern pattern; // like 를 정규식으로 바꾼 것
+
+        private SearchKey(OrderStatus status, String name) {
+            this.status = status;
+            this.name = name;
+            this.pattern = name != null ? Pattern.compile(likeToRegex(name), Pattern.DOTALL) : null;
+        }
+
+        static SearchKey of(OrderSearch orderSearch) {
+            String name = StringUtils.hasText(orderSearch.getMemberName()) ? orderSearch.getMemberName() : null;
+            return new SearchKey(orderSearch.getOrderStatus(), name);
+        }
+
+        /**
+         * 이 검색의 회원 이름 조건(m.name like :name)에 맞는 회원인지 , 이름을 모르면(null) 맞는 것으로 본다.
+         */
+        boolean matches(String memberName) {
+            return pattern == null || memberName == null || pattern.matcher(memberName).matches();
+        }
+
+        private static String likeToRegex(String like) {
+            StringBuilder regex = new StringBuilder();
+            for (int i = 0; i < like.length(); i++) {
+                char c = like.charAt(i);
+                if (c == '\\' && i + 1 < like.length()) { // H2 기본 escape 문자
+                    regex.append(Pattern.quote(String.valueOf(like.charAt(++i))));
+                } else if (c == '%') {
+                    regex.append(".*");
+                } else if (c == '_') {
+                    regex.append('.');
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(c)));
+                }
+            }
+            return regex.toString();
+        }
+    }
+}
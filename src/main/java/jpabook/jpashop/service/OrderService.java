@@ -1,19 +1,30 @@
 package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.DeliveryStatus;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.OrderSummary;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
 import jpabook.jpashop.repository.ItemRepository;
 import jpabook.jpashop.repository.MemberRepository;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.OrderSummaryRepository;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.repository.order.query.OrderRowDto;
+import jpabook.jpashop.service.ChangeVersions.Aggregate;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import javax.persistence.EntityManager;
+import java.util.*;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
@@ -23,12 +34,43 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final MemberRepository memberRepository;
     private final ItemRepository itemRepository;
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final OrderQueryRepository orderQueryRepository;
+    private final SalesService salesService;
+    private final OutboxService outboxService;
+    private final ChangeVersions changeVersions;
+    private final OrderSearchCache orderSearchCache;
+    private final EntityManager em;
 
     /**
      * 주문
      */
     @Transactional
     public Long order(Long memberId, Long itemId, int count){
+        return placeOrder(memberId, itemId, count);
+    }
+
+    /**
+     * 여러 주문을 하나의 트랜잭션으로 처리 (그룹 커밋)
+     * - insert 는 flush 시점에 jdbc batch로 묶여서 나가고, 커밋(fsync)은 한번만 한다.
+     * - 매출 집계도 묶음 전체의 증분을 합계 row 별로 더해서 커밋 직전에 한 번씩만 반영한다. (SalesService)
+     * - 재고 부족은 재고를 줄이기 전에 검사하기 때문에 해당 주문만 실패로 돌려주고 나머지 주문은 계속 진행한다.
+     * - 같은 클래스의 placeOrder를 직접 호출하기 때문에 트랜잭션 프록시를 거치지 않는다. 그래서 예외를 잡아도 rollback-only 가 되지 않는다.
+     */
+    @Transactional
+    public List<OrderOutcome> orderAll(List<OrderCommand> commands) {
+        List<OrderOutcome> outcomes = new ArrayList<>(commands.size());
+        for (OrderCommand command : commands) {
+            try {
+                outcomes.add(OrderOutcome.success(placeOrder(command.getMemberId(), command.getItemId(), command.getCount())));
+            } catch (NotEnoughStockException e) {
+                outcomes.add(OrderOutcome.failure(e));
+            }
+        }
+        return outcomes;
+    }
+
+    private Long placeOrder(Long memberId, Long itemId, int count) {
 
         //엔티티 조회
         Member member = memberRepository.findOne(memberId);
@@ -47,6 +89,19 @@ public class OrderService {
         // 주문 저장
         orderRepository.save(order); // 현재 하나만 persist해줘도 cascade All 옵션 때문에 delivery랑 orderItem에 persist가 된다.
 
+        // 주문 목록 읽기 모델 저장 (같은 트랜잭션) , persist 이후라서 order의 id가 채워져 있다.
+        orderSummaryRepository.save(OrderSummary.createOrderSummary(order));
+
+        // 매출 집계 증분 반영 (같은 트랜잭션)
+        salesService.record(order);
+
+        // 후속 처리를 위한 이벤트는 아웃박스에 기록만 한다. (같은 트랜잭션, 처리는 OutboxProjector가 비동기로)
+        outboxService.orderPlaced(order);
+
+        // 주문 목록, 상품 재고가 바뀐다.
+        changeVersions.bump(Aggregate.ORDER, Aggregate.ITEM);
+        orderSearchCache.orderPlaced(member.getName());
+
          return order.getId();
     }
 
@@ -61,6 +116,101 @@ public class OrderService {
         //주문 취소
         order.cancel();
 
+        //읽기 모델에도 취소 반영 , 읽기 모델 도입 이전의 주문은 요약이 없을 수 있다.
+        OrderSummary summary = orderSummaryRepository.findOne(orderId);
+        if (summary != null) {
+            summary.cancel();
+        }
+
+        //매출 집계에서 차감
+        salesService.revert(order);
+
+        outboxService.orderCancelled(order);
+
+        changeVersions.bump(Aggregate.ORDER, Aggregate.ITEM);
+        orderSearchCache.orderCancelled(Collections.singleton(order.getMember().getName()));
+    }
+
+    /**
+     * 주문 일괄 취소 , 주문을 엔티티로 읽지 않고 집합 단위 쿼리로 처리한다. (하나의 트랜잭션)
+     * - 배송 상태 확인: 쿼리 한 번 (주문 row 에 락) , 배송완료/이미 취소/없는 주문은 건너뛰고 결과에 남긴다.
+     * - 주문 상태, 읽기 모델 상태: update 한 번씩
+     * - 재고 복구: 상품별로 수량을 합쳐서 상품마다 update 한 번 (stock_quantity = stock_quantity + 합계)
+     * - 매출 차감, 아웃박스 기록도 같은 트랜잭션에서 한다. (SalesService.revertAll, OutboxService.ordersCancelled)
+     * - 벌크 연산은 영속성 컨텍스트를 거치지 않으므로 끝나면 flush 후 비운다. 이전에 읽어둔 주문, 상품 엔티티는 다시 조회해야 한다.
+     */
+    @Transactional
+    public BulkCancelResult cancelOrders(List<Long> orderIds) {
+        List<Long> ids = orderIds.stream().filter(Objects::nonNull).distinct().sorted().collect(Collectors.toList());
+        BulkCancelResult result = new BulkCancelResult(ids.size());
+        if (ids.isEmpty()) {
+            return result;
+        }
+        em.flush();
+
+        Map<Long, Long> memberIdByOrderId = new LinkedHashMap<>();
+        Set<Long> found = new HashSet<>();
+        for (Object[] row : orderRepository.findCancelTargets(ids)) {
+            Long orderId = (Long) row[0];
+            found.add(orderId);
+            if (row[2] == OrderStatus.CANCEL) {
+                result.alreadyCancelled.add(orderId);
+            } else if (row[3] == DeliveryStatus.COMP) {
+                result.delivered.add(orderId); // 이미 배송완료된 상품은 취소가 불가능하다.
+            } else {
+                memberIdByOrderId.put(orderId, (Long) row[1]);
+            }
+        }
+        ids.stream().filter(id -> !found.contains(id)).forEach(result.notFound::add);
+        if (memberIdByOrderId.isEmpty()) {
+            return result;
+        }
+        List<Long> cancelIds = new ArrayList<>(memberIdByOrderId.keySet());
+
+        salesService.revertAll(cancelIds);
+        List<Object[]> countByItem = orderRepository.sumCountByItem(cancelIds);
+        result.cancelled = orderRepository.cancelAll(cancelIds);
+        orderSummaryRepository.cancelAll(cancelIds);
+        Map<Long, Long> deltaByItem = new LinkedHashMap<>();
+        for (Object[] row : countByItem) {
+            deltaByItem.put((Long) row[0], ((Number) row[1]).longValue());
+            itemRepository.addStock((Long) row[0], ((Number) row[1]).longValue());
+        }
+        result.restoredItems = deltaByItem.size();
+
+        List<long[]> stockChanges = new ArrayList<>();
+        for (Object[] row : itemRepository.findStockQuantities(new ArrayList<>(deltaByItem.keySet()))) {
+            stockChanges.add(new long[]{(Long) row[0], deltaByItem.get(row[0]), ((Number) row[1]).longValue()});
+        }
+        outboxService.ordersCancelled(memberIdByOrderId, stockChanges);
+
+        em.flush();
+        em.clear();
+        changeVersions.bump(Aggregate.ORDER, Aggregate.ITEM);
+        orderSearchCache.orderCancelled(null); // 회원 이름을 따로 읽지 않고 상태 조건이 있는 검색을 모두 지운다.
+        return result;
+    }
+
+    /**
+     * 검색 조건으로 일괄 취소 , 조건에 맞는 주문 최대 1000건
+     */
+    @Transactional
+    public BulkCancelResult cancelOrders(OrderSearch orderSearch) {
+        return cancelOrders(orderRepository.findIds(orderSearch));
+    }
+
+    @Getter
+    public static class BulkCancelResult {
+        private final int requested;
+        private int cancelled;
+        private int restoredItems; // 재고를 복구한 상품 수
+        private final List<Long> alreadyCancelled = new ArrayList<>();
+        private final List<Long> delivered = new ArrayList<>(); // 배송완료라서 취소하지 못한 주문
+        private final List<Long> notFound = new ArrayList<>();
+
+        BulkCancelResult(int requested) {
+            this.requested = requested;
+        }
     }
 
     //검색
@@ -68,6 +218,29 @@ public class OrderService {
         return orderRepository.findAllByString(orderSearch);
       }
 
+    /**
+     * 주문 목록 검색 - 읽기 모델(order_summary)에서 바로 조회
+     * - OrderItem, Member, Delivery를 건드리지 않는다.
+     */
+    public List<OrderSummary> findOrderSummaries(OrderSearch orderSearch) {
+        return orderSummaryRepository.findAllByString(orderSearch);
+    }
+
+    /**
+     * 주문 목록 화면 - 한 줄에 필요한 값(회원 이름, 대표상품)을 DTO로 채워서 반환한다.
+     * - 같은 검색 조건이면 캐시된 주문 id 목록을 쓴다. (OrderSearchCache)
+     */
+    public List<OrderRowDto> findOrderRows(OrderSearch orderSearch) {
+        List<Long> orderIds = orderSearchCache.get(orderSearch);
+        if (orderIds != null) {
+            return orderQueryRepository.findOrderRows(orderIds); // 검색은 건너뛰고 id 로 읽는다.
+        }
+        long generation = orderSearchCache.generation();
+        List<OrderRowDto> rows = orderQueryRepository.findOrderRows(orderSearch);
+        orderSearchCache.put(orderSearch, generation, rows.stream().map(OrderRowDto::getOrderId).collect(Collectors.toList()));
+        return rows;
+    }
+
 
 
 
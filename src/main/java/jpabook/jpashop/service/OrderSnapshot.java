@@ -0,0 +1,353 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.outbox.OutboxEvent;
+import jpabook.jpashop.domain.outbox.OutboxEventType;
+import jpabook.jpashop.repository.OrderSnapshotRepository;
+import jpabook.jpashop.repository.SalesRepository;
+import jpabook.jpashop.service.OrderColumns.OrderRows;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * 주문 분석용 컬럼 스냅샷 (OrderColumns , 힙 밖) , 상태별 매출, 상품별 매출 상위 같은 집계를 엔티티 없이 계산한다.
+ * - jpashop.analytics.enabled 이면 시작할 때 전용 스레드(order-snapshot)에서 만든다. 꺼져 있으면 rebuild() 를 호출해야 만든다.
+ * - 만들기: 주문 id 범위를 chunkOrders 건씩 나눠서 parallelism 개의 스레드가 읽기 전용 트랜잭션으로 동시에 읽는다. (SalesService.rebuild 와 같은 방식)
+ *   읽은 순서대로 붙이고, 한꺼번에 힙에 올라오는 범위는 parallelism x 2 개로 제한한다.
+ *   보관된 주문(OrderArchiver)은 주문 범위를 모두 읽은 다음에 읽는다. 그 사이 보관된 주문은 주문 범위나 보관 테이블 중 한 곳에서는 읽힌다. (중복은 append 가 거른다.)
+ * - 갱신: 주문/취소 아웃박스 이벤트(OutboxProjector)마다 그 주문을 DB 에서 다시 읽어서 없으면 붙이고 있으면 상태를 맞춘다. (멱등)
+ *   만드는 중에 들어온 이벤트의 주문은 새 스냅샷으로 바꾸기 직전에 다시 반영한다.
+ *   아웃박스 처리를 끄면(jpashop.outbox.enabled) 다시 만들 때까지 갱신되지 않는다.
+ * - 보관은 주문 값을 바꾸지 않으므로 스냅샷에 영향이 없다.
+ * - API 로 요청한 다시 만들기(requestRebuild)는 만드는 중이거나 마지막으로 만든 지 manual-rebuild-min-interval-ms 가 지나지 않았으면 거절한다.
+ *   이전 스냅샷의 direct buffer 는 조회 중인 스레드가 있을 수 있어서 직접 반환하지 않고 GC 에 맡긴다. 그래서 만드는 횟수를 제한한다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderSnapshot implements OutboxEventHandler {
+
+    private final OrderSnapshotRepository orderSnapshotRepository;
+    private final SalesRepository salesRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${jpashop.analytics.enabled:false}")
+    private boolean enabled;
+    @Value("${jpashop.analytics.parallelism:4}")
+    private int parallelism;
+    @Value("${jpashop.analytics.chunk-orders:10000}")
+    private int chunkOrders;
+    @Value("${jpashop.analytics.rebuild-interval-ms:0}")
+    private long rebuildIntervalMillis; // 0 이면 시작할 때 한 번만 만든다.
+    @Value("${jpashop.analytics.manual-rebuild-min-interval-ms:60000}")
+    private long manualRebuildMinIntervalMillis;
+
+    private ScheduledExecutorService executor;
+    private final ReentrantLock rebuildLock = new ReentrantLock(); // 만들기는 한 번에 하나 , 이벤트 처리(handle)는 this 로 막는다.
+
+    private volatile OrderColumns columns; // 아직 만들지 않았으면 null
+    private Set<Long> replay; // 만드는 중에 이벤트가 온 주문 , 만드는 중이 아니면 null
+    private final AtomicLong appliedEvents = new AtomicLong();
+    private volatile long lastRebuildMillis;
+    private volatile long lastRebuiltAtMillis; // 마지막으로 다 만든 시각 (System.currentTimeMillis)
+    private volatile LocalDateTime builtAt;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "order-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (rebuildIntervalMillis > 0) {
+            executor.scheduleWithFixedDelay(this::rebuildQuietly, 0, rebuildIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            executor.execute(this::rebuildQuietly);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("order snapshot rebuild failed", e); // 스케줄러가 멈추지 않도록 예외를 삼킨다.
+        }
+    }
+
+    /**
+     * 스냅샷을 새로 만들어서 바꾼다. 만드는 동안에도 이전 스냅샷으로 조회하고, 이벤트도 계속 반영한다.
+     */
+    public SnapshotStats rebuild() {
+        rebuildLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            synchronized (this) {
+                replay = new LinkedHashSet<>();
+            }
+            TransactionTemplate readTx = new TransactionTemplate(transactionManager);
+            readTx.setReadOnly(true);
+            OrderColumns built;
+            try {
+                built = build(readTx);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    replay = null;
+                }
+                throw e;
+            }
+            synchronized (this) { // 그 사이 이벤트 처리(handle)를 멈추고 바꾼다.
+                readTx.executeWithoutResult(status -> {
+                    replay.forEach(orderId -> refresh(built, orderId));
+                    nameItems(built);
+                });
+                replay = null;
+                columns = built;
+            }
+            lastRebuiltAtMillis = System.currentTimeMillis();
+            lastRebuildMillis = lastRebuiltAtMillis - start;
+            builtAt = LocalDateTime.now();
+            log.info("order snapshot - rows={}, orders={}, items={}, {} bytes off-heap, {}ms",
+                    built.rows(), built.orders(), built.items(), built.offHeapBytes(), lastRebuildMillis);
+            return stats();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * API 로 요청한 다시 만들기 , 만드는 중이거나 마지막으로 만든 지 manual-rebuild-min-interval-ms 가 지나지 않았으면 만들지 않고 null
+     */
+    public SnapshotStats requestRebuild() {
+        if (!rebuildLock.tryLock()) {
+            return null;
+        }
+        try {
+            if (lastRebuiltAtMillis > 0 && System.currentTimeMillis() - lastRebuiltAtMillis < manualRebuildMinIntervalMillis) {
+                return null;
+            }
+            return rebuild();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private OrderColumns build(TransactionTemplate readTx) {
+        Long[] range = readTx.execute(status -> salesRepository.findOrderIdRange());
+        List<long[]> chunks = range == null
+                ? Collections.emptyList()
+                : SalesService.split(range[0], range[1], (int) Math.max(1, (range[1] - range[0]) / Math.max(1, chunkOrders) + 1));
+
+        OrderColumns built = new OrderColumns(OrderColumns.BATCH);
+        ExecutorService readers = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        try {
+            Deque<Future<List<OrderRows>>> window = new ArrayDeque<>();
+            for (long[] chunk : chunks) {
+                if (window.size() >= Math.max(1, parallelism) * 2) {
+                    window.poll().get().forEach(built::append);
+                }
+                window.add(readers.submit(() -> toOrderRows(readTx.execute(status -> orderSnapshotRepository.findRows(chunk[0], chunk[1])))));
+            }
+            while (!window.isEmpty()) {
+                window.poll().get().forEach(built::append);
+            }
+            // 보관은 주문 범위에서 지우고 보관 테이블에 넣는다. 보관 테이블을 먼저 읽으면 그 사이 옮겨진 주문이 양쪽에서 모두 빠진다.
+            toOrderRows(readTx.execute(status -> orderSnapshotRepository.findArchivedRows())).forEach(built::append);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("주문 스냅샷 생성이 중단되었습니다.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("주문 스냅샷 생성에 실패했습니다.", e.getCause());
+        } finally {
+            readers.shutdown();
+        }
+        return built;
+    }
+
+    @Override
+    public boolean supports(OutboxEventType eventType) {
+        return eventType == OutboxEventType.ORDER_PLACED || eventType == OutboxEventType.ORDER_CANCELLED;
+    }
+
+    /**
+     * OutboxProjector 의 트랜잭션 안에서 호출된다.
+     */
+    @Override
+    public synchronized void handle(OutboxEvent event) {
+        if (replay != null) {
+            replay.add(event.getAggregateId());
+        }
+        OrderColumns current = columns;
+        if (current == null) {
+            return;
+        }
+        refresh(current, event.getAggregateId());
+        nameItems(current);
+        appliedEvents.incrementAndGet();
+    }
+
+    /**
+     * 주문을 DB 에서 다시 읽어서 없으면 붙이고, 있으면 상태를 맞춘다.
+     */
+    private void refresh(OrderColumns target, Long orderId) {
+        List<OrderRows> rows = toOrderRows(orderSnapshotRepository.findRows(orderId));
+        if (rows.isEmpty()) {
+            return; // 보관되었거나 없는 주문
+        }
+        OrderRows order = rows.get(0);
+        if (!target.append(order)) {
+            target.setStatus(order.orderId(), order.status());
+        }
+    }
+
+    private void nameItems(OrderColumns target) {
+        List<Long> unnamed = target.unnamedItems();
+        for (int from = 0; from < unnamed.size(); from += 1000) {
+            for (Object[] row : orderSnapshotRepository.findItemNames(unnamed.subList(from, Math.min(unnamed.size(), from + 1000)))) {
+                target.nameItem((Long) row[0], (String) row[1]);
+            }
+        }
+    }
+
+    /**
+     * [orderId, memberId, orderDate, status, itemId, orderPrice, count] 줄들을 주문 단위로 묶는다. (주문 id 순서로 정렬되어 있다.)
+     */
+    private static List<OrderRows> toOrderRows(List<Object[]> rows) {
+        List<OrderRows> orders = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i <= rows.size(); i++) {
+            if (i == rows.size() || !rows.get(i)[0].equals(rows.get(start)[0])) {
+                Object[] first = rows.get(start);
+                int size = i - start;
+                long[] itemIds = new long[size];
+                int[] prices = new int[size];
+                int[] counts = new int[size];
+                for (int j = 0; j < size; j++) {
+                    Object[] row = rows.get(start + j);
+                    itemIds[j] = (Long) row[4];
+                    prices[j] = (Integer) row[5];
+                    counts[j] = (Integer) row[6];
+                }
+                orders.add(new OrderRows((Long) first[0], (Long) first[1], (int) ((LocalDateTime) first[2]).toLocalDate().toEpochDay(),
+                        (OrderStatus) first[3], itemIds, prices, counts));
+                start = i;
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * 상태별 매출 , 주문일 [from, to] (null 이면 제한 없음) , 스냅샷이 없으면 빈 목록
+     */
+    public List<StatusTotal> revenueByStatus(LocalDate from, LocalDate to) {
+        OrderColumns current = columns;
+        if (current == null) {
+            return Collections.emptyList();
+        }
+        long[][] sums = current.sumByStatus(fromDay(from), toDay(to));
+        List<StatusTotal> result = new ArrayList<>();
+        for (OrderStatus status : OrderStatus.values()) {
+            long[] sum = sums[status.ordinal()];
+            result.add(new StatusTotal(status, sum[0], sum[1], sum[2]));
+        }
+        return result;
+    }
+
+    /**
+     * 매출 상위 상품 , status 가 null 이면 모든 상태 , 스냅샷이 없으면 빈 목록
+     */
+    public List<ItemTotal> topItems(OrderStatus status, LocalDate from, LocalDate to, int limit) {
+        OrderColumns current = columns;
+        if (current == null) {
+            return Collections.emptyList();
+        }
+        return current.topItems(status, fromDay(from), toDay(to), limit).stream()
+                .map(t -> new ItemTotal(t[0], current.itemName(t[0]), t[1], t[2]))
+                .collect(Collectors.toList());
+    }
+
+    public SnapshotStats stats() {
+        OrderColumns current = columns;
+        if (current == null) {
+            return new SnapshotStats(false, 0, 0, 0, 0, appliedEvents.get(), lastRebuildMillis, builtAt);
+        }
+        return new SnapshotStats(true, current.rows(), current.orders(), current.items(), current.offHeapBytes(),
+                appliedEvents.get(), lastRebuildMillis, builtAt);
+    }
+
+    private static int fromDay(LocalDate from) {
+        return from != null ? (int) from.toEpochDay() : Integer.MIN_VALUE;
+    }
+
+    private static int toDay(LocalDate to) {
+        return to != null ? (int) to.toEpochDay() : Integer.MAX_VALUE;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class StatusTotal {
+        private OrderStatus status;
+        private long revenue;
+        private long units;
+        private long orderCount;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class ItemTotal {
+        private long itemId;
+        private String name;
+        private long revenue;
+        private long units;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class SnapshotStats {
+        private boolean built;
+        private int rows; // 주문상품 줄 수
+        private int orders;
+        private int items; // dictionary 크기
+        private long offHeapBytes;
+        private long appliedEvents; // 반영한 아웃박스 이벤트 수
+        private long lastRebuildMillis;
+        private LocalDateTime builtAt;
+    }
+}
@@ -0,0 +1,18 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.outbox.OutboxEvent;
+import jpabook.jpashop.domain.outbox.OutboxEventType;
+
+/**
+ * 아웃박스 이벤트 후속 처리기
+ * - 스프링 빈으로 등록하면 OutboxProjector가 자동으로 찾아서 호출한다.
+ * - 처리기는 이벤트마다 새로 여는 projector의 트랜잭션 안에서 호출된다. DB 변경은 처리 완료 표시와 같이 커밋된다.
+ * - 예외가 발생하면 그 이벤트의 트랜잭션 전체가 롤백되고 이벤트는 다음에 다시 처리된다.
+ * - 트랜잭션 밖의 효과(메모리, 외부 호출)는 롤백되지 않고 다시 전달될 수 있기 때문에 멱등하게 만들어야 한다.
+ */
+public interface OutboxEventHandler {
+
+    boolean supports(OutboxEventType eventType);
+
+    void handle(OutboxEvent event);
+}
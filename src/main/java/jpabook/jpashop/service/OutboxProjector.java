@@ -0,0 +1,207 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.outbox.OutboxEvent;
+import jpabook.jpashop.domain.outbox.OutboxEventStatus;
+import jpabook.jpashop.repository.OutboxRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 아웃박스 이벤트를 꺼내서 OutboxEventHandler 들에게 전달한다.
+ * - 요청 스레드가 아닌 전용 스레드(outbox-projector) 하나에서 pollInterval 마다 batchSize 씩 꺼내서 처리한다.
+ * - 이벤트마다 새 트랜잭션(REQUIRES_NEW)에서 처리한다. 처리기의 변경과 처리 완료(PROCESSED)가 같이 커밋된다.
+ *   처리기가 트랜잭션을 rollback-only 로 만들어도 그 이벤트만 롤백된다.
+ * - 실패는 또 다른 새 트랜잭션에서 기록한다. (실패 횟수가 처리기의 롤백에 같이 롤백되지 않는다.)
+ *   maxAttempts 보다 적게 실패했으면 순서를 지키기 위해서 이후 이벤트는 다음 poll 로 미룬다.
+ *   maxAttempts 만큼 실패한 이벤트는 FAILED 로 남기고 건너뛴다. (처리된 이벤트와 구분된다.)
+ * - 이벤트가 저장된 시각부터 처리된 시각까지를 지연(lag)으로 기록하고, maxLag 를 넘으면 경고 로그를 남긴다.
+ * - 대기중인 이벤트 id 는 기본 DB 에서 읽는다. (읽기 전용 트랜잭션은 복제 DB 로 가므로 이미 처리된 이벤트가 대기중으로 보일 수 있다.)
+ * - 이벤트 row 에 락(select ... for update)을 걸고 아직 PENDING 인 경우에만 처리한다. drain 이 겹치거나 id 목록이 오래되어도 한 번만 처리된다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OutboxProjector {
+
+    private final OutboxRepository outboxRepository;
+    private final ObjectProvider<OutboxEventHandler> handlers; // 처리기가 하나도 없을 수 있다.
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${jpashop.outbox.enabled:true}")
+    private boolean enabled;
+    @Value("${jpashop.outbox.batch-size:100}")
+    private int batchSize;
+    @Value("${jpashop.outbox.poll-interval-ms:1000}")
+    private long pollIntervalMillis;
+    @Value("${jpashop.outbox.max-lag-ms:5000}")
+    private long maxLagMillis;
+    @Value("${jpashop.outbox.max-attempts:3}")
+    private int maxAttempts;
+
+    private ScheduledExecutorService executor;
+
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong lastLagMillis = new AtomicLong();
+    private final AtomicLong maxObservedLagMillis = new AtomicLong();
+
+    /**
+     * InitDb 등 초기화가 모두 끝난 뒤에 시작한다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "outbox-projector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::drainQuietly, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private void drainQuietly() {
+        try {
+            drain();
+        } catch (Exception e) {
+            log.error("outbox drain failed", e); // 스케줄러가 멈추지 않도록 예외를 삼킨다.
+        }
+    }
+
+    /**
+     * 쌓여있는 이벤트를 모두 처리한다. 처리한 이벤트 수를 반환한다.
+     * - 호출한 쪽의 트랜잭션에 참여하지 않는다. 커밋된 이벤트만 처리한다.
+     */
+    public synchronized int drain() {
+        TransactionTemplate readTx = new TransactionTemplate(transactionManager); // readOnly X , 기본 DB 에서 읽는다.
+        readTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        TransactionTemplate eventTx = new TransactionTemplate(transactionManager);
+        eventTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        List<OutboxEventHandler> handlerList = handlers.orderedStream().collect(Collectors.toList());
+        int total = 0;
+        while (true) {
+            List<Long> eventIds = readTx.execute(status -> outboxRepository.findPendingIds(batchSize));
+            for (Long eventId : eventIds) {
+                Outcome outcome = process(eventTx, eventId, handlerList);
+                if (outcome == Outcome.RETRY) {
+                    return total; // 다음 poll 에서 다시 시도한다.
+                }
+                if (outcome == Outcome.PROCESSED) {
+                    total++;
+                }
+            }
+            if (eventIds.size() < batchSize) {
+                return total;
+            }
+        }
+    }
+
+    /**
+     * 이벤트 하나를 처리한다. RETRY 가 아니면 다음 이벤트로 넘어간다.
+     */
+    Outcome process(TransactionTemplate eventTx, Long eventId, List<OutboxEventHandler> handlerList) {
+        try {
+            Long lag = eventTx.execute(status -> {
+                OutboxEvent event = outboxRepository.findOneForUpdate(eventId);
+                if (event.getStatus() != OutboxEventStatus.PENDING) {
+                    return null; // 다른 drain 이 이미 처리했거나 실패로 남겼다.
+                }
+                for (OutboxEventHandler handler : handlerList) {
+                    if (handler.supports(event.getEventType())) {
+                        handler.handle(event);
+                    }
+                }
+                LocalDateTime now = LocalDateTime.now();
+                event.markProcessed(now);
+                return Duration.between(event.getCreatedAt(), now).toMillis();
+            });
+            if (lag == null) {
+                return Outcome.SKIPPED;
+            }
+            processedCount.incrementAndGet();
+            recordLag(lag);
+            return Outcome.PROCESSED;
+        } catch (RuntimeException e) {
+            failedCount.incrementAndGet();
+            OutboxEvent event = eventTx.execute(status -> {
+                OutboxEvent failed = outboxRepository.findOneForUpdate(eventId);
+                if (failed.getStatus() == OutboxEventStatus.PENDING && failed.recordFailure() >= maxAttempts) {
+                    failed.markFailed(LocalDateTime.now());
+                }
+                return failed;
+            });
+            if (event.getStatus() == OutboxEventStatus.PENDING) {
+                log.warn("outbox event {} {} failed ({}/{})", eventId, event.getEventType(), event.getAttempts(), maxAttempts, e);
+                return Outcome.RETRY;
+            }
+            log.error("outbox event {} {} failed {} times, mark as FAILED and skip", eventId, event.getEventType(), event.getAttempts(), e);
+            return Outcome.SKIPPED;
+        }
+    }
+
+    enum Outcome {
+        PROCESSED,
+        SKIPPED, // 이미 처리되었거나 실패로 남긴 이벤트
+        RETRY // 실패 , 다음 poll 에서 다시 시도한다.
+    }
+
+    private void recordLag(long lag) {
+        lastLagMillis.set(lag);
+        maxObservedLagMillis.accumulateAndGet(lag, Math::max);
+        if (lag > maxLagMillis) {
+            log.warn("outbox lag {}ms exceeds {}ms", lag, maxLagMillis);
+        }
+    }
+
+    /**
+     * 처리 현황 , 대기중인 이벤트 수는 DB에서 센다.
+     */
+    public OutboxStats stats() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        long[] counts = tx.execute(status -> new long[]{outboxRepository.countPending(), outboxRepository.countFailed()});
+        return new OutboxStats(counts[0], counts[1], processedCount.get(), failedCount.get(),
+                lastLagMillis.get(), maxObservedLagMillis.get(), maxLagMillis);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class OutboxStats {
+        private long pending;
+        private long dead; // FAILED 로 남긴 이벤트 수 (DB)
+        private long processed;
+        private long failed; // 처리 실패 횟수 (다시 시도한 것 포함)
+        private long lastLagMillis;
+        private long maxLagMillis;
+        private long lagThresholdMillis;
+    }
+}
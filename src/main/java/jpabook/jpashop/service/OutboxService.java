@@ -0,0 +1,98 @@
+package jpabook.jpashop.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.outbox.OutboxEvent;
+import jpabook.jpashop.domain.outbox.OutboxEventType;
+import jpabook.jpashop.repository.OutboxRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 주문 이벤트를 아웃박스에 기록한다.
+ * - 반드시 주문/취소 트랜잭션 안에서 호출해야 한다. (MANDATORY) 트랜잭션 밖에서 호출하면 예외가 발생한다.
+ * - 여기서는 insert 한번만 하고 끝낸다. 후속 처리는 OutboxProjector가 비동기로 한다.
+ */
+@Service
+@Transactional(propagation = Propagation.MANDATORY)
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 주문 생성 이벤트 + 주문상품별 재고 감소 이벤트
+     */
+    public void orderPlaced(Order order) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("orderId", order.getId());
+        payload.put("memberId", order.getMember().getId());
+        payload.put("totalPrice", order.getTotalPrice());
+        payload.put("itemCount", order.getOrderItems().size());
+        save(OutboxEventType.ORDER_PLACED, order.getId(), payload);
+
+        for (OrderItem orderItem : order.getOrderItems()) {
+            stockChanged(orderItem, -orderItem.getCount());
+        }
+    }
+
+    /**
+     * 주문 취소 이벤트 + 주문상품별 재고 복구 이벤트
+     */
+    public void orderCancelled(Order order) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("orderId", order.getId());
+        payload.put("memberId", order.getMember().getId());
+        save(OutboxEventType.ORDER_CANCELLED, order.getId(), payload);
+
+        for (OrderItem orderItem : order.getOrderItems()) {
+            stockChanged(orderItem, orderItem.getCount());
+        }
+    }
+
+    /**
+     * 일괄 취소 , 주문마다 취소 이벤트 + 상품마다 재고 복구 이벤트 하나 (같은 상품의 주문상품은 합쳐서)
+     * @param memberIdByOrderId 취소한 주문 id -> 회원 id
+     * @param stockChanges [itemId, delta, 변경 이후 재고]
+     */
+    public void ordersCancelled(Map<Long, Long> memberIdByOrderId, List<long[]> stockChanges) {
+        memberIdByOrderId.forEach((orderId, memberId) -> {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("orderId", orderId);
+            payload.put("memberId", memberId);
+            save(OutboxEventType.ORDER_CANCELLED, orderId, payload);
+        });
+        for (long[] change : stockChanges) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("itemId", change[0]);
+            payload.put("delta", change[1]);
+            payload.put("stockQuantity", change[2]);
+            save(OutboxEventType.STOCK_CHANGED, change[0], payload);
+        }
+    }
+
+    private void stockChanged(OrderItem orderItem, int delta) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("itemId", orderItem.getItem().getId());
+        payload.put("delta", delta);
+        payload.put("stockQuantity", orderItem.getItem().getStockQuantity()); // 변경 이후 재고
+        save(OutboxEventType.STOCK_CHANGED, orderItem.getItem().getId(), payload);
+    }
+
+    private void save(OutboxEventType eventType, Long aggregateId, Map<String, Object> payload) {
+        try {
+            outboxRepository.save(OutboxEvent.createEvent(eventType, aggregateId, objectMapper.writeValueAsString(payload)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("아웃박스 이벤트를 만들 수 없습니다. " + eventType, e);
+        }
+    }
+}
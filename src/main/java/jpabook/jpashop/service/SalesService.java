@@ -0,0 +1,413 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.sales.DailySales;
+import jpabook.jpashop.domain.sales.ItemSales;
+import jpabook.jpashop.domain.sales.MemberSales;
+import jpabook.jpashop.domain.sales.SalesTotal;
+import jpabook.jpashop.repository.SalesRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * 매출 집계 (상품별, 회원별, 일자별)
+ * - OrderItem.orderPrice * count 를 매번 전체 스캔해서 계산하지 않고, 주문/취소 시점에 누적 합계를 증분으로 갱신한다.
+ * - 조회는 PK로 한 줄만 읽기 때문에 데이터가 아무리 많아도 상수 시간이다.
+ * - 증분은 주문 트랜잭션 동안 합계 row 별로 더해두었다가 커밋 직전에 update ... set revenue = revenue + ? 로 한 번씩 반영한다. (SalesRepository.addTo)
+ *   합계 row 의 락은 커밋 직전부터 커밋까지만 잡힌다. 같은 일자의 주문들이 트랜잭션 내내 한 row 에서 줄을 서지 않는다.
+ * - 같은 트랜잭션에서 합계를 조회하면 모아둔 증분을 먼저 반영한다.
+ * - 합계가 틀어졌을 때는 rebuild()로 주문 테이블에서 다시 계산한다.
+ */
+@Slf4j
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class SalesService {
+
+    private final SalesRepository salesRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    // 증분 반영(읽기 락)과 재집계(쓰기 락)를 막는다. 재집계 중에는 주문 커밋이 재집계가 끝날 때까지 기다린다.
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    @Value("${jpashop.sales.rebuild-parallelism:4}")
+    private int rebuildParallelism; // 재집계시 주문 id 범위를 몇개로 나눠서 동시에 스캔할지
+
+    /**
+     * 주문 반영 , OrderService.order 와 같은 트랜잭션에서 실행된다.
+     */
+    @Transactional
+    public void record(Order order) {
+        apply(order, false);
+    }
+
+    /**
+     * 주문 취소 반영 , OrderService.cancelOrder 와 같은 트랜잭션에서 실행된다.
+     */
+    @Transactional
+    public void revert(Order order) {
+        apply(order, true);
+    }
+
+    /**
+     * 일괄 취소 반영 , OrderService.cancelOrders 와 같은 트랜잭션에서 실행된다.
+     * - 주문을 엔티티로 읽지 않고 상품별, 주문별 합계를 쿼리 두 번으로 가져온다.
+     */
+    @Transactional
+    public void revertAll(List<Long> orderIds) {
+        PendingSales pending = pending();
+        for (Object[] row : salesRepository.sumByItemOf(orderIds)) {
+            pending.add(ItemSales.class, (Long) row[0], -toLong(row[1]), -toLong(row[2]), -toLong(row[3]));
+        }
+        for (Object[] row : salesRepository.sumByOrderOf(orderIds)) {
+            long revenue = toLong(row[2]);
+            long units = toLong(row[3]);
+            pending.add(MemberSales.class, (Long) row[0], -revenue, -units, -1);
+            pending.add(DailySales.class, ((LocalDateTime) row[1]).toLocalDate(), -revenue, -units, -1);
+        }
+    }
+
+    private void apply(Order order, boolean cancel) {
+        int sign = cancel ? -1 : 1;
+        PendingSales pending = pending();
+        for (OrderItem orderItem : order.getOrderItems()) { // 한 주문에 같은 상품이 여러줄 있어도 PendingSales 가 합친다.
+            pending.add(ItemSales.class, orderItem.getItem().getId(), sign * orderItem.getTotalPrice(), sign * orderItem.getCount(), 0);
+        }
+        order.getOrderItems().stream().map(orderItem -> orderItem.getItem().getId()).distinct()
+                .forEach(itemId -> pending.add(ItemSales.class, itemId, 0, 0, sign)); // 주문 건수는 상품마다 한 번
+        pending.add(MemberSales.class, order.getMember().getId(), sign * order.getTotalPrice(), sign * units(order), sign);
+        pending.add(DailySales.class, order.getOrderDate().toLocalDate(), sign * order.getTotalPrice(), sign * units(order), sign);
+    }
+
+    private static long units(Order order) {
+        return order.getOrderItems().stream().mapToLong(OrderItem::getCount).sum();
+    }
+
+    /**
+     * 현재 트랜잭션에 모아둔 증분 , 처음 부르면 커밋 직전에 반영하도록 등록한다.
+     */
+    private PendingSales pending() {
+        PendingSales pending = (PendingSales) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingSales();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new PendingSalesSynchronization(pending));
+        }
+        return pending;
+    }
+
+    /**
+     * 모아둔 증분을 반영한다. 반영을 시작하면 트랜잭션이 끝날 때까지 재집계를 막는다.
+     * - 커밋되기 전에 재집계가 주문 테이블을 스캔하면 이 주문은 스캔에도, 재집계 결과에도 빠진다.
+     * - 락 순서를 항상 같게 하기 위해서 (상품, 회원, 일자), 키 순으로 정렬해서 반영한다. (데드락 방지)
+     */
+    private void applyPending(PendingSales pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        if (!pending.locked) {
+            rebuildLock.readLock().lock();
+            pending.locked = true;
+        }
+        pending.deltas.forEach((type, byId) -> byId.forEach((id, sum) -> salesRepository.addTo(type, id, sum[0], sum[1], sum[2])));
+        pending.deltas.values().forEach(Map::clear);
+        pending.flushed = true;
+    }
+
+    //상품별 매출 조회
+    public ItemSales findItemSales(Long itemId) {
+        return read(() -> salesRepository.findItemSales(itemId));
+    }
+
+    //회원별 매출 조회
+    public MemberSales findMemberSales(Long memberId) {
+        return read(() -> salesRepository.findMemberSales(memberId));
+    }
+
+    //일자별 매출 조회
+    public DailySales findDailySales(LocalDate salesDate) {
+        return read(() -> salesRepository.findDailySales(salesDate));
+    }
+
+    /**
+     * 같은 트랜잭션에서 모아둔 증분이 있으면 먼저 반영하고 읽는다.
+     */
+    private <T extends SalesTotal> T read(Supplier<T> finder) {
+        PendingSales pending = (PendingSales) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            applyPending(pending);
+        }
+        T salesTotal = finder.get();
+        if (salesTotal != null && pending != null && pending.flushed) {
+            salesRepository.refresh(salesTotal); // 반영 전에 읽어둔 엔티티일 수 있다.
+        }
+        return salesTotal;
+    }
+
+    /**
+     * 재집계
+     * - 주문 id 전체 범위를 rebuildParallelism 개로 나누고, 범위마다 별도의 트랜잭션으로 동시에 group by 스캔한다.
+     * - 범위별 부분 합계를 합친 다음, 하나의 쓰기 트랜잭션에서 기존 합계를 지우고 다시 저장한다.
+     * - 보관된 주문(OrderArchiver)도 별도의 트랜잭션에서 한 번에 스캔해서 같이 합친다.
+     * - 스캔부터 저장의 커밋까지 증분 반영을 막는다. (rebuildLock) 그동안 주문은 커밋 직전에 기다렸다가 재집계 결과 위에 증분을 더한다.
+     *   스캔은 커밋된 주문만 보기 때문에 기다리는 주문이 두 번 더해지거나 빠지지 않는다.
+     * - 막기 전에 스캔, 저장에 쓸 커넥션을 모두 얻어둔다. 기다리는 주문이 커넥션을 잡고 있어서 풀이 모자라도 재집계가 멈추지 않는다.
+     * - 복제 DB 는 늦을 수 있기 때문에 스캔도 기본 DB 에서 한다. (readOnly 트랜잭션이 아니다.)
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // 범위마다 트랜잭션을 따로 연다.
+    public RebuildResult rebuild() {
+        long start = System.currentTimeMillis();
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long[] range = tx.execute(status -> salesRepository.findOrderIdRange());
+
+        List<long[]> chunks = range == null
+                ? new ArrayList<>(Collections.singletonList(new long[]{0, 0}))
+                : split(range[0], range[1], Math.max(1, rebuildParallelism));
+        chunks.get(0)[0] = Long.MIN_VALUE; // 범위를 읽은 뒤에 커밋된 주문도 포함한다.
+        chunks.get(chunks.size() - 1)[1] = Long.MAX_VALUE;
+
+        ExecutorService executor = Executors.newFixedThreadPool(chunks.size() + 1);
+        CountDownLatch connected = new CountDownLatch(chunks.size() + 1);
+        CountDownLatch locked = new CountDownLatch(1);
+        AtomicBoolean started = new AtomicBoolean();
+        try {
+            return tx.execute(status -> {
+                salesRepository.connect();
+                List<Future<PartialSales>> futures = new ArrayList<>();
+                for (long[] chunk : chunks) {
+                    futures.add(executor.submit(scanTask(tx, connected, locked, started, () -> scan(chunk[0], chunk[1]))));
+                }
+                futures.add(executor.submit(scanTask(tx, connected, locked, started, this::scanArchive)));
+                await(connected);
+
+                rebuildLock.writeLock().lock();
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        rebuildLock.writeLock().unlock(); // 저장이 커밋(혹은 롤백)된 뒤에 푼다.
+                    }
+                });
+                started.set(true);
+                locked.countDown();
+
+                PartialSales total = new PartialSales();
+                for (Future<PartialSales> future : futures) {
+                    total.merge(get(future));
+                }
+
+                salesRepository.deleteAll();
+                total.byItem.forEach((id, sum) -> save(new ItemSales(id), sum));
+                total.byMember.forEach((id, sum) -> save(new MemberSales(id), sum));
+                total.byDay.forEach((day, sum) -> save(new DailySales(day), sum));
+
+                RebuildResult result = new RebuildResult(chunks.size(), total.byItem.size(), total.byMember.size(),
+                        total.byDay.size(), System.currentTimeMillis() - start);
+                log.info("sales rebuild - ranges={}, items={}, members={}, days={}, {}ms", result.getRanges(),
+                        result.getItems(), result.getMembers(), result.getDays(), result.getElapsedMillis());
+                return result;
+            });
+        } finally {
+            locked.countDown(); // 실패했으면 기다리는 스캔 스레드를 풀어준다. (started 가 false 라서 스캔하지 않는다.)
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 커넥션을 얻고 나서 재집계가 증분 반영을 막을 때까지 기다렸다가 스캔한다.
+     */
+    private Callable<PartialSales> scanTask(TransactionTemplate tx, CountDownLatch connected, CountDownLatch locked,
+                                            AtomicBoolean started, Supplier<PartialSales> scan) {
+        return () -> {
+            AtomicBoolean counted = new AtomicBoolean();
+            try {
+                return tx.execute(status -> {
+                    salesRepository.connect();
+                    counted.set(true);
+                    connected.countDown();
+                    await(locked);
+                    if (!started.get()) {
+                        throw new IllegalStateException("매출 재집계가 중단되었습니다.");
+                    }
+                    return scan.get();
+                });
+            } finally {
+                if (!counted.get()) {
+                    connected.countDown(); // 커넥션을 얻지 못했어도 재집계를 붙잡지 않는다. (get 에서 실패한다.)
+                }
+            }
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("매출 재집계가 중단되었습니다.", e);
+        }
+    }
+
+    private static PartialSales get(Future<PartialSales> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("매출 재집계가 중단되었습니다.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("매출 재집계에 실패했습니다.", e.getCause());
+        }
+    }
+
+    private void save(SalesTotal salesTotal, long[] sum) {
+        salesTotal.add(sum[0], sum[1], sum[2]);
+        salesRepository.save(salesTotal);
+    }
+
+    private PartialSales scan(long fromOrderId, long toOrderId) {
+        return partial(salesRepository.sumByItem(fromOrderId, toOrderId), salesRepository.sumByOrder(fromOrderId, toOrderId));
+    }
+
+    private PartialSales scanArchive() {
+        return partial(salesRepository.sumArchivedByItem(), salesRepository.sumArchivedByOrder());
+    }
+
+    private PartialSales partial(List<Object[]> byItem, List<Object[]> byOrder) {
+        PartialSales partial = new PartialSales();
+        for (Object[] row : byItem) {
+            partial.add(partial.byItem, (Long) row[0], toLong(row[1]), toLong(row[2]), toLong(row[3]));
+        }
+        for (Object[] row : byOrder) {
+            long revenue = toLong(row[2]);
+            long units = toLong(row[3]);
+            partial.add(partial.byMember, (Long) row[0], revenue, units, 1);
+            partial.add(partial.byDay, ((LocalDateTime) row[1]).toLocalDate(), revenue, units, 1);
+        }
+        return partial;
+    }
+
+    /**
+     * [min, max] 범위를 최대 parts 개의 연속된 구간으로 나눈다.
+     */
+    static List<long[]> split(long min, long max, int parts) {
+        List<long[]> chunks = new ArrayList<>();
+        long size = Math.max(1, (max - min + parts) / parts); // 올림
+        for (long from = min; from <= max; from += size) {
+            chunks.add(new long[]{from, Math.min(max, from + size - 1)});
+        }
+        return chunks;
+    }
+
+    private static long toLong(Object value) {
+        return value == null ? 0 : ((Number) value).longValue();
+    }
+
+    /**
+     * 범위 하나를 스캔한 부분 합계 {revenue, units, orderCount}
+     */
+    private static class PartialSales {
+        private final Map<Long, long[]> byItem = new HashMap<>();
+        private final Map<Long, long[]> byMember = new HashMap<>();
+        private final Map<LocalDate, long[]> byDay = new HashMap<>();
+
+        private <K> void add(Map<K, long[]> map, K key, long revenue, long units, long orderCount) {
+            long[] sum = map.computeIfAbsent(key, k -> new long[3]);
+            sum[0] += revenue;
+            sum[1] += units;
+            sum[2] += orderCount;
+        }
+
+        private void merge(PartialSales other) {
+            other.byItem.forEach((k, v) -> add(byItem, k, v[0], v[1], v[2]));
+            other.byMember.forEach((k, v) -> add(byMember, k, v[0], v[1], v[2]));
+            other.byDay.forEach((k, v) -> add(byDay, k, v[0], v[1], v[2]));
+        }
+    }
+
+    /**
+     * 트랜잭션에 모아둔 증분 , 같은 합계 row 의 증분은 더해서 하나로 만든다.
+     * - 그룹 커밋(OrderService.orderAll)으로 주문 여러 건이 한 트랜잭션이면 합계 row 마다 update 한 번씩만 한다.
+     * - (상품, 회원, 일자) 순서, 키 순서로 반영한다. (TreeMap)
+     */
+    private static class PendingSales {
+        private final Map<Class<? extends SalesTotal>, Map<Object, long[]>> deltas = new LinkedHashMap<>();
+        private boolean locked; // rebuildLock 읽기 락을 잡았는지
+        private boolean flushed; // 한 번이라도 반영했는지
+
+        private PendingSales() {
+            deltas.put(ItemSales.class, new TreeMap<>());
+            deltas.put(MemberSales.class, new TreeMap<>());
+            deltas.put(DailySales.class, new TreeMap<>());
+        }
+
+        private void add(Class<? extends SalesTotal> type, Object id, long revenue, long units, long orderCount) {
+            long[] sum = deltas.get(type).computeIfAbsent(id, k -> new long[3]);
+            sum[0] += revenue;
+            sum[1] += units;
+            sum[2] += orderCount;
+        }
+
+        private boolean isEmpty() {
+            return deltas.values().stream().allMatch(Map::isEmpty);
+        }
+    }
+
+    /**
+     * 커밋 직전에 모아둔 증분을 반영하고, 트랜잭션이 끝나면 재집계를 풀어준다.
+     */
+    private class PendingSalesSynchronization implements TransactionSynchronization {
+        private final PendingSales pending;
+
+        private PendingSalesSynchronization(PendingSales pending) {
+            this.pending = pending;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            applyPending(pending);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(SalesService.this);
+            if (pending.locked) {
+                rebuildLock.readLock().unlock();
+            }
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class RebuildResult {
+        private int ranges; // 병렬로 스캔한 주문 id 구간 수
+        private int items;
+        private int members;
+        private int days;
+        private long elapsedMillis;
+    }
+}
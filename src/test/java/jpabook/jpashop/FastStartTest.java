@@ -0,0 +1,57 @@
+package jpabook.jpashop;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.index.CandidateComponentsIndex;
+import org.springframework.context.index.CandidateComponentsIndexLoader;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.Entity;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * fast-start 프로파일
+ * - 컴포넌트, 엔티티 후보는 컴파일 시점에 만든 인덱스(META-INF/spring.components)에서 읽는다.
+ * - 빈은 처음 사용할 때 만들어진다. (lazy-initialization) 인덱스의 컴포넌트가 모두 빈으로 만들어지는지 확인한다.
+ * - 다른 테스트가 쓰는 DB(jdbc:h2:mem:test)를 건드리지 않도록 다른 메모리 DB를 쓴다.
+ * - 시작 시간, 첫 요청 시간 비교는 load.StartupTimeLoadTest (./gradlew loadTest)
+ */
+public class FastStartTest {
+
+    @Test
+    public void 컴포넌트_인덱스() throws Exception {
+        //when
+        CandidateComponentsIndex index = CandidateComponentsIndexLoader.loadIndex(getClass().getClassLoader());
+
+        //then
+        assertNotNull("spring-context-indexer 가 인덱스를 만들어야 한다.", index);
+        assertTrue(index.getCandidateTypes("jpabook.jpashop", Component.class.getName()).contains(OrderService.class.getName()));
+        assertTrue(index.getCandidateTypes("jpabook.jpashop", Entity.class.getName()).contains(Order.class.getName()));
+     }
+
+    @Test
+    public void 인덱스의_컴포넌트가_모두_빈으로_만들어진다() throws Exception {
+        //given
+        Set<String> components = CandidateComponentsIndexLoader.loadIndex(getClass().getClassLoader())
+                .getCandidateTypes("jpabook.jpashop", Component.class.getName());
+
+        //when
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(JpashopApplication.class)
+                .profiles("fast-start")
+                .properties("server.port=0", "spring.datasource.url=jdbc:h2:mem:fast-start")
+                .run();
+        try {
+            //then
+            for (String component : components) {
+                assertNotNull(component, context.getBean(Class.forName(component))); // 지연 초기화된 빈은 여기서 만들어진다.
+            }
+        } finally {
+            context.close();
+        }
+     }
+}
@@ -0,0 +1,99 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.service.ChangeVersions;
+import jpabook.jpashop.service.ChangeVersions.Aggregate;
+import jpabook.jpashop.service.MemberService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 버전은 커밋 후에 올라가므로 테스트 트랜잭션(@Transactional)을 사용하지 않는다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ConditionalGetTest {
+
+    @Autowired WebApplicationContext context;
+    @Autowired MemberService memberService;
+    @Autowired ChangeVersions changeVersions;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    MockMvc mockMvc;
+
+    @Before
+    public void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @Test
+    public void 변경이_없으면_304() throws Exception {
+        //given
+        String etag = mockMvc.perform(get("/api/v2/members"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag);
+
+        //when , then
+        mockMvc.perform(get("/api/v2/members").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        //when - 회원 가입 후에는 새 목록을 내려준다.
+        Member member = new Member();
+        member.setName("조건부조회회원");
+        member.setAddress(new Address("서울", "경기", "123-123"));
+        memberService.join(member);
+
+        //then
+        String newEtag = mockMvc.perform(get("/api/v2/members").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(etag, newEtag);
+     }
+
+    @Test
+    public void 상품목록_페이지_304() throws Exception {
+        String etag = mockMvc.perform(get("/items"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/items").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+     }
+
+    @Test
+    public void 커밋된_변경만_버전을_올린다() throws Exception {
+        long before = changeVersions.version(Aggregate.ITEM);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        //when - 롤백
+        tx.executeWithoutResult(status -> {
+            changeVersions.bump(Aggregate.ITEM);
+            assertEquals("커밋 전에는 그대로다.", before, changeVersions.version(Aggregate.ITEM));
+            status.setRollbackOnly();
+        });
+        //then
+        assertEquals(before, changeVersions.version(Aggregate.ITEM));
+
+        //when - 커밋
+        tx.executeWithoutResult(status -> changeVersions.bump(Aggregate.ITEM));
+        //then
+        assertEquals(before + 1, changeVersions.version(Aggregate.ITEM));
+     }
+}
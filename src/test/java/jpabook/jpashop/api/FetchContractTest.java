@@ -0,0 +1,165 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.LazyLoadingGuard;
+import jpabook.jpashop.datasource.ConnectionHoldMonitor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ResolvableType;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewFilter;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import javax.persistence.EntityManagerFactory;
+import javax.servlet.Filter;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * open-in-view X , 트랜잭션이 끝난 뒤(컨트롤러, JSON 직렬화, 뷰 렌더링)에 지연 로딩하는 조회가 없어야 한다.
+ * 테스트 트랜잭션(@Transactional)이 있으면 지연 로딩이 되어버리므로 사용하지 않는다.
+ * - open-in-view 전후 커넥션 점유 시간 비교는 load.ConnectionHoldLoadTest (./gradlew loadTest)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class FetchContractTest {
+
+    @Autowired WebApplicationContext context;
+    @Autowired RequestMappingHandlerMapping handlerMapping;
+    @Autowired LazyLoadingGuard lazyLoadingGuard;
+    @Autowired ConnectionHoldMonitor connectionHoldMonitor;
+    @Autowired EntityManagerFactory emf;
+
+    MockMvc mockMvc;
+
+    @Before
+    public void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @Test
+    public void 모든_조회_API는_fetch_계약_안에서_끝난다() throws Exception {
+        //given
+        List<String> uris = new ArrayList<>();
+        for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : handlerMapping.getHandlerMethods().entrySet()) {
+            RequestMappingInfo info = entry.getKey();
+            if (!info.getMethodsCondition().getMethods().contains(RequestMethod.GET) || exposesEntity(entry.getValue())) {
+                continue;
+            }
+            for (String pattern : info.getPatternValues()) {
+                if (!pattern.contains("{") && !pattern.startsWith("/error")) {
+                    uris.add(pattern);
+                }
+            }
+        }
+        assertFalse(uris.isEmpty());
+
+        //when
+        lazyLoadingGuard.violations().clear();
+        for (String uri : uris) {
+            mockMvc.perform(get(uri)).andReturn();
+        }
+
+        //then
+        assertTrue("fetch 계약 밖 지연 로딩: " + lazyLoadingGuard.violations(), lazyLoadingGuard.violations().isEmpty());
+     }
+
+    @Test
+    public void 렌더링_전에_커넥션을_반납한다() throws Exception {
+        //given - 예전 설정(open-in-view O)을 필터로 다시 켠다. 응답을 쓰기 시작할 때 점유 중인 커넥션 수를 남긴다.
+        OpenEntityManagerInViewFilter openInView = new OpenEntityManagerInViewFilter() {
+            @Override
+            protected EntityManagerFactory lookupEntityManagerFactory() {
+                return emf;
+            }
+        };
+        List<Long> openInViewHeld = new ArrayList<>();
+        List<Long> held = new ArrayList<>();
+        MockMvc openInViewMvc = MockMvcBuilders.webAppContextSetup(context).addFilters(openInView, renderProbe(openInViewHeld)).build();
+        MockMvc mvc = MockMvcBuilders.webAppContextSetup(context).addFilters(renderProbe(held)).build();
+        Statistics statistics = emf.unwrap(SessionFactoryImplementor.class).getStatistics();
+
+        for (String uri : new String[]{"/api/v2/simple-orders", "/api/v3.1/orders", "/api/v2/members", "/orders"}) {
+            //when
+            statistics.clear();
+            statistics.setStatisticsEnabled(true);
+            long openInViewQueries;
+            long queries;
+            try {
+                openInViewMvc.perform(get(uri)).andReturn();
+                openInViewQueries = statistics.getPrepareStatementCount();
+                statistics.clear();
+                mvc.perform(get(uri)).andReturn();
+                queries = statistics.getPrepareStatementCount();
+            } finally {
+                statistics.setStatisticsEnabled(false);
+            }
+
+            //then
+            assertTrue(uri + " : open-in-view 는 렌더링까지 커넥션을 점유한다.", openInViewHeld.get(openInViewHeld.size() - 1) > 0);
+            assertEquals(uri + " : 렌더링 전에 커넥션을 반납한다.", Long.valueOf(0), held.get(held.size() - 1));
+            assertTrue(uri, queries > 0);
+            assertEquals(uri + " : 트랜잭션 밖에서 조회하지 않으므로 쿼리 수가 같다.", openInViewQueries, queries);
+        }
+        assertEquals("반납하지 않은 커넥션이 없어야 한다.", 0, connectionHoldMonitor.stats().getInUse());
+     }
+
+    /**
+     * 응답 본문을 처음 쓸 때(JSON 직렬화, 뷰 렌더링 시작) 점유 중인 커넥션 수를 남기는 필터
+     */
+    private Filter renderProbe(List<Long> held) {
+        return (request, response, chain) -> chain.doFilter(request, new HttpServletResponseWrapper((HttpServletResponse) response) {
+            private boolean recorded;
+
+            @Override
+            public ServletOutputStream getOutputStream() throws IOException {
+                record();
+                return super.getOutputStream();
+            }
+
+            @Override
+            public PrintWriter getWriter() throws IOException {
+                record();
+                return super.getWriter();
+            }
+
+            private void record() {
+                if (!recorded) {
+                    recorded = true;
+                    held.add(connectionHoldMonitor.stats().getInUse());
+                }
+            }
+        });
+    }
+
+    /**
+     * 엔티티를 그대로 반환하는 V1 API는 계약 대상이 아니다. (양방향 연관관계 직렬화 문제를 보여주기 위한 예제)
+     */
+    private boolean exposesEntity(HandlerMethod handlerMethod) {
+        ResolvableType type = ResolvableType.forMethodReturnType(handlerMethod.getMethod());
+        while (type.hasGenerics()) {
+            type = type.getGeneric(0);
+        }
+        Class<?> clazz = type.resolve();
+        return clazz != null && clazz.getPackage() != null && clazz.getPackage().getName().equals("jpabook.jpashop.domain");
+    }
+}
@@ -0,0 +1,46 @@
+package jpabook.jpashop.api;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class OrderCancelApiTest {
+
+    @Autowired WebApplicationContext context;
+
+    MockMvc mockMvc;
+
+    @Before
+    public void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @Test
+    public void 대상이_없는_일괄취소는_400() throws Exception {
+        //when, then - 대상을 정하지 않은 요청으로 아무 주문이나 취소하지 않는다.
+        for (String body : new String[]{"{}", "{\"orderIds\":[]}", "{\"memberName\":\" \"}"}) {
+            mockMvc.perform(post("/api/v2/orders/cancel").contentType(MediaType.APPLICATION_JSON).content(body))
+                    .andExpect(status().isBadRequest());
+        }
+
+        //when, then - 회원 이름은 정확히 같은 이름만 찾는다.
+        mockMvc.perform(post("/api/v2/orders/cancel").contentType(MediaType.APPLICATION_JSON).content("{\"memberName\":\"%\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.requested").value(0));
+     }
+}
@@ -0,0 +1,91 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * 주문 컬럼 인코딩/디코딩과 Accept 헤더 협상을 확인한다.
+ * - JSON 대비 응답 크기와 인코딩/디코딩 시간 비교는 load.OrderColumnarCodecLoadTest (./gradlew loadTest)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderColumnarCodecTest {
+
+    @Autowired ObjectMapper objectMapper;
+    @Autowired WebApplicationContext context;
+
+    @Test
+    public void 인코딩_디코딩() throws Exception {
+        //given - null 필드가 있는 주문 포함
+        List<OrderQueryDto> orders = createOrders(100);
+        orders.add(new OrderQueryDto(5L, null, null, null, null));
+        orders.add(new OrderQueryDto(3L, "회원", LocalDateTime.of(1999, 1, 1, 0, 0), OrderStatus.CANCEL,
+                new Address(null, "거리", null), new ArrayList<>()));
+
+        //when
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OrderColumnarCodec.encode(orders, out);
+        List<OrderQueryDto> decoded = OrderColumnarCodec.decode(new ByteArrayInputStream(out.toByteArray()));
+
+        //then - JSON으로 바꿨을 때 같아야 한다.
+        assertEquals(objectMapper.writeValueAsString(orders), objectMapper.writeValueAsString(decoded));
+        assertEquals("주문상품의 주문번호도 복원되어야 한다.",
+                orders.get(0).getOrderId(), decoded.get(0).getOrderItems().get(0).getOrderId());
+     }
+
+    @Test
+    public void Accept_헤더로_형식_선택() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+
+        //when
+        MockHttpServletResponse json = mockMvc.perform(get("/api/v5/orders")).andReturn().getResponse();
+        MockHttpServletResponse binary = mockMvc.perform(get("/api/v5/orders")
+                .accept(OrderColumnarCodec.MEDIA_TYPE)).andReturn().getResponse();
+        MockHttpServletResponse flat = mockMvc.perform(get("/api/v6/orders")
+                .accept(OrderColumnarCodec.MEDIA_TYPE)).andReturn().getResponse();
+
+        //then
+        assertTrue("Accept 가 없으면 JSON 이다.", MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(json.getContentType())));
+        assertEquals(OrderColumnarCodec.MEDIA_TYPE.toString(), binary.getContentType());
+        List<OrderQueryDto> decoded = OrderColumnarCodec.decode(new ByteArrayInputStream(binary.getContentAsByteArray()));
+        assertEquals(objectMapper.readTree(json.getContentAsByteArray()), objectMapper.readTree(objectMapper.writeValueAsBytes(decoded)));
+        assertEquals(decoded.size(), OrderColumnarCodec.decode(new ByteArrayInputStream(flat.getContentAsByteArray())).size());
+     }
+
+    private List<OrderQueryDto> createOrders(int size) {
+        List<OrderQueryDto> orders = new ArrayList<>();
+        LocalDateTime orderDate = LocalDateTime.of(2022, 5, 1, 10, 0);
+        for (long i = 1; i <= size; i++) {
+            orderDate = orderDate.plusSeconds(37).plusNanos(123_456);
+            orders.add(new OrderQueryDto(i, "회원" + (i % 100), orderDate, i % 5 == 0 ? OrderStatus.CANCEL : OrderStatus.ORDER,
+                    new Address("서울", "거리" + (i % 50), "123-123"), Arrays.asList(
+                    new OrderItemQueryDto(i, "JPA1 BOOK", 10000, 1),
+                    new OrderItemQueryDto(i, "JPA2 BOOK", 20000, 2),
+                    new OrderItemQueryDto(i, "SPRING1 BOOK", 30000, 3))));
+        }
+        return orders;
+    }
+}
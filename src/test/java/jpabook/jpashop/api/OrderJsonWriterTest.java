@@ -0,0 +1,67 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.api.OrderApiController.OrderDto;
+import jpabook.jpashop.api.OrderSimpleApiController.SimpleOrderDto;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.*;
+
+/**
+ * OrderJsonWriter 가 databind 와 같은 JSON 을 쓰는지 확인한다.
+ * - databind 대비 직렬화 시간은 load.OrderJsonWriterLoadTest (./gradlew loadTest)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class OrderJsonWriterTest {
+
+    @Autowired ObjectMapper objectMapper;
+    @Autowired OrderJsonWriter orderJsonWriter;
+    @Autowired OrderRepository orderRepository;
+    @Autowired OrderQueryRepository orderQueryRepository;
+    @Autowired OrderSimpleQueryRepository orderSimpleQueryRepository;
+
+    @Test
+    public void databind와_같은_JSON() throws Exception {
+        //given - InitDb 주문 + null 필드가 있는 주문
+        List<OrderQueryDto> queryDtos = new ArrayList<>(orderQueryRepository.findAllByDto_optimization());
+        queryDtos.add(new OrderQueryDto(99L, null, LocalDateTime.of(2022, 5, 1, 10, 0), OrderStatus.CANCEL, null));
+        List<OrderDto> orderDtos = orderRepository.findAllWithItem().stream().map(o -> new OrderDto(o)).collect(toList());
+        List<SimpleOrderDto> simpleDtos = orderRepository.findAllWithMemberDelivery().stream().map(o -> new SimpleOrderDto(o)).collect(toList());
+        List<OrderSimpleQueryDto> simpleQueryDtos = orderSimpleQueryRepository.findOrderDtos();
+
+        //when
+        ByteArrayOutputStream queryJson = new ByteArrayOutputStream();
+        orderJsonWriter.writeOrderQueryDtos(queryDtos, queryJson);
+        ByteArrayOutputStream orderJson = new ByteArrayOutputStream();
+        orderJsonWriter.writeOrderDtos(orderDtos, orderJson);
+        ByteArrayOutputStream simpleJson = new ByteArrayOutputStream();
+        orderJsonWriter.writeSimpleOrderDtos(simpleDtos, simpleJson);
+        ByteArrayOutputStream simpleQueryJson = new ByteArrayOutputStream();
+        orderJsonWriter.writeSimpleQueryDtos(simpleQueryDtos, simpleQueryJson);
+
+        //then - 필드 순서와 상관없이 같은 JSON 이어야 한다.
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(queryDtos)), objectMapper.readTree(queryJson.toByteArray()));
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(orderDtos)), objectMapper.readTree(orderJson.toByteArray()));
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(simpleDtos)), objectMapper.readTree(simpleJson.toByteArray()));
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(simpleQueryDtos)), objectMapper.readTree(simpleQueryJson.toByteArray()));
+     }
+}
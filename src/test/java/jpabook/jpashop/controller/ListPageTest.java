@@ -0,0 +1,104 @@
+package jpabook.jpashop.controller;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class ListPageTest {
+
+    @Autowired WebApplicationContext context;
+    @Autowired RowRenderer rowRenderer;
+    @Autowired EntityManager em;
+
+    MockMvc mockMvc;
+
+    @Before
+    public void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @Test
+    public void 주문목록_대표상품() throws Exception {
+        //when
+        String html = mockMvc.perform(get("/orders"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        //then - InitDb 주문 , 회원 이름과 대표상품이 DTO로 채워져 있어야 한다.
+        assertTrue(html.contains("<td>userA</td>"));
+        assertTrue(html.contains("<td>JPA1 BOOK</td>"));
+        assertTrue(html.contains("<td>SPRING1 BOOK</td>"));
+     }
+
+    @Test
+    public void 회원목록_값은_escape() throws Exception {
+        //given
+        Member member = new Member();
+        member.setName("<b>회원</b>");
+        member.setAddress(new Address("서울", "경기", "123-123"));
+        em.persist(member);
+
+        //when
+        String html = mockMvc.perform(get("/members"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        //then
+        assertTrue("미리 렌더링한 줄을 이어붙여도 값은 escape 되어야 한다.", html.contains("&lt;b&gt;회원&lt;/b&gt;"));
+        assertFalse(html.contains("<b>회원</b>"));
+     }
+
+    @Test
+    public void 상품목록_수정링크에_컨텍스트경로() throws Exception {
+        //when
+        String html = mockMvc.perform(get("/shop/items").contextPath("/shop"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        //then - 미리 렌더링한 줄의 링크도 컨텍스트 경로를 따라야 한다.
+        assertTrue(html.contains("href=\"/shop/items/"));
+        assertFalse(html.contains("href=\"/items/"));
+     }
+
+    @Test
+    public void 같은_값의_줄은_다시_렌더링하지_않는다() throws Exception {
+        //given
+        Member member = new Member();
+        member.setName("줄캐시회원");
+        member.setAddress(new Address("서울", "경기", "123-123"));
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        //when
+        List<String> first = rowRenderer.render("members/memberRow", Arrays.asList(new MemberRow(member)), request, response);
+        List<String> second = rowRenderer.render("members/memberRow", Arrays.asList(new MemberRow(member)), request, response);
+        member.setName("줄캐시회원2");
+        List<String> changed = rowRenderer.render("members/memberRow", Arrays.asList(new MemberRow(member)), request, response);
+
+        //then
+        assertSame("캐시된 결과를 그대로 사용한다.", first.get(0), second.get(0));
+        assertTrue("값이 바뀌면 다시 렌더링한다.", changed.get(0).contains("줄캐시회원2"));
+     }
+}
@@ -0,0 +1,80 @@
+package jpabook.jpashop.datasource;
+
+import jpabook.jpashop.datasource.ConnectionPoolAdvisor.PoolReport;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 조회 API에 동시 요청을 보낸 뒤 풀 현황과 권장값을 확인한다. 요청마다 커넥션을 반납해야 하므로 테스트 트랜잭션을 사용하지 않는다.
+ * - 더 큰 부하(16 스레드 , 400 요청)에서의 풀 현황 출력은 load.ConnectionPoolLoadTest (./gradlew loadTest)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ConnectionPoolAdvisorTest {
+
+    @Autowired WebApplicationContext context;
+    @Autowired ConnectionHoldMonitor connectionHoldMonitor;
+    @Autowired ConnectionPoolAdvisor connectionPoolAdvisor;
+
+    MockMvc mockMvc;
+
+    @Before
+    public void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @Test
+    public void 동시_요청_후_풀_권장값() throws Exception {
+        //given
+        String[] uris = {"/api/v2/simple-orders", "/api/v3.1/orders", "/api/v4/simple-orders", "/api/v2/members"};
+        int threads = 4;
+        int requests = 40;
+        connectionHoldMonitor.reset();
+
+        //when
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            String uri = uris[i % uris.length];
+            futures.add(executor.submit(() -> {
+                mockMvc.perform(get(uri)).andExpect(status().isOk());
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        PoolReport report = connectionPoolAdvisor.report();
+
+        //then
+        assertTrue("HikariCP 를 찾아야 한다.", report.getMaximumPoolSize() > 0);
+        assertEquals("부하가 끝나면 기다리는 스레드가 없다.", 0, report.getPending());
+        assertEquals(0, report.getHold().getInUse());
+        // v4 simple-orders 는 동시에 들어온 같은 조회를 묶으므로(SingleFlight) 커넥션을 얻지 않는 요청이 있다.
+        assertTrue(report.getAcquire().getAcquired() >= requests - requests / uris.length);
+        assertTrue(report.getAcquire().getPeakInUse() >= 1);
+        assertTrue(report.getEndpoints().containsKey("GET /api/v3.1/orders"));
+        assertEquals(requests / uris.length, report.getEndpoints().get("GET /api/v2/members").getAcquired());
+        assertTrue(report.getRecommendedPoolSize() >= 2);
+        assertTrue(report.getRecommendedPoolSize() <= Runtime.getRuntime().availableProcessors() * 2 + 1);
+        assertTrue(report.getRecommendedConnectionTimeoutMs() >= 250);
+     }
+}
@@ -0,0 +1,167 @@
+package jpabook.jpashop.datasource;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.service.MemberService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * H2 메모리 DB 3개로 기본 DB 1개 + 복제 DB 2개를 흉내낸다.
+ * - 복제는 기본 DB 를 SCRIPT 로 떠서 복제 DB 에 다시 실행하는 것으로 대신한다. (replicate)
+ * - 다른 테스트와 DB 를 나누기 위해서 기본 DB url 도 바꾼다. (별도의 스프링 컨텍스트)
+ * - heartbeat 스케줄러는 끄고 ReplicaHeartbeat.refresh() 를 직접 호출한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "jpashop.datasource.replicas[0].url=jdbc:h2:mem:routing-replica-0;DB_CLOSE_DELAY=-1",
+        "jpashop.datasource.replicas[0].username=sa",
+        "jpashop.datasource.replicas[1].url=jdbc:h2:mem:routing-replica-1;DB_CLOSE_DELAY=-1",
+        "jpashop.datasource.replicas[1].username=sa",
+        "jpashop.datasource.max-lag-ms=1000",
+        "jpashop.datasource.heartbeat-ms=0"
+})
+public class ReplicaRoutingTest {
+
+    private static final String PRIMARY = "jdbc:h2:mem:routing-primary";
+    private static final String[] REPLICAS = {"jdbc:h2:mem:routing-replica-0", "jdbc:h2:mem:routing-replica-1"};
+
+    @Autowired MemberService memberService;
+    @Autowired ReplicaHeartbeat replicaHeartbeat;
+    @Autowired DataSource dataSource;
+
+    @Before
+    public void setUp() throws Exception {
+        replicaHeartbeat.refresh(); // 기본 DB 에 heartbeat 를 쓴다.
+        for (String replica : REPLICAS) {
+            replicate(replica);
+        }
+        replicaHeartbeat.refresh(); // 복제 DB 가 마지막 heartbeat 를 받았으므로 지연 0
+        ReadYourWrites.clear(); // InitDb 가 쓴 뒤라서 sticky 상태일 수 있다.
+    }
+
+    @Test
+    public void 읽기전용_트랜잭션은_복제DB를_읽는다() throws Exception {
+        //given - 기본 DB 에만 있는 회원 (아직 복제되지 않았다.)
+        insertIntoPrimary("기본DB회원");
+
+        //when
+        List<String> names = memberNames();
+
+        //then
+        assertFalse(names.contains("기본DB회원"));
+        assertTrue("복제된 회원(InitDb)은 보인다.", names.contains("userA"));
+        assertTrue(dataSource.isWrapperFor(com.zaxxer.hikari.HikariDataSource.class));
+     }
+
+    @Test
+    public void 쓰기_후에는_같은_세션에서_기본DB를_읽는다() throws Exception {
+        //when
+        Member member = new Member();
+        member.setName("방금가입한회원");
+        member.setAddress(new Address("서울", "1", "1111"));
+        memberService.join(member);
+
+        //then
+        assertTrue("쓰기 직후에는 기본 DB 를 읽는다.", memberNames().contains("방금가입한회원"));
+        assertTrue(replicaHeartbeat.stats().getStickyReads() > 0);
+
+        //when - 다른 세션
+        ReadYourWrites.clear();
+
+        //then - 아직 복제되지 않았다.
+        assertFalse(memberNames().contains("방금가입한회원"));
+     }
+
+    @Test
+    public void 복제_지연이_크면_기본DB를_읽는다() throws Exception {
+        //given
+        insertIntoPrimary("지연회원");
+        for (String replica : REPLICAS) {
+            execute(replica, "update replica_heartbeat set beat_at = dateadd('HOUR', -1, current_timestamp) where id = 1");
+        }
+        replicaHeartbeat.refresh();
+        long fallback = replicaHeartbeat.stats().getFallbackReads();
+
+        //when
+        List<String> names = memberNames();
+
+        //then
+        assertTrue(names.contains("지연회원"));
+        assertEquals(fallback + 1, replicaHeartbeat.stats().getFallbackReads());
+        assertTrue(replicaHeartbeat.stats().getReplicas().stream().noneMatch(ReplicaRoutingDataSource.ReplicaStats::isHealthy));
+     }
+
+    @Test
+    public void 복제DB는_차례대로_사용한다() throws Exception {
+        //given
+        long[] before = replicaReads();
+
+        //when
+        for (int i = 0; i < 10; i++) {
+            memberNames();
+        }
+
+        //then
+        long[] after = replicaReads();
+        assertEquals(5, after[0] - before[0]);
+        assertEquals(5, after[1] - before[1]);
+     }
+
+    private List<String> memberNames() {
+        List<String> names = new ArrayList<>();
+        for (Member member : memberService.findMembers()) { // @Transactional(readOnly = true)
+            names.add(member.getName());
+        }
+        return names;
+    }
+
+    private long[] replicaReads() {
+        return replicaHeartbeat.stats().getReplicas().stream().mapToLong(ReplicaRoutingDataSource.ReplicaStats::getReads).toArray();
+    }
+
+    private void insertIntoPrimary(String name) throws SQLException {
+        execute(PRIMARY, "insert into member (member_id, name) values (nextval('hibernate_sequence'), '" + name + "')");
+    }
+
+    /**
+     * 기본 DB 를 그대로 복제 DB 로 옮긴다.
+     */
+    private static void replicate(String replica) throws SQLException {
+        List<String> script = new ArrayList<>();
+        try (Connection connection = DriverManager.getConnection(PRIMARY, "sa", "");
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("script")) {
+            while (rs.next()) {
+                script.add(rs.getString(1));
+            }
+        }
+        execute(replica, "drop all objects");
+        for (String sql : script) {
+            execute(replica, sql);
+        }
+    }
+
+    private static void execute(String url, String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package jpabook.jpashop.load;
+
+import jpabook.jpashop.datasource.ConnectionHoldMonitor;
+import jpabook.jpashop.datasource.ConnectionHoldMonitor.HoldStats;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewFilter;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * 요청당 커넥션 점유 시간 , open-in-view O vs X , ./gradlew loadTest 로 실행한다.
+ * - 요청 수는 -Dconnection.hold.bench.requests 로 바꿀 수 있다. (기본 200)
+ */
+@Category(LoadTests.class)
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ConnectionHoldLoadTest {
+
+    private static final int REQUESTS = Integer.getInteger("connection.hold.bench.requests", 200);
+    private static final String[] URIS = {"/api/v2/simple-orders", "/api/v3.1/orders", "/api/v2/members", "/orders"};
+
+    @Autowired WebApplicationContext context;
+    @Autowired ConnectionHoldMonitor connectionHoldMonitor;
+    @Autowired EntityManagerFactory emf;
+
+    @Test
+    public void 커넥션_점유시간_open_in_view_전후() throws Exception {
+        //given - 예전 설정(open-in-view O)을 필터로 다시 켠다.
+        OpenEntityManagerInViewFilter openInView = new OpenEntityManagerInViewFilter() {
+            @Override
+            protected EntityManagerFactory lookupEntityManagerFactory() {
+                return emf;
+            }
+        };
+        MockMvc openInViewMvc = MockMvcBuilders.webAppContextSetup(context).addFilters(openInView).build();
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+
+        //when
+        HoldStats before = measure(openInViewMvc);
+        HoldStats after = measure(mockMvc);
+
+        //then
+        System.out.println("open-in-view O : 요청당 점유 " + before.getTotalHoldMicros() / REQUESTS + "us , 최대 " + before.getMaxHoldMicros() + "us , 획득 " + before.getAcquired());
+        System.out.println("open-in-view X : 요청당 점유 " + after.getTotalHoldMicros() / REQUESTS + "us , 최대 " + after.getMaxHoldMicros() + "us , 획득 " + after.getAcquired());
+        assertEquals("반납하지 않은 커넥션이 없어야 한다.", 0, after.getInUse());
+     }
+
+    private HoldStats measure(MockMvc mvc) throws Exception {
+        for (String uri : URIS) {
+            mvc.perform(get(uri)).andReturn(); // 워밍업
+        }
+        connectionHoldMonitor.reset();
+        for (int i = 0; i < REQUESTS; i++) {
+            mvc.perform(get(URIS[i % URIS.length])).andReturn();
+        }
+        return connectionHoldMonitor.stats();
+    }
+}
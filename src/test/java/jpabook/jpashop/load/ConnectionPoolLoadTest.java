@@ -0,0 +1,70 @@
+package jpabook.jpashop.load;
+
+import jpabook.jpashop.datasource.ConnectionHoldMonitor;
+import jpabook.jpashop.datasource.ConnectionPoolAdvisor;
+import jpabook.jpashop.datasource.ConnectionPoolAdvisor.PoolReport;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 조회 API 동시 요청 후 풀 현황과 권장값 , ./gradlew loadTest 로 실행한다.
+ * - 스레드 수와 요청 수는 -Dconnection.pool.bench.threads , -Dconnection.pool.bench.requests 로 바꿀 수 있다. (기본 16 , 400)
+ */
+@Category(LoadTests.class)
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ConnectionPoolLoadTest {
+
+    private static final int THREADS = Integer.getInteger("connection.pool.bench.threads", 16);
+    private static final int REQUESTS = Integer.getInteger("connection.pool.bench.requests", 400);
+
+    @Autowired WebApplicationContext context;
+    @Autowired ConnectionHoldMonitor connectionHoldMonitor;
+    @Autowired ConnectionPoolAdvisor connectionPoolAdvisor;
+
+    @Test
+    public void 동시_요청_후_풀_권장값() throws Exception {
+        //given
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+        String[] uris = {"/api/v2/simple-orders", "/api/v3.1/orders", "/api/v4/simple-orders", "/api/v2/members"};
+        connectionHoldMonitor.reset();
+
+        //when
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            String uri = uris[i % uris.length];
+            futures.add(executor.submit(() -> {
+                mockMvc.perform(get(uri)).andExpect(status().isOk());
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        PoolReport report = connectionPoolAdvisor.report();
+
+        //then
+        System.out.println("pool " + report.getActive() + " active / " + report.getIdle() + " idle / max " + report.getMaximumPoolSize()
+                + " -> 권장 " + report.getRecommendedPoolSize() + " , timeout " + report.getRecommendedConnectionTimeoutMs() + "ms " + report.getReasons());
+        assertEquals("부하가 끝나면 기다리는 스레드가 없다.", 0, report.getPending());
+     }
+}
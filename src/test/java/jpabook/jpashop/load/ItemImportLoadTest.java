@@ -0,0 +1,109 @@
+package jpabook.jpashop.load;
+
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.ItemImportProgress;
+import jpabook.jpashop.service.ItemImportReader;
+import jpabook.jpashop.service.ItemImporter;
+import jpabook.jpashop.service.ItemService;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 상품 등록 처리량 , 한 건씩 saveItem vs 일괄 등록(ItemImporter) , ./gradlew loadTest 로 실행한다.
+ * - 줄 수는 -Ditem.import.bench.size 로 바꿀 수 있다. (기본 20000) 파일은 한 줄씩 만들어서 흘려보낸다.
+ * - 등록한 상품은 이름(import-)으로 지운다.
+ */
+@Category(LoadTests.class)
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ItemImportLoadTest {
+
+    @Autowired ItemImporter itemImporter;
+    @Autowired ItemService itemService;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @After
+    public void tearDown() {
+        jdbcTemplate.update("delete from item where name like 'import-%'");
+    }
+
+    @Test
+    public void 한건씩_등록과_일괄등록_비교() throws Exception {
+        int size = Integer.getInteger("item.import.bench.size", 20_000);
+        int single = Math.min(size, 2000);
+        LoggingSystem loggingSystem = LoggingSystem.get(getClass().getClassLoader());
+        loggingSystem.setLogLevel("org.hibernate.SQL", LogLevel.INFO);
+        loggingSystem.setLogLevel("org.hibernate.type", LogLevel.INFO);
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < single; i++) {
+                Book book = new Book();
+                book.setName("import-single-" + i);
+                book.setPrice(1000 + i);
+                book.setStockQuantity(10);
+                itemService.saveItem(book);
+            }
+            long singleMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            System.out.printf("saveItem  %d rows %dms (%d rows/s)%n", single, singleMillis, single * 1000L / singleMillis);
+
+            //신규 등록
+            ItemImportProgress inserted = itemImporter.importItems(ItemImportReader.csv(lines("type,name,price,stockQuantity,author", size,
+                    i -> "B,import-bulk-" + i + "," + (1000 + i) + ",10,author" + i)));
+            print("import(insert)", inserted);
+            assertEquals(size, inserted.getInserted());
+
+            //가격 파일 , 방금 등록한 상품의 가격만 바꾼다.
+            long firstId = jdbcTemplate.queryForObject("select min(item_id) from item where name like 'import-bulk-%'", Long.class);
+            ItemImportProgress updated = itemImporter.importItems(ItemImportReader.csv(lines("id,price", size,
+                    i -> (firstId + i) + "," + (2000 + i))));
+            print("import(price)", updated);
+            assertEquals(0, updated.getFailed());
+        } finally {
+            loggingSystem.setLogLevel("org.hibernate.SQL", LogLevel.DEBUG);
+            loggingSystem.setLogLevel("org.hibernate.type", LogLevel.TRACE);
+        }
+     }
+
+    private static void print(String name, ItemImportProgress progress) {
+        System.out.printf("%-14s %d rows %dms (%d rows/s) inserted=%d updated=%d failed=%d%n", name, progress.getRead(),
+                progress.getElapsedMillis(), progress.getRowsPerSecond(), progress.getInserted(), progress.getUpdated(), progress.getFailed());
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static InputStream lines(String header, int size, java.util.function.IntFunction<String> line) {
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+            int next = -1;
+
+            @Override
+            public boolean hasMoreElements() {
+                return next < size;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                String text = next < 0 ? header : line.apply(next);
+                next++;
+                return stream(text + "\n");
+            }
+        });
+    }
+}
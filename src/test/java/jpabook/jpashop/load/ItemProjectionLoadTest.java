@@ -0,0 +1,96 @@
+package jpabook.jpashop.load;
+
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.ItemRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 단일 테이블 상품 , 엔티티 vs 종류별 조회 vs 목록용 프로젝션 시간과 할당량 , ./gradlew loadTest 로 실행한다.
+ * - Book/Album/Movie 전용 컬럼을 꽉 채운 넓은 카탈로그를 JDBC 로 넣는다. 상품 수는 -Ditem.catalog.size 로 바꿀 수 있다. (기본 30000)
+ */
+@Category(LoadTests.class)
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ItemProjectionLoadTest {
+
+    private static final long FIRST_ID = 1_000_000_000L;
+    private static final int SIZE = Integer.getInteger("item.catalog.size", 30_000);
+    private static final String[] TYPES = {"B", "A", "M"};
+
+    @Autowired ItemRepository itemRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+
+    @Before
+    public void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        String wide = "x".repeat(200);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            rows.add(new Object[]{FIRST_ID + i, TYPES[i % 3], "catalog-" + i, 1000 + i, 10,
+                    wide, wide, wide, wide, wide, wide});
+            if (rows.size() == 5000 || i == SIZE - 1) {
+                jdbcTemplate.batchUpdate("insert into item (item_id, dtype, name, price, stock_quantity, author, isbn, artist, etc, director, actor)" +
+                        " values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        jdbcTemplate.update("delete from item where item_id >= ?", FIRST_ID);
+    }
+
+    @Test
+    public void 엔티티와_프로젝션_비교() throws Exception {
+        LoggingSystem loggingSystem = LoggingSystem.get(getClass().getClassLoader());
+        loggingSystem.setLogLevel("org.hibernate.SQL", LogLevel.INFO);
+        loggingSystem.setLogLevel("org.hibernate.type", LogLevel.INFO);
+        try {
+            measure("엔티티 전체", () -> itemRepository.findAll().size());
+            measure("프로젝션 전체", () -> itemRepository.findSummaries(Item.class).size());
+            measure("엔티티 Book", () -> itemRepository.findAllByType(Book.class).size());
+            measure("프로젝션 Book", () -> itemRepository.findSummaries(Book.class).size());
+        } finally {
+            loggingSystem.setLogLevel("org.hibernate.SQL", LogLevel.DEBUG);
+            loggingSystem.setLogLevel("org.hibernate.type", LogLevel.TRACE);
+        }
+     }
+
+    private void measure(String name, Supplier<Integer> query) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        tx.execute(status -> query.get()); // 워밍업
+        long bytes = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        int count = tx.execute(status -> query.get());
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        long allocated = threads.getThreadAllocatedBytes(thread) - bytes;
+        assertTrue(count >= SIZE / 3);
+        System.out.printf("%-10s rows=%d %5dms 할당 %5dMB (%d bytes/row)%n", name, count, millis, allocated >> 20, allocated / count);
+    }
+}
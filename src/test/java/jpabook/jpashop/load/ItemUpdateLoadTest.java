@@ -0,0 +1,113 @@
+package jpabook.jpashop.load;
+
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.ItemPatch;
+import jpabook.jpashop.service.ItemService;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.function.IntConsumer;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 같은 상품의 가격만 바꾸는 수정 , merge vs 변경 감지 vs patch , ./gradlew loadTest 로 실행한다.
+ * - 반복 횟수는 -Ditem.bench.size 로 바꿀 수 있다. (기본 2000)
+ */
+@Category(LoadTests.class)
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class ItemUpdateLoadTest {
+
+    @Autowired ItemService itemService;
+    @Autowired EntityManager em;
+    @Autowired EntityManagerFactory emf;
+
+    @Test
+    public void 수정_방법_비교() throws Exception {
+        Book book = createBook("수정비교 JPA", 10000, 10);
+        Long id = book.getId();
+        int size = Integer.getInteger("item.bench.size", 2000);
+
+        LoggingSystem loggingSystem = LoggingSystem.get(getClass().getClassLoader());
+        loggingSystem.setLogLevel("org.hibernate.SQL", LogLevel.INFO);
+        loggingSystem.setLogLevel("org.hibernate.type", LogLevel.INFO);
+        try {
+            measure("merge", size, i -> {
+                Book detached = new Book();
+                detached.setId(id);
+                detached.setName("수정비교 JPA");
+                detached.setPrice(i);
+                detached.setStockQuantity(10);
+                itemService.update(detached);
+                em.flush();
+                em.clear();
+            });
+            measure("변경 감지", size, i -> {
+                itemService.updateItem(id, "수정비교 JPA", i, 10);
+                em.flush();
+                em.clear();
+            });
+            measure("patch", size, i -> {
+                ItemPatch patch = new ItemPatch();
+                patch.setPrice(i);
+                itemService.patch(id, patch);
+            });
+        } finally {
+            loggingSystem.setLogLevel("org.hibernate.SQL", LogLevel.DEBUG);
+            loggingSystem.setLogLevel("org.hibernate.type", LogLevel.TRACE);
+        }
+
+        assertEquals(size - 1, itemService.findOne(id).getPrice());
+     }
+
+    private void measure(String name, int size, IntConsumer update) {
+        for (int i = 0; i < size; i++) { // 워밍업
+            update.accept(i);
+        }
+        Statistics statistics = statistics();
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < size; i++) {
+                update.accept(i);
+            }
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+        long micros = (System.nanoTime() - start) / 1000;
+        System.out.printf("%-6s %d회 %6dms (%d us/회) , 쿼리 %d , 엔티티 조회 %d%n", name, size, micros / 1000, micros / size,
+                statistics.getPrepareStatementCount(), statistics.getEntityLoadCount());
+    }
+
+    private Statistics statistics() {
+        em.flush();
+        em.clear();
+        Statistics statistics = emf.unwrap(SessionFactoryImplementor.class).getStatistics();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+        return statistics;
+    }
+
+    private Book createBook(String name, int price, int stockQuantity) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(price);
+        book.setStockQuantity(stockQuantity);
+        em.persist(book);
+        em.flush();
+        em.clear();
+        return book;
+    }
+}
@@ -0,0 +1,146 @@
+package jpabook.jpashop.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 실행 중인 애플리케이션에 HTTP 로 부하를 준다. (java.net.http.HttpClient)
+ * - 요청 종류별로 지연시간을 HdrHistogram 에 마이크로초 단위로 기록한다.
+ * - 4xx, 5xx 와 예외는 오류로 센다. (리다이렉트는 따라가지 않고 성공으로 본다. 예: POST /order -> 302)
+ */
+public class LoadGenerator {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final URI baseUri;
+
+    public LoadGenerator(String baseUrl) {
+        this.baseUri = URI.create(baseUrl);
+    }
+
+    public LoadReport run(LoadScenario scenario) throws InterruptedException {
+        Map<String, Histogram> histograms = new LinkedHashMap<>();
+        Map<String, AtomicLong> errors = new LinkedHashMap<>();
+        for (LoadRequest request : scenario.getRequests()) {
+            histograms.put(request.getName(), new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3));
+            errors.put(request.getName(), new AtomicLong());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(scenario.getConcurrency());
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        long start = System.nanoTime();
+        long measureStart = start + scenario.getWarmup().toNanos();
+        long end = measureStart + scenario.getDuration().toNanos();
+        Run run = new Run(client, scenario.getRequests(), histograms, errors, measureStart);
+
+        try {
+            if (scenario.getMode() == LoadScenario.Mode.OPEN) {
+                runOpen(executor, run, scenario.getRatePerSecond(), start, end);
+            } else {
+                runClosed(executor, run, scenario.getConcurrency(), end);
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        return new LoadReport(scenario, histograms, errors, (System.nanoTime() - measureStart) / 1_000_000);
+    }
+
+    /**
+     * 정해진 간격으로 요청을 예약한다. 지연시간은 실제로 보낸 시각이 아니라 예약된 시각부터 잰다.
+     */
+    private void runOpen(ExecutorService executor, Run run, int ratePerSecond, long start, long end) {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        for (long seq = 0; ; seq++) {
+            long intended = start + seq * intervalNanos;
+            if (intended >= end) {
+                return;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            long s = seq;
+            executor.execute(() -> run.send(s, intended));
+        }
+    }
+
+    private void runClosed(ExecutorService executor, Run run, int concurrency, long end) {
+        AtomicLong seq = new AtomicLong();
+        for (int i = 0; i < concurrency; i++) {
+            executor.execute(() -> {
+                while (System.nanoTime() < end) {
+                    run.send(seq.getAndIncrement(), System.nanoTime());
+                }
+            });
+        }
+    }
+
+    private class Run {
+        private final HttpClient client;
+        private final List<LoadRequest> requests;
+        private final int[] cumulativeWeights;
+        private final Map<String, Histogram> histograms;
+        private final Map<String, AtomicLong> errors;
+        private final long measureStart;
+
+        Run(HttpClient client, List<LoadRequest> requests, Map<String, Histogram> histograms, Map<String, AtomicLong> errors, long measureStart) {
+            this.client = client;
+            this.requests = requests;
+            this.histograms = histograms;
+            this.errors = errors;
+            this.measureStart = measureStart;
+            this.cumulativeWeights = new int[requests.size()];
+            int sum = 0;
+            for (int i = 0; i < requests.size(); i++) {
+                sum += requests.get(i).getWeight();
+                cumulativeWeights[i] = sum;
+            }
+        }
+
+        void send(long seq, long intendedStartNanos) {
+            LoadRequest request = pick();
+            boolean failed;
+            try {
+                HttpResponse<Void> response = client.send(request.toHttpRequest(baseUri, seq), HttpResponse.BodyHandlers.discarding());
+                failed = response.statusCode() >= 400;
+            } catch (Exception e) {
+                failed = true;
+            }
+            if (intendedStartNanos < measureStart) {
+                return; // warmup
+            }
+            long micros = (System.nanoTime() - intendedStartNanos) / 1000;
+            histograms.get(request.getName()).recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+            if (failed) {
+                errors.get(request.getName()).incrementAndGet();
+            }
+        }
+
+        private LoadRequest pick() {
+            int r = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                if (r < cumulativeWeights[i]) {
+                    return requests.get(i);
+                }
+            }
+            return requests.get(requests.size() - 1);
+        }
+    }
+}
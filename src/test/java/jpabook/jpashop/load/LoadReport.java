@@ -0,0 +1,60 @@
+package jpabook.jpashop.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 요청 종류별 처리량, 오류 수, 지연시간 백분위(ms)
+ */
+public class LoadReport {
+
+    private final LoadScenario scenario;
+    private final Map<String, Histogram> histograms;
+    private final Map<String, AtomicLong> errors;
+    private final long elapsedMillis;
+
+    LoadReport(LoadScenario scenario, Map<String, Histogram> histograms, Map<String, AtomicLong> errors, long elapsedMillis) {
+        this.scenario = scenario;
+        this.histograms = histograms;
+        this.errors = errors;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long totalCount() {
+        return histograms.values().stream().mapToLong(Histogram::getTotalCount).sum();
+    }
+
+    public long count(String name) {
+        return histograms.get(name).getTotalCount();
+    }
+
+    public long errors(String name) {
+        return errors.get(name).get();
+    }
+
+    public Histogram histogram(String name) {
+        return histograms.get(name);
+    }
+
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("== %s (%s", scenario.getName(), scenario.getMode()));
+        if (scenario.getMode() == LoadScenario.Mode.OPEN) {
+            sb.append(String.format(", %d req/s", scenario.getRatePerSecond()));
+        }
+        sb.append(String.format(", concurrency %d, %.1fs) ==%n", scenario.getConcurrency(), elapsedMillis / 1000.0));
+        sb.append(String.format("%-28s %8s %7s %9s %9s %9s %9s %9s %9s%n",
+                "request", "count", "errors", "req/s", "p50", "p90", "p99", "p99.9", "max"));
+        histograms.forEach((name, h) -> sb.append(String.format("%-28s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, h.getTotalCount(), errors.get(name).get(), h.getTotalCount() * 1000.0 / Math.max(1, elapsedMillis),
+                millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(90)), millis(h.getValueAtPercentile(99)),
+                millis(h.getValueAtPercentile(99.9)), millis(h.getMaxValue()))));
+        return sb.toString();
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
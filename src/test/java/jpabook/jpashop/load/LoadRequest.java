@@ -0,0 +1,61 @@
+package jpabook.jpashop.load;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.function.LongFunction;
+
+/**
+ * 부하 시나리오에 들어가는 요청 한 종류 , weight 비율로 섞어서 보낸다.
+ * path, body 는 요청 순번(seq)을 받아서 만든다. (예: 회원 이름을 겹치지 않게)
+ */
+public class LoadRequest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final String name;
+    private final int weight;
+    private final String method;
+    private final LongFunction<String> path;
+    private final LongFunction<String> body;
+    private final String contentType;
+
+    private LoadRequest(String name, int weight, String method, LongFunction<String> path, LongFunction<String> body, String contentType) {
+        this.name = name;
+        this.weight = weight;
+        this.method = method;
+        this.path = path;
+        this.body = body;
+        this.contentType = contentType;
+    }
+
+    public static LoadRequest get(String name, int weight, String path) {
+        return new LoadRequest(name, weight, "GET", seq -> path, null, null);
+    }
+
+    public static LoadRequest postForm(String name, int weight, String path, LongFunction<String> form) {
+        return new LoadRequest(name, weight, "POST", seq -> path, form, "application/x-www-form-urlencoded");
+    }
+
+    public static LoadRequest postJson(String name, int weight, String path, LongFunction<String> json) {
+        return new LoadRequest(name, weight, "POST", seq -> path, json, "application/json");
+    }
+
+    HttpRequest toHttpRequest(URI baseUri, long seq) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(baseUri.resolve(path.apply(seq))).timeout(TIMEOUT);
+        if (body == null) {
+            return builder.method(method, HttpRequest.BodyPublishers.noBody()).build();
+        }
+        return builder.header("Content-Type", contentType)
+                .method(method, HttpRequest.BodyPublishers.ofString(body.apply(seq)))
+                .build();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+}
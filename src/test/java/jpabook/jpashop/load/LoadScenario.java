@@ -0,0 +1,85 @@
+package jpabook.jpashop.load;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 부하 시나리오
+ * - OPEN(열린 루프): 응답과 상관없이 초당 rate 개의 요청을 정해진 시각에 보낸다. 서버가 느려지면 요청이 쌓이고 대기 시간까지 지연시간에 포함된다.
+ *   (예정 시각부터 잰다. coordinated omission 보정) concurrency 는 동시에 보낼 수 있는 최대 요청 수다.
+ * - CLOSED(닫힌 루프): concurrency 명의 사용자가 응답을 받자마자 다음 요청을 보낸다. 서버가 느려지면 보내는 양도 줄어든다.
+ * - warmup 동안의 요청은 기록하지 않는다.
+ */
+public class LoadScenario {
+
+    public enum Mode {
+        OPEN, CLOSED
+    }
+
+    private final String name;
+    private final Mode mode;
+    private final int ratePerSecond;
+    private final int concurrency;
+    private final Duration warmup;
+    private final Duration duration;
+    private final List<LoadRequest> requests;
+
+    private LoadScenario(String name, Mode mode, int ratePerSecond, int concurrency, Duration warmup, Duration duration, List<LoadRequest> requests) {
+        this.name = name;
+        this.mode = mode;
+        this.ratePerSecond = ratePerSecond;
+        this.concurrency = concurrency;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.requests = Collections.unmodifiableList(requests);
+    }
+
+    public static LoadScenario open(String name, int ratePerSecond, int maxInFlight, Duration warmup, Duration duration, LoadRequest... requests) {
+        return new LoadScenario(name, Mode.OPEN, ratePerSecond, maxInFlight, warmup, duration, List.of(requests));
+    }
+
+    public static LoadScenario closed(String name, int concurrency, Duration warmup, Duration duration, LoadRequest... requests) {
+        return new LoadScenario(name, Mode.CLOSED, 0, concurrency, warmup, duration, List.of(requests));
+    }
+
+    /**
+     * 같은 요청 비율로 모드, 부하량만 바꾼 시나리오 , 시스템 프로퍼티(load.*)로 바꿀 때 사용한다.
+     */
+    public LoadScenario withMode(Mode mode, int ratePerSecond) {
+        return new LoadScenario(name, mode, ratePerSecond, concurrency, warmup, duration, new ArrayList<>(requests));
+    }
+
+    public LoadScenario withLoad(int concurrency, Duration warmup, Duration duration) {
+        return new LoadScenario(name, mode, ratePerSecond, concurrency, warmup, duration, new ArrayList<>(requests));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public List<LoadRequest> getRequests() {
+        return requests;
+    }
+}
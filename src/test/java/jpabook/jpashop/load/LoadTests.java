@@ -0,0 +1,7 @@
+package jpabook.jpashop.load;
+
+/**
+ * 부하 테스트 카테고리 , 일반 테스트(./gradlew test)에서는 제외하고 ./gradlew loadTest 로만 실행한다.
+ */
+public interface LoadTests {
+}
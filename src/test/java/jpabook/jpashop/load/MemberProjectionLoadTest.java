@@ -0,0 +1,137 @@
+package jpabook.jpashop.load;
+
+import jpabook.jpashop.repository.KeysetSlice;
+import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.member.MemberNameDto;
+import jpabook.jpashop.repository.member.MemberSummary;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.TupleElement;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 회원 목록 , 엔티티 vs 프로젝션(생성자, Tuple, 인터페이스) 시간과 할당량 , ./gradlew loadTest 로 실행한다.
+ * - 회원 수는 -Dmember.bench.size 로 바꿀 수 있다. (기본 20000)
+ * - 엔티티는 findAll 한 번, 프로젝션은 키셋 페이지로 전체를 읽는다.
+ * - 인터페이스(프록시)는 MemberSummary 를 Tuple 어댑터 대신 스프링 데이터 ProjectionFactory 프록시로 만든 경우다.
+ */
+@Category(LoadTests.class)
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class MemberProjectionLoadTest {
+
+    private static final long FIRST_ID = 1_000_000_000L;
+    private static final int SIZE = Integer.getInteger("member.bench.size", 20_000);
+    private static final int PAGE = 1000;
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+    ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+
+    @Before
+    public void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            rows.add(new Object[]{FIRST_ID + i, "bench-" + i, "서울", "거리" + i, String.valueOf(10000 + i % 90000)});
+            if (rows.size() == 5000 || i == SIZE - 1) {
+                jdbcTemplate.batchUpdate("insert into member (member_id, name, city, street, zipcode) values (?, ?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        jdbcTemplate.update("delete from member where member_id >= ?", FIRST_ID);
+    }
+
+    @Test
+    public void 엔티티와_프로젝션_비교() throws Exception {
+        // 컬럼 값마다 남기는 trace 로그가 할당량을 덮어버리므로 측정하는 동안만 끈다.
+        LoggingSystem loggingSystem = LoggingSystem.get(getClass().getClassLoader());
+        loggingSystem.setLogLevel("org.hibernate.SQL", LogLevel.INFO);
+        loggingSystem.setLogLevel("org.hibernate.type", LogLevel.INFO);
+        try {
+            measure("엔티티(findAll)", () -> tx.execute(status -> (long) memberRepository.findAll().size()));
+            measure("생성자 프로젝션", () -> scan(memberRepository::findNames, MemberNameDto::getName));
+            measure("Tuple 프로젝션", () -> scan(memberRepository::findTuples, t -> t.get("name", String.class)));
+            measure("인터페이스(어댑터)", () -> scan(memberRepository::findSummaries, MemberSummary::getName));
+            measure("인터페이스(프록시)", () -> scan(this::findProxySummaries, MemberSummary::getName));
+        } finally {
+            loggingSystem.setLogLevel("org.hibernate.SQL", LogLevel.DEBUG);
+            loggingSystem.setLogLevel("org.hibernate.type", LogLevel.TRACE);
+        }
+     }
+
+    // 같은 Tuple 을 읽고 줄마다 Map + ProjectionFactory 프록시를 만든다.
+    private KeysetSlice<MemberSummary> findProxySummaries(Long afterId, int size) {
+        return memberRepository.findTuples(afterId, size).map(tuple -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (TupleElement<?> element : tuple.getElements()) {
+                values.put(element.getAlias(), tuple.get(element));
+            }
+            return projectionFactory.createProjection(MemberSummary.class, values);
+        });
+    }
+
+    private <T> long scan(PageReader<T> reader, Function<T, String> name) {
+        return tx.execute(status -> {
+            long count = 0;
+            Long next = 0L;
+            while (next != null) {
+                KeysetSlice<T> slice = reader.read(next, PAGE);
+                for (T row : slice.getContent()) {
+                    if (name.apply(row) != null) {
+                        count++;
+                    }
+                }
+                next = slice.getNext();
+            }
+            return count;
+        });
+    }
+
+    private void measure(String name, LongSupplier scan) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        scan.getAsLong(); // 워밍업
+        long bytes = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        long count = scan.getAsLong();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        long allocated = threads.getThreadAllocatedBytes(thread) - bytes;
+        assertTrue(count >= SIZE);
+        System.out.printf("%-12s rows=%d %6dms 할당 %6dMB (%d bytes/row)%n", name, count, millis, allocated >> 20, allocated / count);
+    }
+
+    interface PageReader<T> {
+        KeysetSlice<T> read(Long afterId, int size);
+    }
+}
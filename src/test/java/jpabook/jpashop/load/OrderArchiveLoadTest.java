@@ -0,0 +1,116 @@
+package jpabook.jpashop.load;
+
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.service.OrderArchiver;
+import jpabook.jpashop.service.OrderHistoryService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 보관 전후 주문 조회 시간 , ./gradlew loadTest 로 실행한다.
+ * - 2년 전 주문을 JDBC 로 넣고, 끝나면 최근/보관 테이블 모두에서 지운다. 주문 수는 -Dorder.archive.bench.size 로 바꿀 수 있다. (기본 20000)
+ */
+@Category(LoadTests.class)
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderArchiveLoadTest {
+
+    private static final long FIRST_ID = 1_000_000_000L;
+    private static final int SIZE = Integer.getInteger("order.archive.bench.size", 20_000);
+    private static final LocalDateTime ORDER_DATE = LocalDateTime.now().minusYears(2);
+
+    @Autowired OrderArchiver orderArchiver;
+    @Autowired OrderHistoryService orderHistoryService;
+    @Autowired OrderQueryRepository orderQueryRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+
+    @Before
+    public void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        jdbcTemplate.update("insert into member (member_id, name, city, street, zipcode) values (?, ?, ?, ?, ?)",
+                FIRST_ID, "archive-member", "서울", "1", "1111");
+        jdbcTemplate.update("insert into item (item_id, dtype, name, price, stock_quantity) values (?, 'B', ?, ?, ?)",
+                FIRST_ID, "archive-book", 1000, 10);
+
+        List<Object[]> deliveries = new ArrayList<>();
+        List<Object[]> orders = new ArrayList<>();
+        List<Object[]> orderItems = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            long id = FIRST_ID + i;
+            deliveries.add(new Object[]{id, "서울", "1", "1111"});
+            orders.add(new Object[]{id, FIRST_ID, id, Timestamp.valueOf(ORDER_DATE.plusSeconds(i))});
+            orderItems.add(new Object[]{id, FIRST_ID, id});
+            if (orders.size() == 5000 || i == SIZE - 1) {
+                jdbcTemplate.batchUpdate("insert into delivery (delivery_id, city, street, zipcode, status) values (?, ?, ?, ?, 'COMP')", deliveries);
+                jdbcTemplate.batchUpdate("insert into orders (order_id, member_id, delivery_id, order_date, status) values (?, ?, ?, ?, 'ORDER')", orders);
+                jdbcTemplate.batchUpdate("insert into order_item (order_item_id, item_id, order_id, order_price, count) values (?, ?, ?, 1000, 2)", orderItems);
+                deliveries.clear();
+                orders.clear();
+                orderItems.clear();
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        jdbcTemplate.update("delete from order_item_archive where order_item_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from orders_archive where order_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from order_item where order_item_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from orders where order_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from delivery where delivery_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from item where item_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from member where member_id >= ?", FIRST_ID);
+    }
+
+    @Test
+    public void 보관_전후_전체_조회_비교() throws Exception {
+        LoggingSystem loggingSystem = LoggingSystem.get(getClass().getClassLoader());
+        loggingSystem.setLogLevel("org.hibernate.SQL", LogLevel.INFO);
+        loggingSystem.setLogLevel("org.hibernate.type", LogLevel.INFO);
+        try {
+            measure("보관 전", () -> orderQueryRepository.findAllByDto_optimization().size());
+
+            long start = System.nanoTime();
+            int archived = orderArchiver.archive(LocalDateTime.now().minusYears(1));
+            long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            System.out.printf("보관 %d건 %dms (%d건/s)%n", archived, millis, archived * 1000L / millis);
+            assertEquals(SIZE, archived);
+
+            measure("보관 후", () -> orderQueryRepository.findAllByDto_optimization().size());
+            measure("기간 조회(보관 포함)", () -> orderHistoryService.findOrders(ORDER_DATE.toLocalDate(), null).size());
+        } finally {
+            loggingSystem.setLogLevel("org.hibernate.SQL", LogLevel.DEBUG);
+            loggingSystem.setLogLevel("org.hibernate.type", LogLevel.TRACE);
+        }
+     }
+
+    private void measure(String name, Supplier<Integer> query) {
+        tx.execute(status -> query.get()); // 워밍업
+        long start = System.nanoTime();
+        int count = tx.execute(status -> query.get());
+        System.out.printf("%-14s rows=%d %5dms%n", name, count, (System.nanoTime() - start) / 1_000_000);
+    }
+}
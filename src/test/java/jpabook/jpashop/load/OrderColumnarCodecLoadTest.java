@@ -0,0 +1,84 @@
+package jpabook.jpashop.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.api.OrderColumnarCodec;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 주문 10,000건(주문상품 3개씩) 응답 크기와 인코딩/디코딩 시간 , JSON vs OrderColumnarCodec , ./gradlew loadTest 로 실행한다.
+ * - JIT 워밍업 후 10번 평균
+ */
+@Category(LoadTests.class)
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderColumnarCodecLoadTest {
+
+    @Autowired ObjectMapper objectMapper;
+
+    @Test
+    public void JSON_대비_크기와_시간() throws Exception {
+        //given
+        List<OrderQueryDto> orders = createOrders(10_000);
+
+        //when
+        long jsonEncode = 0, jsonDecode = 0, binaryEncode = 0, binaryDecode = 0;
+        byte[] json = null;
+        byte[] binary = null;
+        for (int round = 0; round < 20; round++) {
+            long t0 = System.nanoTime();
+            json = objectMapper.writeValueAsBytes(orders);
+            long t1 = System.nanoTime();
+            objectMapper.readTree(json); // OrderQueryDto는 기본 생성자가 없어서 트리로 읽는다.
+            long t2 = System.nanoTime();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            OrderColumnarCodec.encode(orders, out);
+            binary = out.toByteArray();
+            long t3 = System.nanoTime();
+            OrderColumnarCodec.decode(new ByteArrayInputStream(binary));
+            long t4 = System.nanoTime();
+            if (round >= 10) { // 앞의 10번은 워밍업
+                jsonEncode += t1 - t0;
+                jsonDecode += t2 - t1;
+                binaryEncode += t3 - t2;
+                binaryDecode += t4 - t3;
+            }
+        }
+
+        //then
+        System.out.printf("10,000 orders : json %,d bytes encode=%.1fms decode=%.1fms / binary %,d bytes encode=%.1fms decode=%.1fms%n",
+                json.length, jsonEncode / 1e7, jsonDecode / 1e7, binary.length, binaryEncode / 1e7, binaryDecode / 1e7);
+        assertTrue("바이너리가 JSON 보다 작아야 한다.", binary.length * 3 < json.length);
+     }
+
+    private List<OrderQueryDto> createOrders(int size) {
+        List<OrderQueryDto> orders = new ArrayList<>();
+        LocalDateTime orderDate = LocalDateTime.of(2022, 5, 1, 10, 0);
+        for (long i = 1; i <= size; i++) {
+            orderDate = orderDate.plusSeconds(37).plusNanos(123_456);
+            orders.add(new OrderQueryDto(i, "회원" + (i % 100), orderDate, i % 5 == 0 ? OrderStatus.CANCEL : OrderStatus.ORDER,
+                    new Address("서울", "거리" + (i % 50), "123-123"), Arrays.asList(
+                    new OrderItemQueryDto(i, "JPA1 BOOK", 10000, 1),
+                    new OrderItemQueryDto(i, "JPA2 BOOK", 20000, 2),
+                    new OrderItemQueryDto(i, "SPRING1 BOOK", 30000, 3))));
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,120 @@
+package jpabook.jpashop.load;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.OrderGroupCommitter;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.SalesService;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 동시 요청 수 1, 16, 128 에서 주문마다 커밋 vs 그룹 커밋 처리량/지연시간 비교 , ./gradlew loadTest 로 실행한다.
+ * - 메모리 DB(H2)는 fsync 가 없어서 커밋 비용이 작다. 실제 DB에서는 차이가 더 커진다.
+ * - 그룹 커밋은 별도 스레드에서 커밋하므로 주문 768건이 커밋된 채로 남는다. 회원 이름은 실행마다 다르게 만든다.
+ */
+@Category(LoadTests.class)
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderGroupCommitLoadTest {
+
+    @Autowired EntityManager em;
+    @Autowired OrderService orderService;
+    @Autowired OrderGroupCommitter orderGroupCommitter;
+    @Autowired SalesService salesService;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    public void 그룹커밋_처리량_비교() throws Exception {
+        //given
+        Long memberId = createMember("그룹커밋부하" + System.nanoTime());
+        Long itemId = createBook("그룹커밋 부하 JPA", 10000, 1_000_000);
+        int totalOrders = 128;
+
+        for (int clients : new int[]{1, 16, 128}) {
+            //when
+            long[] direct = run(clients, totalOrders / clients, () -> orderService.order(memberId, itemId, 1));
+            long[] group = run(clients, totalOrders / clients, () -> orderGroupCommitter.submit(memberId, itemId, 1).get());
+
+            //then
+            System.out.printf("clients=%d direct[%s] group-commit[%s]%n", clients, report(direct), report(group));
+        }
+        assertEquals("모든 주문이 반영되어야 한다.", totalOrders * 2 * 3, salesService.findItemSales(itemId).getOrderCount());
+     }
+
+    /**
+     * clients 개의 스레드가 각각 ordersPerClient 번 주문한다. 주문별 지연시간(ns)과 전체 시간(ns, 마지막 원소)을 반환한다.
+     */
+    private long[] run(int clients, int ordersPerClient, Callable<Long> order) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        long[] latencies = new long[clients * ordersPerClient + 1];
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            int offset = c * ordersPerClient;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ordersPerClient; i++) {
+                    long begin = System.nanoTime();
+                    order.call();
+                    latencies[offset + i] = System.nanoTime() - begin;
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        latencies[latencies.length - 1] = System.nanoTime() - begin;
+        executor.shutdown();
+        return latencies;
+    }
+
+    private String report(long[] result) {
+        long elapsed = result[result.length - 1];
+        long[] latencies = Arrays.copyOf(result, result.length - 1);
+        Arrays.sort(latencies);
+        return String.format("%.0f orders/s, p50=%.2fms, p99=%.2fms",
+                latencies.length / (elapsed / 1e9),
+                latencies[latencies.length / 2] / 1e6,
+                latencies[(int) (latencies.length * 0.99)] / 1e6);
+    }
+
+    private Long createBook(String name, int price, int stockQuantity) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Book book = new Book();
+            book.setName(name);
+            book.setPrice(price);
+            book.setStockQuantity(stockQuantity);
+            em.persist(book);
+            return book.getId();
+        });
+    }
+
+    private Long createMember(String name) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Member member = new Member();
+            member.setName(name);
+            member.setAddress(new Address("서울", "경기", "123-123"));
+            em.persist(member);
+            return member.getId();
+        });
+    }
+}
@@ -0,0 +1,71 @@
+package jpabook.jpashop.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.api.OrderJsonWriter;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 주문 10,000건(주문상품 3개씩) 직렬화 시간 , databind vs OrderJsonWriter , ./gradlew loadTest 로 실행한다.
+ * - JIT 워밍업 후 측정한다.
+ */
+@Category(LoadTests.class)
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderJsonWriterLoadTest {
+
+    @Autowired ObjectMapper objectMapper;
+    @Autowired OrderJsonWriter orderJsonWriter;
+
+    @Test
+    public void databind_대비_직렬화_시간() throws Exception {
+        //given
+        List<OrderQueryDto> orders = new ArrayList<>();
+        for (long i = 1; i <= 10_000; i++) {
+            OrderQueryDto order = new OrderQueryDto(i, "회원" + (i % 100), LocalDateTime.now(), OrderStatus.ORDER,
+                    new Address("서울", "거리" + i, "123-123"));
+            order.setOrderItems(Arrays.asList(
+                    new OrderItemQueryDto(i, "JPA1 BOOK", 10000, 1),
+                    new OrderItemQueryDto(i, "JPA2 BOOK", 20000, 2),
+                    new OrderItemQueryDto(i, "SPRING1 BOOK", 30000, 3)));
+            orders.add(order);
+        }
+
+        //when
+        long databind = 0;
+        long streaming = 0;
+        for (int round = 0; round < 20; round++) {
+            long begin = System.nanoTime();
+            objectMapper.writeValue(new ByteArrayOutputStream(), orders);
+            long middle = System.nanoTime();
+            orderJsonWriter.writeOrderQueryDtos(orders, new ByteArrayOutputStream());
+            long end = System.nanoTime();
+            if (round >= 10) { // 앞의 10번은 워밍업
+                databind += middle - begin;
+                streaming += end - middle;
+            }
+        }
+
+        //then
+        System.out.printf("10,000 orders x 10 : databind=%.1fms streaming=%.1fms%n", databind / 1e6 / 10, streaming / 1e6 / 10);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        orderJsonWriter.writeOrderQueryDtos(orders, out);
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(orders)), objectMapper.readTree(out.toByteArray()));
+     }
+}
@@ -0,0 +1,124 @@
+package jpabook.jpashop.load;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 로컬에서 띄운 애플리케이션(랜덤 포트)에 HTTP 부하를 준다. ./gradlew loadTest 로 실행한다.
+ * - load.mode=OPEN|CLOSED , load.rate(초당 요청 수, OPEN) , load.concurrency , load.warmup-seconds , load.duration-seconds
+ *   예) ./gradlew loadTest -Dload.mode=OPEN -Dload.rate=300 -Dload.duration-seconds=30
+ */
+@Category(LoadTests.class)
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = { // SQL 로그는 부하 중에 병목이 되므로 끈다.
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.hibernate.type=info",
+        "decorator.datasource.p6spy.enable-logging=false"})
+public class OrderLoadTest {
+
+    private static final String MEMBER_NAME = "loadUser";
+
+    @LocalServerPort int port;
+    @Autowired MemberService memberService;
+    @Autowired ItemService itemService;
+
+    LoadGenerator loadGenerator;
+    Long memberId;
+    Long itemId;
+
+    @Before
+    public void setUp() {
+        loadGenerator = new LoadGenerator("http://localhost:" + port);
+        Member member = memberService.findMembers().stream()
+                .filter(m -> m.getName().equals(MEMBER_NAME))
+                .findFirst()
+                .orElse(null);
+        if (member == null) {
+            member = new Member();
+            member.setName(MEMBER_NAME);
+            member.setAddress(new Address("서울", "강가", "1111"));
+            memberService.join(member);
+        }
+        memberId = member.getId();
+
+        Book book = new Book();
+        book.setName("LOAD BOOK");
+        book.setPrice(10000);
+        book.setStockQuantity(Integer.MAX_VALUE); // 재고 부족으로 실패하지 않도록
+        itemService.saveItem(book);
+        itemId = book.getId();
+    }
+
+    /**
+     * v1 ~ v6 주문 조회를 같은 부하 안에서 섞어서 보낸다. 주문 쓰기(POST /order)가 같이 들어오므로 조회할 주문도 계속 늘어난다.
+     * 따로 재면 비슷해 보이는 버전도 커넥션 풀, DB를 나눠 쓰면 차이가 커진다. (N + 1 은 커넥션을 오래 점유한다.)
+     * v1 은 엔티티를 그대로 반환하므로 오류로 집계된다. (양방향 연관관계 직렬화)
+     */
+    @Test
+    public void 주문조회_전략_비교() throws Exception {
+        LoadScenario scenario = configure(LoadScenario.closed("order strategies", 16, Duration.ofSeconds(3), Duration.ofSeconds(15),
+                LoadRequest.postForm("POST /order", 4, "/order", seq -> order()),
+                LoadRequest.get("GET /api/v1/orders", 1, "/api/v1/orders"),
+                LoadRequest.get("GET /api/v2/orders", 1, "/api/v2/orders"),
+                LoadRequest.get("GET /api/v3/orders", 1, "/api/v3/orders"),
+                LoadRequest.get("GET /api/v3.1/orders", 1, "/api/v3.1/orders"),
+                LoadRequest.get("GET /api/v4/orders", 1, "/api/v4/orders"),
+                LoadRequest.get("GET /api/v5/orders", 1, "/api/v5/orders"),
+                LoadRequest.get("GET /api/v6/orders", 1, "/api/v6/orders")));
+
+        LoadReport report = loadGenerator.run(scenario);
+
+        System.out.println(report.format());
+        assertTrue(report.count("GET /api/v6/orders") > 0);
+     }
+
+    /**
+     * 쇼핑몰 트래픽 비율 , 주문 / 회원 가입 / 주문 조회 API / 주문 검색 화면
+     */
+    @Test
+    public void 쇼핑몰_트래픽() throws Exception {
+        String nonce = Long.toString(System.nanoTime(), 36);
+        LoadScenario scenario = configure(LoadScenario.open("shop mix", 200, 64, Duration.ofSeconds(3), Duration.ofSeconds(15),
+                LoadRequest.postForm("POST /order", 3, "/order", seq -> order()),
+                LoadRequest.postJson("POST /api/v2/members", 1, "/api/v2/members", seq -> "{\"name\":\"load-" + nonce + "-" + seq + "\"}"),
+                LoadRequest.get("GET /api/v3.1/orders", 3, "/api/v3.1/orders?limit=20"),
+                LoadRequest.get("GET /api/v4/simple-orders", 2, "/api/v4/simple-orders"),
+                LoadRequest.get("GET /orders?memberName=", 3, "/orders?memberName=" + MEMBER_NAME)));
+
+        LoadReport report = loadGenerator.run(scenario);
+
+        System.out.println(report.format());
+        assertTrue(report.totalCount() > 0);
+        assertTrue(report.errors("POST /order") == 0);
+     }
+
+    private String order() {
+        return "memberId=" + memberId + "&itemId=" + itemId + "&count=1";
+    }
+
+    /**
+     * 시스템 프로퍼티로 모드, 부하량을 바꾼다.
+     */
+    private LoadScenario configure(LoadScenario scenario) {
+        LoadScenario.Mode mode = LoadScenario.Mode.valueOf(System.getProperty("load.mode", scenario.getMode().name()).toUpperCase());
+        int rate = Integer.getInteger("load.rate", scenario.getRatePerSecond() > 0 ? scenario.getRatePerSecond() : 200);
+        return scenario.withMode(mode, rate).withLoad(Integer.getInteger("load.concurrency", scenario.getConcurrency()),
+                Duration.ofSeconds(Long.getLong("load.warmup-seconds", scenario.getWarmup().getSeconds())),
+                Duration.ofSeconds(Long.getLong("load.duration-seconds", scenario.getDuration().getSeconds())));
+    }
+}
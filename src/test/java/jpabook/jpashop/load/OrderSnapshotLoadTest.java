@@ -0,0 +1,115 @@
+package jpabook.jpashop.load;
+
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.service.OrderSnapshot;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 주문 매출 , 엔티티 조회(findAllWithItem) vs 주문 컬럼 스냅샷 집계 , ./gradlew loadTest 로 실행한다.
+ * - 2001-01-01 주문을 JDBC 로 넣고 끝나면 지운다. 주문 수는 -Dorder.snapshot.bench.size 로 바꿀 수 있다. (기본 20000 , 주문마다 주문상품 2개)
+ */
+@Category(LoadTests.class)
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderSnapshotLoadTest {
+
+    private static final long FIRST_ID = 1_000_000_000L;
+    private static final int SIZE = Integer.getInteger("order.snapshot.bench.size", 20_000);
+    private static final LocalDate ORDER_DAY = LocalDate.of(2001, 1, 1);
+
+    @Autowired OrderSnapshot orderSnapshot;
+    @Autowired OrderRepository orderRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Before
+    public void setUp() {
+        jdbcTemplate.update("insert into member (member_id, name, city, street, zipcode) values (?, ?, ?, ?, ?)",
+                FIRST_ID, "snapshot-member", "서울", "1", "1111");
+        jdbcTemplate.update("insert into item (item_id, dtype, name, price, stock_quantity) values (?, 'B', ?, ?, ?)",
+                FIRST_ID, "snapshot-book-a", 1000, 10);
+        jdbcTemplate.update("insert into item (item_id, dtype, name, price, stock_quantity) values (?, 'B', ?, ?, ?)",
+                FIRST_ID + 1, "snapshot-book-b", 3000, 10);
+
+        List<Object[]> deliveries = new ArrayList<>();
+        List<Object[]> orders = new ArrayList<>();
+        List<Object[]> orderItems = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            long id = FIRST_ID + i;
+            deliveries.add(new Object[]{id});
+            orders.add(new Object[]{id, FIRST_ID, id, Timestamp.valueOf(ORDER_DAY.atTime(10, 0)), i % 4 == 0 ? "CANCEL" : "ORDER"});
+            orderItems.add(new Object[]{FIRST_ID + 2L * i, FIRST_ID, id, 1000, 2});
+            orderItems.add(new Object[]{FIRST_ID + 2L * i + 1, FIRST_ID + 1, id, 3000, 1});
+            if (orders.size() == 5000 || i == SIZE - 1) {
+                jdbcTemplate.batchUpdate("insert into delivery (delivery_id, city, street, zipcode, status) values (?, '서울', '1', '1111', 'COMP')", deliveries);
+                jdbcTemplate.batchUpdate("insert into orders (order_id, member_id, delivery_id, order_date, status) values (?, ?, ?, ?, ?)", orders);
+                jdbcTemplate.batchUpdate("insert into order_item (order_item_id, item_id, order_id, order_price, count) values (?, ?, ?, ?, ?)", orderItems);
+                deliveries.clear();
+                orders.clear();
+                orderItems.clear();
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        jdbcTemplate.update("delete from order_item where order_item_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from orders where order_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from delivery where delivery_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from item where item_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from member where member_id >= ?", FIRST_ID);
+    }
+
+    @Test
+    public void 엔티티_조회와_스냅샷_집계_비교() throws Exception {
+        LoggingSystem loggingSystem = LoggingSystem.get(getClass().getClassLoader());
+        loggingSystem.setLogLevel("org.hibernate.SQL", LogLevel.INFO);
+        loggingSystem.setLogLevel("org.hibernate.type", LogLevel.INFO);
+        try {
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            long start = System.nanoTime();
+            long entityRevenue = tx.execute(status -> orderRepository.findAllWithItem().stream()
+                    .filter(o -> o.getStatus() == OrderStatus.ORDER)
+                    .mapToLong(o -> o.getTotalPrice())
+                    .sum());
+            long entityMillis = (System.nanoTime() - start) / 1_000_000;
+
+            OrderSnapshot.SnapshotStats stats = orderSnapshot.rebuild();
+            orderSnapshot.revenueByStatus(null, null); // warm up
+            start = System.nanoTime();
+            long snapshotRevenue = orderSnapshot.revenueByStatus(null, null).stream()
+                    .filter(t -> t.getStatus() == OrderStatus.ORDER)
+                    .mapToLong(OrderSnapshot.StatusTotal::getRevenue)
+                    .sum();
+            long snapshotMicros = (System.nanoTime() - start) / 1_000;
+
+            System.out.printf("주문 매출 - findAllWithItem %dms , 스냅샷 생성 %dms (%d줄, %d bytes off-heap) , 스냅샷 집계 %dus%n",
+                    entityMillis, stats.getLastRebuildMillis(), stats.getRows(), stats.getOffHeapBytes(), snapshotMicros);
+            assertEquals(entityRevenue, snapshotRevenue);
+        } finally {
+            loggingSystem.setLogLevel("org.hibernate.SQL", LogLevel.DEBUG);
+            loggingSystem.setLogLevel("org.hibernate.type", LogLevel.TRACE);
+        }
+     }
+}
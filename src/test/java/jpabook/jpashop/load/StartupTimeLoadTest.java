@@ -0,0 +1,64 @@
+package jpabook.jpashop.load;
+
+import jpabook.jpashop.JpashopApplication;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 기본 설정과 fast-start 프로파일의 시작 시간, 첫 요청 시간 , ./gradlew loadTest 로 실행한다.
+ * - 같은 JVM 에서 애플리케이션을 다시 띄우므로 클래스 로딩, JIT 비용은 빠진 값이다. (차갑게 시작하는 시간은 ./gradlew cdsArchive 로 비교)
+ * - 다른 테스트가 쓰는 DB(jdbc:h2:mem:test)를 건드리지 않도록 각자 다른 메모리 DB를 쓴다.
+ */
+@Category(LoadTests.class)
+public class StartupTimeLoadTest {
+
+    @Test
+    public void 시작시간_첫요청시간() throws Exception {
+        Timing normal = start("default");
+        Timing fastStart = start("fast-start");
+
+        System.out.println("default    : 시작 " + normal.startMillis + "ms , 첫 요청 " + normal.firstRequestMillis + "ms");
+        System.out.println("fast-start : 시작 " + fastStart.startMillis + "ms , 첫 요청 " + fastStart.firstRequestMillis + "ms");
+     }
+
+    private Timing start(String profile) throws Exception {
+        long start = System.nanoTime();
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(JpashopApplication.class)
+                .profiles(profile)
+                .properties("server.port=0", "spring.datasource.url=jdbc:h2:mem:start-" + profile)
+                .run();
+        try {
+            long started = System.nanoTime();
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            HttpResponse<String> response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v4/orders")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            long answered = System.nanoTime();
+
+            assertEquals(200, response.statusCode());
+            return new Timing((started - start) / 1_000_000, (answered - started) / 1_000_000);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static class Timing {
+        final long startMillis;
+        final long firstRequestMillis;
+
+        Timing(long startMillis, long firstRequestMillis) {
+            this.startMillis = startMillis;
+            this.firstRequestMillis = firstRequestMillis;
+        }
+    }
+}
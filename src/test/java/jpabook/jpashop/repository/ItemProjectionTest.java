@@ -0,0 +1,66 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.item.Album;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.Movie;
+import jpabook.jpashop.repository.item.ItemSummaryDto;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 단일 테이블 상품 , 종류별 조회와 목록용 프로젝션
+ * - 엔티티와 프로젝션의 시간, 할당량 비교는 load.ItemProjectionLoadTest (./gradlew loadTest)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class ItemProjectionTest {
+
+    @Autowired ItemRepository itemRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired EntityManager em;
+
+    @Test
+    public void 종류별_조회() throws Exception {
+        //given
+        em.persist(item(new Book(), "catalog-book-b"));
+        em.persist(item(new Book(), "catalog-book-a"));
+        em.persist(item(new Album(), "catalog-album"));
+        em.persist(item(new Movie(), "catalog-movie"));
+        em.flush();
+        em.clear();
+
+        //when
+        List<ItemSummaryDto> movies = itemRepository.findSummaries(Movie.class);
+        List<Book> books = itemRepository.findAllByType(Book.class);
+
+        //then
+        assertTrue(movies.stream().anyMatch(m -> m.getName().equals("catalog-movie")));
+        assertFalse(movies.stream().anyMatch(m -> m.getName().startsWith("catalog-book")));
+        assertTrue(books.stream().allMatch(b -> b instanceof Book));
+        assertEquals("이름순", "catalog-book-a", books.stream().filter(b -> b.getName().startsWith("catalog-")).findFirst().get().getName());
+
+        //then - 종류별 목록은 (dtype, name) 인덱스를 탄다.
+        String plan = jdbcTemplate.queryForObject(
+                "explain select item_id, name, price, stock_quantity from item where dtype = 'B' order by name", String.class);
+        assertTrue(plan, plan.toUpperCase().contains("IDX_ITEM_DTYPE_NAME"));
+     }
+
+    private static Item item(Item item, String name) {
+        item.setName(name);
+        item.setPrice(1000);
+        item.setStockQuantity(10);
+        return item;
+    }
+}
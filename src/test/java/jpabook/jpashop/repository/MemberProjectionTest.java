@@ -0,0 +1,76 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.member.MemberNameDto;
+import jpabook.jpashop.repository.member.MemberSummary;
+import org.hibernate.Session;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 회원 목록 프로젝션(생성자, Tuple, 인터페이스) , 키셋 페이징
+ * - 엔티티와 프로젝션의 시간, 할당량 비교는 load.MemberProjectionLoadTest (./gradlew loadTest)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class MemberProjectionTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired EntityManager em;
+
+    @Test
+    public void 키셋_페이징과_프로젝션() throws Exception {
+        //given
+        Long afterId = null;
+        for (int i = 0; i < 5; i++) {
+            Member member = new Member();
+            member.setName("projection-" + i);
+            member.setAddress(new Address("서울", "거리" + i, "1000" + i));
+            em.persist(member);
+            if (afterId == null) {
+                afterId = member.getId() - 1;
+            }
+        }
+        em.flush();
+        em.clear();
+
+        //when - 2건씩 끝까지 읽는다.
+        List<MemberNameDto> names = new ArrayList<>();
+        int pages = 0;
+        Long next = afterId;
+        while (next != null) {
+            KeysetSlice<MemberNameDto> slice = memberRepository.findNames(next, 2);
+            names.addAll(slice.getContent());
+            next = slice.getNext();
+            pages++;
+        }
+        KeysetSlice<MemberSummary> summaries = memberRepository.findSummaries(afterId, 2);
+        KeysetSlice<Tuple> tuples = memberRepository.findTuples(afterId, 2);
+
+        //then
+        assertEquals(5, names.size());
+        assertEquals(3, pages);
+        assertEquals("projection-4", names.get(4).getName());
+
+        MemberSummary first = summaries.getContent().get(0);
+        assertEquals(names.get(0).getId(), first.getId());
+        assertEquals("projection-0", first.getName());
+        assertEquals("서울", first.getCity());
+        assertEquals("거리0", tuples.getContent().get(0).get("street", String.class));
+        assertEquals(names.get(1).getId(), summaries.getNext());
+        assertEquals("엔티티를 읽지 않았다.", 0, em.unwrap(Session.class).getStatistics().getEntityCount());
+     }
+}
@@ -0,0 +1,77 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.FirstRequestLatency;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class QueryWarmUpTest {
+
+    @Autowired QueryWarmUp queryWarmUp;
+    @Autowired FirstRequestLatency firstRequestLatency;
+    @Autowired EntityManagerFactory emf;
+    @Autowired WebApplicationContext context;
+
+    @Test
+    public void 시작할때_JPQL을_미리_컴파일한다() throws Exception {
+        //then
+        QueryWarmUp.WarmUpStats stats = queryWarmUp.stats();
+        assertTrue(stats.getQueryMicros().containsKey("Order.findOrderQueryDtos"));
+        assertTrue(stats.getQueryMicros().containsKey("OrderQueryRepository.findOrderRows[status,name]"));
+        assertEquals(8 + 3 * 4, stats.getQueries());
+        assertTrue(stats.getStatements() >= stats.getQueries());
+     }
+
+    @Test
+    public void 워밍업한_동적_JPQL은_플랜_캐시에서_찾는다() throws Exception {
+        //given
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setOrderStatus(OrderStatus.CANCEL);
+        orderSearch.setMemberName("userA");
+        Statistics statistics = emf.unwrap(SessionFactoryImplementor.class).getStatistics();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+
+        //when
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.createQuery(OrderQueryRepository.rowsJpql(orderSearch));
+            em.createQuery(OrderRepository.searchJpql(orderSearch));
+        } finally {
+            em.close();
+            statistics.setStatisticsEnabled(false);
+        }
+
+        //then
+        assertEquals("새로 컴파일한 JPQL 이 없어야 한다.", 0, statistics.getQueryPlanCacheMissCount());
+        assertEquals(2, statistics.getQueryPlanCacheHitCount());
+     }
+
+    @Test
+    public void 첫_요청_처리시간() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+
+        mockMvc.perform(get("/api/v4/orders")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/warm-up/stats")).andExpect(status().isOk());
+
+        assertTrue(firstRequestLatency.firstRequestMicros().containsKey("GET /api/v4/orders"));
+     }
+}
@@ -0,0 +1,169 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import static org.junit.Assert.*;
+
+/**
+ * 먼저 온 요청의 실행을 latch 로 붙잡아 두고, 나머지 요청이 모두 기다리기 시작한 뒤에 풀어준다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class SingleFlightTest {
+
+    private static final int CLIENTS = 20;
+
+    @Autowired SingleFlight singleFlight;
+    @Autowired OrderSimpleQueryRepository orderSimpleQueryRepository;
+
+    ExecutorService clients;
+
+    @Before
+    public void setUp() {
+        clients = Executors.newFixedThreadPool(CLIENTS);
+        singleFlight.reset();
+    }
+
+    @After
+    public void tearDown() {
+        clients.shutdownNow();
+    }
+
+    @Test
+    public void 동시에_들어온_같은_조회는_한번만_실행한다() throws Exception {
+        //given
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+
+        //when
+        List<Future<List<OrderSimpleQueryDto>>> results = submit("orders", "v1", () -> {
+            executions.incrementAndGet();
+            await(release);
+            return orderSimpleQueryRepository.findOrderDtos();
+        });
+        waitShared("orders", CLIENTS - 1);
+        release.countDown();
+
+        //then
+        List<OrderSimpleQueryDto> first = results.get(0).get(10, TimeUnit.SECONDS);
+        for (Future<List<OrderSimpleQueryDto>> result : results) {
+            assertSame("같은 결과 객체를 나눠 받는다.", first, result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, executions.get());
+        SingleFlight.FlightStats stats = stats("orders");
+        assertEquals(CLIENTS, stats.getCalls());
+        assertEquals(1, stats.getExecutions());
+        assertEquals(CLIENTS - 1, stats.getShared());
+     }
+
+    @Test
+    public void 버전이_다르면_따로_실행한다() throws Exception {
+        //given
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        List<Future<Integer>> before = submit("versioned", "v1", () -> {
+            executions.incrementAndGet();
+            await(release);
+            return 1;
+        });
+        waitShared("versioned", CLIENTS - 1);
+
+        //when - 실행 중에 데이터가 바뀌었다. (새 버전)
+        Integer after = singleFlight.execute("versioned", "v2", () -> {
+            executions.incrementAndGet();
+            return 2;
+        });
+        release.countDown();
+
+        //then
+        assertEquals(Integer.valueOf(2), after);
+        for (Future<Integer> result : before) {
+            assertEquals(Integer.valueOf(1), result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(2, executions.get());
+     }
+
+    @Test
+    public void 예외도_같이_받고_끝나면_다시_실행한다() throws Exception {
+        //given
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<Integer>> results = submit("failing", "v1", () -> {
+            await(release);
+            throw new IllegalStateException("조회 실패");
+        });
+        waitShared("failing", CLIENTS - 1);
+
+        //when
+        release.countDown();
+
+        //then
+        for (Future<Integer> result : results) {
+            try {
+                result.get(10, TimeUnit.SECONDS);
+                fail("예외가 발생해야 한다.");
+            } catch (ExecutionException e) {
+                assertEquals("조회 실패", e.getCause().getMessage());
+            }
+        }
+        assertEquals("실행이 끝났으므로 다시 실행한다.", Integer.valueOf(3), singleFlight.execute("failing", "v1", () -> 3));
+        assertEquals(2, stats("failing").getExecutions());
+     }
+
+    private <T> List<Future<T>> submit(String name, String version, Supplier<T> query) throws InterruptedException {
+        List<Future<T>> results = new ArrayList<>();
+        results.add(clients.submit(() -> singleFlight.execute(name, version, query)));
+        waitCalls(name, 1); // 첫 요청이 실행을 시작한 뒤에 나머지를 보낸다.
+        for (int i = 1; i < CLIENTS; i++) {
+            results.add(clients.submit(() -> singleFlight.execute(name, version, query)));
+        }
+        return results;
+    }
+
+    private void waitCalls(String name, long calls) throws InterruptedException {
+        waitUntil(name, SingleFlight.FlightStats::getCalls, calls);
+    }
+
+    private void waitShared(String name, long shared) throws InterruptedException {
+        waitUntil(name, SingleFlight.FlightStats::getShared, shared);
+    }
+
+    private void waitUntil(String name, ToLongFunction<SingleFlight.FlightStats> counter, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (stats(name) == null || counter.applyAsLong(stats(name)) < expected) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private SingleFlight.FlightStats stats(String name) {
+        return singleFlight.stats().stream().filter(s -> s.getName().equals(name)).findFirst().orElse(null);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
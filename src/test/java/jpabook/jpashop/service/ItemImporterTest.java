@@ -0,0 +1,162 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 일괄 등록은 여러 스레드, 여러 트랜잭션으로 저장하므로 테스트 트랜잭션(@Transactional)을 사용하지 않는다.
+ * 등록한 상품은 이름(import-)으로 지운다.
+ * - 한 건씩 saveItem 과 일괄 등록의 처리량 비교는 load.ItemImportLoadTest (./gradlew loadTest)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ItemImporterTest {
+
+    @Autowired ItemImporter itemImporter;
+    @Autowired ItemService itemService;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @After
+    public void tearDown() {
+        jdbcTemplate.update("delete from item where name like 'import-%'");
+    }
+
+    @Test
+    public void CSV_등록과_수정() throws Exception {
+        //given
+        Book book = new Book();
+        book.setName("import-기존");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+
+        String csv = "type,id,name,price,stockQuantity,author,artist\n"
+                + "B,,\"import-JPA, 기본편\",20000,5,김영한,\n"
+                + "Album,,import-앨범,15000,3,,아이유\n"
+                + "," + book.getId() + ",,12000,,,\n" // 가격만 수정
+                + "X,,import-이상한종류,1000,1,,\n"
+                + ",-1,,1000,,,\n"
+                + "B,,import-가격없음,,1,,\n"
+                + "M," + book.getId() + ",,1,,,\n";
+
+        //when
+        ItemImportProgress progress = itemImporter.importItems(ItemImportReader.csv(stream(csv)));
+
+        //then
+        assertTrue(progress.isFinished());
+        assertEquals(7, progress.getRead());
+        assertEquals(2, progress.getInserted());
+        assertEquals(1, progress.getUpdated());
+        assertEquals(4, progress.getFailed());
+        assertTrue(progress.getErrors().contains("5번째 줄: 존재하지 않는 상품입니다."));
+        assertTrue(progress.getErrors().contains("7번째 줄: 상품 종류가 다릅니다."));
+
+        Item updated = itemService.findOne(book.getId());
+        assertEquals(12000, updated.getPrice());
+        assertEquals("값이 없는 필드는 그대로다.", "import-기존", updated.getName());
+        assertEquals(10, updated.getStockQuantity());
+        assertEquals("김영한", jdbcTemplate.queryForObject("select author from item where name = 'import-JPA, 기본편'", String.class));
+        assertEquals("A", jdbcTemplate.queryForObject("select dtype from item where name = 'import-앨범'", String.class));
+        assertTrue(itemImporter.recentJobs().contains(progress));
+     }
+
+    @Test
+    public void NDJSON_등록() throws Exception {
+        String ndjson = "{\"type\":\"B\",\"name\":\"import-json\",\"price\":1000,\"isbn\":\"978-89\"}\n"
+                + "{\"type\":\"A\",\"name\":\"import-json-album\",\"price\":2000,\"etc\":null}\n"
+                + "[1, 2]\n";
+
+        ItemImportProgress progress = itemImporter.importItems(ItemImportReader.ndjson(stream(ndjson)));
+
+        assertEquals(2, progress.getInserted());
+        assertEquals(1, progress.getFailed());
+        assertEquals("978-89", jdbcTemplate.queryForObject("select isbn from item where name = 'import-json'", String.class));
+        assertEquals("A", jdbcTemplate.queryForObject("select dtype from item where name = 'import-json-album'", String.class));
+     }
+
+    /**
+     * 저장 스레드가 예외로 죽으면 큐가 비워지지 않는다. 파일 읽기가 큐에서 영원히 기다리지 않고 그 오류로 실패해야 한다.
+     */
+    @Test(timeout = 30_000)
+    public void 저장_스레드가_죽으면_등록이_실패한다() throws Exception {
+        //given - 묶음 저장이 Error 로 끝나는 ItemService (RuntimeException 이 아니라서 한 줄씩 재시도하지 않는다.)
+        ItemService failing = mock(ItemService.class);
+        when(failing.importAll(anyList())).thenThrow(new AssertionError("저장 실패"));
+        ItemImporter importer = new ItemImporter(failing);
+        ReflectionTestUtils.setField(importer, "partitions", 1);
+        ReflectionTestUtils.setField(importer, "batchSize", 1);
+
+        //when
+        try {
+            importer.importItems(ItemImportReader.csv(lines("type,name,price,stockQuantity", 100, i -> "B,import-dead-" + i + ",1000,1")));
+            fail("예외가 발생해야 한다.");
+        } catch (IllegalStateException e) {
+            //then
+            assertTrue(e.getCause() instanceof AssertionError);
+        }
+        assertTrue(importer.recentJobs().get(0).isFinished());
+     }
+
+    /**
+     * 파일은 한 줄씩 만들어서 흘려보낸다. 여러 묶음으로 나뉘어 저장되어도 줄 수가 맞아야 한다.
+     */
+    @Test
+    public void 대량_등록과_가격_수정() throws Exception {
+        int size = 500;
+
+        //신규 등록
+        ItemImportProgress inserted = itemImporter.importItems(ItemImportReader.csv(lines("type,name,price,stockQuantity,author", size,
+                i -> "B,import-bulk-" + i + "," + (1000 + i) + ",10,author" + i)));
+        assertEquals(size, inserted.getInserted());
+        assertEquals(0, inserted.getFailed());
+
+        //가격 파일 , 방금 등록한 상품의 가격만 바꾼다.
+        long firstId = jdbcTemplate.queryForObject("select min(item_id) from item where name like 'import-bulk-%'", Long.class);
+        ItemImportProgress updated = itemImporter.importItems(ItemImportReader.csv(lines("id,price", size,
+                i -> (firstId + i) + "," + (2000 + i))));
+        assertEquals(size, updated.getUpdated());
+        assertEquals(0, updated.getFailed());
+        assertEquals(Integer.valueOf(2000), jdbcTemplate.queryForObject("select price from item where item_id = ?", Integer.class, firstId));
+     }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static InputStream lines(String header, int size, java.util.function.IntFunction<String> line) {
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+            int next = -1;
+
+            @Override
+            public boolean hasMoreElements() {
+                return next < size;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                String text = next < 0 ? header : line.apply(next);
+                next++;
+                return stream(text + "\n");
+            }
+        });
+    }
+}
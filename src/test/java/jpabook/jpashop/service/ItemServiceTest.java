@@ -0,0 +1,149 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.item.Album;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.ItemPatch;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * - merge , 변경 감지 , patch 수정 방법 비교는 load.ItemUpdateLoadTest (./gradlew loadTest)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class ItemServiceTest {
+
+    @Autowired ItemService itemService;
+    @Autowired EntityManager em;
+    @Autowired EntityManagerFactory emf;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void 부분수정은_바뀐_컬럼만_update_한다() throws Exception {
+        //given
+        Book book = createBook("부분수정 JPA", 10000, 10);
+        jdbcTemplate.update("update item set name = ? where item_id = ?", "다른곳에서 바꾼 이름", book.getId());
+
+        ItemPatch patch = new ItemPatch();
+        patch.setPrice(12000);
+
+        //when
+        Statistics statistics = statistics();
+        try {
+            itemService.patch(book.getId(), patch);
+
+            //then
+            assertEquals("select 없이 update 한 번", 1, statistics.getPrepareStatementCount());
+            assertEquals(0, statistics.getEntityLoadCount());
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+        Item item = itemService.findOne(book.getId());
+        assertEquals(12000, item.getPrice());
+        assertEquals("patch 하지 않은 컬럼은 덮어쓰지 않는다.", "다른곳에서 바꾼 이름", item.getName());
+        assertEquals(10, item.getStockQuantity());
+     }
+
+    @Test
+    public void Book_컬럼_부분수정() throws Exception {
+        //given
+        Book book = createBook("부분수정 Book", 10000, 10);
+        ItemPatch patch = new ItemPatch();
+        patch.setAuthor("김영한");
+        patch.setStockQuantity(3);
+
+        //when
+        itemService.patch(book.getId(), patch);
+
+        //then
+        Book findBook = (Book) itemService.findOne(book.getId());
+        assertEquals("김영한", findBook.getAuthor());
+        assertEquals(3, findBook.getStockQuantity());
+        assertEquals("부분수정 Book", findBook.getName());
+     }
+
+    @Test(expected = IllegalStateException.class)
+    public void 없는_상품_부분수정() throws Exception {
+        ItemPatch patch = new ItemPatch();
+        patch.setPrice(1);
+
+        itemService.patch(-1L, patch);
+
+        fail("없는 상품이면 예외가 발생해야 한다.");
+     }
+
+    @Test
+    public void 부분수정은_다른_엔티티를_준영속으로_만들지_않는다() throws Exception {
+        //given
+        Book book = createBook("부분수정 영속 JPA", 10000, 10);
+        Book other = createBook("부분수정 영속 SPRING", 20000, 10);
+        Item managed = itemService.findOne(book.getId());
+        Item managedOther = itemService.findOne(other.getId());
+
+        ItemPatch patch = new ItemPatch();
+        patch.setPrice(15000);
+
+        //when
+        itemService.patch(book.getId(), patch);
+
+        //then
+        assertTrue(em.contains(managedOther));
+        assertTrue(em.contains(managed));
+        assertEquals("수정한 상품은 DB 값으로 다시 읽는다.", 15000, managed.getPrice());
+     }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void 도서가_아닌_상품의_Book_컬럼_부분수정() throws Exception {
+        //given
+        Album album = new Album();
+        album.setName("부분수정 Album");
+        album.setPrice(10000);
+        album.setStockQuantity(10);
+        em.persist(album);
+        em.flush();
+        em.clear();
+
+        ItemPatch patch = new ItemPatch();
+        patch.setIsbn("1234");
+
+        //when
+        itemService.patch(album.getId(), patch);
+
+        //then
+        fail("도서가 아니면 예외가 발생해야 한다.");
+     }
+
+    private Statistics statistics() {
+        em.flush();
+        em.clear();
+        Statistics statistics = emf.unwrap(SessionFactoryImplementor.class).getStatistics();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+        return statistics;
+    }
+
+    private Book createBook(String name, int price, int stockQuantity) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(price);
+        book.setStockQuantity(stockQuantity);
+        em.persist(book);
+        em.flush();
+        em.clear();
+        return book;
+    }
+}
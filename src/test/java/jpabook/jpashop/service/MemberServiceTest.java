@@ -10,7 +10,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.Assert.*;
@@ -27,6 +36,12 @@ public class MemberServiceTest {
     @Autowired
     MemberService memberService;
 
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
     // 만약 Test Method에서 Rollback(false)를 넣는대신 이렇게도 사용할 수 있다.
     // @Autowired EntityManager em;
     // 이렇게 선언을 하고 @Test Method에서 then 부분에 해당하는 곳에 em.flush를 해주면 실제 insert문이 들어가는걸 확인할 수 있고, Test가 끝나면 다시 Rollback된다.
@@ -71,4 +86,122 @@ public class MemberServiceTest {
 
      }
 
-}
\ No newline at end of file
+    @Test(expected = IllegalStateException.class)
+    public void 중복회원예외_유니크제약조건() throws Exception {
+        //given - 필터를 거치지 않고 저장된 회원 (다른 서버에서 가입한 경우와 같다.)
+        Member member1 = new Member();
+        member1.setName("park");
+        em.persist(member1);
+
+        Member member2 = new Member();
+        member2.setName("park");
+
+        //when
+        memberService.join(member2); // 필터는 처음 보는 이름이라고 하지만 유니크 제약조건에 걸려야 한다.
+
+        //then
+        Assert.fail("예외가 발생해야 한다.");
+     }
+
+    @Test(expected = IllegalStateException.class)
+    public void 중복회원예외_이름변경() throws Exception {
+        //given
+        Member member1 = new Member();
+        member1.setName("lee");
+        memberService.join(member1);
+
+        Member member2 = new Member();
+        member2.setName("choi");
+        Long id = memberService.join(member2);
+
+        //when
+        memberService.update(id, "lee"); // 이미 있는 이름으로 바꿀 수 없다.
+
+        //then
+        Assert.fail("예외가 발생해야 한다.");
+     }
+
+    @Test(expected = IllegalStateException.class)
+    public void 중복회원예외_이름변경_유니크제약조건() throws Exception {
+        //given - 필터를 거치지 않고 저장된 회원
+        Member member1 = new Member();
+        member1.setName("jung");
+        em.persist(member1);
+
+        Member member2 = new Member();
+        member2.setName("kang");
+        Long id = memberService.join(member2);
+
+        //when
+        memberService.update(id, "jung"); // 유니크 제약조건 위반도 같은 예외로 바뀌어야 한다.
+
+        //then
+        Assert.fail("예외가 발생해야 한다.");
+     }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void 이름없이_수정() throws Exception {
+        //given
+        Member member = new Member();
+        member.setName("seo");
+        Long id = memberService.join(member);
+
+        //when
+        memberService.update(id, null);
+
+        //then
+        Assert.fail("예외가 발생해야 한다.");
+     }
+
+    /**
+     * 같은 이름으로 여러 스레드가 동시에 가입한다. 이름마다 하나만 성공해야 한다.
+     * - 실제로 커밋되어야 하므로 테스트 트랜잭션을 사용하지 않는다. 다른 테스트와 겹치지 않는 이름을 사용하고 끝나면 지운다.
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void 동시_회원가입() throws Exception {
+        //given
+        int names = 200;
+        int threadsPerName = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger success = new AtomicInteger();
+        AtomicInteger duplicated = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        String prefix = "동시가입" + System.nanoTime() + "-";
+
+        //when
+        for (int i = 0; i < names * threadsPerName; i++) {
+            String name = prefix + (i % names);
+            futures.add(executor.submit(() -> {
+                start.await();
+                Member member = new Member();
+                member.setName(name);
+                try {
+                    memberService.join(member);
+                    success.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    duplicated.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS); // 그 외의 예외가 나오면 여기서 실패한다.
+            }
+        } finally {
+            executor.shutdownNow();
+            new TransactionTemplate(transactionManager).execute(status ->
+                    em.createQuery("delete from Member m where m.name like :prefix")
+                            .setParameter("prefix", prefix + "%")
+                            .executeUpdate());
+        }
+
+        //then
+        assertEquals(names, success.get());
+        assertEquals(names * (threadsPerName - 1), duplicated.get());
+     }
+
+}
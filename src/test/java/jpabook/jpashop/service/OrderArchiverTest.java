@@ -0,0 +1,151 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.repository.OrderArchiveRepository;
+import jpabook.jpashop.repository.SalesRepository;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * 보관은 batch 마다 트랜잭션을 커밋하므로 테스트 트랜잭션(@Transactional)을 사용하지 않는다.
+ * - 2년 전 주문을 JDBC 로 넣고, 끝나면 최근/보관 테이블 모두에서 지운다. 마지막 주문은 배송이 없다.
+ * - 보관 전후 조회 시간 비교는 load.OrderArchiveLoadTest (./gradlew loadTest)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderArchiverTest {
+
+    private static final long FIRST_ID = 1_000_000_000L;
+    private static final int SIZE = 20;
+    private static final LocalDateTime ORDER_DATE = LocalDateTime.now().minusYears(2);
+
+    @Autowired OrderArchiver orderArchiver;
+    @Autowired OrderHistoryService orderHistoryService;
+    @Autowired OrderQueryRepository orderQueryRepository;
+    @Autowired OrderArchiveRepository orderArchiveRepository;
+    @Autowired SalesRepository salesRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+
+    @Before
+    public void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        jdbcTemplate.update("insert into member (member_id, name, city, street, zipcode) values (?, ?, ?, ?, ?)",
+                FIRST_ID, "archive-member", "서울", "1", "1111");
+        jdbcTemplate.update("insert into item (item_id, dtype, name, price, stock_quantity) values (?, 'B', ?, ?, ?)",
+                FIRST_ID, "archive-book", 1000, 10);
+
+        List<Object[]> deliveries = new ArrayList<>();
+        List<Object[]> orders = new ArrayList<>();
+        List<Object[]> orderItems = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            long id = FIRST_ID + i;
+            boolean withDelivery = i < SIZE - 1;
+            if (withDelivery) {
+                deliveries.add(new Object[]{id, "서울", "1", "1111"});
+            }
+            orders.add(new Object[]{id, FIRST_ID, withDelivery ? id : null, Timestamp.valueOf(ORDER_DATE.plusSeconds(i))});
+            orderItems.add(new Object[]{id, FIRST_ID, id});
+        }
+        jdbcTemplate.batchUpdate("insert into delivery (delivery_id, city, street, zipcode, status) values (?, ?, ?, ?, 'COMP')", deliveries);
+        jdbcTemplate.batchUpdate("insert into orders (order_id, member_id, delivery_id, order_date, status) values (?, ?, ?, ?, 'ORDER')", orders);
+        jdbcTemplate.batchUpdate("insert into order_item (order_item_id, item_id, order_id, order_price, count) values (?, ?, ?, 1000, 2)", orderItems);
+    }
+
+    @After
+    public void tearDown() {
+        jdbcTemplate.update("delete from order_item_archive where order_item_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from orders_archive where order_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from order_item where order_item_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from orders where order_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from delivery where delivery_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from item where item_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from member where member_id >= ?", FIRST_ID);
+    }
+
+    @Test
+    public void 오래된_주문은_보관되고_기간_조회에서만_보인다() throws Exception {
+        //when
+        int archived = orderArchiver.archive(LocalDateTime.now().minusYears(1));
+
+        //then - 최근 주문(InitDb)은 그대로 두고 2년 전 주문만 옮긴다. 배송이 없는 주문도 옮긴 뒤에 지운다.
+        assertEquals(SIZE, archived);
+        assertEquals(Integer.valueOf(0), jdbcTemplate.queryForObject("select count(*) from orders where order_id >= ?", Integer.class, FIRST_ID));
+        assertEquals(Integer.valueOf(SIZE), jdbcTemplate.queryForObject("select count(*) from orders_archive where order_id >= ?", Integer.class, FIRST_ID));
+        assertEquals("배송도 같이 옮긴다.", Integer.valueOf(0), jdbcTemplate.queryForObject("select count(*) from delivery where delivery_id >= ?", Integer.class, FIRST_ID));
+        assertEquals("다시 실행해도 옮길 주문이 없다.", 0, orderArchiver.archive(LocalDateTime.now().minusYears(1)));
+
+        //then - 기본 조회는 최근 주문 테이블만 본다.
+        List<OrderQueryDto> recent = tx.execute(status -> orderQueryRepository.findAllByDto_optimization());
+        assertFalse(recent.isEmpty());
+        assertTrue(recent.stream().noneMatch(o -> o.getOrderId() >= FIRST_ID));
+        assertTrue(orderHistoryService.findOrders(LocalDate.now().minusMonths(1), null).stream().noneMatch(o -> o.getOrderId() >= FIRST_ID));
+
+        //then - 시작일이 없으면 처음부터라서 보관 테이블도 합친다.
+        assertEquals(SIZE, orderHistoryService.findOrders(null, null).stream().filter(o -> o.getOrderId() >= FIRST_ID).count());
+        assertEquals(SIZE, orderHistoryService.findOrders(null, ORDER_DATE.toLocalDate().plusDays(1)).size());
+
+        //then - 기간이 보관된 주문까지 내려가면 보관 테이블도 합쳐서 보여준다.
+        LocalDate from = ORDER_DATE.toLocalDate();
+        List<OrderQueryDto> history = orderHistoryService.findOrders(from, null);
+        Set<Long> ids = history.stream().map(OrderQueryDto::getOrderId).collect(Collectors.toSet());
+        assertEquals("보관 주문 + 최근 주문", SIZE + recent.size(), history.size());
+        assertTrue(ids.containsAll(recent.stream().map(OrderQueryDto::getOrderId).collect(Collectors.toList())));
+        OrderQueryDto first = history.get(0);
+        assertEquals(Long.valueOf(FIRST_ID), first.getOrderId());
+        assertEquals("archive-member", first.getName());
+        assertEquals("서울", first.getAddress().getCity());
+        assertEquals("archive-book", first.getOrderItems().get(0).getItemName());
+        assertEquals("종료일까지만", SIZE, orderHistoryService.findOrders(from, from.plusDays(1)).size());
+
+        //then - 매출 재집계는 보관된 주문도 합친다.
+        List<Object[]> sales = tx.execute(status -> salesRepository.sumArchivedByItem());
+        Object[] book = sales.stream().filter(row -> row[0].equals(FIRST_ID)).findFirst().get();
+        assertEquals(2L * SIZE, ((Number) book[2]).longValue());
+     }
+
+    @Test
+    public void 두_테이블에_모두_있는_주문은_한번만_보인다() throws Exception {
+        //given
+        LocalDate day = ORDER_DATE.toLocalDate();
+        int before = orderHistoryService.findOrders(day, day.plusDays(1)).size();
+
+        //given - 보관 테이블로 복사만 되고 아직 지워지지 않은 주문 (최근 주문을 읽은 뒤 보관 테이블을 읽기 전에 옮겨진 경우)
+        jdbcTemplate.update("insert into orders_archive (order_id, member_id, order_date, status, delivery_status, city, street, zipcode, archived_at)" +
+                " select o.order_id, o.member_id, o.order_date, o.status, d.status, d.city, d.street, d.zipcode, current_timestamp" +
+                " from orders o join delivery d on d.delivery_id = o.delivery_id where o.order_id = ?", FIRST_ID);
+        jdbcTemplate.update("insert into order_item_archive (order_item_id, order_id, item_id, order_price, count)" +
+                " select order_item_id, order_id, item_id, order_price, count from order_item where order_id = ?", FIRST_ID);
+
+        //when
+        List<OrderQueryDto> history = orderHistoryService.findOrders(day, day.plusDays(1));
+
+        //then
+        assertEquals(before, history.size());
+        assertEquals(before, history.stream().map(OrderQueryDto::getOrderId).distinct().count());
+        assertEquals("보관된 주문이 먼저", Long.valueOf(FIRST_ID), history.get(0).getOrderId());
+        assertEquals(1, history.get(0).getOrderItems().size());
+     }
+}
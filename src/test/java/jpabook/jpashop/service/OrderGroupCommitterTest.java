@@ -0,0 +1,93 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * 그룹 커밋은 별도 스레드에서 커밋하기 때문에 테스트 트랜잭션(@Transactional)을 사용하지 않는다.
+ * 데이터가 실제로 커밋되므로 다른 테스트와 겹치지 않는 이름을 사용한다.
+ * - 주문마다 커밋 vs 그룹 커밋 처리량 비교는 load.OrderGroupCommitLoadTest (./gradlew loadTest)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderGroupCommitterTest {
+
+    @Autowired EntityManager em;
+    @Autowired OrderService orderService;
+    @Autowired OrderGroupCommitter orderGroupCommitter;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    public void 그룹커밋_주문별_결과() throws Exception {
+        //given - 재고 10개 상품에 20명이 동시에 1개씩 주문
+        Long memberId = createMember("그룹커밋회원1");
+        Long itemId = createBook("그룹커밋 JPA1", 10000, 10);
+        ExecutorService clients = Executors.newFixedThreadPool(20);
+
+        //when
+        List<Future<Long>> results = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            results.add(clients.submit(() -> orderGroupCommitter.submit(memberId, itemId, 1).get()));
+        }
+
+        //then
+        int success = 0;
+        int notEnoughStock = 0;
+        for (Future<Long> result : results) {
+            try {
+                assertNotNull(result.get(10, TimeUnit.SECONDS));
+                success++;
+            } catch (ExecutionException e) {
+                assertTrue("재고 부족 예외는 해당 주문에만 전달되어야 한다.",
+                        e.getCause().getCause() instanceof NotEnoughStockException);
+                notEnoughStock++;
+            }
+        }
+        clients.shutdown();
+        assertEquals(10, success);
+        assertEquals(10, notEnoughStock);
+        assertEquals("성공한 주문만큼만 재고가 줄어야 한다.", 0, stockOf(itemId));
+     }
+
+    private int stockOf(Long itemId) {
+        return new TransactionTemplate(transactionManager).execute(status -> em.find(Item.class, itemId).getStockQuantity());
+    }
+
+    private Long createBook(String name, int price, int stockQuantity) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Book book = new Book();
+            book.setName(name);
+            book.setPrice(price);
+            book.setStockQuantity(stockQuantity);
+            em.persist(book);
+            return book.getId();
+        });
+    }
+
+    private Long createMember(String name) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Member member = new Member();
+            member.setName(name);
+            member.setAddress(new Address("서울", "경기", "123-123"));
+            em.persist(member);
+            return member.getId();
+        });
+    }
+}
@@ -0,0 +1,127 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.order.query.OrderRowDto;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 캐시는 커밋 후에 지우고, 쓰기 트랜잭션 안에서는 쓰지 않으므로 테스트 트랜잭션(@Transactional)을 사용하지 않는다.
+ * 데이터가 실제로 커밋되므로 다른 테스트와 겹치지 않는 이름을 사용한다.
+ * - 서비스를 거치지 않고 JDBC 로 넣은 주문은 캐시를 지우지 않는다. 그래서 캐시된 결과인지 확인할 수 있다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderSearchCacheTest {
+
+    private static final AtomicInteger RUN = new AtomicInteger();
+
+    @Autowired OrderService orderService;
+    @Autowired MemberService memberService;
+    @Autowired ItemService itemService;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    String memberName;
+    Long memberId;
+    Long itemId;
+
+    @Before
+    public void setUp() {
+        memberName = "검색캐시회원" + RUN.incrementAndGet();
+        Member member = new Member();
+        member.setName(memberName);
+        member.setAddress(new Address("서울", "1", "1111"));
+        memberId = memberService.join(member);
+
+        Book book = new Book();
+        book.setName("검색캐시 BOOK");
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        itemService.saveItem(book);
+        itemId = book.getId();
+    }
+
+    @Test
+    public void 같은_검색은_캐시된_주문id로_읽고_주문하면_지운다() throws Exception {
+        //given
+        orderService.order(memberId, itemId, 1);
+        assertEquals(1, search(memberName, null).size());
+
+        //when - 서비스를 거치지 않은 주문
+        insertOrderDirectly();
+
+        //then - 캐시된 결과
+        assertEquals(1, search(memberName, null).size());
+        assertEquals("다른 검색 조건은 새로 검색한다.", 2, search(memberName, OrderStatus.ORDER).size());
+
+        //when - 서비스로 주문
+        orderService.order(memberId, itemId, 1);
+
+        //then
+        assertEquals(3, search(memberName, null).size());
+        assertEquals(3, search(memberName, OrderStatus.ORDER).size());
+     }
+
+    @Test
+    public void 취소하면_상태_검색만_지우고_줄의_값은_새로_읽는다() throws Exception {
+        //given
+        Long orderId = orderService.order(memberId, itemId, 1);
+        assertEquals(1, search(memberName, null).size());
+        assertEquals(0, search(memberName, OrderStatus.CANCEL).size());
+        insertOrderDirectly();
+
+        //when
+        orderService.cancelOrder(orderId);
+
+        //then
+        List<OrderRowDto> all = search(memberName, null);
+        assertEquals("상태 조건이 없는 검색은 결과가 그대로라서 캐시를 쓴다.", 1, all.size());
+        assertEquals(OrderStatus.CANCEL, all.get(0).getOrderStatus());
+        assertEquals(1, search(memberName, OrderStatus.CANCEL).size());
+     }
+
+    @Test
+    public void 회원_이름을_바꾸면_이름_검색을_지운다() throws Exception {
+        //given
+        orderService.order(memberId, itemId, 1);
+        assertEquals(1, search(memberName + "%", null).size());
+
+        //when
+        memberService.update(memberId, "바뀐" + memberName);
+
+        //then
+        assertEquals(0, search(memberName + "%", null).size());
+        assertEquals("바뀐" + memberName, search("바뀐" + memberName, null).get(0).getMemberName());
+     }
+
+    private List<OrderRowDto> search(String memberName, OrderStatus status) {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName(memberName);
+        orderSearch.setOrderStatus(status);
+        return orderService.findOrderRows(orderSearch);
+    }
+
+    private void insertOrderDirectly() {
+        Long deliveryId = jdbcTemplate.queryForObject("select nextval('hibernate_sequence')", Long.class);
+        Long orderId = jdbcTemplate.queryForObject("select nextval('hibernate_sequence')", Long.class);
+        jdbcTemplate.update("insert into delivery (delivery_id, city, street, zipcode, status) values (?, '서울', '1', '1111', 'READY')", deliveryId);
+        jdbcTemplate.update("insert into orders (order_id, member_id, delivery_id, order_date, status) values (?, ?, ?, ?, 'ORDER')",
+                orderId, memberId, deliveryId, Timestamp.valueOf(LocalDateTime.now()));
+    }
+}
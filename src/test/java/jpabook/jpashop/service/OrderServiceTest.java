@@ -1,13 +1,24 @@
 package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.DeliveryStatus;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.OrderSummary;
 import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.outbox.OutboxEvent;
+import jpabook.jpashop.domain.outbox.OutboxEventType;
 import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.ItemRepository;
 import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.OrderSummaryRepository;
+import jpabook.jpashop.repository.OutboxRepository;
+import jpabook.jpashop.service.OrderService.BulkCancelResult;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +27,9 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -27,6 +41,12 @@ public class OrderServiceTest {
     @Autowired EntityManager em;
     @Autowired OrderService orderService;
     @Autowired OrderRepository orderRepository;
+    @Autowired OutboxRepository outboxRepository;
+    @Autowired OutboxProjector outboxProjector;
+    @Autowired ItemRepository itemRepository;
+    @Autowired OrderSummaryRepository orderSummaryRepository;
+    @Autowired SalesService salesService;
+    @Autowired EntityManagerFactory emf;
 
     @Test
     public void 상품주문() throws Exception {
@@ -88,7 +108,143 @@ public class OrderServiceTest {
      }
 
 
+    @Test
+    public void 주문_읽기모델() throws Exception {
+        //given
+        String memberName = "읽기모델회원" + System.nanoTime();
+        Member member = createMember(memberName);
+        Book item = createBook("시골 JPA", 10000, 10);
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName(memberName);
+
+        //when
+        Long orderId = orderService.order(member.getId(), item.getId(), 3);
+
+        //then - 아웃박스 처리(drain) 없이 같은 트랜잭션에서 보인다.
+        List<OrderSummary> summaries = orderService.findOrderSummaries(orderSearch);
+        assertEquals("주문 시 읽기 모델이 같이 저장되어야 한다.", 1, summaries.size());
+        OrderSummary summary = summaries.get(0);
+        assertEquals(orderId, summary.getOrderId());
+        assertEquals("총 주문 가격이 펼쳐져 있어야 한다.", 30000, summary.getTotalPrice());
+        assertEquals(1, summary.getItemCount());
+        assertEquals("서울", summary.getCity());
+
+        //when
+        orderService.cancelOrder(orderId);
+
+        //then
+        assertEquals("주문 취소시 읽기 모델의 상태도 CANCEL 이다.", OrderStatus.CANCEL, summary.getStatus());
+     }
+
 
+    @Test
+    public void 주문_취소_아웃박스() throws Exception {
+        //given
+        Member member = createMember();
+        Book item = createBook("시골 JPA", 10000, 10);
+        outboxProjector.drain(); // 다른 테스트가 커밋한 이벤트를 먼저 비운다.
+        long pendingBefore = outboxRepository.countPending();
+
+        //when
+        Long orderId = orderService.order(member.getId(), item.getId(), 2);
+        orderService.cancelOrder(orderId);
+
+        //then
+        List<OutboxEvent> events = outboxRepository.findPending(1000);
+        List<OutboxEvent> mine = events.subList(events.size() - 4, events.size());
+        assertEquals("주문, 재고감소, 취소, 재고복구 이벤트가 같은 트랜잭션에 기록되어야 한다.", pendingBefore + 4, events.size());
+        assertEquals(OutboxEventType.ORDER_PLACED, mine.get(0).getEventType());
+        assertEquals(orderId, mine.get(0).getAggregateId());
+        assertEquals(OutboxEventType.STOCK_CHANGED, mine.get(1).getEventType());
+        assertEquals(item.getId(), mine.get(1).getAggregateId());
+        assertEquals(OutboxEventType.ORDER_CANCELLED, mine.get(2).getEventType());
+        assertEquals(OutboxEventType.STOCK_CHANGED, mine.get(3).getEventType());
+     }
+
+
+
+    @Test
+    public void 주문_일괄취소() throws Exception {
+        //given
+        Member member = createMember();
+        Book book1 = createBook("시골 JPA", 10000, 10);
+        Book book2 = createBook("시골 SPRING", 20000, 10);
+        Long order1 = orderService.order(member.getId(), book1.getId(), 2);
+        Long order2 = orderService.order(member.getId(), book1.getId(), 3);
+        Long order3 = orderService.order(member.getId(), book2.getId(), 4);
+        Long delivered = orderService.order(member.getId(), book2.getId(), 1);
+        orderRepository.findOne(delivered).getDelivery().setStatus(DeliveryStatus.COMP);
+        orderService.cancelOrder(order3);
+        long pendingBefore = outboxRepository.countPending();
+        long itemUnitsBefore = salesService.findItemSales(book1.getId()).getUnits();
+        Statistics statistics = statistics();
+
+        //when
+        BulkCancelResult result;
+        try {
+            result = orderService.cancelOrders(Arrays.asList(order1, order2, order3, delivered, -1L));
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+
+        //then
+        assertEquals(2, result.getCancelled());
+        assertEquals(1, result.getRestoredItems());
+        assertEquals(Arrays.asList(order3), result.getAlreadyCancelled());
+        assertEquals(Arrays.asList(delivered), result.getDelivered());
+        assertEquals(Arrays.asList(-1L), result.getNotFound());
+        assertEquals("주문을 엔티티로 읽지 않는다.", 0, statistics.getEntityLoadCount());
+
+        assertEquals(OrderStatus.CANCEL, orderRepository.findOne(order1).getStatus());
+        assertEquals(OrderStatus.CANCEL, orderRepository.findOne(order2).getStatus());
+        assertEquals(OrderStatus.ORDER, orderRepository.findOne(delivered).getStatus());
+        assertEquals("읽기 모델도 같은 트랜잭션에서 취소된다.", OrderStatus.CANCEL, orderSummaryRepository.findOne(order2).getStatus());
+        assertEquals(OrderStatus.ORDER, orderSummaryRepository.findOne(delivered).getStatus());
+        assertEquals("같은 상품의 주문 수량을 합쳐서 한 번에 복구한다.", 10, itemRepository.findOne(book1.getId()).getStockQuantity());
+        assertEquals(9, itemRepository.findOne(book2.getId()).getStockQuantity());
+        assertEquals("매출에서 차감", itemUnitsBefore - 5, salesService.findItemSales(book1.getId()).getUnits());
+
+        List<OutboxEvent> events = outboxRepository.findPending(1000);
+        assertEquals("취소 2건 + 재고 복구 1건", pendingBefore + 3, events.size());
+        OutboxEvent stockChanged = events.get(events.size() - 1);
+        assertEquals(OutboxEventType.STOCK_CHANGED, stockChanged.getEventType());
+        assertTrue(stockChanged.getPayload().contains("\"delta\":5"));
+     }
+
+    @Test
+    public void 검색조건으로_일괄취소() throws Exception {
+        //given
+        Member member = createMember();
+        Book book = createBook("시골 JPA", 10000, 10);
+        orderService.order(member.getId(), book.getId(), 1);
+        orderService.order(member.getId(), book.getId(), 2);
+
+        //when
+        OrderSearch pattern = new OrderSearch();
+        pattern.setMemberName("%");
+        pattern.setOrderStatus(OrderStatus.ORDER);
+        BulkCancelResult none = orderService.cancelOrders(pattern);
+
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName("회원1");
+        orderSearch.setOrderStatus(OrderStatus.ORDER);
+        BulkCancelResult result = orderService.cancelOrders(orderSearch);
+
+        //then
+        assertEquals("회원 이름은 like 패턴이 아니라 정확히 같은 이름만 찾는다.", 0, none.getRequested());
+        assertEquals(2, result.getCancelled());
+        assertEquals(10, itemRepository.findOne(book.getId()).getStockQuantity());
+        assertTrue(orderService.findOrders(orderSearch).isEmpty());
+     }
+
+    private Statistics statistics() {
+        em.flush();
+        em.clear();
+        Statistics statistics = emf.unwrap(SessionFactoryImplementor.class).getStatistics();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+        return statistics;
+    }
 
 
     private Book createBook(String name, int price, int stockQuantity) {
@@ -101,8 +257,12 @@ public class OrderServiceTest {
     }
 
     private Member createMember() {
+        return createMember("회원1");
+    }
+
+    private Member createMember(String name) {
         Member member = new Member();
-        member.setName("회원1");
+        member.setName(name);
         member.setAddress(new Address("서울", "경기" , "123-123"));
         em.persist(member);
         return member;
@@ -0,0 +1,157 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 스냅샷은 자기 트랜잭션으로 읽고, 아웃박스 처리도 커밋하므로 테스트 트랜잭션(@Transactional)을 사용하지 않는다.
+ * - 2001-01-01 주문 8건(2건은 보관 테이블)을 JDBC 로 넣고 끝나면 지운다. 주문일로 걸러서 다른 테스트의 주문과 섞이지 않게 한다.
+ * - 엔티티 조회와 스냅샷 집계의 시간 비교는 load.OrderSnapshotLoadTest (./gradlew loadTest)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderSnapshotTest {
+
+    private static final long FIRST_ID = 1_000_000_000L;
+    private static final int SIZE = 8;
+    private static final int ARCHIVED = 2; // 앞의 2건은 보관 테이블에 둔다.
+    private static final LocalDate ORDER_DAY = LocalDate.of(2001, 1, 1);
+
+    @Autowired OrderSnapshot orderSnapshot;
+    @Autowired OutboxProjector outboxProjector;
+    @Autowired OrderService orderService;
+    @Autowired MemberService memberService;
+    @Autowired ItemService itemService;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp() {
+        jdbcTemplate.update("insert into member (member_id, name, city, street, zipcode) values (?, ?, ?, ?, ?)",
+                FIRST_ID, "snapshot-member", "서울", "1", "1111");
+        jdbcTemplate.update("insert into item (item_id, dtype, name, price, stock_quantity) values (?, 'B', ?, ?, ?)",
+                FIRST_ID, "snapshot-book-a", 1000, 10);
+        jdbcTemplate.update("insert into item (item_id, dtype, name, price, stock_quantity) values (?, 'B', ?, ?, ?)",
+                FIRST_ID + 1, "snapshot-book-b", 3000, 10);
+
+        Timestamp orderDate = Timestamp.valueOf(ORDER_DAY.atTime(10, 0));
+        for (int i = 0; i < SIZE; i++) {
+            long id = FIRST_ID + i;
+            String status = i % 4 == 0 ? "CANCEL" : "ORDER";
+            if (i < ARCHIVED) {
+                jdbcTemplate.update("insert into orders_archive (order_id, member_id, order_date, status, delivery_status, city, street, zipcode, archived_at)" +
+                        " values (?, ?, ?, ?, 'COMP', '서울', '1', '1111', current_timestamp)", id, FIRST_ID, orderDate, status);
+                jdbcTemplate.update("insert into order_item_archive (order_item_id, order_id, item_id, order_price, count) values (?, ?, ?, ?, ?)",
+                        FIRST_ID + 2L * i, id, FIRST_ID, 1000, 2);
+                jdbcTemplate.update("insert into order_item_archive (order_item_id, order_id, item_id, order_price, count) values (?, ?, ?, ?, ?)",
+                        FIRST_ID + 2L * i + 1, id, FIRST_ID + 1, 3000, 1);
+                continue;
+            }
+            jdbcTemplate.update("insert into delivery (delivery_id, city, street, zipcode, status) values (?, '서울', '1', '1111', 'COMP')", id);
+            jdbcTemplate.update("insert into orders (order_id, member_id, delivery_id, order_date, status) values (?, ?, ?, ?, ?)",
+                    id, FIRST_ID, id, orderDate, status);
+            jdbcTemplate.update("insert into order_item (order_item_id, item_id, order_id, order_price, count) values (?, ?, ?, ?, ?)",
+                    FIRST_ID + 2L * i, FIRST_ID, id, 1000, 2); // 2000
+            jdbcTemplate.update("insert into order_item (order_item_id, item_id, order_id, order_price, count) values (?, ?, ?, ?, ?)",
+                    FIRST_ID + 2L * i + 1, FIRST_ID + 1, id, 3000, 1); // 3000
+        }
+    }
+
+    @After
+    public void tearDown() {
+        jdbcTemplate.update("delete from order_item_archive where order_item_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from orders_archive where order_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from order_item where order_item_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from orders where order_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from delivery where delivery_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from item where item_id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from member where member_id >= ?", FIRST_ID);
+    }
+
+    @Test
+    public void 스냅샷_집계와_아웃박스_반영() throws Exception {
+        //when
+        OrderSnapshot.SnapshotStats stats = orderSnapshot.rebuild();
+
+        //then - 보관된 주문도 같이 집계한다.
+        assertTrue(stats.isBuilt());
+        assertTrue(stats.getOffHeapBytes() > 0);
+        assertNull("방금 만들었으면 API 요청은 거절한다.", orderSnapshot.requestRebuild());
+
+        List<OrderSnapshot.StatusTotal> totals = orderSnapshot.revenueByStatus(ORDER_DAY, ORDER_DAY);
+        OrderSnapshot.StatusTotal order = totals.stream().filter(t -> t.getStatus() == OrderStatus.ORDER).findFirst().get();
+        OrderSnapshot.StatusTotal cancel = totals.stream().filter(t -> t.getStatus() == OrderStatus.CANCEL).findFirst().get();
+        assertEquals(6 * 5000, order.getRevenue());
+        assertEquals(6 * 3, order.getUnits());
+        assertEquals(6, order.getOrderCount());
+        assertEquals(2 * 5000, cancel.getRevenue());
+        assertEquals(2, cancel.getOrderCount());
+
+        List<OrderSnapshot.ItemTotal> top = orderSnapshot.topItems(OrderStatus.ORDER, ORDER_DAY, ORDER_DAY, 10);
+        assertEquals(2, top.size());
+        assertEquals("snapshot-book-b", top.get(0).getName());
+        assertEquals(6 * 3000, top.get(0).getRevenue());
+        assertEquals("snapshot-book-a", top.get(1).getName());
+        assertEquals(6 * 2, top.get(1).getUnits());
+        assertTrue("다른 날짜는 제외", orderSnapshot.revenueByStatus(ORDER_DAY.plusDays(1), ORDER_DAY.plusDays(1)).stream()
+                .allMatch(t -> t.getRevenue() == 0));
+
+        //when - 주문, 취소는 아웃박스 이벤트로 반영된다.
+        outboxProjector.drain(); // 이전 테스트의 이벤트
+        Long memberId = join("스냅샷회원" + System.nanoTime());
+        Long itemId = createBook("스냅샷 BOOK " + System.nanoTime(), 7000, 10);
+        Long orderId = orderService.order(memberId, itemId, 3);
+        outboxProjector.drain();
+
+        //then
+        assertEquals(21000, findItem(null, itemId).getRevenue());
+        assertNull(findItem(OrderStatus.CANCEL, itemId));
+
+        //when
+        orderService.cancelOrder(orderId);
+        outboxProjector.drain();
+
+        //then
+        assertNull(findItem(OrderStatus.ORDER, itemId));
+        assertEquals(21000, findItem(OrderStatus.CANCEL, itemId).getRevenue());
+        assertEquals("같은 주문을 두 번 붙이지 않는다.", 3, findItem(null, itemId).getUnits());
+     }
+
+    private OrderSnapshot.ItemTotal findItem(OrderStatus status, Long itemId) {
+        return orderSnapshot.topItems(status, LocalDate.now(), LocalDate.now(), 1000).stream()
+                .filter(t -> t.getItemId() == itemId)
+                .findFirst().orElse(null);
+    }
+
+    private Long join(String name) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(new Address("서울", "1", "1111"));
+        return memberService.join(member);
+    }
+
+    private Long createBook(String name, int price, int stockQuantity) {
+        Item book = new Book();
+        book.setName(name);
+        book.setPrice(price);
+        book.setStockQuantity(stockQuantity);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+}
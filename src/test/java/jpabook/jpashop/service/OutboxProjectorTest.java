@@ -0,0 +1,154 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.outbox.OutboxEvent;
+import jpabook.jpashop.domain.outbox.OutboxEventStatus;
+import jpabook.jpashop.domain.outbox.OutboxEventType;
+import jpabook.jpashop.repository.OutboxRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 처리기가 실패하는 projector 를 따로 만들어서 실패 처리를 확인한다.
+ * 이벤트는 커밋된 것만 처리하므로 테스트 트랜잭션(@Transactional)을 사용하지 않는다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OutboxProjectorTest {
+
+    @Autowired EntityManager em;
+    @Autowired OrderService orderService;
+    @Autowired OutboxProjector outboxProjector;
+    @Autowired OutboxRepository outboxRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    public void 실패한_이벤트는_실패로_남기고_다음_이벤트를_처리한다() throws Exception {
+        //given - 첫 주문의 ORDER_PLACED 처리기가 SQL 예외로 트랜잭션을 rollback-only 로 만든다.
+        outboxProjector.drain(); // 다른 테스트가 커밋한 이벤트
+        Long memberId = createMember();
+        Long itemId = createBook();
+        Long failing = orderService.order(memberId, itemId, 1);
+        Long next = orderService.order(memberId, itemId, 1);
+        OutboxProjector projector = projector(new OutboxEventHandler() {
+            @Override
+            public boolean supports(OutboxEventType eventType) {
+                return eventType == OutboxEventType.ORDER_PLACED;
+            }
+
+            @Override
+            public void handle(OutboxEvent event) {
+                if (event.getAggregateId().equals(failing)) {
+                    em.createNativeQuery("select * from no_such_table").getResultList();
+                }
+            }
+        }, 2);
+
+        //when
+        int first = projector.drain();
+
+        //then
+        OutboxEvent event = placedEvent(failing);
+        assertEquals("실패 횟수는 처리기의 롤백과 같이 롤백되지 않는다.", 1, event.getAttempts());
+        assertEquals(OutboxEventStatus.PENDING, event.getStatus());
+        assertEquals("순서를 지키기 위해서 이후 이벤트는 처리하지 않는다.", 0, first);
+        assertEquals(OutboxEventStatus.PENDING, placedEvent(next).getStatus());
+
+        //when
+        projector.drain();
+
+        //then
+        event = placedEvent(failing);
+        assertEquals(2, event.getAttempts());
+        assertEquals("max-attempts 만큼 실패하면 처리된 이벤트와 구분해서 남긴다.", OutboxEventStatus.FAILED, event.getStatus());
+        assertEquals("실패한 이벤트를 건너뛰고 다음 이벤트를 처리한다.", OutboxEventStatus.PROCESSED, placedEvent(next).getStatus());
+        assertEquals(0, outboxRepository.countPending());
+        assertTrue(projector.stats().getDead() >= 1);
+     }
+
+    @Test
+    public void 처리된_이벤트는_다시_처리하지_않는다() throws Exception {
+        //given - 처리한 다음에 오래된 id 목록(복제 지연, 겹친 drain)으로 다시 들어온다.
+        outboxProjector.drain(); // 다른 테스트가 커밋한 이벤트
+        Long orderId = orderService.order(createMember(), createBook(), 1);
+        AtomicInteger handled = new AtomicInteger();
+        OutboxEventHandler counter = new OutboxEventHandler() {
+            @Override
+            public boolean supports(OutboxEventType eventType) {
+                return eventType == OutboxEventType.ORDER_PLACED;
+            }
+
+            @Override
+            public void handle(OutboxEvent event) {
+                handled.incrementAndGet();
+            }
+        };
+        OutboxProjector projector = projector(counter, 3);
+        projector.drain();
+        assertEquals(1, handled.get());
+        TransactionTemplate eventTx = new TransactionTemplate(transactionManager);
+        eventTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        //when
+        OutboxProjector.Outcome outcome = projector.process(eventTx, placedEvent(orderId).getId(), Collections.singletonList(counter));
+
+        //then
+        assertEquals(OutboxProjector.Outcome.SKIPPED, outcome);
+        assertEquals("처리기는 한 번만 호출된다.", 1, handled.get());
+        assertEquals(OutboxEventStatus.PROCESSED, placedEvent(orderId).getStatus());
+     }
+
+    private Long createMember() {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Member member = new Member();
+            member.setName("아웃박스회원" + System.nanoTime());
+            member.setAddress(new Address("서울", "1", "1111"));
+            em.persist(member);
+            return member.getId();
+        });
+    }
+
+    private Long createBook() {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Book book = new Book();
+            book.setName("아웃박스 JPA");
+            book.setPrice(10000);
+            book.setStockQuantity(10);
+            em.persist(book);
+            return book.getId();
+        });
+    }
+
+    private OutboxProjector projector(OutboxEventHandler handler, int maxAttempts) {
+        StaticListableBeanFactory handlers = new StaticListableBeanFactory();
+        handlers.addBean("handler", handler);
+        OutboxProjector projector = new OutboxProjector(outboxRepository, handlers.getBeanProvider(OutboxEventHandler.class), transactionManager);
+        ReflectionTestUtils.setField(projector, "batchSize", 100);
+        ReflectionTestUtils.setField(projector, "maxAttempts", maxAttempts);
+        return projector;
+    }
+
+    private OutboxEvent placedEvent(Long orderId) {
+        return new TransactionTemplate(transactionManager).execute(status -> em.createQuery(
+                        "select e from OutboxEvent e where e.eventType = :type and e.aggregateId = :orderId", OutboxEvent.class)
+                .setParameter("type", OutboxEventType.ORDER_PLACED)
+                .setParameter("orderId", orderId)
+                .getSingleResult());
+    }
+}
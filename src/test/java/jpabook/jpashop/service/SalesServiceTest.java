@@ -0,0 +1,195 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.sales.DailySales;
+import jpabook.jpashop.domain.sales.ItemSales;
+import jpabook.jpashop.domain.sales.MemberSales;
+import jpabook.jpashop.repository.MemberRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class SalesServiceTest {
+
+    @Autowired EntityManager em;
+    @Autowired OrderService orderService;
+    @Autowired SalesService salesService;
+    @Autowired MemberRepository memberRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    @Transactional
+    public void 주문_취소_매출집계() throws Exception {
+        //given
+        Member member = createMember();
+        Book book = createBook("시골 JPA", 10000, 10);
+        DailySales today = salesService.findDailySales(LocalDate.now());
+        long todayRevenue = today == null ? 0 : today.getRevenue(); // InitDb 주문도 오늘 날짜로 집계되어 있다.
+
+        //when
+        Long orderId = orderService.order(member.getId(), book.getId(), 3);
+        orderService.order(member.getId(), book.getId(), 2);
+
+        //then
+        ItemSales itemSales = salesService.findItemSales(book.getId());
+        assertEquals("매출은 가격 * 수량의 합이다.", 50000, itemSales.getRevenue());
+        assertEquals(5, itemSales.getUnits());
+        assertEquals(2, itemSales.getOrderCount());
+
+        //when
+        orderService.cancelOrder(orderId);
+
+        //then
+        MemberSales memberSales = salesService.findMemberSales(member.getId());
+        assertEquals("취소한 주문은 매출에서 빠져야 한다.", 20000, memberSales.getRevenue());
+        assertEquals(2, memberSales.getUnits());
+        assertEquals(1, memberSales.getOrderCount());
+        assertEquals("일자별 매출도 취소된 주문을 제외하고 늘어나야 한다.",
+                todayRevenue + 20000, salesService.findDailySales(LocalDate.now()).getRevenue());
+     }
+
+    @Test
+    @Transactional
+    public void 그룹커밋_매출집계() throws Exception {
+        //given
+        Member member = createMember();
+        Book book1 = createBook("시골 JPA", 10000, 10);
+        Book book2 = createBook("시골 SPRING", 20000, 10);
+
+        //when - 한 트랜잭션에 주문 3건 , 합계 row 마다 증분을 더해서 한 번씩 반영한다.
+        orderService.orderAll(Arrays.asList(
+                new OrderCommand(member.getId(), book1.getId(), 1),
+                new OrderCommand(member.getId(), book1.getId(), 2),
+                new OrderCommand(member.getId(), book2.getId(), 1)));
+
+        //then
+        ItemSales itemSales = salesService.findItemSales(book1.getId());
+        assertEquals(30000, itemSales.getRevenue());
+        assertEquals(3, itemSales.getUnits());
+        assertEquals(2, itemSales.getOrderCount());
+        MemberSales memberSales = salesService.findMemberSales(member.getId());
+        assertEquals(50000, memberSales.getRevenue());
+        assertEquals(3, memberSales.getOrderCount());
+     }
+
+    @Test
+    public void 재집계_증분결과와_같다() throws Exception {
+        //given - InitDb가 저장한 주문은 증분으로 집계되어 있다.
+        List<Member> members = memberRepository.findAll();
+        Map<Long, Long> before = new HashMap<>();
+        for (Member member : members) {
+            MemberSales memberSales = salesService.findMemberSales(member.getId());
+            before.put(member.getId(), memberSales == null ? 0 : memberSales.getRevenue());
+        }
+
+        //when
+        SalesService.RebuildResult result = salesService.rebuild();
+
+        //then
+        assertTrue(result.getRanges() >= 1);
+        for (Member member : members) {
+            MemberSales memberSales = salesService.findMemberSales(member.getId());
+            long revenue = memberSales == null ? 0 : memberSales.getRevenue();
+            assertEquals("재집계 결과는 증분 집계 결과와 같아야 한다.", (long) before.get(member.getId()), revenue);
+        }
+     }
+
+    /**
+     * 합계 row 가 아직 없는 상품에 동시에 처음 주문하면서 재집계를 돌린다. (커밋이 필요해서 테스트 트랜잭션 없이 실행한다.)
+     */
+    @Test
+    public void 동시_주문과_재집계() throws Exception {
+        //given
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long memberId = tx.execute(status -> createMember("매출동시회원" + System.nanoTime()).getId());
+        Long bookId = tx.execute(status -> createBook("매출동시 JPA", 1000, 1000).getId());
+        int clients = 8;
+        int ordersPerClient = 10;
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        CountDownLatch start = new CountDownLatch(1);
+
+        //when
+        List<Future<?>> futures = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ordersPerClient; i++) {
+                    orderService.order(memberId, bookId, 2);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        salesService.rebuild();
+        salesService.rebuild();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS); // 처음 row 를 만드는 주문끼리 부딪혀도 주문은 실패하지 않는다.
+        }
+        executor.shutdown();
+
+        //then
+        ItemSales itemSales = salesService.findItemSales(bookId);
+        assertEquals("재집계 중에 커밋된 주문도 빠지거나 두 번 더해지지 않는다.", clients * ordersPerClient, itemSales.getOrderCount());
+        assertEquals(clients * ordersPerClient * 2, itemSales.getUnits());
+        assertEquals(clients * ordersPerClient * 2000, salesService.findMemberSales(memberId).getRevenue());
+     }
+
+    @Test
+    public void 주문id_범위_분할() throws Exception {
+        List<long[]> chunks = SalesService.split(1, 10, 4);
+
+        assertEquals(4, chunks.size());
+        assertEquals(1, chunks.get(0)[0]);
+        assertEquals(10, chunks.get(chunks.size() - 1)[1]);
+        for (int i = 1; i < chunks.size(); i++) {
+            assertEquals("구간은 빈틈없이 이어져야 한다.", chunks.get(i - 1)[1] + 1, chunks.get(i)[0]);
+        }
+     }
+
+
+    private Book createBook(String name, int price, int stockQuantity) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(price);
+        book.setStockQuantity(stockQuantity);
+        em.persist(book);
+        return book;
+    }
+
+    private Member createMember() {
+        return createMember("회원1");
+    }
+
+    private Member createMember(String name) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(new Address("서울", "경기" , "123-123"));
+        em.persist(member);
+        return member;
+    }
+
+}